@@ -0,0 +1,80 @@
+package net.sf.openrocket.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.aerodynamics.AerodynamicForces;
+import net.sf.openrocket.aerodynamics.BarrowmanCalculator;
+import net.sf.openrocket.aerodynamics.FlightConditions;
+import net.sf.openrocket.aerodynamics.WarningSet;
+import net.sf.openrocket.models.atmosphere.AtmosphericConditions;
+import net.sf.openrocket.rocketcomponent.Configuration;
+import net.sf.openrocket.util.Coordinate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the aerodynamic force calculation of {@link BarrowmanCalculator} on the
+ * test rocket designs.  The Mach number is varied between calls in the same way as
+ * during a simulation, so that caching on exact flight conditions is not measured.
+ * A non-zero table tolerance enables the precomputed coefficient tables of the calculator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AerodynamicsBenchmark {
+	
+	@Param({ "smallFlyable", "bigBlue", "isoHaisu" })
+	public String design;
+	
+	@Param({ "0", "0.001" })
+	public double tableTolerance;
+	
+	private Configuration configuration;
+	private BarrowmanCalculator calculator;
+	private FlightConditions conditions;
+	private WarningSet warnings;
+	private int counter = 0;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkSupport.initialize();
+		configuration = BenchmarkSupport.createRocket(design).getDefaultConfiguration();
+		calculator = new BarrowmanCalculator();
+		calculator.setTableTolerance(tableTolerance);
+		warnings = new WarningSet();
+		
+		conditions = new FlightConditions(configuration);
+		conditions.setAtmosphericConditions(new AtmosphericConditions());
+		conditions.setAOA(2 * Math.PI / 180);
+		conditions.setTheta(0.3);
+		conditions.setRollRate(0.05);
+		conditions.setPitchRate(0.1);
+	}
+	
+	@Benchmark
+	public AerodynamicForces getAerodynamicForces() {
+		conditions.setMach(0.05 + 0.001 * (counter++ & 511));
+		return calculator.getAerodynamicForces(configuration, conditions, warnings);
+	}
+	
+	@Benchmark
+	public Coordinate getCP() {
+		conditions.setMach(0.05 + 0.001 * (counter++ & 511));
+		return calculator.getCP(configuration, conditions, warnings);
+	}
+	
+}
@@ -0,0 +1,91 @@
+package net.sf.openrocket.benchmark;
+
+import net.sf.openrocket.ServicesForTesting;
+import net.sf.openrocket.database.ComponentPresetDao;
+import net.sf.openrocket.database.ComponentPresetDatabase;
+import net.sf.openrocket.database.motor.MotorDatabase;
+import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.l10n.DebugTranslator;
+import net.sf.openrocket.l10n.Translator;
+import net.sf.openrocket.plugin.PluginModule;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.simulation.RK4SimulationStepper;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.startup.Application;
+import net.sf.openrocket.util.TestRockets;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
+
+/**
+ * Common setup of the benchmarks.
+ */
+final class BenchmarkSupport {
+	
+	private static boolean initialized = false;
+	
+	private BenchmarkSupport() {
+	}
+	
+	
+	/**
+	 * Set up the application injector with the test services and empty databases.
+	 */
+	static synchronized void initialize() {
+		if (initialized) {
+			return;
+		}
+		
+		Module applicationModule = new ServicesForTesting();
+		Module overrides = new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Translator.class).toInstance(new DebugTranslator(null));
+				bind(ComponentPresetDao.class).toInstance(new ComponentPresetDatabase());
+				bind(MotorDatabase.class).toInstance(new ThrustCurveMotorSetDatabase());
+			}
+		};
+		Injector injector = Guice.createInjector(Modules.override(applicationModule).with(overrides), new PluginModule());
+		Application.setInjector(injector);
+		initialized = true;
+	}
+	
+	
+	/**
+	 * Create one of the test rocket designs of {@link TestRockets}.
+	 * 
+	 * @param design	one of "smallFlyable", "bigBlue" or "isoHaisu".
+	 */
+	static Rocket createRocket(String design) {
+		if ("smallFlyable".equals(design)) {
+			return TestRockets.makeSmallFlyable();
+		} else if ("bigBlue".equals(design)) {
+			return TestRockets.makeBigBlue();
+		} else if ("isoHaisu".equals(design)) {
+			return TestRockets.makeIsoHaisu();
+		}
+		throw new IllegalArgumentException("Unknown rocket design: " + design);
+	}
+	
+	
+	/**
+	 * Create a simulation with fixed options.  The test preferences return zero for
+	 * all values, so the options must be set explicitly.
+	 */
+	static Simulation createSimulation(Rocket rocket) {
+		Simulation simulation = new Simulation(rocket);
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		options.setWindSpeedAverage(2);
+		options.setWindTurbulenceIntensity(0.1);
+		options.setRandomSeed(1);
+		return simulation;
+	}
+}
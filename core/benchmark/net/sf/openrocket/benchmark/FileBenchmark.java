@@ -0,0 +1,80 @@
+package net.sf.openrocket.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.document.OpenRocketDocument;
+import net.sf.openrocket.document.OpenRocketDocumentFactory;
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.document.StorageOptions;
+import net.sf.openrocket.file.GeneralRocketLoader;
+import net.sf.openrocket.file.RocketLoadException;
+import net.sf.openrocket.file.openrocket.OpenRocketSaver;
+import net.sf.openrocket.simulation.exception.SimulationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks saving and loading an OpenRocket document containing simulated flight data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileBenchmark {
+	
+	/** Time skip between stored data points, zero stores all points */
+	@Param({ "0", "0.05" })
+	public double timeSkip;
+	
+	private OpenRocketDocument document;
+	private StorageOptions options;
+	private byte[] saved;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws SimulationException, IOException {
+		BenchmarkSupport.initialize();
+		document = OpenRocketDocumentFactory.createDocumentFromRocket(BenchmarkSupport.createRocket("smallFlyable"));
+		Simulation simulation = BenchmarkSupport.createSimulation(document.getRocket());
+		simulation.simulate();
+		document.addSimulation(simulation);
+		
+		options = new StorageOptions();
+		options.setSimulationTimeSkip(timeSkip);
+		saved = save();
+	}
+	
+	@Benchmark
+	public byte[] save() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new OpenRocketSaver().save(out, document, options);
+		return out.toByteArray();
+	}
+	
+	@Benchmark
+	public OpenRocketDocument load() throws RocketLoadException {
+		return new GeneralRocketLoader(new File("benchmark.ork")).load(new ByteArrayInputStream(saved));
+	}
+	
+	@Benchmark
+	public OpenRocketDocument roundTrip() throws IOException, RocketLoadException {
+		return new GeneralRocketLoader(new File("benchmark.ork")).load(new ByteArrayInputStream(save()));
+	}
+	
+}
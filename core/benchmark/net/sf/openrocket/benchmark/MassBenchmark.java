@@ -0,0 +1,64 @@
+package net.sf.openrocket.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.masscalc.BasicMassCalculator;
+import net.sf.openrocket.masscalc.MassCalculator.MassCalcType;
+import net.sf.openrocket.rocketcomponent.Configuration;
+import net.sf.openrocket.util.Coordinate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the CG calculation of {@link BasicMassCalculator} on the test rocket designs.
+ * The calculator caches the results until the rocket changes, so the CG is computed using
+ * a new calculator on each call.  The cached lookup is measured separately.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MassBenchmark {
+	
+	@Param({ "smallFlyable", "bigBlue", "isoHaisu" })
+	public String design;
+	
+	private Configuration configuration;
+	private BasicMassCalculator calculator;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkSupport.initialize();
+		configuration = BenchmarkSupport.createRocket(design).getDefaultConfiguration();
+		calculator = new BasicMassCalculator();
+	}
+	
+	@Benchmark
+	public Coordinate getLaunchCG() {
+		return new BasicMassCalculator().getCG(configuration, MassCalcType.LAUNCH_MASS);
+	}
+	
+	@Benchmark
+	public Coordinate getBurnoutCG() {
+		return new BasicMassCalculator().getCG(configuration, MassCalcType.BURNOUT_MASS);
+	}
+	
+	@Benchmark
+	public Coordinate getCachedLaunchCG() {
+		return calculator.getCG(configuration, MassCalcType.LAUNCH_MASS);
+	}
+	
+}
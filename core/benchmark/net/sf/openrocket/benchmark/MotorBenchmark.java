@@ -0,0 +1,73 @@
+package net.sf.openrocket.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.file.motor.GeneralMotorLoader;
+import net.sf.openrocket.models.atmosphere.AtmosphericConditions;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.MotorInstance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks stepping a thrust curve motor instance through its burn.  Each invocation
+ * steps a new motor instance from ignition to burnout in simulation-sized time steps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MotorBenchmark {
+	
+	private static final int STEPS = 200;
+	
+	private Motor motor;
+	private AtmosphericConditions atmosphere;
+	private double timeStep;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSupport.initialize();
+		InputStream is = MotorBenchmark.class.getResourceAsStream("/net/sf/openrocket/Estes_A8.rse");
+		if (is == null) {
+			throw new IllegalStateException("Cannot find Estes_A8.rse");
+		}
+		try {
+			List<Motor> motors = new GeneralMotorLoader().load(is, "Estes_A8.rse");
+			motor = motors.get(0);
+		} finally {
+			is.close();
+		}
+		atmosphere = new AtmosphericConditions();
+		timeStep = motor.getBurnTimeEstimate() / STEPS;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public double step() {
+		MotorInstance instance = motor.getInstance();
+		double thrust = 0;
+		for (int i = 1; i <= STEPS; i++) {
+			instance.step(i * timeStep, 20, atmosphere);
+			thrust += instance.getThrust();
+		}
+		return thrust;
+	}
+	
+}
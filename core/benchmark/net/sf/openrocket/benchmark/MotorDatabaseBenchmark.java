@@ -0,0 +1,110 @@
+package net.sf.openrocket.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
+import net.sf.openrocket.file.iterator.DirectoryIterator;
+import net.sf.openrocket.file.iterator.FileIterator;
+import net.sf.openrocket.file.motor.BinaryMotorLoader;
+import net.sf.openrocket.file.motor.BinaryMotorSaver;
+import net.sf.openrocket.file.motor.GeneralMotorLoader;
+import net.sf.openrocket.gui.util.SimpleFileFilter;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+import net.sf.openrocket.util.Pair;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks loading the thrust curve files of the motor database.  The directory
+ * is read from the system property <code>openrocket.benchmark.motordir</code>, by
+ * default the thrust curve source directory of the core project.  The binary
+ * benchmark loads the same motors from a preprocessed binary motor database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MotorDatabaseBenchmark {
+	
+	private String directory;
+	private File binaryFile;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSupport.initialize();
+		directory = System.getProperty("openrocket.benchmark.motordir", "resources-src/datafiles/thrustcurves/");
+		
+		binaryFile = File.createTempFile("openrocket-benchmark", "." + BinaryMotorLoader.EXTENSION);
+		FileOutputStream os = new FileOutputStream(binaryFile);
+		try {
+			new BinaryMotorSaver().save(os, loadMotors());
+		} finally {
+			os.close();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		binaryFile.delete();
+	}
+	
+	@Benchmark
+	public ThrustCurveMotorSetDatabase load() throws IOException {
+		ThrustCurveMotorSetDatabase db = new ThrustCurveMotorSetDatabase();
+		for (Motor m : loadMotors()) {
+			db.addMotor((ThrustCurveMotor) m);
+		}
+		return db;
+	}
+	
+	@Benchmark
+	public ThrustCurveMotorSetDatabase loadBinary() throws IOException {
+		ThrustCurveMotorSetDatabase db = new ThrustCurveMotorSetDatabase();
+		for (Motor m : new BinaryMotorLoader().load(binaryFile)) {
+			db.addMotor((ThrustCurveMotor) m);
+		}
+		return db;
+	}
+	
+	
+	private List<Motor> loadMotors() throws IOException {
+		GeneralMotorLoader loader = new GeneralMotorLoader();
+		FileIterator iterator = DirectoryIterator.findDirectory(directory,
+				new SimpleFileFilter("", false, loader.getSupportedExtensions()));
+		if (iterator == null) {
+			throw new IllegalStateException("Cannot find motor directory " + directory);
+		}
+		
+		List<Motor> motors = new ArrayList<Motor>();
+		while (iterator.hasNext()) {
+			Pair<String, InputStream> f = iterator.next();
+			try {
+				motors.addAll(loader.load(f.getV(), f.getU()));
+			} finally {
+				f.getV().close();
+			}
+		}
+		return motors;
+	}
+	
+}
@@ -0,0 +1,63 @@
+package net.sf.openrocket.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.simulation.BasicEventSimulationEngine;
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.exception.SimulationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a complete flight simulation of the small flyable test rocket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimulationBenchmark {
+	
+	@Param({ "false", "true" })
+	public boolean reuseStepperState;
+	
+	@Param({ "false", "true" })
+	public boolean singlePrecisionData;
+	
+	private Simulation simulation;
+	private SimulationConditions conditions;
+	
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		BenchmarkSupport.initialize();
+		simulation = BenchmarkSupport.createSimulation(BenchmarkSupport.createRocket("smallFlyable"));
+	}
+	
+	@Setup(Level.Invocation)
+	public void setUpInvocation() throws SimulationException {
+		// New conditions are needed for each flight, since the wind model is stateful
+		conditions = simulation.toSimulationConditions();
+		conditions.setReuseStepperState(reuseStepperState);
+		conditions.setSinglePrecisionData(singlePrecisionData);
+	}
+	
+	@Benchmark
+	public FlightData simulate() throws SimulationException {
+		return new BasicEventSimulationEngine().simulate(conditions);
+	}
+	
+}
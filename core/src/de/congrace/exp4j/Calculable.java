@@ -28,4 +28,25 @@ public interface Calculable {
 	 *            the value of the variable
 	 */
 	public void setVariable(Variable var);
+
+	/**
+	 * return the slot index of a variable used in the expression.  Setting a
+	 * variable by its slot avoids looking it up by name.
+	 * 
+	 * @param name
+	 *            the name of the variable
+	 * @return the slot index, or -1 if the variable is not used in the
+	 *         expression
+	 */
+	public int getVariableSlot(String name);
+
+	/**
+	 * set a variable value for the calculation by its slot index
+	 * 
+	 * @param slot
+	 *            the slot index returned by {@link #getVariableSlot(String)}
+	 * @param var
+	 *            the value of the variable
+	 */
+	public void setVariable(int slot, Variable var);
 }
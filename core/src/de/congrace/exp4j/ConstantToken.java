@@ -0,0 +1,34 @@
+package de.congrace.exp4j;
+
+import java.util.Stack;
+
+/**
+ * A {@link Token} for the value of a part of an expression that does not depend on
+ * any variables.  These are only created when the postfix expression is built, so
+ * they never take part in the infix translation.
+ */
+class ConstantToken extends CalculationToken {
+
+	private final Variable value;
+
+	/**
+	 * construct a new {@link ConstantToken}
+	 *
+	 * @param value
+	 *            the constant value
+	 */
+	ConstantToken(Variable value) {
+		super(value.getName());
+		this.value = value;
+	}
+
+	@Override
+	void mutateStackForCalculation(Stack<Variable> stack, VariableSet variables) {
+		stack.push(value);
+	}
+
+	@Override
+	void mutateStackForInfixTranslation(Stack<Token> operatorStack, StringBuilder output) {
+		throw new UnsupportedOperationException("Constant tokens are not part of infix expressions");
+	}
+}
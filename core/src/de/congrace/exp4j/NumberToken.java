@@ -27,6 +27,7 @@ import java.util.Stack;
 class NumberToken extends CalculationToken {
 
 	private final double doubleValue;
+	private final Variable variable;
 
 	/**
 	 * construct a new {@link NumberToken}
@@ -37,6 +38,8 @@ class NumberToken extends CalculationToken {
 	NumberToken(String value) {
 		super(value);
 		this.doubleValue = Double.parseDouble(value);
+		// Variables are immutable, so the same instance can be used for every calculation
+		this.variable = new Variable("From number " + value + " : " + hashCode(), this.doubleValue);
 	}
 
 	@Override
@@ -55,7 +58,14 @@ class NumberToken extends CalculationToken {
 
 	@Override
 	void mutateStackForCalculation(Stack<Variable> stack, VariableSet variables) {
-		stack.push(new Variable("From number "+getValue()+" : "+hashCode(), this.doubleValue));
+		stack.push(variable);
+	}
+	
+	/**
+	 * get the value of the number as a {@link Variable}
+	 */
+	Variable getVariable() {
+		return variable;
 	}
 
 	@Override
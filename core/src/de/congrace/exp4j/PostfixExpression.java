@@ -16,6 +16,10 @@
  */
 package de.congrace.exp4j;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
@@ -28,7 +32,12 @@ import java.util.Stack;
  */
 public final class PostfixExpression extends AbstractExpression implements Calculable {
 	
-	private VariableSet variables = new VariableSet();
+	/** The slot indices of the variables used in the expression */
+	private final Map<String, Integer> slotIndices = new HashMap<String, Integer>();
+	/** The slot of the variable of each token, or -1 for other tokens */
+	private final int[] tokenSlots;
+	/** The current values of the variables, by slot */
+	private final Variable[] slotValues;
 	
 	/**
 	 * Factory method for creating {@link PostfixExpression}s from human
@@ -94,23 +103,135 @@ public final class PostfixExpression extends AbstractExpression implements Calcu
 	 */
 	private PostfixExpression(String expression, String[] variableStrings, Set<CustomFunction> customFunctions) throws UnparsableExpressionException,
 			UnknownFunctionException {
-		super(expression, new Tokenizer(variableStrings, customFunctions).tokenize(expression), variableStrings);
+		super(expression, foldConstants(new Tokenizer(variableStrings, customFunctions).tokenize(expression)), variableStrings);
+		
+		// Resolve the variables used in the expression to slots once, so that setting
+		// and reading them does not require searching by name
+		final Token[] tokens = getTokens();
+		tokenSlots = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			tokenSlots[i] = -1;
+			if (tokens[i] instanceof VariableToken) {
+				final String name = tokens[i].getValue();
+				Integer slot = slotIndices.get(name);
+				if (slot == null) {
+					slot = slotIndices.size();
+					slotIndices.put(name, slot);
+				}
+				tokenSlots[i] = slot;
+			}
+		}
+		slotValues = new Variable[slotIndices.size()];
 	}
-
+	
+	/**
+	 * Replace the parts of the postfix expression that do not depend on any variables
+	 * with their values.  Custom functions and non-deterministic functions are not
+	 * evaluated.  A malformed expression is returned as-is, so that the error is
+	 * reported when it is calculated.
+	 */
+	private static Token[] foldConstants(Token[] tokens) {
+		final List<Token> output = new ArrayList<Token>(tokens.length);
+		// For each operand on the evaluation stack, its first token in the output
+		// and its value if it is constant
+		final List<Integer> starts = new ArrayList<Integer>();
+		final List<Variable> constants = new ArrayList<Variable>();
+		
+		for (final Token t : tokens) {
+			final int operands;
+			if (t instanceof OperatorToken) {
+				operands = ((OperatorToken) t).getOperandCount();
+			} else if (t instanceof FunctionToken) {
+				operands = 1;
+			} else if (t instanceof CustomFunction) {
+				operands = ((CustomFunction) t).getArgumentCount();
+			} else {
+				operands = 0;
+			}
+			final int first = starts.size() - operands;
+			if (first < 0) {
+				return tokens;
+			}
+			final int start = (operands == 0) ? output.size() : starts.get(first);
+			
+			Variable value = null;
+			if (t instanceof NumberToken) {
+				value = ((NumberToken) t).getVariable();
+			} else if (operands > 0 && isFoldable(t) && !constants.subList(first, constants.size()).contains(null)) {
+				value = calculateConstant((CalculationToken) t, constants.subList(first, constants.size()));
+			}
+			
+			if (value != null && operands > 0) {
+				while (output.size() > start) {
+					output.remove(output.size() - 1);
+				}
+				output.add(new ConstantToken(value));
+			} else {
+				output.add(t);
+			}
+			starts.subList(first, starts.size()).clear();
+			constants.subList(first, constants.size()).clear();
+			starts.add(start);
+			constants.add(value);
+		}
+		return output.toArray(new Token[output.size()]);
+	}
+	
+	private static boolean isFoldable(Token t) {
+		if (t instanceof OperatorToken) {
+			return true;
+		}
+		if (t instanceof FunctionToken) {
+			return ((FunctionToken) t).getFunction() != FunctionToken.Function.RANDOM;
+		}
+		return false;
+	}
+	
+	private static Variable calculateConstant(CalculationToken t, List<Variable> operands) {
+		final Stack<Variable> stack = new Stack<Variable>();
+		stack.addAll(operands);
+		try {
+			t.mutateStackForCalculation(stack, null);
+		} catch (RuntimeException e) {
+			return null;
+		}
+		if (stack.size() != 1) {
+			return null;
+		}
+		return stack.pop();
+	}
+	
 	/**
 	 * delegate the calculation of a simple expression 
 	 */
 	public Variable calculate() throws IllegalArgumentException {
-
+		
+		final Token[] tokens = getTokens();
 		final Stack<Variable> stack = new Stack<Variable>();
-		for (final Token t : getTokens()) {
-			((CalculationToken) t).mutateStackForCalculation(stack, variables);
+		for (int i = 0; i < tokens.length; i++) {
+			if (tokenSlots[i] >= 0) {
+				stack.push(slotValues[tokenSlots[i]]);
+			} else {
+				((CalculationToken) tokens[i]).mutateStackForCalculation(stack, null);
+			}
 		}
 		return stack.pop();
-
+		
 	}
-
+	
 	public void setVariable(Variable value) {
-		variables.add(value);
+		final Integer slot = slotIndices.get(value.getName());
+		if (slot != null) {
+			slotValues[slot] = value;
+		}
+	}
+	
+	public int getVariableSlot(String name) {
+		final Integer slot = slotIndices.get(name);
+		return (slot != null) ? slot : -1;
+	}
+	
+	public void setVariable(int slot, Variable value) {
+		slotValues[slot] = value;
 	}
 }
@@ -0,0 +1,235 @@
+package net.sf.openrocket.aerodynamics;
+
+import java.util.Arrays;
+
+/**
+ * A lazily filled table of aerodynamic coefficients on a regular two-dimensional grid.
+ * <p>
+ * The tabulated function is evaluated only at the grid nodes that are actually needed,
+ * and values between the nodes are interpolated bilinearly.  Before a grid cell is used
+ * for the first time, the function is additionally evaluated at the center of the cell
+ * and compared with the interpolated value.  If any output differs by more than the
+ * relative tolerance, the cell is marked as unusable and {@link #interpolate} returns
+ * <code>false</code> for all points within it, in which case the caller should
+ * evaluate the function directly.  This keeps the table accurate near discontinuities
+ * such as the transonic region without requiring a fine grid elsewhere.
+ * <p>
+ * Any warnings produced while evaluating the nodes and the center of a cell are stored
+ * with the cell and added to the warning set of each lookup within that cell.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class AerodynamicCoefficientTable {
+
+	/**
+	 * The function tabulated by a table.
+	 */
+	interface Function {
+		/**
+		 * Evaluate the function at the specified point.
+		 *
+		 * @param x			the first coordinate.
+		 * @param y			the second coordinate.
+		 * @param result	the array in which to store the outputs.
+		 * @param warnings	the set in which to store any warnings.
+		 */
+		public void evaluate(double x, double y, double[] result, WarningSet warnings);
+	}
+
+
+	private static final byte CELL_UNKNOWN = 0;
+	private static final byte CELL_VALID = 1;
+	private static final byte CELL_INVALID = 2;
+
+	private final Function function;
+	private final int outputs;
+	private final double tolerance;
+
+	private final double x0, dx;
+	private final double y0, dy;
+	private final int nx, ny;
+
+	private final double[] nodes;
+	private final boolean[] computed;
+	private final WarningSet[] nodeWarnings;
+	private final byte[] cells;
+	private final WarningSet[] cellWarnings;
+
+	private final double[] center;
+
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param function	the function to tabulate.
+	 * @param outputs	the number of outputs of the function.
+	 * @param xMin		the minimum value of the first coordinate.
+	 * @param xMax		the maximum value of the first coordinate.
+	 * @param xCells	the number of cells along the first coordinate.
+	 * @param yMin		the minimum value of the second coordinate.
+	 * @param yMax		the maximum value of the second coordinate.
+	 * @param yCells	the number of cells along the second coordinate.
+	 * @param tolerance	the maximum relative interpolation error allowed within a cell.
+	 */
+	public AerodynamicCoefficientTable(Function function, int outputs,
+			double xMin, double xMax, int xCells, double yMin, double yMax, int yCells,
+			double tolerance) {
+		if (outputs < 1 || xCells < 1 || yCells < 1 || !(xMax > xMin) || !(yMax > yMin)) {
+			throw new IllegalArgumentException("Invalid table dimensions");
+		}
+		this.function = function;
+		this.outputs = outputs;
+		this.tolerance = tolerance;
+		this.x0 = xMin;
+		this.dx = (xMax - xMin) / xCells;
+		this.nx = xCells;
+		this.y0 = yMin;
+		this.dy = (yMax - yMin) / yCells;
+		this.ny = yCells;
+
+		int nodeCount = (xCells + 1) * (yCells + 1);
+		this.nodes = new double[nodeCount * outputs];
+		this.computed = new boolean[nodeCount];
+		this.nodeWarnings = new WarningSet[nodeCount];
+		this.cells = new byte[xCells * yCells];
+		this.cellWarnings = new WarningSet[xCells * yCells];
+		this.center = new double[outputs];
+	}
+
+
+	/**
+	 * Interpolate the function value at the specified point.
+	 *
+	 * @param x			the first coordinate.
+	 * @param y			the second coordinate.
+	 * @param result	the array in which to store the outputs.
+	 * @param warnings	the set in which to store the warnings of the cell.
+	 * @return			<code>true</code> if the value was interpolated, <code>false</code> if the
+	 * 					point is outside the table or in a cell that does not meet the tolerance.
+	 */
+	public boolean interpolate(double x, double y, double[] result, WarningSet warnings) {
+		double fx = (x - x0) / dx;
+		double fy = (y - y0) / dy;
+
+		// Also rejects NaN values
+		if (!(fx >= 0 && fx <= nx && fy >= 0 && fy <= ny)) {
+			return false;
+		}
+
+		int i = Math.min((int) fx, nx - 1);
+		int j = Math.min((int) fy, ny - 1);
+		int cell = i * ny + j;
+		if (cells[cell] == CELL_UNKNOWN) {
+			validate(i, j);
+		}
+		if (cells[cell] == CELL_INVALID) {
+			return false;
+		}
+
+		double u = fx - i;
+		double v = fy - j;
+		double w00 = (1 - u) * (1 - v);
+		double w10 = u * (1 - v);
+		double w01 = (1 - u) * v;
+		double w11 = u * v;
+		int n00 = node(i, j) * outputs;
+		int n10 = node(i + 1, j) * outputs;
+		int n01 = node(i, j + 1) * outputs;
+		int n11 = node(i + 1, j + 1) * outputs;
+		for (int k = 0; k < outputs; k++) {
+			result[k] = w00 * nodes[n00 + k] + w10 * nodes[n10 + k] + w01 * nodes[n01 + k] + w11 * nodes[n11 + k];
+		}
+
+		if (cellWarnings[cell] != null) {
+			warnings.addAll(cellWarnings[cell]);
+		}
+		return true;
+	}
+
+
+	/**
+	 * Return the number of cells that have been validated and found to meet the tolerance.
+	 */
+	public int getValidCellCount() {
+		return count(CELL_VALID);
+	}
+
+	/**
+	 * Return the number of cells that have been validated and found not to meet the tolerance.
+	 */
+	public int getInvalidCellCount() {
+		return count(CELL_INVALID);
+	}
+
+
+	private int count(byte state) {
+		int n = 0;
+		for (byte b : cells) {
+			if (b == state)
+				n++;
+		}
+		return n;
+	}
+
+	private int node(int i, int j) {
+		return i * (ny + 1) + j;
+	}
+
+	private void validate(int i, int j) {
+		int n00 = computeNode(i, j);
+		int n10 = computeNode(i + 1, j);
+		int n01 = computeNode(i, j + 1);
+		int n11 = computeNode(i + 1, j + 1);
+
+		WarningSet warnings = new WarningSet();
+		Arrays.fill(center, Double.NaN);
+		function.evaluate(x0 + (i + 0.5) * dx, y0 + (j + 0.5) * dy, center, warnings);
+
+		boolean valid = true;
+		for (int k = 0; k < outputs; k++) {
+			double a = nodes[n00 * outputs + k];
+			double b = nodes[n10 * outputs + k];
+			double c = nodes[n01 * outputs + k];
+			double d = nodes[n11 * outputs + k];
+			double interpolated = (a + b + c + d) / 4;
+			double scale = Math.max(Math.max(Math.abs(a), Math.abs(b)),
+					Math.max(Math.max(Math.abs(c), Math.abs(d)), Math.abs(center[k])));
+			// Negated comparison to treat NaN values as invalid
+			if (!(Math.abs(interpolated - center[k]) <= tolerance * scale)) {
+				valid = false;
+				break;
+			}
+		}
+
+		int cell = i * ny + j;
+		if (valid) {
+			for (int n : new int[] { n00, n10, n01, n11 }) {
+				if (nodeWarnings[n] != null) {
+					warnings.addAll(nodeWarnings[n]);
+				}
+			}
+			if (!warnings.isEmpty()) {
+				cellWarnings[cell] = warnings;
+			}
+			cells[cell] = CELL_VALID;
+		} else {
+			cells[cell] = CELL_INVALID;
+		}
+	}
+
+	private int computeNode(int i, int j) {
+		int n = node(i, j);
+		if (!computed[n]) {
+			WarningSet warnings = new WarningSet();
+			double[] values = new double[outputs];
+			Arrays.fill(values, Double.NaN);
+			function.evaluate(x0 + i * dx, y0 + j * dy, values, warnings);
+			System.arraycopy(values, 0, nodes, n * outputs, outputs);
+			if (!warnings.isEmpty()) {
+				nodeWarnings[n] = warnings;
+			}
+			computed[n] = true;
+		}
+		return n;
+	}
+}
@@ -4,6 +4,7 @@ import static net.sf.openrocket.util.MathUtil.pow2;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -16,6 +17,7 @@ import net.sf.openrocket.rocketcomponent.ExternalComponent.Finish;
 import net.sf.openrocket.rocketcomponent.FinSet;
 import net.sf.openrocket.rocketcomponent.RocketComponent;
 import net.sf.openrocket.rocketcomponent.SymmetricComponent;
+import net.sf.openrocket.rocketcomponent.TubeFinSet;
 import net.sf.openrocket.util.Coordinate;
 import net.sf.openrocket.util.MathUtil;
 import net.sf.openrocket.util.PolyInterpolator;
@@ -35,9 +37,48 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 
 	private Map<RocketComponent, RocketComponentCalc> calcMap = null;
 	
+	/*
+	 * The calculators of the components and the aerodynamic modification ID's they were
+	 * created at.  These are retained when the cache is voided, and reused for the
+	 * components that have not changed when the calculator map is rebuilt.
+	 */
+	private Map<RocketComponent, RocketComponentCalc> calcCache =
+			new IdentityHashMap<RocketComponent, RocketComponentCalc>();
+	private Map<RocketComponent, Integer> calcModIDs = new IdentityHashMap<RocketComponent, Integer>();
+	
 	private double cacheDiameter = -1;
 	private double cacheLength = -1;
 	
+
+	/*
+	 * Coefficient tables.  The non-axial forces are tabulated over Mach number and
+	 * angle of attack, the drag coefficients over Mach number and log10 of the
+	 * Reynolds number.
+	 */
+	private static final double TABLE_MAX_MACH = 4.0;
+	private static final int TABLE_MACH_CELLS = 100;
+	private static final double TABLE_MAX_AOA = 15 * Math.PI / 180;
+	private static final int TABLE_AOA_CELLS = 30;
+	private static final double TABLE_MIN_LOG_RE = 3.0;
+	private static final double TABLE_MAX_LOG_RE = 9.0;
+	private static final int TABLE_RE_CELLS = 60;
+	
+	/** Fin roll damping is zero below this roll rate, see FinSetCalc and TubeFinSetCalc */
+	private static final double TABLE_MAX_ROLL_RATE = 0.1;
+	
+	private static final int NONAXIAL_OUTPUTS = 9;
+	private static final int AXIAL_OUTPUTS = 3;
+	
+	private double tableTolerance = 0;
+	
+	private AerodynamicCoefficientTable nonAxialTable = null;
+	private AerodynamicCoefficientTable axialTable = null;
+	private int tableConfigurationModID = -1;
+	private boolean tableRollDependent = false;
+	private FlightConditions tableConditions = null;
+	private Configuration tableConfiguration = null;
+	private final double[] tableValues = new double[NONAXIAL_OUTPUTS];
+	
 	
 
 	public BarrowmanCalculator() {
@@ -47,7 +88,41 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 	
 	@Override
 	public BarrowmanCalculator newInstance() {
-		return new BarrowmanCalculator();
+		BarrowmanCalculator calculator = new BarrowmanCalculator();
+		calculator.tableTolerance = this.tableTolerance;
+		return calculator;
+	}
+	
+	
+	/**
+	 * Return the relative tolerance of the coefficient tables, or zero if the tables are disabled.
+	 */
+	public double getTableTolerance() {
+		return tableTolerance;
+	}
+	
+	/**
+	 * Set the relative tolerance of the precomputed coefficient tables used by
+	 * {@link #getAerodynamicForces(Configuration, FlightConditions, WarningSet)}.
+	 * <p>
+	 * When the tolerance is positive, the force coefficients are interpolated from tables
+	 * that are filled lazily and kept until the rocket or configuration is modified.
+	 * Each table cell is verified against an exact calculation at its center before it
+	 * is used, and cells exceeding the tolerance, as well as conditions outside the tables
+	 * (large angles of attack, high Mach numbers or rolling fins), are calculated exactly.
+	 * A value of zero disables the tables, which is the default.
+	 * 
+	 * @param tolerance		the relative tolerance, or zero to disable the tables.
+	 */
+	public void setTableTolerance(double tolerance) {
+		if (!(tolerance >= 0)) {
+			throw new IllegalArgumentException("Invalid tolerance: " + tolerance);
+		}
+		if (tolerance == this.tableTolerance) {
+			return;
+		}
+		this.tableTolerance = tolerance;
+		voidTables();
 	}
 	
 	
@@ -123,13 +198,25 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 		if (warnings == null)
 			warnings = ignoreWarningSet;
 		
-		// Calculate non-axial force data
-		AerodynamicForces total = calculateNonAxialForces(configuration, conditions, null, warnings);
+		AerodynamicForces total = null;
+		boolean tabulatedDrag = false;
+		if (tableTolerance > 0) {
+			checkTables(configuration, conditions);
+			total = interpolateNonAxialForces(conditions, warnings);
+			if (total == null)
+				total = calculateNonAxialForces(configuration, conditions, null, warnings);
+			tabulatedDrag = interpolateDrag(configuration, conditions, total, warnings);
+		} else {
+			// Calculate non-axial force data
+			total = calculateNonAxialForces(configuration, conditions, null, warnings);
+		}
 		
-		// Calculate friction data
-		total.setFrictionCD(calculateFrictionDrag(configuration, conditions, null, warnings));
-		total.setPressureCD(calculatePressureDrag(configuration, conditions, null, warnings));
-		total.setBaseCD(calculateBaseDrag(configuration, conditions, null, warnings));
+		if (!tabulatedDrag) {
+			// Calculate friction data
+			total.setFrictionCD(calculateFrictionDrag(configuration, conditions, null, warnings));
+			total.setPressureCD(calculatePressureDrag(configuration, conditions, null, warnings));
+			total.setBaseCD(calculateBaseDrag(configuration, conditions, null, warnings));
+		}
 		
 		total.setCD(total.getFrictionCD() + total.getPressureCD() + total.getBaseCD());
 		
@@ -147,6 +234,120 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 	
 
 
+	////////////////  COEFFICIENT TABLES  ////////////////
+	
+	/*
+	 * Discard the tables if the configuration or the reference values have changed.
+	 */
+	private void checkTables(Configuration configuration, FlightConditions conditions) {
+		if (tableConditions != null && tableConfiguration == configuration &&
+				tableConfigurationModID == configuration.getModID() &&
+				tableConditions.getRefArea() == conditions.getRefArea() &&
+				tableConditions.getRefLength() == conditions.getRefLength()) {
+			return;
+		}
+		voidTables();
+		
+		tableConfiguration = configuration;
+		tableConfigurationModID = configuration.getModID();
+		tableConditions = conditions.clone();
+		tableConditions.setTheta(0);
+		tableConditions.setRollRate(0);
+		tableConditions.setPitchRate(0);
+		tableConditions.setYawRate(0);
+		
+		// The normal force of one- and two-fin sets depends on the roll angle, which is not tabulated
+		tableRollDependent = false;
+		for (RocketComponent c : configuration) {
+			if ((c instanceof FinSet && ((FinSet) c).getFinCount() <= 2) ||
+					(c instanceof TubeFinSet && ((TubeFinSet) c).getFinCount() <= 2)) {
+				tableRollDependent = true;
+			}
+		}
+	}
+	
+	private void voidTables() {
+		nonAxialTable = null;
+		axialTable = null;
+		tableConditions = null;
+		tableConfiguration = null;
+		tableConfigurationModID = -1;
+	}
+	
+	
+	private AerodynamicForces interpolateNonAxialForces(FlightConditions conditions, WarningSet warnings) {
+		if (tableRollDependent || Math.abs(conditions.getRollRate()) >= TABLE_MAX_ROLL_RATE)
+			return null;
+		
+		if (nonAxialTable == null) {
+			nonAxialTable = new AerodynamicCoefficientTable(new AerodynamicCoefficientTable.Function() {
+				@Override
+				public void evaluate(double mach, double aoa, double[] result, WarningSet w) {
+					tableConditions.setMach(mach);
+					tableConditions.setAOA(aoa);
+					AerodynamicForces forces = calculateNonAxialForces(tableConfiguration, tableConditions, null, w);
+					result[0] = forces.getCNa();
+					result[1] = forces.getCN();
+					result[2] = forces.getCm();
+					result[3] = forces.getCside();
+					result[4] = forces.getCyaw();
+					result[5] = forces.getCrollForce();
+					result[6] = forces.getCrollDamp();
+					result[7] = forces.getCP().x;
+					result[8] = forces.getCP().weight;
+				}
+			}, NONAXIAL_OUTPUTS, 0, TABLE_MAX_MACH, TABLE_MACH_CELLS, 0, TABLE_MAX_AOA, TABLE_AOA_CELLS,
+					tableTolerance);
+		}
+		
+		if (!nonAxialTable.interpolate(conditions.getMach(), conditions.getAOA(), tableValues, warnings))
+			return null;
+		
+		AerodynamicForces total = new AerodynamicForces();
+		total.zero();
+		total.setCNa(tableValues[0]);
+		total.setCN(tableValues[1]);
+		total.setCm(tableValues[2]);
+		total.setCside(tableValues[3]);
+		total.setCyaw(tableValues[4]);
+		total.setCrollForce(tableValues[5]);
+		total.setCrollDamp(tableValues[6]);
+		total.setCroll(tableValues[5] - tableValues[6]);
+		total.setCP(new Coordinate(tableValues[7], 0, 0, tableValues[8]));
+		return total;
+	}
+	
+	
+	private boolean interpolateDrag(Configuration configuration, FlightConditions conditions,
+			AerodynamicForces total, WarningSet warnings) {
+		
+		if (axialTable == null) {
+			axialTable = new AerodynamicCoefficientTable(new AerodynamicCoefficientTable.Function() {
+				@Override
+				public void evaluate(double mach, double logRe, double[] result, WarningSet w) {
+					tableConditions.setMach(mach);
+					tableConditions.setAOA(0);
+					result[0] = calculateFrictionDrag(tableConfiguration, tableConditions,
+							Math.pow(10, logRe), null, w);
+					result[1] = calculatePressureDrag(tableConfiguration, tableConditions, null, w);
+					result[2] = calculateBaseDrag(tableConfiguration, tableConditions, null, w);
+				}
+			}, AXIAL_OUTPUTS, 0, TABLE_MAX_MACH, TABLE_MACH_CELLS, TABLE_MIN_LOG_RE, TABLE_MAX_LOG_RE,
+					TABLE_RE_CELLS, tableTolerance);
+		}
+		
+		double logRe = Math.log10(calculateReynoldsNumber(configuration, conditions));
+		if (!axialTable.interpolate(conditions.getMach(), logRe, tableValues, warnings))
+			return false;
+		
+		total.setFrictionCD(tableValues[0]);
+		total.setPressureCD(tableValues[1]);
+		total.setBaseCD(tableValues[2]);
+		return true;
+	}
+	
+	
+	
 	/*
 	 * Perform the actual CP calculation.
 	 */
@@ -241,20 +442,27 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 	////////////////  DRAG CALCULATIONS  ////////////////
 	
 
+	private double calculateReynoldsNumber(Configuration configuration, FlightConditions conditions) {
+		return conditions.getVelocity() * configuration.getLength() /
+				conditions.getAtmosphericConditions().getKinematicViscosity();
+	}
+	
 	private double calculateFrictionDrag(Configuration configuration, FlightConditions conditions,
 			Map<RocketComponent, AerodynamicForces> map, WarningSet set) {
+		return calculateFrictionDrag(configuration, conditions,
+				calculateReynoldsNumber(configuration, conditions), map, set);
+	}
+	
+	private double calculateFrictionDrag(Configuration configuration, FlightConditions conditions,
+			double Re, Map<RocketComponent, AerodynamicForces> map, WarningSet set) {
 		double c1 = 1.0, c2 = 1.0;
 		
 		double mach = conditions.getMach();
-		double Re;
 		double Cf;
 		
 		if (calcMap == null)
 			buildCalcMap(configuration);
 		
-		Re = conditions.getVelocity() * configuration.getLength() /
-				conditions.getAtmosphericConditions().getKinematicViscosity();
-		
 		// Calculate the skin friction coefficient (assume non-roughness limited)
 		if (configuration.getRocket().isPerfectFinish()) {
 			
@@ -684,6 +892,7 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 		calcMap = null;
 		cacheDiameter = -1;
 		cacheLength = -1;
+		voidTables();
 	}
 	
 	
@@ -691,6 +900,10 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 		Iterator<RocketComponent> iterator;
 		
 		calcMap = new HashMap<RocketComponent, RocketComponentCalc>();
+		Map<RocketComponent, RocketComponentCalc> previousCalcs = calcCache;
+		Map<RocketComponent, Integer> previousModIDs = calcModIDs;
+		calcCache = new IdentityHashMap<RocketComponent, RocketComponentCalc>(previousCalcs.size());
+		calcModIDs = new IdentityHashMap<RocketComponent, Integer>(previousModIDs.size());
 		
 		iterator = configuration.getRocket().iterator();
 		while (iterator.hasNext()) {
@@ -699,8 +912,19 @@ public class BarrowmanCalculator extends AbstractAerodynamicCalculator {
 			if (!c.isAerodynamic())
 				continue;
 			
-			calcMap.put(c, (RocketComponentCalc) Reflection.construct(BARROWMAN_PACKAGE,
-					c, BARROWMAN_SUFFIX, c));
+			// Reuse the calculator if the component has not changed
+			RocketComponentCalc calc = null;
+			Integer modID = previousModIDs.get(c);
+			if (modID != null && modID == c.getComponentAeroModID()) {
+				calc = previousCalcs.get(c);
+			}
+			if (calc == null) {
+				calc = (RocketComponentCalc) Reflection.construct(BARROWMAN_PACKAGE, c, BARROWMAN_SUFFIX, c);
+			}
+			
+			calcMap.put(c, calc);
+			calcCache.put(c, calc);
+			calcModIDs.put(c, c.getComponentAeroModID());
 		}
 	}
 	
@@ -2,7 +2,11 @@ package net.sf.openrocket.database;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -15,6 +19,9 @@ public class ComponentPresetDatabase extends Database<ComponentPreset> implement
 
 	private static final Logger logger = LoggerFactory.getLogger(ComponentPresetDatabase.class);
 	
+	/** Indexes of the presets, rebuilt when first needed after the database changes. */
+	private volatile Indexes indexes = null;
+	
 	public ComponentPresetDatabase() {
 		super();
 	}
@@ -27,6 +34,7 @@ public class ComponentPresetDatabase extends Database<ComponentPreset> implement
 	@Override
 	public void insert( ComponentPreset preset ) {
 		list.add(preset);
+		indexes = null;
 	}
 
 	@Override
@@ -35,14 +43,7 @@ public class ComponentPresetDatabase extends Database<ComponentPreset> implement
 			return Collections.<ComponentPreset>emptyList();
 		}
 
-		List<ComponentPreset> result = new ArrayList<ComponentPreset>(list.size()/6);
-
-		for( ComponentPreset preset : list ) {
-			if ( preset.get(ComponentPreset.TYPE).equals(type) ) {
-				result.add(preset);
-			}
-		}
-		return result;
+		return new ArrayList<ComponentPreset>(getIndexes().forType(type));
 
 	}
 
@@ -60,12 +61,13 @@ public class ComponentPresetDatabase extends Database<ComponentPreset> implement
 			return listForType(type);
 		}
 
-		List<ComponentPreset> result = new ArrayList<ComponentPreset>(list.size()/6);
+		List<ComponentPreset> presets = getIndexes().forType(type);
+		List<ComponentPreset> result = new ArrayList<ComponentPreset>();
 
 		Set<String> favorites = Application.getPreferences().getComponentFavorites(type);
 
-		for( ComponentPreset preset : list ) {
-			if ( preset.get(ComponentPreset.TYPE).equals(type) && favorites.contains(preset.preferenceKey())) {
+		for( ComponentPreset preset : presets ) {
+			if ( favorites.contains(preset.preferenceKey()) ) {
 				result.add(preset);
 			}
 		}
@@ -82,35 +84,29 @@ public class ComponentPresetDatabase extends Database<ComponentPreset> implement
 			return listForType(type[0]);
 		}
 
-		List<ComponentPreset> result = new ArrayList<ComponentPreset>(list.size()/6);
-
-		for( ComponentPreset preset : list ) {
-			ComponentPreset.Type presetType = preset.get(ComponentPreset.TYPE);
-			typeLoop: for( int i=0; i<type.length; i++ ) {
-				if ( presetType.equals(type[i]) ) {
-					result.add(preset);
-					break typeLoop; // from inner loop.
-				}
-			}
-
+		Indexes idx = getIndexes();
+		List<ComponentPreset> result = new ArrayList<ComponentPreset>();
+		for( ComponentPreset.Type t : EnumSet.of(type[0], type) ) {
+			result.addAll(idx.forType(t));
 		}
+
+		// Keep the database order
+		Collections.sort(result);
 		return result;
 	}
 
 	@Override
 	public List<ComponentPreset> listForTypes( List<ComponentPreset.Type> types ) {
-		return listForTypes( (ComponentPreset.Type[]) types.toArray() );
+		return listForTypes( types.toArray(new ComponentPreset.Type[0]) );
 	}
 
 	@Override
 	public List<ComponentPreset> find(String manufacturer, String partNo) {
-		List<ComponentPreset> presets = new ArrayList<ComponentPreset>();
-		for( ComponentPreset preset : list ) {
-			if ( preset.getManufacturer().getSimpleName().equals(manufacturer) && preset.getPartNo().equals(partNo) ) {
-				presets.add(preset);
-			}
+		List<ComponentPreset> presets = getIndexes().byPartNo.get(new PartKey(manufacturer, partNo));
+		if ( presets == null ) {
+			return new ArrayList<ComponentPreset>();
 		}
-		return presets;
+		return new ArrayList<ComponentPreset>(presets);
 	}
 
 	@Override
@@ -119,4 +115,96 @@ public class ComponentPresetDatabase extends Database<ComponentPreset> implement
 		this.fireAddEvent(preset);
 	}
 
+	@Override
+	protected void fireAddEvent(ComponentPreset element) {
+		indexes = null;
+		super.fireAddEvent(element);
+	}
+
+	@Override
+	protected void fireAddEvent(List<ComponentPreset> elements) {
+		indexes = null;
+		super.fireAddEvent(elements);
+	}
+
+	@Override
+	protected void fireRemoveEvent(ComponentPreset element) {
+		indexes = null;
+		super.fireRemoveEvent(element);
+	}
+
+	private Indexes getIndexes() {
+		Indexes idx = indexes;
+		if ( idx == null ) {
+			idx = new Indexes(list);
+			indexes = idx;
+		}
+		return idx;
+	}
+
+	/**
+	 * Indexes of the presets by type and by manufacturer and part number.  The lists
+	 * are in database order.
+	 */
+	private static class Indexes {
+		private final Map<ComponentPreset.Type, List<ComponentPreset>> byType =
+				new EnumMap<ComponentPreset.Type, List<ComponentPreset>>(ComponentPreset.Type.class);
+		private final Map<PartKey, List<ComponentPreset>> byPartNo = new HashMap<PartKey, List<ComponentPreset>>();
+
+		public Indexes(List<ComponentPreset> presets) {
+			for( ComponentPreset preset : presets ) {
+				add(byType, preset.get(ComponentPreset.TYPE), preset);
+				add(byPartNo, new PartKey(preset.getManufacturer().getSimpleName(), preset.getPartNo()), preset);
+			}
+		}
+
+		public List<ComponentPreset> forType( ComponentPreset.Type type ) {
+			List<ComponentPreset> presets = byType.get(type);
+			if ( presets == null ) {
+				return Collections.<ComponentPreset>emptyList();
+			}
+			return presets;
+		}
+
+		private static <K> void add( Map<K, List<ComponentPreset>> map, K key, ComponentPreset preset ) {
+			List<ComponentPreset> presets = map.get(key);
+			if ( presets == null ) {
+				presets = new ArrayList<ComponentPreset>();
+				map.put(key, presets);
+			}
+			presets.add(preset);
+		}
+	}
+
+	/**
+	 * Key of the manufacturer and part number index.
+	 */
+	private static class PartKey {
+		private final String manufacturer;
+		private final String partNo;
+
+		public PartKey( String manufacturer, String partNo ) {
+			this.manufacturer = manufacturer;
+			this.partNo = partNo;
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			if ( !(o instanceof PartKey) ) {
+				return false;
+			}
+			PartKey other = (PartKey) o;
+			return equal(manufacturer, other.manufacturer) && equal(partNo, other.partNo);
+		}
+
+		@Override
+		public int hashCode() {
+			return (manufacturer != null ? manufacturer.hashCode() * 31 : 0) + (partNo != null ? partNo.hashCode() : 0);
+		}
+
+		private static boolean equal( String a, String b ) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
 }
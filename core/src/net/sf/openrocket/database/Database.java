@@ -2,6 +2,7 @@ package net.sf.openrocket.database;
 
 import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -51,6 +52,61 @@ public class Database<T extends Comparable<T>> extends AbstractSet<T> {
 		return true;
 	}
 	
+	/**
+	 * Add a collection of elements to the database.  The elements are sorted once
+	 * and merged into the database, and a single event is fired for all elements
+	 * that were added.  Elements already contained in the database are ignored.
+	 * 
+	 * @param elements	the elements to add.
+	 * @return			whether the database changed.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends T> elements) {
+		List<T> sorted = new ArrayList<T>(elements);
+		Collections.sort(sorted);
+		
+		List<T> merged = new ArrayList<T>(list.size() + sorted.size());
+		List<T> added = new ArrayList<T>();
+		int index = 0;
+		for (T element : sorted) {
+			while (index < list.size() && list.get(index).compareTo(element) <= 0) {
+				merged.add(list.get(index));
+				index++;
+			}
+			if (!containsEqual(merged, element)) {
+				merged.add(element);
+				added.add(element);
+			}
+		}
+		
+		if (added.isEmpty()) {
+			return false;
+		}
+		
+		merged.addAll(list.subList(index, list.size()));
+		list.clear();
+		list.addAll(merged);
+		fireAddEvent(added);
+		return true;
+	}
+	
+	/**
+	 * Check whether the sorted list contains an element equal to the given element
+	 * at the end of the list.  Only the elements that compare equal need to be checked.
+	 */
+	private static <T extends Comparable<T>> boolean containsEqual(List<T> sorted, T element) {
+		for (int i = sorted.size() - 1; i >= 0; i--) {
+			T e = sorted.get(i);
+			if (e.compareTo(element) != 0) {
+				return false;
+			}
+			if (e.equals(element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	
 	/**
 	 * Get the element with the specified index.
@@ -90,6 +146,15 @@ public class Database<T extends Comparable<T>> extends AbstractSet<T> {
 		}
 	}
 	
+	@SuppressWarnings("unchecked")
+	protected void fireAddEvent(List<T> elements) {
+		List<T> added = Collections.unmodifiableList(elements);
+		Object[] array = listeners.toArray();
+		for (Object l : array) {
+			((DatabaseListener<T>) l).elementsAdded(added, this);
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected void fireRemoveEvent(T element) {
 		Object[] array = listeners.toArray();
@@ -1,9 +1,16 @@
 package net.sf.openrocket.database;
 
+import java.util.List;
+
 public interface DatabaseListener<T extends Comparable<T>> {
 
 	public void elementAdded(T element, Database<T> source);
 	
+	/**
+	 * Called once when several elements have been added to the database at once.
+	 */
+	public void elementsAdded(List<T> elements, Database<T> source);
+	
 	public void elementRemoved(T element, Database<T> source);
 	
 }
@@ -1,79 +1,405 @@
 package net.sf.openrocket.database.motor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import net.sf.openrocket.motor.Manufacturer;
 import net.sf.openrocket.motor.Motor;
 import net.sf.openrocket.motor.ThrustCurveMotor;
 
 /**
  * A database containing ThrustCurveMotorSet objects and allowing adding a motor
  * to the database.
- * 
+ * <p>
+ * Queries are answered using indexes by digest, designation, manufacturer, diameter
+ * and total impulse.  The indexes are built when the database is first queried after
+ * motors have been added, so adding a large number of motors followed by queries does
+ * not incur any per-motor index maintenance.  The results of all queries are in
+ * database order, i.e. in the order of the motor sets and the motors within the sets.
+ * <p>
+ * Adding motors is not thread-safe, but once all motors have been added the database
+ * may be queried from multiple threads simultaneously.
+ *
  * @author Sampo Niskanen <sampo.niskanen@iki.fi>
  */
 public class ThrustCurveMotorSetDatabase implements MotorDatabase {
-	
+
+	/** The tolerance used when matching diameters and lengths */
+	private static final double DIMENSION_TOLERANCE = 0.0015;
+
 	private final List<ThrustCurveMotorSet> motorSets = new ArrayList<ThrustCurveMotorSet>();
-	
-	
+
+	/** Motor sets by manufacturer and simplified designation, used when adding motors */
+	private final Map<String, List<ThrustCurveMotorSet>> setIndex = new HashMap<String, List<ThrustCurveMotorSet>>();
+
+	private volatile Index index = null;
+
+
 	@Override
 	public List<ThrustCurveMotor> findMotors(Motor.Type type, String manufacturer, String designation,
 			double diameter, double length) {
+		Index idx = getIndex();
+
+		// Select the most selective index available
+		int[] candidates;
+		if (designation != null) {
+			candidates = idx.byDesignation.get(normalize(designation));
+		} else if (!Double.isNaN(diameter)) {
+			// Widened slightly so that rounding cannot exclude motors accepted by the exact check below
+			double tolerance = DIMENSION_TOLERANCE * 1.000001;
+			candidates = idx.diameters.range(diameter - tolerance, diameter + tolerance);
+		} else if (manufacturer != null) {
+			candidates = idx.findManufacturer(manufacturer);
+		} else {
+			candidates = null;
+		}
+
+		ArrayList<ThrustCurveMotor> results = new ArrayList<ThrustCurveMotor>();
+		if (candidates == null) {
+			if (designation != null || !Double.isNaN(diameter) || manufacturer != null) {
+				return results;
+			}
+			candidates = idx.all();
+		}
+
+		for (int i : candidates) {
+			ThrustCurveMotor m = idx.motors[i];
+			boolean match = true;
+			if (type != null && type != idx.sets[i].getType())
+				match = false;
+			else if (manufacturer != null && !m.getManufacturer().matches(manufacturer))
+				match = false;
+			else if (designation != null && !designation.equalsIgnoreCase(m.getDesignation()))
+				match = false;
+			else if (!Double.isNaN(diameter) && (Math.abs(diameter - m.getDiameter()) > DIMENSION_TOLERANCE))
+				match = false;
+			else if (!Double.isNaN(length) && (Math.abs(length - m.getLength()) > DIMENSION_TOLERANCE))
+				match = false;
+
+			if (match)
+				results.add(m);
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Return all motors whose dimensions and total impulse are within the specified
+	 * ranges.  The ranges are inclusive, and any bound that is NaN is ignored.  For
+	 * example, all 29 mm motors between 80 and 160 Ns are found using
+	 * <code>findMotors(null, 0.0285, 0.0295, NaN, NaN, 80, 160)</code>.
+	 *
+	 * @param type			the motor type, or null.
+	 * @param minDiameter	the minimum diameter, or NaN.
+	 * @param maxDiameter	the maximum diameter, or NaN.
+	 * @param minLength		the minimum length, or NaN.
+	 * @param maxLength		the maximum length, or NaN.
+	 * @param minImpulse	the minimum total impulse, or NaN.
+	 * @param maxImpulse	the maximum total impulse, or NaN.
+	 * @return				a list of all the matching motors.
+	 */
+	public List<ThrustCurveMotor> findMotors(Motor.Type type, double minDiameter, double maxDiameter,
+			double minLength, double maxLength, double minImpulse, double maxImpulse) {
+		Index idx = getIndex();
+
+		int[] candidates;
+		if (!Double.isNaN(minDiameter) || !Double.isNaN(maxDiameter)) {
+			candidates = idx.diameters.range(minDiameter, maxDiameter);
+		} else if (!Double.isNaN(minImpulse) || !Double.isNaN(maxImpulse)) {
+			candidates = idx.impulses.range(minImpulse, maxImpulse);
+		} else {
+			candidates = idx.all();
+		}
+
+		ArrayList<ThrustCurveMotor> results = new ArrayList<ThrustCurveMotor>();
+		for (int i : candidates) {
+			ThrustCurveMotor m = idx.motors[i];
+			if ((type == null || type == idx.sets[i].getType()) &&
+					inRange(m.getDiameter(), minDiameter, maxDiameter) &&
+					inRange(m.getLength(), minLength, maxLength) &&
+					inRange(m.getTotalImpulseEstimate(), minImpulse, maxImpulse)) {
+				results.add(m);
+			}
+		}
+		return results;
+	}
+
+
+	/**
+	 * Return all motors with the specified digest.
+	 *
+	 * @param digest	the motor digest.
+	 * @return			a list of the motors with the digest, empty if none.
+	 */
+	public List<ThrustCurveMotor> findMotorsByDigest(String digest) {
+		Index idx = getIndex();
 		ArrayList<ThrustCurveMotor> results = new ArrayList<ThrustCurveMotor>();
-		
-		for (ThrustCurveMotorSet set : motorSets) {
-			for (ThrustCurveMotor m : set.getMotors()) {
-				boolean match = true;
-				if (type != null && type != set.getType())
-					match = false;
-				else if (manufacturer != null && !m.getManufacturer().matches(manufacturer))
-					match = false;
-				else if (designation != null && !designation.equalsIgnoreCase(m.getDesignation()))
-					match = false;
-				else if (!Double.isNaN(diameter) && (Math.abs(diameter - m.getDiameter()) > 0.0015))
-					match = false;
-				else if (!Double.isNaN(length) && (Math.abs(length - m.getLength()) > 0.0015))
-					match = false;
-				
-				if (match)
-					results.add(m);
-			}
-		}
-		
+		int[] candidates = idx.byDigest.get(digest);
+		if (candidates != null) {
+			for (int i : candidates) {
+				results.add(idx.motors[i]);
+			}
+		}
 		return results;
 	}
-	
-	
+
+
 	/**
 	 * Return a list of all ThrustCurveMotorSets.
 	 */
 	public List<ThrustCurveMotorSet> getMotorSets() {
 		return Collections.unmodifiableList(motorSets);
 	}
-	
-	
+
+
 	/**
-	 * Add a motor to the database.  If a matching ThrustCurveMototSet is found, 
+	 * Add a motor to the database.  If a matching ThrustCurveMototSet is found,
 	 * the motor is added to that set, otherwise a new set is created and added to the
 	 * database.
-	 * 
+	 *
 	 * @param motor		the motor to add
 	 */
 	public void addMotor(ThrustCurveMotor motor) {
+		index = null;
+
+		// Only sets with the same manufacturer and simplified designation can match
+		String key = setKey(motor);
+		List<ThrustCurveMotorSet> candidates = setIndex.get(key);
+		if (candidates == null) {
+			candidates = new ArrayList<ThrustCurveMotorSet>(1);
+			setIndex.put(key, candidates);
+		}
+
 		// Iterate from last to first, as this is most likely to hit early when loading files
-		for (int i = motorSets.size() - 1; i >= 0; i--) {
-			ThrustCurveMotorSet set = motorSets.get(i);
+		for (int i = candidates.size() - 1; i >= 0; i--) {
+			ThrustCurveMotorSet set = candidates.get(i);
 			if (set.matches(motor)) {
 				set.addMotor(motor);
 				return;
 			}
 		}
-		
+
 		ThrustCurveMotorSet newSet = new ThrustCurveMotorSet();
 		newSet.addMotor(motor);
 		motorSets.add(newSet);
+		candidates.add(newSet);
+	}
+
+
+
+	private Index getIndex() {
+		Index idx = index;
+		if (idx == null) {
+			synchronized (this) {
+				idx = index;
+				if (idx == null) {
+					idx = new Index(motorSets);
+					index = idx;
+				}
+			}
+		}
+		return idx;
+	}
+
+	private static String setKey(ThrustCurveMotor motor) {
+		return motor.getManufacturer().getDisplayName() + "\u0000" +
+				normalize(ThrustCurveMotorSet.simplifyDesignation(motor.getDesignation()));
 	}
-	
+
+	/**
+	 * Normalize a string so that two strings are equal exactly when they are equal
+	 * according to <code>String.equalsIgnoreCase</code>.
+	 */
+	private static String normalize(String str) {
+		char[] chars = str.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
+	private static boolean inRange(double value, double min, double max) {
+		return !(value < min) && !(value > max);
+	}
+
+
+
+	/**
+	 * An immutable snapshot of the motors of the database with the query indexes.
+	 * Motors are identified by their position in database order.
+	 */
+	private static class Index {
+		private final ThrustCurveMotor[] motors;
+		private final ThrustCurveMotorSet[] sets;
+
+		private final Map<String, int[]> byDesignation;
+		private final Map<String, int[]> byDigest;
+		private final Map<Manufacturer, int[]> byManufacturer;
+		private final SortedIndex diameters;
+		private final SortedIndex impulses;
+
+		public Index(List<ThrustCurveMotorSet> motorSets) {
+			List<ThrustCurveMotor> motorList = new ArrayList<ThrustCurveMotor>();
+			List<ThrustCurveMotorSet> setList = new ArrayList<ThrustCurveMotorSet>();
+			for (ThrustCurveMotorSet set : motorSets) {
+				for (ThrustCurveMotor m : set.getMotors()) {
+					motorList.add(m);
+					setList.add(set);
+				}
+			}
+			motors = motorList.toArray(new ThrustCurveMotor[0]);
+			sets = setList.toArray(new ThrustCurveMotorSet[0]);
+
+			Map<String, List<Integer>> designation = new HashMap<String, List<Integer>>();
+			Map<String, List<Integer>> digest = new HashMap<String, List<Integer>>();
+			Map<Manufacturer, List<Integer>> manufacturer = new LinkedHashMap<Manufacturer, List<Integer>>();
+			double[] diameter = new double[motors.length];
+			double[] impulse = new double[motors.length];
+			for (int i = 0; i < motors.length; i++) {
+				ThrustCurveMotor m = motors[i];
+				add(designation, normalize(m.getDesignation()), i);
+				if (m.getDigest() != null) {
+					add(digest, m.getDigest(), i);
+				}
+				add(manufacturer, m.getManufacturer(), i);
+				diameter[i] = m.getDiameter();
+				impulse[i] = m.getTotalImpulseEstimate();
+			}
+			byDesignation = toArrays(designation);
+			byDigest = toArrays(digest);
+			byManufacturer = toArrays(manufacturer);
+			diameters = new SortedIndex(diameter);
+			impulses = new SortedIndex(impulse);
+		}
+
+		public int[] all() {
+			int[] all = new int[motors.length];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+
+		/**
+		 * Return the motors of all manufacturers matching the name, or null if none match.
+		 */
+		public int[] findManufacturer(String name) {
+			int[] result = null;
+			for (Map.Entry<Manufacturer, int[]> e : byManufacturer.entrySet()) {
+				if (e.getKey().matches(name)) {
+					result = (result == null) ? e.getValue() : merge(result, e.getValue());
+				}
+			}
+			return result;
+		}
+
+		private static int[] merge(int[] a, int[] b) {
+			int[] result = new int[a.length + b.length];
+			System.arraycopy(a, 0, result, 0, a.length);
+			System.arraycopy(b, 0, result, a.length, b.length);
+			Arrays.sort(result);
+			return result;
+		}
+
+		private static <K> void add(Map<K, List<Integer>> map, K key, int i) {
+			List<Integer> list = map.get(key);
+			if (list == null) {
+				list = new ArrayList<Integer>(1);
+				map.put(key, list);
+			}
+			list.add(i);
+		}
+
+		private static <K> Map<K, int[]> toArrays(Map<K, List<Integer>> map) {
+			Map<K, int[]> result = new LinkedHashMap<K, int[]>();
+			for (Map.Entry<K, List<Integer>> e : map.entrySet()) {
+				List<Integer> list = e.getValue();
+				int[] array = new int[list.size()];
+				for (int i = 0; i < array.length; i++) {
+					array[i] = list.get(i);
+				}
+				result.put(e.getKey(), array);
+			}
+			return result;
+		}
+	}
+
+
+	/**
+	 * Motor positions sorted by a numeric value, allowing range queries by binary search.
+	 */
+	private static class SortedIndex {
+		private final double[] values;
+		private final int[] positions;
+
+		public SortedIndex(final double[] unsorted) {
+			Integer[] order = new Integer[unsorted.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(unsorted[a], unsorted[b]);
+				}
+			});
+			values = new double[order.length];
+			positions = new int[order.length];
+			for (int i = 0; i < order.length; i++) {
+				positions[i] = order[i];
+				values[i] = unsorted[order[i]];
+			}
+		}
+
+		/**
+		 * Return the positions of the motors whose value is within the inclusive range,
+		 * in database order.  NaN bounds are ignored.
+		 */
+		public int[] range(double min, double max) {
+			int from = Double.isNaN(min) ? 0 : lowerBound(min);
+			int to = Double.isNaN(max) ? values.length : upperBound(max);
+			if (to <= from) {
+				return new int[0];
+			}
+			int[] result = Arrays.copyOfRange(positions, from, to);
+			Arrays.sort(result);
+			return result;
+		}
+
+		/** Return the first index whose value is >= min */
+		private int lowerBound(double min) {
+			int lo = 0, hi = values.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (values[mid] < min) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+
+		/** Return the first index whose value is > max */
+		private int upperBound(double max) {
+			int lo = 0, hi = values.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (values[mid] <= max) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+
 }
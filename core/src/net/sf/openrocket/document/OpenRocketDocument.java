@@ -21,6 +21,7 @@ import net.sf.openrocket.rocketcomponent.ComponentChangeListener;
 import net.sf.openrocket.rocketcomponent.Configuration;
 import net.sf.openrocket.rocketcomponent.Rocket;
 import net.sf.openrocket.rocketcomponent.RocketComponent;
+import net.sf.openrocket.rocketcomponent.RocketSnapshot;
 import net.sf.openrocket.simulation.FlightDataType;
 import net.sf.openrocket.simulation.customexpression.CustomExpression;
 import net.sf.openrocket.simulation.extension.SimulationExtension;
@@ -54,6 +55,12 @@ public class OpenRocketDocument implements ComponentChangeListener {
 	 * UNDO_LEVELS by this amount the undo is purged to that length.
 	 */
 	public static final int UNDO_MARGIN = 10;
+	/**
+	 * The maximum number of component copies stored in the undo history.  Components that
+	 * are unchanged between undo levels are shared, so this limits the history size
+	 * for large rockets.  After the limit is exceeded the oldest undo levels are purged.
+	 */
+	public static final int UNDO_COMPONENT_LIMIT = 10000;
 	
 	public static final String SIMULATION_NAME_PREFIX = "Simulation ";
 	
@@ -72,9 +79,10 @@ public class OpenRocketDocument implements ComponentChangeListener {
 	
 	/** 
 	 * The undo history of the rocket.   Whenever a new undo position is created while the
-	 * rocket is in "dirty" state, the rocket is copied here.
+	 * rocket is in "dirty" state, a snapshot of the rocket is stored here.  Each snapshot
+	 * shares the unchanged components with the previous one.
 	 */
-	private LinkedList<Rocket> undoHistory = new LinkedList<Rocket>();
+	private LinkedList<RocketSnapshot> undoHistory = new LinkedList<RocketSnapshot>();
 	private LinkedList<String> undoDescription = new LinkedList<String>();
 	
 	/**
@@ -356,7 +364,7 @@ public class OpenRocketDocument implements ComponentChangeListener {
 		
 		
 		// Add the current state to the undo history
-		undoHistory.add(rocket.copyWithOriginalID());
+		undoHistory.add(RocketSnapshot.create(rocket, undoHistory.getLast()));
 		undoDescription.add(null);
 		nextDescription = description;
 		undoPosition++;
@@ -370,6 +378,34 @@ public class OpenRocketDocument implements ComponentChangeListener {
 				undoPosition--;
 			}
 		}
+		trimUndoHistory();
+	}
+	
+	
+	/**
+	 * Remove the oldest undo levels until the number of stored component copies is
+	 * at most UNDO_COMPONENT_LIMIT.  The current undo position is always retained.
+	 * <p>
+	 * The first snapshot holds a full copy of the rocket, while the following ones
+	 * hold only their changed components.  Removing the first snapshot releases the
+	 * components that are not shared with the second one.
+	 */
+	private void trimUndoHistory() {
+		int count = undoHistory.getFirst().getComponentCount();
+		Iterator<RocketSnapshot> iterator = undoHistory.iterator();
+		iterator.next();
+		while (iterator.hasNext()) {
+			count += iterator.next().getCreatedComponentCount();
+		}
+		
+		while (count > UNDO_COMPONENT_LIMIT && undoPosition > 0) {
+			RocketSnapshot removed = undoHistory.removeFirst();
+			undoDescription.removeFirst();
+			undoPosition--;
+			RocketSnapshot first = undoHistory.getFirst();
+			count += first.getComponentCount() - first.getCreatedComponentCount() - removed.getComponentCount();
+			log.info("Purged undo level to limit history size, component count now " + count);
+		}
 	}
 	
 	
@@ -415,7 +451,7 @@ public class OpenRocketDocument implements ComponentChangeListener {
 		undoHistory.clear();
 		undoDescription.clear();
 		
-		undoHistory.add(rocket.copyWithOriginalID());
+		undoHistory.add(RocketSnapshot.create(rocket, null));
 		undoDescription.add(null);
 		undoPosition = 0;
 		
@@ -518,14 +554,14 @@ public class OpenRocketDocument implements ComponentChangeListener {
 				logUndoError("undo position inconsistency");
 			}
 			// Modifications have been made, save the state and restore previous state
-			undoHistory.add(rocket.copyWithOriginalID());
+			undoHistory.add(RocketSnapshot.create(rocket, undoHistory.getLast()));
 			undoDescription.add(null);
 		}
 		
 		rocket.checkComponentStructure();
-		undoHistory.get(undoPosition).checkComponentStructure();
-		undoHistory.get(undoPosition).copyWithOriginalID().checkComponentStructure();
-		rocket.loadFrom(undoHistory.get(undoPosition).copyWithOriginalID());
+		Rocket restored = undoHistory.get(undoPosition).toRocket();
+		restored.checkComponentStructure();
+		rocket.loadFrom(restored);
 		rocket.checkComponentStructure();
 	}
 	
@@ -547,7 +583,7 @@ public class OpenRocketDocument implements ComponentChangeListener {
 		
 		undoPosition++;
 		
-		rocket.loadFrom(undoHistory.get(undoPosition).copyWithOriginalID());
+		rocket.loadFrom(undoHistory.get(undoPosition).toRocket());
 	}
 	
 	
@@ -255,6 +255,7 @@ public class Simulation implements ChangeSource, Cloneable {
 	/**
 	 * Returns the status of this simulation.  This method examines whether the
 	 * simulation has been outdated and returns {@link Status#OUTDATED} accordingly.
+	 * The simulation is also outdated if its stored data could not be loaded.
 	 *
 	 * @return the status
 	 * @see Status
@@ -262,7 +263,8 @@ public class Simulation implements ChangeSource, Cloneable {
 	public Status getStatus() {
 		mutex.verify();
 		if (status == Status.UPTODATE || status == Status.LOADED) {
-			if (rocket.getFunctionalModID() != simulatedRocketID || !options.equals(simulatedConditions)) {
+			if (rocket.getFunctionalModID() != simulatedRocketID || !options.equals(simulatedConditions) ||
+					(simulatedData != null && simulatedData.isLoadFailed())) {
 				status = Status.OUTDATED;
 			}
 		}
@@ -306,9 +308,7 @@ public class Simulation implements ChangeSource, Cloneable {
 		mutex.lock("simulate");
 		try {
 			
-			if (this.status == Status.EXTERNAL) {
-				throw new SimulationException("Cannot simulate imported simulation.");
-			}
+			SimulationConditions simulationConditions = createSimulationConditions(additionalListeners);
 			
 			SimulationEngine simulator;
 			
@@ -320,39 +320,97 @@ public class Simulation implements ChangeSource, Cloneable {
 				throw new IllegalStateException("Cannot access simulator instance?! BUG!", e);
 			}
 			
-			SimulationConditions simulationConditions = options.toSimulationConditions();
-			simulationConditions.setSimulation(this);
-			for (SimulationListener l : additionalListeners) {
-				simulationConditions.getSimulationListenerList().add(l);
-			}
-			
-			for (SimulationExtension extension : simulationExtensions) {
-				extension.initialize(simulationConditions);
-			}
-			
 			long t1, t2;
 			log.debug("Simulation: calling simulator");
 			t1 = System.currentTimeMillis();
-			simulatedData = simulator.simulate(simulationConditions);
+			FlightData data = simulator.simulate(simulationConditions);
 			t2 = System.currentTimeMillis();
 			log.debug("Simulation: returning from simulator, simulation took " + (t2 - t1) + "ms");
 			
 			// Set simulated info after simulation, will not be set in case of exception
-			simulatedConditions = options.clone();
-			final Configuration configuration = getConfiguration();
-			
-			simulatedConfiguration = descriptor.format(configuration.getRocket(), configuration.getFlightConfigurationID());
-			simulatedRocketID = rocket.getFunctionalModID();
-			
-			status = Status.UPTODATE;
-			fireChangeEvent();
-			configuration.release();
+			storeSimulatedData(data, options.clone());
 		} finally {
 			mutex.unlock("simulate");
 		}
 	}
 	
 	
+	/**
+	 * Create the simulation conditions for simulating this simulation outside of
+	 * {@link #simulate(SimulationListener...)}, for example in a
+	 * {@link net.sf.openrocket.simulation.batch.BatchSimulationRunner}.  The conditions
+	 * contain an independent copy of the rocket and fresh calculator instances, and the
+	 * simulation extensions have been initialized, so they can be simulated in any thread.
+	 * <p>
+	 * The results of the simulation can be stored using
+	 * {@link #setSimulatedData(FlightData, SimulationOptions)}.
+	 *
+	 * @param additionalListeners	additional simulation listeners (those defined by the simulation are used in any case)
+	 * @return						the conditions to simulate.
+	 * @throws SimulationException	if the simulation cannot be simulated.
+	 */
+	public SimulationConditions toSimulationConditions(SimulationListener... additionalListeners)
+			throws SimulationException {
+		mutex.lock("toSimulationConditions");
+		try {
+			return createSimulationConditions(additionalListeners);
+		} finally {
+			mutex.unlock("toSimulationConditions");
+		}
+	}
+	
+	
+	/**
+	 * Store the results of a simulation run with conditions obtained from
+	 * {@link #toSimulationConditions(SimulationListener...)}.  The simulation status
+	 * becomes up-to-date with respect to the provided options.
+	 *
+	 * @param data				the simulated flight data.
+	 * @param simulatedOptions	a copy of the simulation options at the time the conditions were created.
+	 */
+	public void setSimulatedData(FlightData data, SimulationOptions simulatedOptions) {
+		mutex.lock("setSimulatedData");
+		try {
+			storeSimulatedData(data, simulatedOptions);
+		} finally {
+			mutex.unlock("setSimulatedData");
+		}
+	}
+	
+	
+	private SimulationConditions createSimulationConditions(SimulationListener... additionalListeners)
+			throws SimulationException {
+		if (this.status == Status.EXTERNAL) {
+			throw new SimulationException("Cannot simulate imported simulation.");
+		}
+		
+		SimulationConditions simulationConditions = options.toSimulationConditions();
+		simulationConditions.setSimulation(this);
+		for (SimulationListener l : additionalListeners) {
+			simulationConditions.getSimulationListenerList().add(l);
+		}
+		
+		for (SimulationExtension extension : simulationExtensions) {
+			extension.initialize(simulationConditions);
+		}
+		return simulationConditions;
+	}
+	
+	
+	private void storeSimulatedData(FlightData data, SimulationOptions simulatedOptions) {
+		simulatedData = data;
+		simulatedConditions = simulatedOptions;
+		final Configuration configuration = getConfiguration();
+		
+		simulatedConfiguration = descriptor.format(configuration.getRocket(), configuration.getFlightConfigurationID());
+		simulatedRocketID = rocket.getFunctionalModID();
+		
+		status = Status.UPTODATE;
+		fireChangeEvent();
+		configuration.release();
+	}
+	
+	
 	/**
 	 * Return the conditions used in the previous simulation, or <code>null</code>
 	 * if this simulation has not been run.
@@ -15,6 +15,8 @@ public class StorageOptions implements Cloneable {
 	private FileType fileType = FileType.OPENROCKET;
 	
 	private double simulationTimeSkip = SIMULATION_DATA_NONE;
+	
+	private boolean binarySimulationData = false;
 
 	private boolean explicitlySet = false;
 	
@@ -34,6 +36,18 @@ public class StorageOptions implements Cloneable {
 		this.simulationTimeSkip = simulationTimeSkip;
 	}
 	
+	/**
+	 * Return whether stored simulation data is saved as binary attachments of the
+	 * file container instead of as text within the XML.
+	 */
+	public boolean isBinarySimulationData() {
+		return binarySimulationData;
+	}
+	
+	public void setBinarySimulationData(boolean binarySimulationData) {
+		this.binarySimulationData = binarySimulationData;
+	}
+	
 	public boolean isExplicitlySet() {
 		return explicitlySet;
 	}
@@ -1,11 +1,14 @@
 package net.sf.openrocket.document.attachments;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import net.sf.openrocket.document.Attachment;
@@ -24,6 +27,22 @@ public class ZipFileAttachment extends Attachment {
 	public InputStream getBytes() throws FileNotFoundException, IOException {
 		String name = getName();
 		
+		// Local files are accessed directly using the zip directory instead of reading through the file
+		File file = toFile(zipFileLocation);
+		if (file != null) {
+			ZipFile zipFile = new ZipFile(file);
+			try {
+				ZipEntry entry = zipFile.getEntry(name);
+				if (entry == null) {
+					throw new FileNotFoundException("Unable to locate attachment for name " + name);
+				}
+				byte[] bytes = FileUtils.readBytes(zipFile.getInputStream(entry));
+				return new ByteArrayInputStream(bytes);
+			} finally {
+				zipFile.close();
+			}
+		}
+		
 		ZipInputStream zis = new ZipInputStream(zipFileLocation.openStream());
 		
 		try {
@@ -35,11 +54,25 @@ public class ZipFileAttachment extends Attachment {
 				}
 				entry = zis.getNextEntry();
 			}
-			throw new FileNotFoundException("Unable to locate decal for name " + name);
+			throw new FileNotFoundException("Unable to locate attachment for name " + name);
 		} finally {
 			zis.close();
 		}
 		
 	}
 	
+	private static File toFile(URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			File file = new File(url.toURI());
+			return file.isFile() ? file : null;
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
 }
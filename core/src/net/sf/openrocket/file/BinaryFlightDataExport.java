@@ -0,0 +1,106 @@
+package net.sf.openrocket.file;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.simulation.FlightEvent;
+
+/**
+ * Exports the flight data of a simulation in a compact binary format, intended for
+ * processing by other programs.  All values are written in SI units, exactly as they
+ * are stored in the flight data, and in big-endian byte order.
+ * <pre>
+ * file:    int magic, int version, string simulationName, int branchCount, branch[branchCount]
+ * branch:  string branchName, int typeCount, int pointCount,
+ *            for each type: string name, string symbol, string unit,
+ *                           double[pointCount] values,
+ *            int eventCount,
+ *            for each event: string type, double time, string sourceName
+ * string:  int byteLength (-1 for null), UTF-8 bytes
+ * </pre>
+ * The events of each branch are written in occurrence order.
+ */
+public class BinaryFlightDataExport {
+
+	/** File magic, "ORFD" */
+	public static final int MAGIC = 0x4F524644;
+	public static final int VERSION = 1;
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+
+	/**
+	 * Exports the simulated data of a simulation.  The stream is not closed.
+	 *
+	 * @param stream		the stream to write to.
+	 * @param simulation	the simulation being exported.
+	 * @throws IOException				if an I/O exception occurs.
+	 * @throws IllegalArgumentException	if the simulation has no simulated data.
+	 */
+	public static void exportBinary(OutputStream stream, Simulation simulation) throws IOException {
+		FlightData data = simulation.getSimulatedData();
+		if (data == null) {
+			throw new IllegalArgumentException("Simulation " + simulation.getName() + " has no simulated data");
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, simulation.getName());
+		out.writeInt(data.getBranchCount());
+		for (int i = 0; i < data.getBranchCount(); i++) {
+			writeBranch(out, data.getBranch(i));
+		}
+		out.flush();
+	}
+
+
+	private static void writeBranch(DataOutputStream out, FlightDataBranch branch) throws IOException {
+		FlightDataType[] types = branch.getTypes();
+		int n = branch.getLength();
+
+		writeString(out, branch.getBranchName());
+		out.writeInt(types.length);
+		out.writeInt(n);
+		for (FlightDataType type : types) {
+			writeString(out, type.getName());
+			writeString(out, type.getSymbol());
+			writeString(out, type.getUnitGroup().getSIUnit().getUnit());
+			FlightDataColumn column = branch.getColumn(type);
+			for (int i = 0; i < n; i++) {
+				out.writeDouble(column.get(i));
+			}
+		}
+
+		List<FlightEvent> events = branch.getEvents();
+		Collections.sort(events);
+		out.writeInt(events.size());
+		for (FlightEvent e : events) {
+			writeString(out, e.getType().name());
+			out.writeDouble(e.getTime());
+			writeString(out, (e.getSource() != null) ? e.getSource().getName() : null);
+		}
+	}
+
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		if (str == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = str.getBytes(CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+}
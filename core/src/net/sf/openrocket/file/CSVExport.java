@@ -12,9 +12,11 @@ import net.sf.openrocket.aerodynamics.WarningSet;
 import net.sf.openrocket.document.Simulation;
 import net.sf.openrocket.simulation.FlightData;
 import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
 import net.sf.openrocket.simulation.FlightDataType;
 import net.sf.openrocket.simulation.FlightEvent;
 import net.sf.openrocket.unit.Unit;
+import net.sf.openrocket.util.DoubleFormatter;
 import net.sf.openrocket.util.TextUtil;
 
 public class CSVExport {
@@ -98,13 +100,16 @@ public class CSVExport {
 		int eventPosition = 0;
 		
 		// List of field values
-		List<List<Double>> fieldValues = new ArrayList<List<Double>>();
+		List<FlightDataColumn> fieldValues = new ArrayList<FlightDataColumn>();
 		for (FlightDataType t : fields) {
-			fieldValues.add(branch.get(t));
+			fieldValues.add(branch.getColumn(t));
 		}
 		
+		// Formatter reused for all values
+		DoubleFormatter formatter = new DoubleFormatter();
+		
 		// Time variable
-		List<Double> time = branch.get(FlightDataType.TYPE_TIME);
+		FlightDataColumn time = branch.getColumn(FlightDataType.TYPE_TIME);
 		if (eventComments && time == null) {
 			// If time information is not available, print events at beginning of file
 			for (FlightEvent e : events) {
@@ -131,7 +136,8 @@ public class CSVExport {
 			// Store CSV line
 			for (int i = 0; i < fields.length; i++) {
 				double value = fieldValues.get(i).get(pos);
-				writer.print(TextUtil.doubleToString(units[i].toUnit(value)));
+				int length = formatter.format(units[i].toUnit(value));
+				writer.write(formatter.getBuffer(), 0, length);
 				if (i < fields.length - 1) {
 					writer.print(fieldSeparator);
 				}
@@ -1,5 +1,6 @@
 package net.sf.openrocket.file;
 
+import net.sf.openrocket.document.Attachment;
 import net.sf.openrocket.document.OpenRocketDocument;
 
 public class DocumentLoadingContext {
@@ -8,6 +9,8 @@ public class DocumentLoadingContext {
 	private MotorFinder motorFinder;
 	private AttachmentFactory attachmentFactory = new FileSystemAttachmentFactory();
 	private OpenRocketDocument document;
+	private boolean lazySimulationData = false;
+	private Attachment documentSource;
 	
 	public int getFileVersion() {
 		return fileVersion;
@@ -41,4 +44,28 @@ public class DocumentLoadingContext {
 		this.attachmentFactory = attachmentFactory;
 	}
 	
+	/**
+	 * Return whether stored simulation data should be loaded only when it is first accessed.
+	 */
+	public boolean isLazySimulationData() {
+		return lazySimulationData;
+	}
+	
+	public void setLazySimulationData(boolean lazySimulationData) {
+		this.lazySimulationData = lazySimulationData;
+	}
+	
+	/**
+	 * Return a source from which the document being loaded can be read again, or
+	 * <code>null</code> if the document was not loaded from a file.  The source provides
+	 * the uncompressed document.
+	 */
+	public Attachment getDocumentSource() {
+		return documentSource;
+	}
+	
+	public void setDocumentSource(Attachment documentSource) {
+		this.documentSource = documentSource;
+	}
+	
 }
@@ -3,6 +3,7 @@ package net.sf.openrocket.file;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -13,6 +14,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import net.sf.openrocket.aerodynamics.WarningSet;
+import net.sf.openrocket.document.Attachment;
 import net.sf.openrocket.document.OpenRocketDocument;
 import net.sf.openrocket.document.OpenRocketDocumentFactory;
 import net.sf.openrocket.file.openrocket.importt.OpenRocketLoader;
@@ -46,6 +48,8 @@ public class GeneralRocketLoader {
 	private File baseFile;
 	private URL jarURL;
 	private boolean isContainer;
+	private boolean lazySimulationData = false;
+	private Attachment documentSource;
 	
 	private final MotorFinder motorFinder;
 	private AttachmentFactory attachmentFactory;
@@ -102,6 +106,24 @@ public class GeneralRocketLoader {
 		return warnings;
 	}
 	
+	/**
+	 * Set whether stored simulation data is loaded only when it is first accessed.
+	 * This makes opening documents with large amounts of simulation data fast when
+	 * only the design or the summary values are needed.  Data stored within the
+	 * document is read again from the file on first access, so the file must not
+	 * be modified while the document is in use.  Documents loaded from a plain
+	 * stream load the data immediately.
+	 * 
+	 * @param lazySimulationData	whether to load simulation data lazily.
+	 */
+	public void setLazySimulationData(boolean lazySimulationData) {
+		this.lazySimulationData = lazySimulationData;
+	}
+	
+	public boolean isLazySimulationData() {
+		return lazySimulationData;
+	}
+	
 	/**
 	 * This method determines the type file contained in the stream then calls the appropriate loading mecahnism.
 	 * 
@@ -140,6 +162,7 @@ public class GeneralRocketLoader {
 		if (buffer[0] == GZIP_SIGNATURE[0] && buffer[1] == GZIP_SIGNATURE[1]) {
 			isContainer = false;
 			setAttachmentFactory();
+			documentSource = createDocumentSource(null, true);
 			loadRocket(new GZIPInputStream(source));
 			return;
 		}
@@ -157,6 +180,7 @@ public class GeneralRocketLoader {
 					throw new RocketLoadException("Unsupported or corrupt file.");
 				}
 				if (entry.getName().matches(".*\\.[oO][rR][kK]$")) {
+					documentSource = createDocumentSource(entry.getName(), false);
 					loadRocket(in);
 					return;
 				} else if (entry.getName().matches(".*\\.[rR][kK][tT]$")) {
@@ -169,6 +193,7 @@ public class GeneralRocketLoader {
 		
 		isContainer = false;
 		setAttachmentFactory();
+		documentSource = createDocumentSource(null, false);
 		loadRocket(source);
 		return;
 		
@@ -231,13 +256,70 @@ public class GeneralRocketLoader {
 		}
 	}
 	
+	private Attachment createDocumentSource(String entryName, boolean gzip) {
+		URL url = jarURL;
+		if (url == null && baseFile != null) {
+			try {
+				url = baseFile.toURI().toURL();
+			} catch (MalformedURLException e) {
+				return null;
+			}
+		}
+		if (url == null) {
+			return null;
+		}
+		return new DocumentSource(url, entryName, gzip);
+	}
+	
 	private void loadUsing(RocketLoader loader, InputStream source) throws RocketLoadException {
 		warnings.clear();
 		DocumentLoadingContext context = new DocumentLoadingContext();
 		context.setOpenRocketDocument(doc);
 		context.setMotorFinder(motorFinder);
 		context.setAttachmentFactory(attachmentFactory);
+		context.setLazySimulationData(lazySimulationData);
+		context.setDocumentSource(documentSource);
 		loader.load(context, source);
 		warnings.addAll(loader.getWarnings());
 	}
+	
+	
+	/**
+	 * The document file being loaded, providing the uncompressed document
+	 * from a plain, GZIP or ZIP file.
+	 */
+	private static class DocumentSource extends Attachment {
+		private final URL url;
+		private final String entryName;
+		private final boolean gzip;
+		
+		public DocumentSource(URL url, String entryName, boolean gzip) {
+			super(entryName != null ? entryName : url.getPath());
+			this.url = url;
+			this.entryName = entryName;
+			this.gzip = gzip;
+		}
+		
+		@Override
+		public InputStream getBytes() throws FileNotFoundException, IOException {
+			InputStream in = new BufferedInputStream(url.openStream());
+			if (gzip) {
+				return new GZIPInputStream(in);
+			}
+			if (entryName == null) {
+				return in;
+			}
+			
+			ZipInputStream zis = new ZipInputStream(in);
+			ZipEntry entry = zis.getNextEntry();
+			while (entry != null) {
+				if (entry.getName().equals(entryName)) {
+					return zis;
+				}
+				entry = zis.getNextEntry();
+			}
+			zis.close();
+			throw new FileNotFoundException("Unable to locate " + entryName + " in " + url);
+		}
+	}
 }
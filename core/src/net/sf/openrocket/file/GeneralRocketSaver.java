@@ -186,9 +186,25 @@ public class GeneralRocketSaver {
 			
 			ZipEntry mainFile = new ZipEntry("rocket.ork");
 			zos.putNextEntry(mainFile);
-			saveInternal(zos, document, options);
+			OpenRocketSaver saver = null;
+			if (options.getFileType() == StorageOptions.FileType.ROCKSIM) {
+				new RocksimSaver().save(zos, document, options);
+			} else {
+				saver = new OpenRocketSaver();
+				saver.setFlightDataAttachmentsSupported(true);
+				saver.save(zos, document, options);
+			}
 			zos.closeEntry();
 			
+			// Write simulation data stored in binary format.
+			if (saver != null) {
+				for (String name : saver.getFlightDataAttachmentNames()) {
+					zos.putNextEntry(new ZipEntry(name));
+					saver.saveFlightDataAttachment(name, zos);
+					zos.closeEntry();
+				}
+			}
+			
 			// Now we write out all the decal images files.
 			
 			for (DecalImage image : decals) {
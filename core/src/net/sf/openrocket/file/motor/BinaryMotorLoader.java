@@ -0,0 +1,166 @@
+package net.sf.openrocket.file.motor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.openrocket.motor.Manufacturer;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+import net.sf.openrocket.util.Coordinate;
+
+/**
+ * Loads motors from the binary motor database format written by {@link BinaryMotorSaver}.
+ * <p>
+ * Only the index of the file is parsed when loading.  The thrust curves of the motors
+ * are read from the data section when they are first needed, so loading a database
+ * with thousands of motors does not materialize thousands of thrust curves.  The
+ * loaded motors keep a reference to the file contents until their thrust curves have
+ * been loaded.
+ */
+public class BinaryMotorLoader implements MotorLoader {
+
+	/** The file name extension of binary motor database files */
+	public static final String EXTENSION = "motordb";
+
+
+	/**
+	 * Load the motors from a stream.  The entire stream is read into memory.
+	 */
+	@Override
+	public List<Motor> load(InputStream stream, String filename) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[65536];
+		int n;
+		while ((n = stream.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, n);
+		}
+		return load(ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+
+	/**
+	 * Load the motors from a file.  The file is memory-mapped, and the thrust curves
+	 * are read directly from the mapping when needed.
+	 *
+	 * @param file		the file to load.
+	 * @return			the motors contained in the file.
+	 * @throws IOException	if an I/O error occurs or the file format is invalid.
+	 */
+	public List<Motor> load(File file) throws IOException {
+		FileInputStream is = new FileInputStream(file);
+		try {
+			FileChannel channel = is.getChannel();
+			return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			// The mapping remains valid after the channel is closed
+			is.close();
+		}
+	}
+
+
+	private List<Motor> load(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != BinaryMotorSaver.MAGIC) {
+				throw new IOException("Not a binary motor database");
+			}
+			int version = buffer.getInt();
+			if (version != BinaryMotorSaver.VERSION) {
+				throw new IOException("Unsupported binary motor database version " + version);
+			}
+			int count = buffer.getInt();
+			int indexLength = buffer.getInt();
+
+			ByteBuffer data = buffer.duplicate();
+			data.position(buffer.position() + indexLength);
+			data = data.slice();
+
+			List<Motor> motors = new ArrayList<Motor>(count);
+			for (int i = 0; i < count; i++) {
+				Manufacturer manufacturer = Manufacturer.getManufacturer(readString(buffer));
+				String designation = readString(buffer);
+				String description = readString(buffer);
+				String digest = readString(buffer);
+				Motor.Type type = Motor.Type.valueOf(readString(buffer));
+
+				double[] delays = new double[buffer.getInt()];
+				for (int j = 0; j < delays.length; j++) {
+					delays[j] = buffer.getDouble();
+				}
+				double diameter = buffer.getDouble();
+				double length = buffer.getDouble();
+				int pointCount = buffer.getInt();
+				double maxThrust = buffer.getDouble();
+				double burnTime = buffer.getDouble();
+				double averageThrust = buffer.getDouble();
+				double totalImpulse = buffer.getDouble();
+				int offset = buffer.getInt();
+
+				if (offset < 0 || offset + pointCount * 6L * 8 > data.limit()) {
+					throw new IOException("Invalid thrust curve offset " + offset + " for motor " + designation);
+				}
+
+				motors.add(new ThrustCurveMotor(manufacturer, designation, description, type, delays,
+						diameter, length, digest, pointCount, maxThrust, burnTime, averageThrust, totalImpulse,
+						new BufferCurveLoader(data, offset)));
+			}
+			return motors;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated binary motor database", e);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid binary motor database: " + e.getMessage(), e);
+		}
+	}
+
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, BinaryMotorSaver.CHARSET);
+	}
+
+
+	/**
+	 * Reads a thrust curve from the data section of the database.
+	 */
+	private static class BufferCurveLoader implements ThrustCurveMotor.CurveLoader {
+		private final ByteBuffer data;
+		private final int offset;
+
+		public BufferCurveLoader(ByteBuffer data, int offset) {
+			this.data = data;
+			this.offset = offset;
+		}
+
+		@Override
+		public void loadCurve(double[] time, double[] thrust, Coordinate[] cg) {
+			int n = time.length;
+			// Only absolute reads are used, but the buffer is shared by all motors of the file
+			synchronized (data) {
+				int pos = offset;
+				for (int i = 0; i < n; i++, pos += 8) {
+					time[i] = data.getDouble(pos);
+				}
+				for (int i = 0; i < n; i++, pos += 8) {
+					thrust[i] = data.getDouble(pos);
+				}
+				for (int i = 0; i < n; i++, pos += 32) {
+					cg[i] = new Coordinate(data.getDouble(pos), data.getDouble(pos + 8),
+							data.getDouble(pos + 16), data.getDouble(pos + 24));
+				}
+			}
+		}
+	}
+
+}
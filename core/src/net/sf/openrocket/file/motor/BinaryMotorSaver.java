@@ -0,0 +1,126 @@
+package net.sf.openrocket.file.motor;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+import net.sf.openrocket.util.Coordinate;
+
+/**
+ * Saves thrust curve motors in the binary motor database format read by
+ * {@link BinaryMotorLoader}.
+ * <p>
+ * The file consists of a header, an index containing the properties and statistics
+ * of all motors, and a data section containing the thrust curves.  This allows the
+ * index to be read quickly while the thrust curves are read only when needed.
+ * All values are stored in big-endian byte order.
+ * <pre>
+ * header:  int magic, int version, int motorCount, int indexLength
+ * index:   for each motor:
+ *            string manufacturer, string designation, string description,
+ *            string digest, string type,
+ *            int delayCount, double[delayCount] delays,
+ *            double diameter, double length, int pointCount,
+ *            double maxThrust, double burnTime, double averageThrust, double totalImpulse,
+ *            int dataOffset
+ * data:    for each motor, at dataOffset from the start of the data section:
+ *            double[pointCount] time, double[pointCount] thrust,
+ *            double[pointCount * 4] cg (x, y, z, weight)
+ * string:  int byteLength (-1 for null), UTF-8 bytes
+ * </pre>
+ */
+public class BinaryMotorSaver {
+
+	/** File magic, "ORMD" */
+	static final int MAGIC = 0x4F524D44;
+	static final int VERSION = 1;
+
+	static final Charset CHARSET = Charset.forName("UTF-8");
+
+
+	/**
+	 * Save the motors to the output stream.  The stream is not closed.
+	 *
+	 * @param output	the stream to write to.
+	 * @param motors	the motors to write, all of which must be thrust curve motors.
+	 * @throws IOException					if an I/O error occurs.
+	 * @throws IllegalArgumentException		if a motor is not a {@link ThrustCurveMotor}.
+	 */
+	public void save(OutputStream output, List<? extends Motor> motors) throws IOException {
+		ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+		DataOutputStream index = new DataOutputStream(indexBytes);
+		int dataOffset = 0;
+
+		for (Motor m : motors) {
+			if (!(m instanceof ThrustCurveMotor)) {
+				throw new IllegalArgumentException("Only thrust curve motors are supported, motor=" + m);
+			}
+			ThrustCurveMotor motor = (ThrustCurveMotor) m;
+
+			writeString(index, motor.getManufacturer().getDisplayName());
+			writeString(index, motor.getDesignation());
+			writeString(index, motor.getDescription());
+			writeString(index, motor.getDigest());
+			writeString(index, motor.getMotorType().name());
+
+			double[] delays = motor.getStandardDelays();
+			index.writeInt(delays.length);
+			for (double d : delays) {
+				index.writeDouble(d);
+			}
+			index.writeDouble(motor.getDiameter());
+			index.writeDouble(motor.getLength());
+			index.writeInt(motor.getDataPointCount());
+			index.writeDouble(motor.getMaxThrustEstimate());
+			index.writeDouble(motor.getBurnTimeEstimate());
+			index.writeDouble(motor.getAverageThrustEstimate());
+			index.writeDouble(motor.getTotalImpulseEstimate());
+			index.writeInt(dataOffset);
+
+			dataOffset += motor.getDataPointCount() * 6 * 8;
+		}
+		index.flush();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(motors.size());
+		out.writeInt(indexBytes.size());
+		indexBytes.writeTo(out);
+
+		for (Motor m : motors) {
+			ThrustCurveMotor motor = (ThrustCurveMotor) m;
+			for (double t : motor.getTimePoints()) {
+				out.writeDouble(t);
+			}
+			for (double f : motor.getThrustPoints()) {
+				out.writeDouble(f);
+			}
+			for (Coordinate c : motor.getCGPoints()) {
+				out.writeDouble(c.x);
+				out.writeDouble(c.y);
+				out.writeDouble(c.z);
+				out.writeDouble(c.weight);
+			}
+		}
+		out.flush();
+	}
+
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		if (str == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = str.getBytes(CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+}
@@ -0,0 +1,227 @@
+package net.sf.openrocket.file.motor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openrocket.motor.Motor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of the motors parsed from motor files.  The cached motors of a
+ * file are used as long as the path, modification time and length of the file are
+ * unchanged.  The motors are stored in the binary motor database format.
+ * <p>
+ * The cache file contains a header followed by one entry per cached file.
+ * <pre>
+ * header:  int magic, int version, int entryCount
+ * entry:   UTF path, long lastModified, long length, int dataLength,
+ *          byte[dataLength] motors in the binary motor database format
+ * </pre>
+ * Only the entries that have been used or added since the cache was loaded are
+ * written when the cache is saved, so files that have been removed are dropped
+ * from the cache.  This class is thread-safe.
+ */
+public class MotorFileCache {
+	private static final Logger log = LoggerFactory.getLogger(MotorFileCache.class);
+
+	/** File magic, "ORMC" */
+	private static final int MAGIC = 0x4F524D43;
+	private static final int VERSION = 1;
+
+	private final File cacheFile;
+
+	private final Map<String, Entry> loaded = new HashMap<String, Entry>();
+	private final Map<String, Entry> used = new HashMap<String, Entry>();
+	private boolean modified = false;
+
+
+	/**
+	 * Sole constructor.  The cache is empty until {@link #load()} is called.
+	 *
+	 * @param cacheFile		the file in which the cache is stored.
+	 */
+	public MotorFileCache(File cacheFile) {
+		this.cacheFile = cacheFile;
+	}
+
+
+	/**
+	 * Load the cache from the cache file.  A missing or unreadable cache file
+	 * results in an empty cache.
+	 */
+	public synchronized void load() {
+		loaded.clear();
+		used.clear();
+		modified = false;
+		if (!cacheFile.isFile()) {
+			return;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				log.info("Ignoring motor cache file " + cacheFile + " of unknown version");
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				long lastModified = in.readLong();
+				long length = in.readLong();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				loaded.put(path, new Entry(lastModified, length, data));
+			}
+			log.debug("Loaded " + count + " entries from motor cache " + cacheFile);
+		} catch (EOFException e) {
+			log.warn("Truncated motor cache file " + cacheFile);
+			loaded.clear();
+		} catch (IOException e) {
+			log.warn("Unable to read motor cache file " + cacheFile + ": " + e, e);
+			loaded.clear();
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Return the cached motors of a file, or <code>null</code> if the file is not
+	 * cached or has changed since it was cached.
+	 *
+	 * @param file	the motor file.
+	 * @return		the motors of the file, or <code>null</code>.
+	 */
+	public List<Motor> get(File file) {
+		String path = file.getAbsolutePath();
+		Entry entry;
+		synchronized (this) {
+			entry = used.get(path);
+			if (entry == null) {
+				entry = loaded.get(path);
+			}
+		}
+		if (entry == null || entry.lastModified != file.lastModified() || entry.length != file.length()) {
+			return null;
+		}
+
+		List<Motor> motors;
+		try {
+			motors = new BinaryMotorLoader().load(new ByteArrayInputStream(entry.data), path);
+		} catch (IOException e) {
+			log.warn("Invalid motor cache entry for " + path + ": " + e, e);
+			return null;
+		}
+		synchronized (this) {
+			used.put(path, entry);
+		}
+		return motors;
+	}
+
+
+	/**
+	 * Store the motors of a file in the cache.  The modification time and length of
+	 * the file are read by this method, so the file should not be modified after
+	 * the motors were parsed.
+	 *
+	 * @param file		the motor file.
+	 * @param motors	the motors parsed from the file.
+	 * @throws IllegalArgumentException		if a motor is not a thrust curve motor.
+	 */
+	public void put(File file, List<Motor> motors) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			new BinaryMotorSaver().save(bytes, motors);
+		} catch (IOException e) {
+			throw new IllegalStateException("IOException while writing to memory", e);
+		}
+		Entry entry = new Entry(file.lastModified(), file.length(), bytes.toByteArray());
+		synchronized (this) {
+			used.put(file.getAbsolutePath(), entry);
+			modified = true;
+		}
+	}
+
+
+	/**
+	 * Save the cache to the cache file if it has changed since it was loaded.  Only
+	 * the entries that have been used or added are saved.
+	 *
+	 * @throws IOException	if an I/O error occurs.
+	 */
+	public synchronized void save() throws IOException {
+		if (!modified && used.size() == loaded.size()) {
+			return;
+		}
+
+		File dir = cacheFile.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory()) {
+			dir.mkdirs();
+		}
+
+		// Write to a temporary file first so that a failed write does not corrupt the cache
+		File tmp = new File(cacheFile.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(used.size());
+			for (Map.Entry<String, Entry> e : used.entrySet()) {
+				Entry entry = e.getValue();
+				out.writeUTF(e.getKey());
+				out.writeLong(entry.lastModified);
+				out.writeLong(entry.length);
+				out.writeInt(entry.data.length);
+				out.write(entry.data);
+			}
+		} finally {
+			out.close();
+		}
+		if (cacheFile.exists() && !cacheFile.delete()) {
+			tmp.delete();
+			throw new IOException("Unable to replace motor cache file " + cacheFile);
+		}
+		if (!tmp.renameTo(cacheFile)) {
+			throw new IOException("Unable to rename " + tmp + " to " + cacheFile);
+		}
+
+		loaded.clear();
+		loaded.putAll(used);
+		modified = false;
+		log.debug("Saved " + used.size() + " entries to motor cache " + cacheFile);
+	}
+
+
+	private static class Entry {
+		private final long lastModified;
+		private final long length;
+		private final byte[] data;
+
+		public Entry(long lastModified, long length, byte[] data) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.data = data;
+		}
+	}
+
+}
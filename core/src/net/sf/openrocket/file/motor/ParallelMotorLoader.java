@@ -0,0 +1,220 @@
+package net.sf.openrocket.file.motor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.util.BugException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads motors from a number of motor files in parallel.  The files are parsed on a
+ * pool of threads using {@link GeneralMotorLoader}, and motors that have the same
+ * digest as a previously loaded motor are dropped.  The motors are returned in file
+ * order regardless of the order in which the files are parsed.
+ * <p>
+ * If a {@link MotorFileCache} is provided, files that are unchanged since they were
+ * cached are not parsed at all, and newly parsed files are added to the cache.
+ */
+public class ParallelMotorLoader {
+	private static final Logger log = LoggerFactory.getLogger(ParallelMotorLoader.class);
+
+	private final MotorFileCache cache;
+	private final int threadCount;
+
+
+	/**
+	 * Construct a loader that uses as many threads as there are processors available.
+	 *
+	 * @param cache		the cache to use, or <code>null</code> for no caching.
+	 */
+	public ParallelMotorLoader(MotorFileCache cache) {
+		this(cache, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct a loader that uses the specified number of threads.
+	 *
+	 * @param cache			the cache to use, or <code>null</code> for no caching.
+	 * @param threadCount	the maximum number of threads used for parsing.
+	 */
+	public ParallelMotorLoader(MotorFileCache cache, int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount=" + threadCount);
+		}
+		this.cache = cache;
+		this.threadCount = threadCount;
+	}
+
+
+	/**
+	 * Return the files accepted by the filter within a directory and its
+	 * subdirectories, in a stable order.
+	 *
+	 * @param directory		the directory to scan.
+	 * @param filter		the filter for the files.
+	 * @return				the accepted files.
+	 * @throws IOException	if the directory cannot be listed.
+	 */
+	public static List<File> listFiles(File directory, FileFilter filter) throws IOException {
+		List<File> result = new ArrayList<File>();
+		listFiles(directory, filter, result);
+		return result;
+	}
+
+	private static void listFiles(File directory, FileFilter filter, List<File> result) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new IOException("not a directory or IOException occurred when listing files " +
+					"from " + directory);
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.isDirectory()) {
+				try {
+					listFiles(file, filter, result);
+				} catch (IOException e) {
+					log.warn("Unable to read directory " + file + ": " + e);
+				}
+			} else if (filter.accept(file)) {
+				result.add(file);
+			}
+		}
+	}
+
+
+	/**
+	 * Load the motors from the files.  Files that cannot be read are logged and skipped.
+	 *
+	 * @param files		the motor files to load.
+	 * @return			the unique motors contained in the files, in file order.
+	 */
+	public List<Motor> load(List<File> files) {
+		if (files.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		int threads = Math.min(threadCount, files.size());
+		ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "MotorLoader");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+
+		try {
+			List<Future<List<Motor>>> futures = new ArrayList<Future<List<Motor>>>(files.size());
+			for (File file : files) {
+				futures.add(executor.submit(new FileLoader(file)));
+			}
+
+			Set<String> digests = new HashSet<String>();
+			List<Motor> motors = new ArrayList<Motor>();
+			for (Future<List<Motor>> future : futures) {
+				for (Motor m : waitFor(future)) {
+					if (digests.add(m.getDigest())) {
+						motors.add(m);
+					}
+				}
+			}
+			return motors;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	private static List<Motor> waitFor(Future<List<Motor>> future) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					throw new BugException("Unexpected exception while loading motors", e.getCause());
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+
+	/**
+	 * Parses a single file, or reads it from the cache.
+	 */
+	private class FileLoader implements Callable<List<Motor>> {
+		private final File file;
+
+		public FileLoader(File file) {
+			this.file = file;
+		}
+
+		@Override
+		public List<Motor> call() {
+			if (cache != null) {
+				List<Motor> motors = cache.get(file);
+				if (motors != null) {
+					log.debug("Using cached motors of file " + file);
+					return motors;
+				}
+			}
+
+			log.debug("Loading motors from file " + file);
+			List<Motor> motors;
+			InputStream is = null;
+			try {
+				is = new BufferedInputStream(new FileInputStream(file));
+				motors = new GeneralMotorLoader().load(is, file.getName());
+			} catch (IOException e) {
+				log.warn("IOException while reading " + file + ": " + e, e);
+				return Collections.emptyList();
+			} finally {
+				if (is != null) {
+					try {
+						is.close();
+					} catch (IOException e) {
+					}
+				}
+			}
+
+			if (cache != null) {
+				try {
+					cache.put(file, motors);
+				} catch (IllegalArgumentException e) {
+					log.debug("Motors of file " + file + " cannot be cached: " + e);
+				}
+			}
+			return motors;
+		}
+	}
+
+}
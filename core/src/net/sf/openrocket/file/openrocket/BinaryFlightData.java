@@ -0,0 +1,138 @@
+package net.sf.openrocket.file.openrocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.util.FileUtils;
+
+/**
+ * Reads and writes the data points of a flight data branch in a binary format, used
+ * for storing simulation data as attachments of .ork file containers.  The data is
+ * stored column by column in little-endian byte order:
+ * <pre>
+ * int magic, int version, int typeCount, int pointCount, int flags,
+ * typeCount columns of pointCount values
+ * </pre>
+ * The values are doubles, or floats if the flag {@link #FLAG_SINGLE_PRECISION} is set.
+ * The types of the columns are not stored; they are listed in the XML element that
+ * refers to the data.  The container compresses the data.
+ */
+public class BinaryFlightData {
+
+	/** File magic, "ORFB" */
+	public static final int MAGIC = 0x4F524642;
+	public static final int VERSION = 1;
+
+	/** Flag denoting that the values are stored as floats. */
+	public static final int FLAG_SINGLE_PRECISION = 1;
+
+	private static final int HEADER_LENGTH = 20;
+	private static final int BUFFER_LENGTH = 8192;
+
+
+	/**
+	 * Write data points of a branch.  The stream is not closed.
+	 *
+	 * @param out		the stream to write to.
+	 * @param branch	the branch to write.
+	 * @param types		the types to write, in order.
+	 * @param points	the indices of the data points to write, in order.
+	 * @throws IOException	if an I/O error occurs.
+	 */
+	public static void write(OutputStream out, FlightDataBranch branch, FlightDataType[] types,
+			int[] points) throws IOException {
+		boolean single = branch.isSinglePrecision();
+
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(types.length);
+		buffer.putInt(points.length);
+		buffer.putInt(single ? FLAG_SINGLE_PRECISION : 0);
+
+		for (FlightDataType type : types) {
+			FlightDataColumn column = branch.getColumn(type);
+			for (int index : points) {
+				if (buffer.remaining() < 8) {
+					flush(out, buffer);
+				}
+				if (single) {
+					buffer.putFloat((float) column.get(index));
+				} else {
+					buffer.putDouble(column.get(index));
+				}
+			}
+		}
+		flush(out, buffer);
+	}
+
+
+	/**
+	 * Read data points into a branch.  The points are appended to the branch.
+	 *
+	 * @param in		the stream to read.  The stream is not closed.
+	 * @param branch	the branch to add the points to.
+	 * @param types		the types of the stored columns, in order.
+	 * @throws IOException	if an I/O error occurs or the data is invalid.
+	 */
+	public static void read(InputStream in, FlightDataBranch branch, FlightDataType[] types)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(FileUtils.readBytes(in)).order(ByteOrder.LITTLE_ENDIAN);
+
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Invalid flight data attachment");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported flight data version " + version);
+			}
+			int typeCount = buffer.getInt();
+			int pointCount = buffer.getInt();
+			int flags = buffer.getInt();
+			if (typeCount != types.length) {
+				throw new IOException("Flight data contains " + typeCount + " types, expected " + types.length);
+			}
+			boolean single = (flags & FLAG_SINGLE_PRECISION) != 0;
+			long expected = HEADER_LENGTH + (long) typeCount * pointCount * (single ? 4 : 8);
+			if (pointCount < 0 || buffer.limit() != expected) {
+				throw new IOException("Flight data length " + buffer.limit() + " does not match, expected " + expected);
+			}
+
+			double[][] data = new double[typeCount][pointCount];
+			if (single) {
+				float[] floats = new float[pointCount];
+				for (int i = 0; i < typeCount; i++) {
+					buffer.asFloatBuffer().get(floats);
+					buffer.position(buffer.position() + pointCount * 4);
+					for (int j = 0; j < pointCount; j++) {
+						data[i][j] = floats[j];
+					}
+				}
+			} else {
+				for (int i = 0; i < typeCount; i++) {
+					buffer.asDoubleBuffer().get(data[i]);
+					buffer.position(buffer.position() + pointCount * 8);
+				}
+			}
+
+			branch.addPoints(pointCount, types, data);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Flight data is truncated", e);
+		}
+	}
+
+
+	private static void flush(OutputStream out, ByteBuffer buffer) throws IOException {
+		out.write(buffer.array(), 0, buffer.position());
+		buffer.clear();
+	}
+
+}
@@ -6,6 +6,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -27,6 +28,7 @@ import net.sf.openrocket.rocketcomponent.TubeCoupler;
 import net.sf.openrocket.rocketcomponent.TubeFinSet;
 import net.sf.openrocket.simulation.FlightData;
 import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
 import net.sf.openrocket.simulation.FlightDataType;
 import net.sf.openrocket.simulation.FlightEvent;
 import net.sf.openrocket.simulation.SimulationOptions;
@@ -35,6 +37,7 @@ import net.sf.openrocket.simulation.extension.SimulationExtension;
 import net.sf.openrocket.util.BugException;
 import net.sf.openrocket.util.BuildProperties;
 import net.sf.openrocket.util.Config;
+import net.sf.openrocket.util.DoubleFormatter;
 import net.sf.openrocket.util.MathUtil;
 import net.sf.openrocket.util.Reflection;
 import net.sf.openrocket.util.TextUtil;
@@ -64,11 +67,20 @@ public class OpenRocketSaver extends RocketSaver {
 	private static final int BYTES_PER_COMPONENT_COMPRESSED = 80;
 	private static final int BYTES_PER_SIMULATION_COMPRESSED = 100;
 	private static final int BYTES_PER_DATAPOINT_COMPRESSED = 100;
+	private static final int BYTES_PER_BINARY_VALUE_COMPRESSED = 6;
+	
+	/** Name prefix of flight data attachments within the file container */
+	public static final String FLIGHT_DATA_ATTACHMENT_PREFIX = "flightdata/";
 	
 	
 	private int indent;
+	private final DoubleFormatter doubleFormatter = new DoubleFormatter();
 	private Writer dest;
 	
+	private boolean flightDataAttachmentsSupported = false;
+	private boolean binarySimulationData;
+	private final List<FlightDataAttachment> flightDataAttachments = new ArrayList<FlightDataAttachment>();
+	
 	@Override
 	public void save(OutputStream output, OpenRocketDocument document, StorageOptions options) throws IOException {
 		
@@ -84,6 +96,8 @@ public class OpenRocketSaver extends RocketSaver {
 		
 		
 		this.indent = 0;
+		this.binarySimulationData = isBinarySimulationData(options);
+		this.flightDataAttachments.clear();
 		
 		
 		writeln("<?xml version='1.0' encoding='utf-8'?>");
@@ -119,6 +133,60 @@ public class OpenRocketSaver extends RocketSaver {
 		dest.flush();
 	}
 	
+	
+	/**
+	 * Set whether the caller writes the flight data attachments of the saved document
+	 * into the same file container.  Simulation data is stored in binary format only
+	 * if this is set; otherwise it is stored as text within the XML regardless of
+	 * {@link StorageOptions#isBinarySimulationData()}, since the data would be lost.
+	 * 
+	 * @param supported	whether flight data attachments are written.
+	 */
+	public void setFlightDataAttachmentsSupported(boolean supported) {
+		this.flightDataAttachmentsSupported = supported;
+	}
+	
+	/*
+	 * Return whether simulation data is stored in binary attachments with the given options.
+	 */
+	private boolean isBinarySimulationData(StorageOptions options) {
+		return flightDataAttachmentsSupported && options != null && options.isBinarySimulationData();
+	}
+	
+	/**
+	 * Return the names of the flight data attachments referred to by the document
+	 * last saved with this saver.  When simulation data is stored in binary format,
+	 * these must be written to the file container using
+	 * {@link #saveFlightDataAttachment(String, OutputStream)}.
+	 * 
+	 * @return	the attachment names, empty if simulation data is not stored in binary format.
+	 */
+	public List<String> getFlightDataAttachmentNames() {
+		List<String> names = new ArrayList<String>(flightDataAttachments.size());
+		for (FlightDataAttachment attachment : flightDataAttachments) {
+			names.add(attachment.name);
+		}
+		return names;
+	}
+	
+	/**
+	 * Write a flight data attachment of the document last saved with this saver.
+	 * The stream is not closed.
+	 * 
+	 * @param name		the attachment name.
+	 * @param output	the stream to write to.
+	 * @throws IOException	in case of an I/O error.
+	 */
+	public void saveFlightDataAttachment(String name, OutputStream output) throws IOException {
+		for (FlightDataAttachment attachment : flightDataAttachments) {
+			if (attachment.name.equals(name)) {
+				BinaryFlightData.write(output, attachment.branch, attachment.types, attachment.points);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Unknown flight data attachment " + name);
+	}
+	
 	/*
 	 * Save all the custom expressions
 	 */
@@ -180,19 +248,28 @@ public class OpenRocketSaver extends RocketSaver {
 		
 		// Size per flight data point
 		int pointCount = 0;
+		long valueCount = 0;
 		double timeSkip = options.getSimulationTimeSkip();
 		if (timeSkip != StorageOptions.SIMULATION_DATA_NONE) {
 			for (Simulation s : doc.getSimulations()) {
 				FlightData data = s.getSimulatedData();
 				if (data != null) {
 					for (int i = 0; i < data.getBranchCount(); i++) {
-						pointCount += countFlightDataBranchPoints(data.getBranch(i), timeSkip);
+						int count = countFlightDataBranchPoints(data.getBranch(i), timeSkip);
+						pointCount += count;
+						if (count > 0) {
+							valueCount += (long) count * data.getBranch(i).getTypes().length;
+						}
 					}
 				}
 			}
 		}
 		
-		size += pointCount * BYTES_PER_DATAPOINT_COMPRESSED;
+		if (options.isBinarySimulationData()) {
+			size += valueCount * BYTES_PER_BINARY_VALUE_COMPRESSED;
+		} else {
+			size += pointCount * BYTES_PER_DATAPOINT_COMPRESSED;
+		}
 		
 		return size;
 	}
@@ -222,6 +299,12 @@ public class OpenRocketSaver extends RocketSaver {
 		/*
 		 * NOTE:  Remember to update the supported versions in DocumentConfig as well!
 		 * 
+		 * File version 1.9 is required for:
+		 *  - simulations using the adaptive time step or aerodynamic coefficient tables
+		 * 
+		 * File version 1.8 is required for:
+		 *  - simulation data stored in binary attachments
+		 * 
 		 * File version 1.7 is required for:
 		 *  - simulation extensions
 		 *  - saving tube fins.
@@ -245,6 +328,33 @@ public class OpenRocketSaver extends RocketSaver {
 		 * Otherwise use version 1.0.
 		 */
 		
+		/////////////////
+		// Version 1.9 // 
+		/////////////////
+		for (Simulation sim : document.getSimulations()) {
+			if (sim.getOptions().isAdaptiveTimeStep() || sim.getOptions().getAerodynamicTableTolerance() > 0) {
+				return FILE_VERSION_DIVISOR + 9;
+			}
+		}
+		
+		
+		/////////////////
+		// Version 1.8 // 
+		/////////////////
+		if (isBinarySimulationData(opts)) {
+			for (Simulation sim : document.getSimulations()) {
+				FlightData data = sim.getSimulatedData();
+				if (data == null || data.getBranchCount() == 0) {
+					continue;
+				}
+				if (opts.getSimulationTimeSkip() != StorageOptions.SIMULATION_DATA_NONE ||
+						sim.getStatus() == Simulation.Status.EXTERNAL) {
+					return FILE_VERSION_DIVISOR + 8;
+				}
+			}
+		}
+		
+		
 		/////////////////
 		// Version 1.7 // 
 		/////////////////
@@ -477,6 +587,14 @@ public class OpenRocketSaver extends RocketSaver {
 		}
 		
 		writeElement("timestep", cond.getTimeStep());
+		if (cond.isAdaptiveTimeStep()) {
+			writeElement("adaptivetimestep", true);
+			writeElement("relativetolerance", cond.getRelativeTolerance());
+			writeElement("absolutetolerance", cond.getAbsoluteTolerance());
+		}
+		if (cond.getAerodynamicTableTolerance() > 0) {
+			writeElement("aerodynamictabletolerance", cond.getAerodynamicTableTolerance());
+		}
 		
 		indent--;
 		writeln("</conditions>");
@@ -582,7 +700,6 @@ public class OpenRocketSaver extends RocketSaver {
 	
 	private void saveFlightDataBranch(FlightDataBranch branch, double timeSkip)
 			throws IOException {
-		double previousTime = -100000;
 		
 		if (branch == null)
 			return;
@@ -594,11 +711,11 @@ public class OpenRocketSaver extends RocketSaver {
 			return;
 		
 		// Retrieve the data from the branch
-		List<List<Double>> data = new ArrayList<List<Double>>(types.length);
+		List<FlightDataColumn> data = new ArrayList<FlightDataColumn>(types.length);
 		for (int i = 0; i < types.length; i++) {
-			data.add(branch.get(types[i]));
+			data.add(branch.getColumn(types[i]));
 		}
-		List<Double> timeData = branch.get(FlightDataType.TYPE_TIME);
+		int[] points = selectDataPoints(branch, timeSkip);
 		
 		// Build the <databranch> tag
 		StringBuilder sb = new StringBuilder();
@@ -628,6 +745,14 @@ public class OpenRocketSaver extends RocketSaver {
 			sb.append("\" ");
 		}
 		
+		if (binarySimulationData) {
+			String name = FLIGHT_DATA_ATTACHMENT_PREFIX + (flightDataAttachments.size() + 1) + ".bin";
+			flightDataAttachments.add(new FlightDataAttachment(name, branch, types, points));
+			sb.append("datafile=\"");
+			sb.append(TextUtil.escapeXML(name));
+			sb.append("\" ");
+		}
+		
 		sb.append("types=\"");
 		for (int i = 0; i < types.length; i++) {
 			if (i > 0)
@@ -644,88 +769,82 @@ public class OpenRocketSaver extends RocketSaver {
 					+ "\" type=\"" + enumToXMLName(event.getType()) + "\"/>");
 		}
 		
-		// Write the data
-		int length = branch.getLength();
-		if (length > 0) {
-			writeDataPointString(data, 0, sb);
-			previousTime = timeData.get(0);
-		}
-		
-		for (int i = 1; i < length - 1; i++) {
-			if (timeData != null) {
-				if (Math.abs(timeData.get(i) - previousTime - timeSkip) < Math.abs(timeData.get(i + 1) - previousTime - timeSkip)) {
-					writeDataPointString(data, i, sb);
-					previousTime = timeData.get(i);
-				}
-			} else {
-				// If time data is not available, write all points
-				writeDataPointString(data, i, sb);
+		// Write the data, unless it is stored as an attachment
+		if (!binarySimulationData) {
+			for (int index : points) {
+				writeDataPointString(data, index);
 			}
 		}
 		
-		if (length > 1) {
-			writeDataPointString(data, length - 1, sb);
-		}
-		
 		indent--;
 		writeln("</databranch>");
 	}
 	
-	/* TODO: LOW: This is largely duplicated from above! */
 	private int countFlightDataBranchPoints(FlightDataBranch branch, double timeSkip) {
-		int count = 0;
-		
-		double previousTime = -100000;
-		
 		if (branch == null)
 			return 0;
 		
-		// Retrieve the types from the branch
-		FlightDataType[] types = branch.getTypes();
-		
-		if (types.length == 0)
+		if (branch.getTypes().length == 0)
 			return 0;
 		
-		List<Double> timeData = branch.get(FlightDataType.TYPE_TIME);
-		if (timeData == null) {
-			// If time data not available, store all points
-			return branch.getLength();
-		}
-		
-		// Write the data
+		return selectDataPoints(branch, timeSkip).length;
+	}
+	
+	/**
+	 * Select the data points to store from a branch.  The first and last points are
+	 * always stored, and in between the points closest to being timeSkip apart.
+	 * If the branch has no time data, all points are stored.
+	 * 
+	 * @return	the indices of the points to store, in increasing order.
+	 */
+	private static int[] selectDataPoints(FlightDataBranch branch, double timeSkip) {
 		int length = branch.getLength();
+		FlightDataColumn timeData = branch.getColumn(FlightDataType.TYPE_TIME);
+		
+		int[] points = new int[length];
+		int count = 0;
+		
 		if (length > 0) {
-			count++;
-			previousTime = timeData.get(0);
+			points[count++] = 0;
 		}
 		
+		double previousTime = (length > 0 && timeData != null) ? timeData.get(0) : Double.NaN;
 		for (int i = 1; i < length - 1; i++) {
-			if (Math.abs(timeData.get(i) - previousTime - timeSkip) < Math.abs(timeData.get(i + 1) - previousTime - timeSkip)) {
-				count++;
-				previousTime = timeData.get(i);
+			if (timeData != null) {
+				if (Math.abs(timeData.get(i) - previousTime - timeSkip) < Math.abs(timeData.get(i + 1) - previousTime - timeSkip)) {
+					points[count++] = i;
+					previousTime = timeData.get(i);
+				}
+			} else {
+				// If time data is not available, store all points
+				points[count++] = i;
 			}
 		}
 		
 		if (length > 1) {
-			count++;
+			points[count++] = length - 1;
 		}
 		
-		return count;
+		return Arrays.copyOf(points, count);
 	}
 	
 	
 	
-	private void writeDataPointString(List<List<Double>> data, int index, StringBuilder sb)
+	/*
+	 * Data points are written directly to the destination, since formatting them
+	 * dominates the time taken to save documents with stored flight data.
+	 */
+	private void writeDataPointString(List<FlightDataColumn> data, int index)
 			throws IOException {
-		sb.setLength(0);
-		sb.append("<datapoint>");
+		for (int i = 0; i < indent; i++)
+			dest.write("  ");
+		dest.write("<datapoint>");
 		for (int j = 0; j < data.size(); j++) {
 			if (j > 0)
-				sb.append(",");
-			sb.append(TextUtil.doubleToString(data.get(j).get(index)));
+				dest.write(',');
+			doubleFormatter.write(dest, data.get(j).get(index));
 		}
-		sb.append("</datapoint>");
-		writeln(sb.toString());
+		dest.write("</datapoint>\n");
 	}
 	
 	
@@ -763,4 +882,22 @@ public class OpenRocketSaver extends RocketSaver {
 		return e.name().toLowerCase(Locale.ENGLISH).replace("_", "");
 	}
 	
+	
+	/**
+	 * A flight data branch to be stored as an attachment.
+	 */
+	private static class FlightDataAttachment {
+		private final String name;
+		private final FlightDataBranch branch;
+		private final FlightDataType[] types;
+		private final int[] points;
+		
+		public FlightDataAttachment(String name, FlightDataBranch branch, FlightDataType[] types, int[] points) {
+			this.name = name;
+			this.branch = branch;
+			this.types = types;
+			this.points = points;
+		}
+	}
+	
 }
@@ -1,9 +1,12 @@
 package net.sf.openrocket.file.openrocket.importt;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 
 import net.sf.openrocket.aerodynamics.WarningSet;
 import net.sf.openrocket.file.DocumentLoadingContext;
+import net.sf.openrocket.file.openrocket.BinaryFlightData;
 import net.sf.openrocket.file.simplesax.AbstractElementHandler;
 import net.sf.openrocket.file.simplesax.ElementHandler;
 import net.sf.openrocket.file.simplesax.PlainTextHandler;
@@ -18,7 +21,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 class FlightDataBranchHandler extends AbstractElementHandler {
-	@SuppressWarnings("unused")
 	private final DocumentLoadingContext context;
 	private final FlightDataType[] types;
 	private final FlightDataBranch branch;
@@ -26,6 +28,9 @@ class FlightDataBranchHandler extends AbstractElementHandler {
 	private static final Logger log = LoggerFactory.getLogger(FlightDataBranchHandler.class);
 	private final SingleSimulationHandler simHandler;
 	
+	/** Name of the attachment containing the data points, or null if stored as text */
+	private String dataFile = null;
+	
 	public FlightDataBranchHandler(String name, String typeList, SingleSimulationHandler simHandler, DocumentLoadingContext context) {
 		this.simHandler = simHandler;
 		this.context = context;
@@ -92,17 +97,41 @@ class FlightDataBranchHandler extends AbstractElementHandler {
 		return FlightDataType.getType(name, "Unknown", UnitGroup.UNITS_NONE);
 	}
 	
+	/**
+	 * Set the name of the attachment from which the data points of this branch are read.
+	 */
+	public void setDataFile(String dataFile) {
+		this.dataFile = dataFile;
+	}
+	
 	public FlightDataBranch getBranch() {
 		branch.immute();
 		return branch;
 	}
 	
+	/**
+	 * Return whether reading the data points of this branch is deferred until the
+	 * data is first accessed.  The points are then read using {@link #readDataFile()}
+	 * or by reading the document again and passing the points to
+	 * {@link #addDataPoint(String, WarningSet)}.
+	 */
+	public boolean isDeferred() {
+		return context.isLazySimulationData() && (dataFile != null || context.getDocumentSource() != null);
+	}
+	
+	/**
+	 * Return whether the data points of this branch are stored in an attachment.
+	 */
+	public boolean hasDataFile() {
+		return dataFile != null;
+	}
+	
 	@Override
 	public ElementHandler openElement(String element, HashMap<String, String> attributes,
 			WarningSet warnings) {
 		
 		if (element.equals("datapoint"))
-			return PlainTextHandler.INSTANCE;
+			return isDeferred() ? null : PlainTextHandler.INSTANCE;
 		if (element.equals("event"))
 			return PlainTextHandler.INSTANCE;
 		
@@ -142,7 +171,14 @@ class FlightDataBranchHandler extends AbstractElementHandler {
 		}
 		
 		// element == "datapoint"
-		
+		addDataPoint(content, warnings);
+	}
+	
+	
+	/**
+	 * Parse a data point and add it to the branch.
+	 */
+	void addDataPoint(String content, WarningSet warnings) {
 		
 		// Check line format
 		String[] split = content.split(",");
@@ -168,4 +204,45 @@ class FlightDataBranchHandler extends AbstractElementHandler {
 			branch.setValue(types[i], values[i]);
 		}
 	}
+	
+	
+	@Override
+	public void endHandler(String element, HashMap<String, String> attributes,
+			String content, WarningSet warnings) {
+		
+		if (dataFile == null) {
+			return;
+		}
+		
+		if (branch.getLength() > 0) {
+			warnings.add("Flight data contains both data points and a data file, ignoring data file.");
+			dataFile = null;
+			return;
+		}
+		
+		simHandler.getDocument().getDefaultStorageOptions().setBinarySimulationData(true);
+		if (isDeferred()) {
+			return;
+		}
+		
+		try {
+			readDataFile();
+		} catch (IOException e) {
+			log.warn("Unable to read flight data file " + dataFile, e);
+			warnings.add("Unable to read simulation data, ignoring.");
+		}
+	}
+	
+	
+	/**
+	 * Read the data points of the branch from the attachment.
+	 */
+	void readDataFile() throws IOException {
+		InputStream in = context.getAttachmentFactory().getAttachment(dataFile).getBytes();
+		try {
+			BinaryFlightData.read(in, branch, types);
+		} finally {
+			in.close();
+		}
+	}
 }
\ No newline at end of file
@@ -23,10 +23,15 @@ class FlightDataHandler extends AbstractElementHandler {
 	private SingleSimulationHandler simHandler;
 	private FlightData data;
 	
+	private final StoredFlightDataLoader loader;
+	private int branchCount = 0;
+	private int branchIndex;
+	
 	
 	public FlightDataHandler(SingleSimulationHandler simHandler, DocumentLoadingContext context) {
 		this.context = context;
 		this.simHandler = simHandler;
+		this.loader = new StoredFlightDataLoader(context.getDocumentSource(), simHandler.getIndex());
 	}
 	
 	public FlightData getFlightData() {
@@ -41,6 +46,7 @@ class FlightDataHandler extends AbstractElementHandler {
 			return PlainTextHandler.INSTANCE;
 		}
 		if (element.equals("databranch")) {
+			branchIndex = branchCount++;
 			if (attributes.get("name") == null || attributes.get("types") == null) {
 				warnings.add("Illegal flight data definition, ignoring.");
 				return null;
@@ -48,6 +54,7 @@ class FlightDataHandler extends AbstractElementHandler {
 			dataHandler = new FlightDataBranchHandler(attributes.get("name"),
 					attributes.get("types"),
 					simHandler, context);
+			dataHandler.setDataFile(attributes.get("datafile"));
 			
 			if (attributes.get("optimumAltitude") != null) {
 				double optimumAltitude = Double.NaN;
@@ -78,9 +85,12 @@ class FlightDataHandler extends AbstractElementHandler {
 			String content, WarningSet warnings) {
 		
 		if (element.equals("databranch")) {
-			FlightDataBranch branch = dataHandler.getBranch();
-			if (branch.getLength() > 0) {
-				branches.add(branch);
+			loader.addBranch(branchIndex, dataHandler);
+			if (!dataHandler.isDeferred()) {
+				FlightDataBranch branch = dataHandler.getBranch();
+				if (branch.getLength() > 0) {
+					branches.add(branch);
+				}
 			}
 		} else if (element.equals("warning")) {
 			warningSet.add(Warning.fromString(content));
@@ -92,59 +102,13 @@ class FlightDataHandler extends AbstractElementHandler {
 	public void endHandler(String element, HashMap<String, String> attributes,
 			String content, WarningSet warnings) {
 		
-		if (branches.size() > 0) {
+		if (loader.isDeferred()) {
+			data = readSummaryData(attributes);
+			data.setBranchLoader(loader);
+		} else if (branches.size() > 0) {
 			data = new FlightData(branches.toArray(new FlightDataBranch[0]));
 		} else {
-			double maxAltitude = Double.NaN;
-			double maxVelocity = Double.NaN;
-			double maxAcceleration = Double.NaN;
-			double maxMach = Double.NaN;
-			double timeToApogee = Double.NaN;
-			double flightTime = Double.NaN;
-			double groundHitVelocity = Double.NaN;
-			double launchRodVelocity = Double.NaN;
-			double deploymentVelocity = Double.NaN;
-			
-			try {
-				maxAltitude = DocumentConfig.stringToDouble(attributes.get("maxaltitude"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				maxVelocity = DocumentConfig.stringToDouble(attributes.get("maxvelocity"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				maxAcceleration = DocumentConfig.stringToDouble(attributes.get("maxacceleration"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				maxMach = DocumentConfig.stringToDouble(attributes.get("maxmach"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				timeToApogee = DocumentConfig.stringToDouble(attributes.get("timetoapogee"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				flightTime = DocumentConfig.stringToDouble(attributes.get("flighttime"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				groundHitVelocity =
-						DocumentConfig.stringToDouble(attributes.get("groundhitvelocity"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				launchRodVelocity = DocumentConfig.stringToDouble(attributes.get("launchrodvelocity"));
-			} catch (NumberFormatException ignore) {
-			}
-			try {
-				deploymentVelocity = DocumentConfig.stringToDouble(attributes.get("deploymentvelocity"));
-			} catch (NumberFormatException ignore) {
-			}
-			
-			data = new FlightData(maxAltitude, maxVelocity, maxAcceleration, maxMach,
-					timeToApogee, flightTime, groundHitVelocity, launchRodVelocity, deploymentVelocity);
+			data = readSummaryData(attributes);
 		}
 		
 		data.getWarningSet().addAll(warningSet);
@@ -152,4 +116,58 @@ class FlightDataHandler extends AbstractElementHandler {
 	}
 	
 	
+	private FlightData readSummaryData(HashMap<String, String> attributes) {
+		double maxAltitude = Double.NaN;
+		double maxVelocity = Double.NaN;
+		double maxAcceleration = Double.NaN;
+		double maxMach = Double.NaN;
+		double timeToApogee = Double.NaN;
+		double flightTime = Double.NaN;
+		double groundHitVelocity = Double.NaN;
+		double launchRodVelocity = Double.NaN;
+		double deploymentVelocity = Double.NaN;
+		
+		try {
+			maxAltitude = DocumentConfig.stringToDouble(attributes.get("maxaltitude"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			maxVelocity = DocumentConfig.stringToDouble(attributes.get("maxvelocity"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			maxAcceleration = DocumentConfig.stringToDouble(attributes.get("maxacceleration"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			maxMach = DocumentConfig.stringToDouble(attributes.get("maxmach"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			timeToApogee = DocumentConfig.stringToDouble(attributes.get("timetoapogee"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			flightTime = DocumentConfig.stringToDouble(attributes.get("flighttime"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			groundHitVelocity =
+					DocumentConfig.stringToDouble(attributes.get("groundhitvelocity"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			launchRodVelocity = DocumentConfig.stringToDouble(attributes.get("launchrodvelocity"));
+		} catch (NumberFormatException ignore) {
+		}
+		try {
+			deploymentVelocity = DocumentConfig.stringToDouble(attributes.get("deploymentvelocity"));
+		} catch (NumberFormatException ignore) {
+		}
+		
+		return new FlightData(maxAltitude, maxVelocity, maxAcceleration, maxMach,
+				timeToApogee, flightTime, groundHitVelocity, launchRodVelocity, deploymentVelocity);
+	}
+	
+	
 }
\ No newline at end of file
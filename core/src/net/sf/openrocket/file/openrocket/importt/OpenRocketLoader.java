@@ -63,6 +63,11 @@ public class OpenRocketLoader extends AbstractRocketLoader {
 				continue;
 			if (s.getSimulatedData() == null)
 				continue;
+			if (!s.getSimulatedData().isLoaded()) {
+				// Keep all stored points instead of loading the data
+				timeSkip = StorageOptions.SIMULATION_DATA_ALL;
+				continue;
+			}
 			if (s.getSimulatedData().getBranchCount() == 0)
 				continue;
 			FlightDataBranch branch = s.getSimulatedData().getBranch(0);
@@ -118,6 +118,26 @@ class SimulationConditionsHandler extends AbstractElementHandler {
 			} else {
 				conditions.setTimeStep(d);
 			}
+		} else if (element.equals("adaptivetimestep")) {
+			conditions.setAdaptiveTimeStep(Boolean.parseBoolean(content));
+		} else if (element.equals("relativetolerance")) {
+			if (Double.isNaN(d) || d <= 0) {
+				warnings.add("Illegal relative tolerance defined, ignoring.");
+			} else {
+				conditions.setRelativeTolerance(d);
+			}
+		} else if (element.equals("absolutetolerance")) {
+			if (Double.isNaN(d) || d <= 0) {
+				warnings.add("Illegal absolute tolerance defined, ignoring.");
+			} else {
+				conditions.setAbsoluteTolerance(d);
+			}
+		} else if (element.equals("aerodynamictabletolerance")) {
+			if (Double.isNaN(d) || d < 0) {
+				warnings.add("Illegal aerodynamic table tolerance defined, ignoring.");
+			} else {
+				conditions.setAerodynamicTableTolerance(d);
+			}
 		}
 	}
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ class SimulationsHandler extends AbstractElementHandler {
 	private final DocumentLoadingContext context;
 	private final OpenRocketDocument doc;
 	private SingleSimulationHandler handler;
+	private int simulationCount = 0;
 	
 	public SimulationsHandler(OpenRocketDocument doc, DocumentLoadingContext context) {
 		this.doc = doc;
@@ -30,7 +31,7 @@ class SimulationsHandler extends AbstractElementHandler {
 			return null;
 		}
 		
-		handler = new SingleSimulationHandler(doc, context);
+		handler = new SingleSimulationHandler(doc, context, simulationCount++);
 		return handler;
 	}
 	
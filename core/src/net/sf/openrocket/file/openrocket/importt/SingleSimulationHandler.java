@@ -29,6 +29,8 @@ class SingleSimulationHandler extends AbstractElementHandler {
 	
 	private final OpenRocketDocument doc;
 	
+	private final int index;
+	
 	private String name;
 	
 	private SimulationConditionsHandler conditionHandler;
@@ -37,15 +39,23 @@ class SingleSimulationHandler extends AbstractElementHandler {
 	
 	private final List<SimulationExtension> extensions = new ArrayList<SimulationExtension>();
 	
-	public SingleSimulationHandler(OpenRocketDocument doc, DocumentLoadingContext context) {
+	public SingleSimulationHandler(OpenRocketDocument doc, DocumentLoadingContext context, int index) {
 		this.doc = doc;
 		this.context = context;
+		this.index = index;
 	}
 	
 	public OpenRocketDocument getDocument() {
 		return doc;
 	}
 	
+	/**
+	 * Return the index of this simulation element within the simulations element.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
 	@Override
 	public ElementHandler openElement(String element, HashMap<String, String> attributes,
 			WarningSet warnings) {
@@ -0,0 +1,165 @@
+package net.sf.openrocket.file.openrocket.importt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openrocket.aerodynamics.WarningSet;
+import net.sf.openrocket.document.Attachment;
+import net.sf.openrocket.file.simplesax.AbstractElementHandler;
+import net.sf.openrocket.file.simplesax.ElementHandler;
+import net.sf.openrocket.file.simplesax.PlainTextHandler;
+import net.sf.openrocket.file.simplesax.SimpleSAX;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataBranchLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Loads the data points of the flight data branches of a simulation when they are
+ * first accessed.  Data stored in attachments is read from the attachments.  Data
+ * stored within the document is read by parsing the document again, ignoring all
+ * elements except the data points of the simulation.
+ */
+class StoredFlightDataLoader implements FlightDataBranchLoader {
+	private static final Logger log = LoggerFactory.getLogger(StoredFlightDataLoader.class);
+
+	/** The path of elements from the document root to a data branch */
+	private static final String[] BRANCH_PATH = { "openrocket", "simulations", "simulation", "flightdata", "databranch" };
+	private static final int SIMULATION_DEPTH = 2;
+	private static final int BRANCH_DEPTH = 4;
+
+	private final Attachment documentSource;
+	private final int simulationIndex;
+
+	private final List<FlightDataBranchHandler> handlers = new ArrayList<FlightDataBranchHandler>();
+	private final Map<Integer, FlightDataBranchHandler> documentBranches = new HashMap<Integer, FlightDataBranchHandler>();
+
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param documentSource	the source for reading the document again.
+	 * @param simulationIndex	the index of the simulation element in the document.
+	 */
+	public StoredFlightDataLoader(Attachment documentSource, int simulationIndex) {
+		this.documentSource = documentSource;
+		this.simulationIndex = simulationIndex;
+	}
+
+
+	/**
+	 * Add a data branch to be loaded.  Branches that have already been read are
+	 * returned as-is.
+	 *
+	 * @param index		the index of the databranch element within the flightdata element.
+	 * @param handler	the handler that read the branch.
+	 */
+	public void addBranch(int index, FlightDataBranchHandler handler) {
+		handlers.add(handler);
+		if (handler.isDeferred() && !handler.hasDataFile()) {
+			documentBranches.put(index, handler);
+		}
+	}
+
+	/**
+	 * Return whether loading of any of the branches has been deferred.
+	 */
+	public boolean isDeferred() {
+		for (FlightDataBranchHandler handler : handlers) {
+			if (handler.isDeferred()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	@Override
+	public List<FlightDataBranch> loadBranches() throws IOException {
+		WarningSet warnings = new WarningSet();
+
+		if (!documentBranches.isEmpty()) {
+			log.info("Loading simulation data of simulation " + simulationIndex + " from " + documentSource);
+			InputStream in = documentSource.getBytes();
+			try {
+				SimpleSAX.readXML(new InputSource(in), new BranchPathHandler(0, null), warnings);
+			} catch (SAXException e) {
+				throw new IOException("Malformed XML in input", e);
+			} finally {
+				in.close();
+			}
+		}
+
+		List<FlightDataBranch> branches = new ArrayList<FlightDataBranch>();
+		for (FlightDataBranchHandler handler : handlers) {
+			if (handler.isDeferred() && handler.hasDataFile()) {
+				handler.readDataFile();
+			}
+			FlightDataBranch branch = handler.getBranch();
+			if (branch.getLength() > 0) {
+				branches.add(branch);
+			}
+		}
+
+		if (!warnings.isEmpty()) {
+			log.warn("Warnings while loading simulation data: " + warnings);
+		}
+		return branches;
+	}
+
+
+	/**
+	 * Handler that follows the path to the data branches of the simulation.
+	 */
+	private class BranchPathHandler extends AbstractElementHandler {
+		private final int depth;
+		private final FlightDataBranchHandler branchHandler;
+		private int count = 0;
+
+		public BranchPathHandler(int depth, FlightDataBranchHandler branchHandler) {
+			this.depth = depth;
+			this.branchHandler = branchHandler;
+		}
+
+		@Override
+		public ElementHandler openElement(String element, HashMap<String, String> attributes,
+				WarningSet warnings) {
+
+			if (depth == BRANCH_PATH.length) {
+				return element.equals("datapoint") ? PlainTextHandler.INSTANCE : null;
+			}
+			if (!element.equals(BRANCH_PATH[depth])) {
+				return null;
+			}
+
+			FlightDataBranchHandler handler = null;
+			if (depth == SIMULATION_DEPTH) {
+				if (count++ != simulationIndex) {
+					return null;
+				}
+			} else if (depth == BRANCH_DEPTH) {
+				handler = documentBranches.get(count++);
+				if (handler == null) {
+					return null;
+				}
+			}
+			return new BranchPathHandler(depth + 1, handler);
+		}
+
+		@Override
+		public void closeElement(String element, HashMap<String, String> attributes,
+				String content, WarningSet warnings) {
+			if (depth == BRANCH_PATH.length && element.equals("datapoint")) {
+				branchHandler.addDataPoint(content, warnings);
+			}
+		}
+	}
+
+}
@@ -3,7 +3,9 @@ package net.sf.openrocket.masscalc;
 import static net.sf.openrocket.util.MathUtil.pow2;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import net.sf.openrocket.motor.Motor;
@@ -13,10 +15,12 @@ import net.sf.openrocket.motor.MotorInstanceConfiguration;
 import net.sf.openrocket.rocketcomponent.Configuration;
 import net.sf.openrocket.rocketcomponent.MotorMount;
 import net.sf.openrocket.rocketcomponent.RocketComponent;
+import net.sf.openrocket.simulation.MassData;
 import net.sf.openrocket.util.Coordinate;
+import net.sf.openrocket.util.Instantiable;
 import net.sf.openrocket.util.MathUtil;
 
-public class BasicMassCalculator extends AbstractMassCalculator {
+public class BasicMassCalculator extends AbstractMassCalculator implements Instantiable<MassCalculator> {
 	
 	private static final double MIN_MASS = 0.001 * MathUtil.EPSILON;
 	
@@ -29,6 +33,37 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 	private double longitudinalInertiaCache[] = null;
 	private double rotationalInertiaCache[] = null;
 	
+	/*
+	 * The combined data of the active stages without motors, for the stages that were
+	 * active when it was computed.  The moments of inertia are relative to the dry CG.
+	 */
+	private boolean[] dryStages = null;
+	private Coordinate dryCG = null;
+	private double dryLongitudinalInertia = 0;
+	private double dryRotationalInertia = 0;
+	
+	/*
+	 * The mass data of each component subtree and the subtree mass modification ID it
+	 * was computed at.  The entries are validated by the modification ID's instead of
+	 * being voided, so that only the changed subtrees are recomputed.
+	 */
+	private Map<RocketComponent, AssemblyMassData> assemblyCache =
+			new IdentityHashMap<RocketComponent, AssemblyMassData>();
+	
+	/* The stage numbers of the motor mounts */
+	private Map<MotorMount, Integer> mountStageCache = new HashMap<MotorMount, Integer>();
+	
+	/* Work arrays for the motors in active stages */
+	private Coordinate[] motorCGs = new Coordinate[0];
+	private double[] motorLongitudinalInertias = new double[0];
+	private double[] motorRotationalInertias = new double[0];
+	
+	
+	@Override
+	public BasicMassCalculator newInstance() {
+		return new BasicMassCalculator();
+	}
+	
 	
 
 	//////////////////  Mass property calculations  ///////////////////
@@ -83,26 +118,7 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 	 */
 	@Override
 	public Coordinate getCG(Configuration configuration, MotorInstanceConfiguration motors) {
-		checkCache(configuration);
-		calculateStageCache(configuration);
-		
-		Coordinate totalCG = getCG(configuration, MassCalcType.NO_MOTORS);
-		
-		// Add motor CGs
-		if (motors != null) {
-			for (MotorId id : motors.getMotorIDs()) {
-				int stage = ((RocketComponent) motors.getMotorMount(id)).getStageNumber();
-				if (configuration.isStageActive(stage)) {
-					
-					MotorInstance motor = motors.getMotorInstance(id);
-					Coordinate position = motors.getMotorPosition(id);
-					Coordinate cg = motor.getCG().add(position);
-					totalCG = totalCG.average(cg);
-					
-				}
-			}
-		}
-		return totalCG;
+		return getMassData(configuration, motors).getCG();
 	}
 	
 	/**
@@ -114,37 +130,7 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 	 */
 	@Override
 	public double getLongitudinalInertia(Configuration configuration, MotorInstanceConfiguration motors) {
-		checkCache(configuration);
-		calculateStageCache(configuration);
-		
-		final Coordinate totalCG = getCG(configuration, motors);
-		double totalInertia = 0;
-		
-		// Stages
-		for (int stage : configuration.getActiveStages()) {
-			Coordinate stageCG = cgCache[stage];
-			
-			totalInertia += (longitudinalInertiaCache[stage] +
-					stageCG.weight * MathUtil.pow2(stageCG.x - totalCG.x));
-		}
-		
-
-		// Motors
-		if (motors != null) {
-			for (MotorId id : motors.getMotorIDs()) {
-				int stage = ((RocketComponent) motors.getMotorMount(id)).getStageNumber();
-				if (configuration.isStageActive(stage)) {
-					MotorInstance motor = motors.getMotorInstance(id);
-					Coordinate position = motors.getMotorPosition(id);
-					Coordinate cg = motor.getCG().add(position);
-					
-					double inertia = motor.getLongitudinalInertia();
-					totalInertia += inertia + cg.weight * MathUtil.pow2(cg.x - totalCG.x);
-				}
-			}
-		}
-		
-		return totalInertia;
+		return getMassData(configuration, motors).getLongitudinalInertia();
 	}
 	
 	
@@ -158,39 +144,67 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 	 */
 	@Override
 	public double getRotationalInertia(Configuration configuration, MotorInstanceConfiguration motors) {
+		return getMassData(configuration, motors).getRotationalInertia();
+	}
+	
+	
+	/**
+	 * Return the mass data of the rocket with the specified motor instance configuration.
+	 * The airframe of the active stages is combined only when the active stages change,
+	 * so that only the motors are combined at each call.
+	 * 
+	 * @param configuration		the rocket configuration
+	 * @param motors			the motor instance configuration
+	 * @return					the CG, inertia and propellant mass of the rocket
+	 */
+	@Override
+	public MassData getMassData(Configuration configuration, MotorInstanceConfiguration motors) {
 		checkCache(configuration);
 		calculateStageCache(configuration);
+		calculateDryCache(configuration);
 		
-		final Coordinate totalCG = getCG(configuration, motors);
-		double totalInertia = 0;
+		Coordinate totalCG = dryCG;
+		double propellantMass = 0;
+		int count = 0;
 		
-		// Stages
-		for (int stage : configuration.getActiveStages()) {
-			Coordinate stageCG = cgCache[stage];
-			
-			totalInertia += (rotationalInertiaCache[stage] +
-					stageCG.weight * (MathUtil.pow2(stageCG.y - totalCG.y) +
-							MathUtil.pow2(stageCG.z - totalCG.z)));
-		}
-		
-
-		// Motors
+		// Combine the CGs of the motors in active stages and sum the propellant of all motors
 		if (motors != null) {
-			for (MotorId id : motors.getMotorIDs()) {
-				int stage = ((RocketComponent) motors.getMotorMount(id)).getStageNumber();
-				if (configuration.isStageActive(stage)) {
-					MotorInstance motor = motors.getMotorInstance(id);
-					Coordinate position = motors.getMotorPosition(id);
-					Coordinate cg = motor.getCG().add(position);
-					
-					double inertia = motor.getRotationalInertia();
-					totalInertia += inertia + cg.weight * (MathUtil.pow2(cg.y - totalCG.y) +
-							MathUtil.pow2(cg.z - totalCG.z));
+			List<MotorId> ids = motors.getMotorIDs();
+			if (motorCGs.length < ids.size()) {
+				motorCGs = new Coordinate[ids.size()];
+				motorLongitudinalInertias = new double[ids.size()];
+				motorRotationalInertias = new double[ids.size()];
+			}
+			
+			for (MotorId id : ids) {
+				MotorInstance motor = motors.getMotorInstance(id);
+				Coordinate motorCG = motor.getCG();
+				propellantMass = propellantMass + motorCG.weight - motor.getParentMotor().getEmptyCG().weight;
+				
+				if (configuration.isStageActive(getStageNumber(motors.getMotorMount(id)))) {
+					Coordinate cg = motorCG.add(motors.getMotorPosition(id));
+					totalCG = totalCG.average(cg);
+					motorCGs[count] = cg;
+					motorLongitudinalInertias[count] = motor.getLongitudinalInertia();
+					motorRotationalInertias[count] = motor.getRotationalInertia();
+					count++;
 				}
 			}
 		}
 		
-		return totalInertia;
+		// Move the inertia of the airframe and the motors to the total CG
+		double longitudinalInertia = dryLongitudinalInertia + dryCG.weight * pow2(dryCG.x - totalCG.x);
+		double rotationalInertia = dryRotationalInertia +
+				dryCG.weight * (pow2(dryCG.y - totalCG.y) + pow2(dryCG.z - totalCG.z));
+		for (int i = 0; i < count; i++) {
+			Coordinate cg = motorCGs[i];
+			longitudinalInertia += motorLongitudinalInertias[i] + cg.weight * pow2(cg.x - totalCG.x);
+			rotationalInertia += motorRotationalInertias[i] +
+					cg.weight * (pow2(cg.y - totalCG.y) + pow2(cg.z - totalCG.z));
+			motorCGs[i] = null;
+		}
+		
+		return new MassData(totalCG, longitudinalInertia, rotationalInertia, propellantMass);
 	}
 	
 	/**
@@ -236,6 +250,59 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 	
 	////////  Cache computations  ////////
 	
+	/**
+	 * Combine the data of the active stages, unless the active stages are the same
+	 * as when it was last combined.
+	 */
+	private void calculateDryCache(Configuration config) {
+		int stages = config.getStageCount();
+		if (dryStages != null && dryStages.length == stages) {
+			boolean same = true;
+			for (int i = 0; i < stages; i++) {
+				if (dryStages[i] != config.isStageActive(i)) {
+					same = false;
+					break;
+				}
+			}
+			if (same) {
+				return;
+			}
+		}
+		
+		dryStages = new boolean[stages];
+		Coordinate cg = null;
+		for (int i = 0; i < stages; i++) {
+			dryStages[i] = config.isStageActive(i);
+			if (dryStages[i]) {
+				cg = cgCache[i].average(cg);
+			}
+		}
+		if (cg == null) {
+			cg = Coordinate.NUL;
+		}
+		
+		dryLongitudinalInertia = 0;
+		dryRotationalInertia = 0;
+		for (int i = 0; i < stages; i++) {
+			if (dryStages[i]) {
+				Coordinate stageCG = cgCache[i];
+				dryLongitudinalInertia += longitudinalInertiaCache[i] + stageCG.weight * pow2(stageCG.x - cg.x);
+				dryRotationalInertia += rotationalInertiaCache[i] +
+						stageCG.weight * (pow2(stageCG.y - cg.y) + pow2(stageCG.z - cg.z));
+			}
+		}
+		dryCG = cg;
+	}
+	
+	private int getStageNumber(MotorMount mount) {
+		Integer stage = mountStageCache.get(mount);
+		if (stage == null) {
+			stage = ((RocketComponent) mount).getStageNumber();
+			mountStageCache.put(mount, stage);
+		}
+		return stage;
+	}
+	
 	private void calculateStageCache(Configuration config) {
 		if (cgCache == null) {
 			
@@ -245,9 +312,13 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 			longitudinalInertiaCache = new double[stages];
 			rotationalInertiaCache = new double[stages];
 			
+			// Retain only the entries of the components currently in the rocket
+			Map<RocketComponent, AssemblyMassData> previous = assemblyCache;
+			assemblyCache = new IdentityHashMap<RocketComponent, AssemblyMassData>(previous.size());
+			
 			for (int i = 0; i < stages; i++) {
 				RocketComponent stage = config.getRocket().getChild(i);
-				MassData data = calculateAssemblyMassData(stage);
+				AssemblyMassData data = getAssemblyMassData(stage, previous);
 				cgCache[i] = stage.toAbsolute(data.cg)[0];
 				longitudinalInertiaCache[i] = data.longitudinalInertia;
 				rotationalInertiaCache[i] = data.rotationalInetria;
@@ -258,13 +329,38 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 	
 	
 
+	/**
+	 * Returns the mass data for this component and all subcomponents from the previous
+	 * cache if the subtree has not changed, and stores it in the current cache.
+	 */
+	private AssemblyMassData getAssemblyMassData(RocketComponent component,
+			Map<RocketComponent, AssemblyMassData> previous) {
+		AssemblyMassData data = previous.get(component);
+		if (data == null || data.modID != component.getSubtreeMassModID()) {
+			return calculateAssemblyMassData(component, previous);
+		}
+		
+		// Carry over the unchanged subtree
+		Iterator<RocketComponent> iterator = component.iterator(true);
+		while (iterator.hasNext()) {
+			RocketComponent c = iterator.next();
+			AssemblyMassData d = previous.get(c);
+			if (d != null) {
+				assemblyCache.put(c, d);
+			}
+		}
+		return data;
+	}
+	
 	/**
 	 * Returns the mass and inertia data for this component and all subcomponents.
 	 * The inertia is returned relative to the CG, and the CG is in the coordinates
 	 * of the specified component, not global coordinates.
 	 */
-	private MassData calculateAssemblyMassData(RocketComponent parent) {
-		MassData parentData = new MassData();
+	private AssemblyMassData calculateAssemblyMassData(RocketComponent parent,
+			Map<RocketComponent, AssemblyMassData> previous) {
+		AssemblyMassData parentData = new AssemblyMassData();
+		parentData.modID = parent.getSubtreeMassModID();
 		
 		// Calculate data for this component
 		parentData.cg = parent.getComponentCG();
@@ -290,7 +386,7 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 			double dx2, dr2;
 			
 			// Compute data of sibling
-			MassData siblingData = calculateAssemblyMassData(sibling);
+			AssemblyMassData siblingData = getAssemblyMassData(sibling, previous);
 			Coordinate[] siblingCGs = sibling.toRelative(siblingData.cg, parent);
 			
 			for (Coordinate siblingCG : siblingCGs) {
@@ -339,11 +435,13 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 			}
 		}
 		
+		assemblyCache.put(parent, parentData);
 		return parentData;
 	}
 	
 	
-	private static class MassData {
+	private static class AssemblyMassData {
+		public int modID;
 		public Coordinate cg = Coordinate.NUL;
 		public double longitudinalInertia = 0;
 		public double rotationalInetria = 0;
@@ -356,6 +454,9 @@ public class BasicMassCalculator extends AbstractMassCalculator {
 		this.cgCache = null;
 		this.longitudinalInertiaCache = null;
 		this.rotationalInertiaCache = null;
+		this.dryStages = null;
+		this.dryCG = null;
+		this.mountStageCache.clear();
 	}
 	
 	
@@ -6,6 +6,7 @@ import net.sf.openrocket.motor.Motor;
 import net.sf.openrocket.motor.MotorInstanceConfiguration;
 import net.sf.openrocket.rocketcomponent.Configuration;
 import net.sf.openrocket.rocketcomponent.RocketComponent;
+import net.sf.openrocket.simulation.MassData;
 import net.sf.openrocket.util.Coordinate;
 import net.sf.openrocket.util.Monitorable;
 
@@ -79,6 +80,17 @@ public interface MassCalculator extends Monitorable {
 	 */
 	public double getPropellantMass(Configuration configuration, MotorInstanceConfiguration motors);	
 	
+	/**
+	 * Compute the CG, longitudinal and rotational inertia and propellant mass of the
+	 * provided configuration with specified motors in a single call.  The results are
+	 * the same as those of the individual methods.
+	 * 
+	 * @param configuration		the rocket configuration
+	 * @param motors			the motor configuration
+	 * @return					the mass data of the configuration
+	 */
+	public MassData getMassData(Configuration configuration, MotorInstanceConfiguration motors);
+	
 	/**
 	 * Compute an analysis of the per-component CG's of the provided configuration.
 	 * The returned map will contain an entry for each physical rocket component (not stages)
@@ -1,5 +1,7 @@
 package net.sf.openrocket.material;
 
+import java.util.List;
+
 import net.sf.openrocket.database.Database;
 import net.sf.openrocket.database.DatabaseListener;
 import net.sf.openrocket.startup.Application;
@@ -19,6 +21,13 @@ public class MaterialStorage implements DatabaseListener<Material> {
 		}
 	}
 
+	@Override
+	public void elementsAdded(List<Material> materials, Database<Material> source) {
+		for (Material material : materials) {
+			elementAdded(material, source);
+		}
+	}
+
 	@Override
 	public void elementRemoved(Material material, Database<Material> source) {
 		Application.getPreferences().removeUserMaterial(material);
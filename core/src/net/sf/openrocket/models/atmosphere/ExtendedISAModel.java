@@ -1,6 +1,7 @@
 package net.sf.openrocket.models.atmosphere;
 
 import static net.sf.openrocket.models.atmosphere.AtmosphericConditions.R;
+import net.sf.openrocket.util.Instantiable;
 import net.sf.openrocket.util.MathUtil;
 
 
@@ -15,7 +16,7 @@ import net.sf.openrocket.util.MathUtil;
  * 
  * @author Sampo Niskanen <sampo.niskanen@iki.fi>
  */
-public class ExtendedISAModel extends InterpolatingAtmosphericModel {
+public class ExtendedISAModel extends InterpolatingAtmosphericModel implements Instantiable<AtmosphericModel> {
 	
 	public static final double STANDARD_TEMPERATURE = 288.15;
 	public static final double STANDARD_PRESSURE = 101325;
@@ -103,6 +104,11 @@ public class ExtendedISAModel extends InterpolatingAtmosphericModel {
 		return layer[layer.length - 1];
 	}
 	
+	@Override
+	public ExtendedISAModel newInstance() {
+		return new ExtendedISAModel(layer[0], baseTemperature[0], basePressure[0]);
+	}
+	
 	
 	public static void main(String foo[]) {
 		ExtendedISAModel model1 = new ExtendedISAModel();
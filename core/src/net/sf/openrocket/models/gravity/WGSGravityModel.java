@@ -1,5 +1,6 @@
 package net.sf.openrocket.models.gravity;
 
+import net.sf.openrocket.util.Instantiable;
 import net.sf.openrocket.util.MathUtil;
 import net.sf.openrocket.util.WorldCoordinate;
 
@@ -8,7 +9,7 @@ import net.sf.openrocket.util.WorldCoordinate;
  * 
  * @author Richard Graham <richard@rdg.cc>
  */
-public class WGSGravityModel implements GravityModel {
+public class WGSGravityModel implements GravityModel, Instantiable<GravityModel> {
 	
 	// Cache the previously computed value
 	private WorldCoordinate lastWorldCoordinate;
@@ -29,6 +30,12 @@ public class WGSGravityModel implements GravityModel {
 	}
 	
 	
+	@Override
+	public WGSGravityModel newInstance() {
+		return new WGSGravityModel();
+	}
+	
+	
 	@Override
 	public int getModID() {
 		// The model is immutable, so it can return a constant mod ID
@@ -3,6 +3,7 @@ package net.sf.openrocket.models.wind;
 import java.util.Random;
 
 import net.sf.openrocket.util.Coordinate;
+import net.sf.openrocket.util.Instantiable;
 import net.sf.openrocket.util.MathUtil;
 import net.sf.openrocket.util.PinkNoise;
 
@@ -13,7 +14,7 @@ import net.sf.openrocket.util.PinkNoise;
  * 
  * @author Sampo Niskanen <sampo.niskanen@iki.fi>
  */
-public class PinkNoiseWindModel implements WindModel {
+public class PinkNoiseWindModel implements WindModel, Instantiable<WindModel> {
 	
 	/** Random value with which to XOR the random seed value */
 	private static final int SEED_RANDOMIZATION = 0x7343AA03;
@@ -167,6 +168,16 @@ public class PinkNoiseWindModel implements WindModel {
 	}
 	
 	
+	@Override
+	public PinkNoiseWindModel newInstance() {
+		PinkNoiseWindModel model = new PinkNoiseWindModel(seed ^ SEED_RANDOMIZATION);
+		model.average = this.average;
+		model.direction = this.direction;
+		model.standardDeviation = this.standardDeviation;
+		return model;
+	}
+	
+	
 	
 	@Override
 	public int getModID() {
@@ -49,6 +49,12 @@ public interface MotorInstance extends Cloneable, Monitorable {
 	 * the motor has burnt out, and will not produce any significant thrust anymore.
 	 */
 	public boolean isActive();
+	
+	/**
+	 * Return the time from motor ignition at which the motor burns out.  The motor is
+	 * active until it has been stepped to this time.
+	 */
+	public double getBurnoutTime();
 
 	
 	/**
@@ -1,5 +1,7 @@
 package net.sf.openrocket.motor;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.text.Collator;
 import java.util.Arrays;
@@ -42,21 +44,47 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 	private final double[] delays;
 	private final double diameter;
 	private final double length;
-	private final double[] time;
-	private final double[] thrust;
-	private final Coordinate[] cg;
+	private double[] time;
+	private double[] thrust;
+	private Coordinate[] cg;
 	
 	private double maxThrust;
 	private double burnTime;
 	private double averageThrust;
 	private double totalImpulse;
 	
+	/*
+	 * Source of a lazily loaded thrust curve, or null once the curve has been loaded.
+	 * The curve arrays are written before this field is cleared, so a null value
+	 * guarantees that the arrays are visible.
+	 */
+	private transient volatile CurveLoader curveLoader = null;
+	private transient int lazyPointCount;
+	
+	
+	/**
+	 * A source of thrust curve data for motors whose thrust curve is loaded only
+	 * when it is first needed.
+	 */
+	public interface CurveLoader {
+		/**
+		 * Load the thrust curve of a motor into the provided arrays, whose length is
+		 * the number of data points of the motor.
+		 * 
+		 * @param time		the array in which to store the time points.
+		 * @param thrust	the array in which to store the thrust points.
+		 * @param cg		the array in which to store the CG points.
+		 */
+		public void loadCurve(double[] time, double[] thrust, Coordinate[] cg);
+	}
+	
 	/**
 	 * Deep copy constructor.
 	 * Constructs a new ThrustCurveMotor from an existing ThrustCurveMotor.
 	 * @param m
 	 */
 	protected ThrustCurveMotor(ThrustCurveMotor m) {
+		m.loadCurve();
 		this.digest = m.digest;
 		this.manufacturer = m.manufacturer;
 		this.designation = m.designation;
@@ -166,6 +194,82 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 	}
 	
 	
+	/**
+	 * Construct a motor whose thrust curve is loaded lazily.  The statistics of the
+	 * thrust curve must be provided, and the thrust curve is loaded using the
+	 * provided loader when it is first needed.  No validation of the thrust curve
+	 * is performed, so this constructor should only be used for data that has
+	 * already been validated, such as a preprocessed motor database.
+	 * 
+	 * @param manufacturer  the manufacturer of the motor.
+	 * @param designation   the designation of the motor.
+	 * @param description   extra description of the motor.
+	 * @param type			the motor type
+	 * @param delays		the delays defined for this thrust curve
+	 * @param diameter      diameter of the motor.
+	 * @param length        length of the motor.
+	 * @param digest		the digest of the motor.
+	 * @param pointCount	the number of data points in the thrust curve.
+	 * @param maxThrust		the maximum thrust of the motor.
+	 * @param burnTime		the burn time of the motor.
+	 * @param averageThrust	the average thrust of the motor.
+	 * @param totalImpulse	the total impulse of the motor.
+	 * @param loader		the loader used to load the thrust curve.
+	 */
+	public ThrustCurveMotor(Manufacturer manufacturer, String designation, String description,
+			Motor.Type type, double[] delays, double diameter, double length, String digest,
+			int pointCount, double maxThrust, double burnTime, double averageThrust, double totalImpulse,
+			CurveLoader loader) {
+		if (pointCount < 2) {
+			throw new IllegalArgumentException("Too short thrust-curve, length=" + pointCount);
+		}
+		this.digest = digest;
+		this.manufacturer = manufacturer;
+		this.designation = designation;
+		this.description = description;
+		this.type = type;
+		this.delays = delays.clone();
+		this.diameter = diameter;
+		this.length = length;
+		this.maxThrust = maxThrust;
+		this.burnTime = burnTime;
+		this.averageThrust = averageThrust;
+		this.totalImpulse = totalImpulse;
+		this.lazyPointCount = pointCount;
+		this.curveLoader = loader;
+	}
+	
+	
+	/**
+	 * Load the thrust curve if it is loaded lazily and has not been loaded yet.
+	 */
+	private void loadCurve() {
+		if (curveLoader == null) {
+			return;
+		}
+		synchronized (this) {
+			CurveLoader loader = curveLoader;
+			if (loader == null) {
+				return;
+			}
+			double[] t = new double[lazyPointCount];
+			double[] f = new double[lazyPointCount];
+			Coordinate[] c = new Coordinate[lazyPointCount];
+			loader.loadCurve(t, f, c);
+			time = t;
+			thrust = f;
+			cg = c;
+			curveLoader = null;
+		}
+	}
+	
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		loadCurve();
+		out.defaultWriteObject();
+	}
+	
+	
 	
 	/**
 	 * Get the manufacturer of this motor.
@@ -182,6 +286,7 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 	 * @return	an array of time points where the thrust is sampled
 	 */
 	public double[] getTimePoints() {
+		loadCurve();
 		return time.clone();
 	}
 	
@@ -190,6 +295,7 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 	 * @return	an array of thrust samples
 	 */
 	public double[] getThrustPoints() {
+		loadCurve();
 		return thrust.clone();
 	}
 	
@@ -198,9 +304,22 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 	 * @return	an array of CG samples
 	 */
 	public Coordinate[] getCGPoints() {
+		loadCurve();
 		return cg.clone();
 	}
 	
+	/**
+	 * Return the number of data points in the thrust curve.  This does not require
+	 * loading a lazily loaded thrust curve.
+	 * @return	the number of data points
+	 */
+	public int getDataPointCount() {
+		if (curveLoader != null) {
+			return lazyPointCount;
+		}
+		return time.length;
+	}
+	
 	/**
 	 * Return a list of standard delays defined for this motor.
 	 * @return	a list of standard delays
@@ -251,17 +370,20 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 	
 	@Override
 	public MotorInstance getInstance() {
+		loadCurve();
 		return new ThrustCurveMotorInstance();
 	}
 	
 	
 	@Override
 	public Coordinate getLaunchCG() {
+		loadCurve();
 		return cg[0];
 	}
 	
 	@Override
 	public Coordinate getEmptyCG() {
+		loadCurve();
 		return cg[cg.length - 1];
 	}
 	
@@ -486,6 +608,11 @@ public class ThrustCurveMotor implements Motor, Comparable<ThrustCurveMotor>, Se
 			return prevTime < time[time.length - 1];
 		}
 		
+		@Override
+		public double getBurnoutTime() {
+			return time[time.length - 1];
+		}
+		
 		@Override
 		public void step(double nextTime, double acceleration, AtmosphericConditions cond) {
 			
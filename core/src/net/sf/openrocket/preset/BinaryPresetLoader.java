@@ -0,0 +1,303 @@
+package net.sf.openrocket.preset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openrocket.material.Material;
+import net.sf.openrocket.motor.Manufacturer;
+
+/**
+ * Loads component presets from the binary preset database format written by
+ * {@link BinaryPresetSaver}.
+ * <p>
+ * Only the type, manufacturer, part number and digest of each preset are read when
+ * loading.  The other properties are read from the column data when they are first
+ * needed, so a database with thousands of presets does not materialize thousands of
+ * property maps.  The loaded presets keep a reference to the file contents until
+ * their properties have been loaded.
+ */
+public class BinaryPresetLoader {
+
+	/** The file name extension of binary preset database files */
+	public static final String EXTENSION = "presetdb";
+
+
+	/**
+	 * Load the presets from a stream.  The entire stream is read into memory.
+	 *
+	 * @param stream	the stream to read.  The stream is not closed.
+	 * @return			the presets contained in the stream.
+	 * @throws IOException	if an I/O error occurs or the format is invalid.
+	 */
+	public List<ComponentPreset> load(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[65536];
+		int n;
+		while ((n = stream.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, n);
+		}
+		return load(ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+
+	/**
+	 * Load the presets from a file.  The file is memory-mapped, and the properties
+	 * are read directly from the mapping when needed.
+	 *
+	 * @param file		the file to load.
+	 * @return			the presets contained in the file.
+	 * @throws IOException	if an I/O error occurs or the file format is invalid.
+	 */
+	public List<ComponentPreset> load(File file) throws IOException {
+		FileInputStream is = new FileInputStream(file);
+		try {
+			FileChannel channel = is.getChannel();
+			return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			// The mapping remains valid after the channel is closed
+			is.close();
+		}
+	}
+
+
+	private List<ComponentPreset> load(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != BinaryPresetSaver.MAGIC) {
+				throw new IOException("Not a binary preset database");
+			}
+			int version = buffer.getInt();
+			if (version != BinaryPresetSaver.VERSION) {
+				throw new IOException("Unsupported binary preset database version " + version);
+			}
+
+			StringTable strings = new StringTable(buffer);
+
+			Material[] materials = new Material[buffer.getInt()];
+			for (int i = 0; i < materials.length; i++) {
+				Material.Type type = Material.Type.valueOf(strings.get(buffer.getInt()));
+				String name = strings.get(buffer.getInt());
+				double density = buffer.getDouble();
+				boolean userDefined = buffer.get() != 0;
+				materials[i] = Material.newMaterial(type, name, density, userDefined);
+			}
+
+			Map<Integer, Manufacturer> manufacturers = new HashMap<Integer, Manufacturer>();
+			List<ComponentPreset> presets = new ArrayList<ComponentPreset>();
+			int sectionCount = buffer.getInt();
+			for (int i = 0; i < sectionCount; i++) {
+				Section section = new Section(buffer, strings, materials);
+				for (int j = 0; j < section.count; j++) {
+					int manufacturerIndex = section.manufacturers[j];
+					Manufacturer manufacturer = manufacturers.get(manufacturerIndex);
+					if (manufacturer == null) {
+						manufacturer = Manufacturer.getManufacturer(strings.get(manufacturerIndex));
+						manufacturers.put(manufacturerIndex, manufacturer);
+					}
+					presets.add(new ComponentPreset(section.type, manufacturer, strings.get(section.partNos[j]),
+							strings.get(section.digests[j]), new SectionPropertyLoader(section, j, manufacturer)));
+				}
+			}
+			return presets;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated binary preset database", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Invalid binary preset database: " + e.getMessage(), e);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid binary preset database: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * The string table of the database.  Strings are decoded when requested.
+	 */
+	private static class StringTable {
+		private final ByteBuffer data;
+		private final int[] offsets;
+
+		public StringTable(ByteBuffer buffer) {
+			int count = buffer.getInt();
+			offsets = new int[count + 1];
+			for (int i = 0; i <= count; i++) {
+				offsets[i] = buffer.getInt();
+			}
+			data = buffer.slice();
+			data.limit(offsets[count]);
+			buffer.position(buffer.position() + offsets[count]);
+		}
+
+		public String get(int index) {
+			if (index < 0) {
+				return null;
+			}
+			byte[] bytes = new byte[offsets[index + 1] - offsets[index]];
+			ByteBuffer b = data.duplicate();
+			b.position(offsets[index]);
+			b.get(bytes);
+			return new String(bytes, BinaryPresetSaver.CHARSET);
+		}
+	}
+
+
+	/**
+	 * A section of presets of one type.
+	 */
+	private static class Section {
+		private final ComponentPreset.Type type;
+		private final int count;
+		private final int[] manufacturers;
+		private final int[] partNos;
+		private final int[] digests;
+
+		private final TypedKey<?>[] keys;
+		private final byte[] columnTypes;
+		private final int[] columnOffsets;
+
+		private final ByteBuffer data;
+		private final StringTable strings;
+		private final Material[] materials;
+
+		public Section(ByteBuffer buffer, StringTable strings, Material[] materials) throws IOException {
+			this.strings = strings;
+			this.materials = materials;
+
+			type = ComponentPreset.Type.valueOf(strings.get(buffer.getInt()));
+			count = buffer.getInt();
+			int columnCount = buffer.getInt();
+			keys = new TypedKey<?>[columnCount];
+			columnTypes = new byte[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				keys[i] = findKey(strings.get(buffer.getInt()));
+				columnTypes[i] = buffer.get();
+				if (BinaryPresetSaver.columnWidth(columnTypes[i]) < 0) {
+					throw new IOException("Unknown column type " + columnTypes[i]);
+				}
+				if (keys[i] != null && BinaryPresetSaver.columnType(keys[i]) != columnTypes[i]) {
+					throw new IOException("Invalid column type " + columnTypes[i] + " for key " + keys[i]);
+				}
+			}
+
+			manufacturers = readInts(buffer, count);
+			partNos = readInts(buffer, count);
+			digests = readInts(buffer, count);
+
+			data = buffer.slice();
+			columnOffsets = new int[columnCount];
+			int offset = 0;
+			for (int i = 0; i < columnCount; i++) {
+				columnOffsets[i] = offset;
+				offset += BinaryPresetSaver.columnWidth(columnTypes[i]) * count;
+			}
+			data.limit(offset);
+			buffer.position(buffer.position() + offset);
+		}
+
+		/**
+		 * Read the properties of a preset.  Only absolute reads are used.
+		 */
+		public void read(int index, TypedPropertyMap properties) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == null) {
+					continue;
+				}
+				Object value = readValue(i, index);
+				if (value != null) {
+					put(properties, keys[i], value);
+				}
+			}
+		}
+
+		private Object readValue(int column, int index) {
+			int pos = columnOffsets[column] + BinaryPresetSaver.columnWidth(columnTypes[column]) * index;
+			switch (columnTypes[column]) {
+			case BinaryPresetSaver.COLUMN_DOUBLE:
+				double d = data.getDouble(pos);
+				return Double.isNaN(d) ? null : d;
+			case BinaryPresetSaver.COLUMN_INTEGER:
+				int n = data.getInt(pos);
+				return n == Integer.MIN_VALUE ? null : n;
+			case BinaryPresetSaver.COLUMN_BOOLEAN:
+				byte b = data.get(pos);
+				return b < 0 ? null : b != 0;
+			case BinaryPresetSaver.COLUMN_STRING:
+				String s = strings.get(data.getInt(pos));
+				if (s == null) {
+					return null;
+				}
+				Class<?> type = keys[column].getType();
+				if (type == Manufacturer.class) {
+					return Manufacturer.getManufacturer(s);
+				} else if (type.isEnum()) {
+					return toEnum(type, s);
+				}
+				return s;
+			case BinaryPresetSaver.COLUMN_MATERIAL:
+				int m = data.getInt(pos);
+				return m < 0 ? null : materials[m];
+			default:
+				throw new IllegalStateException("Unknown column type " + columnTypes[column]);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static Object toEnum(Class<?> type, String name) {
+			return Enum.valueOf((Class<? extends Enum>) type, name);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> void put(TypedPropertyMap properties, TypedKey<T> key, Object value) {
+			properties.put(key, (T) value);
+		}
+
+		private static int[] readInts(ByteBuffer buffer, int count) {
+			int[] values = new int[count];
+			buffer.asIntBuffer().get(values);
+			buffer.position(buffer.position() + count * 4);
+			return values;
+		}
+
+		private static TypedKey<?> findKey(String name) {
+			for (TypedKey<?> key : ComponentPreset.ORDERED_KEY_LIST) {
+				if (key.getName().equals(name)) {
+					return key;
+				}
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Reads the properties of a preset from its section.
+	 */
+	private static class SectionPropertyLoader implements ComponentPreset.PropertyLoader {
+		private final Section section;
+		private final int index;
+		private final Manufacturer manufacturer;
+
+		public SectionPropertyLoader(Section section, int index, Manufacturer manufacturer) {
+			this.section = section;
+			this.index = index;
+			this.manufacturer = manufacturer;
+		}
+
+		@Override
+		public void loadProperties(TypedPropertyMap properties) {
+			properties.put(ComponentPreset.TYPE, section.type);
+			properties.put(ComponentPreset.MANUFACTURER, manufacturer);
+			properties.put(ComponentPreset.PARTNO, section.strings.get(section.partNos[index]));
+			section.read(index, properties);
+		}
+	}
+
+}
@@ -0,0 +1,291 @@
+package net.sf.openrocket.preset;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openrocket.material.Material;
+import net.sf.openrocket.motor.Manufacturer;
+
+/**
+ * Saves component presets in the binary preset database format read by
+ * {@link BinaryPresetLoader}.
+ * <p>
+ * All strings are stored once in a string table, and the presets are stored in one
+ * section per preset type.  Within a section each property is stored as a column of
+ * fixed-width values, so the properties of a single preset can be read directly
+ * without parsing the other presets.  All values are stored in big-endian byte order.
+ * <pre>
+ * header:     int magic, int version
+ * strings:    int stringCount, int[stringCount + 1] offsets, UTF-8 bytes
+ * materials:  int materialCount, for each material:
+ *               string type, string name, double density, byte userDefined
+ * sections:   int sectionCount, for each section:
+ *               string type, int presetCount, int columnCount,
+ *               for each column: string key, byte columnType
+ *               string[presetCount] manufacturer, string[presetCount] partNo,
+ *               string[presetCount] digest,
+ *               for each column: presetCount values
+ * </pre>
+ * Strings are stored as indices to the string table, -1 denoting null.  Values are
+ * doubles (NaN if missing), ints (Integer.MIN_VALUE if missing), bytes (-1 if missing),
+ * string indices or material indices (-1 if missing).  Manufacturers and enumerations
+ * are stored as strings.  Images are not stored.
+ */
+public class BinaryPresetSaver {
+
+	/** File magic, "ORPC" */
+	static final int MAGIC = 0x4F525043;
+	static final int VERSION = 1;
+
+	static final Charset CHARSET = Charset.forName("UTF-8");
+
+	static final byte COLUMN_DOUBLE = 0;
+	static final byte COLUMN_INTEGER = 1;
+	static final byte COLUMN_BOOLEAN = 2;
+	static final byte COLUMN_STRING = 3;
+	static final byte COLUMN_MATERIAL = 4;
+
+	private final List<String> strings = new ArrayList<String>();
+	private final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+	private final List<Material> materials = new ArrayList<Material>();
+	private final Map<String, Integer> materialIndices = new HashMap<String, Integer>();
+
+
+	/**
+	 * Save the presets to the output stream.  The stream is not closed.
+	 *
+	 * @param output	the stream to write to.
+	 * @param presets	the presets to write.
+	 * @throws IOException	if an I/O error occurs.
+	 */
+	public void save(OutputStream output, List<ComponentPreset> presets) throws IOException {
+		strings.clear();
+		stringIndices.clear();
+		materials.clear();
+		materialIndices.clear();
+
+		Map<ComponentPreset.Type, List<ComponentPreset>> sections =
+				new EnumMap<ComponentPreset.Type, List<ComponentPreset>>(ComponentPreset.Type.class);
+		for (ComponentPreset preset : presets) {
+			List<ComponentPreset> list = sections.get(preset.getType());
+			if (list == null) {
+				list = new ArrayList<ComponentPreset>();
+				sections.put(preset.getType(), list);
+			}
+			list.add(preset);
+		}
+
+		ByteArrayOutputStream sectionBytes = new ByteArrayOutputStream();
+		DataOutputStream sectionOut = new DataOutputStream(sectionBytes);
+		sectionOut.writeInt(sections.size());
+		for (Map.Entry<ComponentPreset.Type, List<ComponentPreset>> e : sections.entrySet()) {
+			writeSection(sectionOut, e.getKey(), e.getValue());
+		}
+		sectionOut.flush();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+
+		List<byte[]> encoded = new ArrayList<byte[]>(strings.size());
+		out.writeInt(strings.size());
+		int offset = 0;
+		out.writeInt(offset);
+		for (String s : strings) {
+			byte[] bytes = s.getBytes(CHARSET);
+			encoded.add(bytes);
+			offset += bytes.length;
+			out.writeInt(offset);
+		}
+		for (byte[] bytes : encoded) {
+			out.write(bytes);
+		}
+
+		out.writeInt(materials.size());
+		for (Material m : materials) {
+			out.writeInt(string(m.getType().name()));
+			out.writeInt(string(m.getName()));
+			out.writeDouble(m.getDensity());
+			out.writeByte(m.isUserDefined() ? 1 : 0);
+		}
+
+		sectionBytes.writeTo(out);
+		out.flush();
+	}
+
+
+	private void writeSection(DataOutputStream out, ComponentPreset.Type type, List<ComponentPreset> presets)
+			throws IOException {
+
+		// Store the columns of all properties present in any preset of the section
+		List<TypedKey<?>> keys = new ArrayList<TypedKey<?>>();
+		for (TypedKey<?> key : ComponentPreset.ORDERED_KEY_LIST) {
+			if (key == ComponentPreset.MANUFACTURER || key == ComponentPreset.PARTNO) {
+				continue;
+			}
+			for (ComponentPreset preset : presets) {
+				if (preset.has(key)) {
+					keys.add(key);
+					break;
+				}
+			}
+		}
+
+		out.writeInt(string(type.name()));
+		out.writeInt(presets.size());
+		out.writeInt(keys.size());
+		for (TypedKey<?> key : keys) {
+			out.writeInt(string(key.getName()));
+			out.writeByte(columnType(key));
+		}
+
+		for (ComponentPreset preset : presets) {
+			out.writeInt(string(preset.getManufacturer().getDisplayName()));
+		}
+		for (ComponentPreset preset : presets) {
+			out.writeInt(string(preset.getPartNo()));
+		}
+		for (ComponentPreset preset : presets) {
+			out.writeInt(string(storedDigest(preset)));
+		}
+
+		for (TypedKey<?> key : keys) {
+			byte columnType = columnType(key);
+			for (ComponentPreset preset : presets) {
+				Object value = preset.has(key) ? preset.get(key) : null;
+				writeValue(out, columnType, value);
+			}
+		}
+	}
+
+
+	private void writeValue(DataOutputStream out, byte columnType, Object value) throws IOException {
+		switch (columnType) {
+		case COLUMN_DOUBLE:
+			out.writeDouble(value != null ? (Double) value : Double.NaN);
+			break;
+		case COLUMN_INTEGER:
+			out.writeInt(value != null ? (Integer) value : Integer.MIN_VALUE);
+			break;
+		case COLUMN_BOOLEAN:
+			out.writeByte(value == null ? -1 : ((Boolean) value ? 1 : 0));
+			break;
+		case COLUMN_STRING:
+			if (value instanceof Manufacturer) {
+				value = ((Manufacturer) value).getDisplayName();
+			} else if (value instanceof Enum) {
+				value = ((Enum<?>) value).name();
+			}
+			out.writeInt(string((String) value));
+			break;
+		case COLUMN_MATERIAL:
+			out.writeInt(material((Material) value));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown column type " + columnType);
+		}
+	}
+
+
+	/**
+	 * Return the column type used for storing the values of a key.
+	 */
+	static byte columnType(TypedKey<?> key) {
+		Class<?> type = key.getType();
+		if (type == Double.class) {
+			return COLUMN_DOUBLE;
+		} else if (type == Integer.class) {
+			return COLUMN_INTEGER;
+		} else if (type == Boolean.class) {
+			return COLUMN_BOOLEAN;
+		} else if (type == String.class || type == Manufacturer.class || type.isEnum()) {
+			return COLUMN_STRING;
+		} else if (type == Material.class) {
+			return COLUMN_MATERIAL;
+		}
+		throw new IllegalArgumentException("Unsupported preset property type " + type + " for key " + key);
+	}
+
+	/**
+	 * Return the width of a value of the column type in bytes.
+	 */
+	static int columnWidth(byte columnType) {
+		switch (columnType) {
+		case COLUMN_DOUBLE:
+			return 8;
+		case COLUMN_BOOLEAN:
+			return 1;
+		case COLUMN_INTEGER:
+		case COLUMN_STRING:
+		case COLUMN_MATERIAL:
+			return 4;
+		default:
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Return the digest of the preset as loaded from the database.  Only the type and
+	 * the properties listed in {@link ComponentPreset#ORDERED_KEY_LIST} are stored, so
+	 * the digest is computed from those.
+	 */
+	private static String storedDigest(ComponentPreset preset) {
+		TypedPropertyMap stored = new TypedPropertyMap();
+		stored.put(ComponentPreset.TYPE, preset.getType());
+		for (TypedKey<?> key : ComponentPreset.ORDERED_KEY_LIST) {
+			if (preset.has(key)) {
+				copy(preset, stored, key);
+			}
+		}
+		ComponentPreset copy = new ComponentPreset();
+		copy.putAll(stored);
+		copy.computeDigest();
+		return copy.getDigest();
+	}
+
+	private static <T> void copy(ComponentPreset preset, TypedPropertyMap map, TypedKey<T> key) {
+		map.put(key, preset.get(key));
+	}
+
+
+	private int string(String s) {
+		if (s == null) {
+			return -1;
+		}
+		Integer index = stringIndices.get(s);
+		if (index == null) {
+			index = strings.size();
+			strings.add(s);
+			stringIndices.put(s, index);
+		}
+		return index;
+	}
+
+	private int material(Material m) {
+		if (m == null) {
+			return -1;
+		}
+		String key = m.getType().name() + "|" + m.getName() + "|" + m.getDensity() + "|" + m.isUserDefined();
+		Integer index = materialIndices.get(key);
+		if (index == null) {
+			index = materials.size();
+			materials.add(m);
+			materialIndices.put(key, index);
+			// The string table is written before the materials
+			string(m.getType().name());
+			string(m.getName());
+		}
+		return index;
+	}
+
+}
@@ -41,10 +41,29 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 	 */
 	private static final long serialVersionUID = 3199781221967306617L;
 
-	private final TypedPropertyMap properties = new TypedPropertyMap();
+	/*
+	 * The properties are replaced as a whole when lazily loaded properties are loaded,
+	 * so that the properties available before loading can be read without locking.
+	 */
+	private volatile TypedPropertyMap properties = new TypedPropertyMap();
 
 	private String digest = "";
 
+	private transient volatile PropertyLoader propertyLoader = null;
+
+	/**
+	 * A source of the properties of presets whose properties are loaded only when
+	 * they are first needed.
+	 */
+	interface PropertyLoader {
+		/**
+		 * Load all properties of a preset into the provided map.
+		 * 
+		 * @param properties	the map in which to store the properties.
+		 */
+		public void loadProperties(TypedPropertyMap properties);
+	}
+
 	public enum Type {
 		BODY_TUBE(new TypedKey<?>[] {
 				ComponentPreset.MANUFACTURER,
@@ -221,6 +240,37 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 	ComponentPreset() {
 	}
 
+	/**
+	 * Package scope constructor for presets whose properties are loaded lazily.  The
+	 * type, manufacturer and part number are available without loading the properties.
+	 */
+	ComponentPreset(Type type, Manufacturer manufacturer, String partNo, String digest, PropertyLoader loader) {
+		properties.put(TYPE, type);
+		properties.put(MANUFACTURER, manufacturer);
+		properties.put(PARTNO, partNo);
+		this.digest = digest;
+		this.propertyLoader = loader;
+	}
+
+	/**
+	 * Load the properties if they are loaded lazily and have not been loaded yet.
+	 */
+	private void loadProperties() {
+		if (propertyLoader == null) {
+			return;
+		}
+		synchronized (this) {
+			PropertyLoader loader = propertyLoader;
+			if (loader == null) {
+				return;
+			}
+			TypedPropertyMap map = new TypedPropertyMap();
+			loader.loadProperties(map);
+			properties = map;
+			propertyLoader = null;
+		}
+	}
+
 	/**
 	 * Convenience method to retrieve the Type of this ComponentPreset.
 	 *
@@ -251,6 +301,10 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 	}
 
 	public boolean has(Object key) {
+		if (properties.containsKey(key)) {
+			return true;
+		}
+		loadProperties();
 		return properties.containsKey(key);
 	}
 
@@ -262,6 +316,7 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 		if (other == null) {
 			return;
 		}
+		loadProperties();
 		properties.putAll(other);
 	}
 
@@ -271,11 +326,16 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 	 * @param value
 	 */
 	<T> void put(TypedKey<T> key, T value) {
+		loadProperties();
 		properties.put(key, value);
 	}
 
 	public <T> T get(TypedKey<T> key) {
 		T value = properties.get(key);
+		if (value == null && propertyLoader != null) {
+			loadProperties();
+			value = properties.get(key);
+		}
 		if (value == null) {
 			throw new BugException("Preset did not contain key " + key + " " + properties.toString());
 		}
@@ -328,6 +388,7 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 	 * Package scope so the factory can call it.
 	 */
 	void computeDigest() {
+		loadProperties();
 
 		try {
 			ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -398,6 +459,7 @@ public class ComponentPreset implements Comparable<ComponentPreset>, Serializabl
 	}
 
 	private void writeObject( ObjectOutputStream oos ) throws IOException {
+		loadProperties();
 		Map<String,Object> DTO = new HashMap<String,Object>();
 
 		for ( Entry<TypedKey<?>, Object> entry :properties.entrySet() ) {
@@ -1,6 +1,7 @@
 package net.sf.openrocket.rocketcomponent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 import net.sf.openrocket.l10n.Translator;
@@ -246,6 +247,16 @@ public class BodyTube extends SymmetricComponent implements MotorMount, Coaxial
 		return getOuterRadius();
 	}
 	
+	@Override
+	protected Object getProfileKey() {
+		return Arrays.<Object> asList(getClass(), getOuterRadius());
+	}
+	
+	@Override
+	protected boolean isProfileLinear() {
+		return true;
+	}
+	
 	/**
 	 * Returns the inner radius at the position x.  If the tube is filled, returns always zero.
 	 */
@@ -666,6 +666,15 @@ public abstract class FinSet extends ExternalComponent {
 		}
 	}
 	
+	/**
+	 * The body radius depends on the position among the sibling components, and the
+	 * fin interference on the other fin sets.
+	 */
+	@Override
+	protected boolean isDependentOn(RocketComponent component) {
+		return component.getParent() == this.getParent();
+	}
+	
 	
 	/**
 	 * Return the radius of the BodyComponent the fin set is situated on.  Currently
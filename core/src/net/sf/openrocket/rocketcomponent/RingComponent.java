@@ -73,6 +73,14 @@ public abstract class RingComponent extends StructuralComponent implements Coaxi
 		fireComponentChangeEvent(ComponentChangeEvent.MASS_CHANGE);
 	}
 	
+	/**
+	 * Automatic radii depend on the sibling components and the position among them.
+	 */
+	@Override
+	protected boolean isDependentOn(RocketComponent component) {
+		return (outerRadiusAutomatic || innerRadiusAutomatic) && component.getParent() == this.getParent();
+	}
+	
 	
 
 
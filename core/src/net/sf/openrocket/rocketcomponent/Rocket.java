@@ -374,6 +374,9 @@ public class Rocket extends RocketComponent {
 			// Update modification ID's only for normal (not undo/redo) events
 			if (!e.isUndoChange()) {
 				modID = UniqueID.next();
+				e.getSource().setComponentModID(modID);
+				markChangedComponents(e.getSource(), modID,
+						e.isMassChange() || e.isTreeChange(), e.isAerodynamicChange() || e.isTreeChange());
 				if (e.isMassChange())
 					massModID = modID;
 				if (e.isAerodynamicChange())
@@ -415,6 +418,25 @@ public class Rocket extends RocketComponent {
 	}
 	
 	
+	/**
+	 * Update the subtree modification ID's of the changed component and the components
+	 * whose data may depend on it.
+	 */
+	private void markChangedComponents(RocketComponent source, int modID, boolean mass, boolean aero) {
+		if (!mass && !aero) {
+			return;
+		}
+		source.markChanged(modID, mass, aero);
+		Iterator<RocketComponent> iterator = this.iterator(false);
+		while (iterator.hasNext()) {
+			RocketComponent c = iterator.next();
+			if (c != source && c.isDependentOn(source)) {
+				c.markChanged(modID, mass, aero);
+			}
+		}
+	}
+	
+	
 	/**
 	 * Freezes the rocket structure from firing any events.  This may be performed to
 	 * combine several actions on the structure into a single large action.
@@ -132,6 +132,14 @@ public abstract class RocketComponent implements ChangeSource, Cloneable, Iterab
 	// Unique ID of the component
 	private String id = null;
 	
+	// Modification ID of the last change event fired by this component
+	private int componentModID = 0;
+	
+	// Modification ID's of the last changes that may affect the mass data of this
+	// component and its subcomponents, and the aerodynamic data of this component
+	private int subtreeMassModID = 0;
+	private int componentAeroModID = 0;
+	
 	// Preset component this component is based upon
 	private ComponentPreset presetComponent = null;
 	
@@ -410,6 +418,44 @@ public abstract class RocketComponent implements ChangeSource, Cloneable, Iterab
 	}
 	
 	
+	/**
+	 * Make a copy of this component alone, without its subcomponents, while maintaining
+	 * the component ID.  The copy is made using {@link #copyWithOriginalID()} of a
+	 * childless shallow clone, so that the mutable fields are copied exactly as when
+	 * copying the whole structure.  The copy has its own invalidator, so it is not
+	 * affected if this component is later invalidated.  This method does not fire any events.
+	 *
+	 * @return	a copy of this component without subcomponents.
+	 */
+	final RocketComponent copyComponentWithOriginalID() {
+		checkState();
+		RocketComponent childless;
+		try {
+			childless = (RocketComponent) this.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new BugException("CloneNotSupportedException encountered, report a bug!", e);
+		}
+		childless.mutex = SafetyMutex.newInstance();
+		childless.invalidator = new Invalidator(childless);
+		childless.parent = null;
+		childless.children = new ArrayList<RocketComponent>();
+		
+		RocketComponent copy = childless.copyWithOriginalID();
+		copy.invalidator = new Invalidator(copy);
+		return copy;
+	}
+	
+	
+	/**
+	 * Add a child to this component without firing any events or checking its validity.
+	 * This is used for assembling copies of component structures.
+	 */
+	final void addChildWithoutEvents(RocketComponent child) {
+		children.add(child);
+		child.parent = this;
+	}
+	
+	
 	//////////////  Methods that may not be overridden  ////////////
 	
 	
@@ -820,6 +866,97 @@ public abstract class RocketComponent implements ChangeSource, Cloneable, Iterab
 		return id;
 	}
 	
+	/**
+	 * Return the modification ID of the last change of this component.  The ID changes
+	 * every time a change event is fired with this component as its source, but not when
+	 * only its subcomponents change.  Unchanged copies made with original ID's have the
+	 * same modification ID as the original.
+	 *
+	 * @return	the modification ID of this component.
+	 * @see Rocket#getModID()
+	 */
+	public final int getComponentModID() {
+		return componentModID;
+	}
+	
+	/**
+	 * Set the component modification ID.  Called by the rocket when this component fires
+	 * a change event.
+	 */
+	final void setComponentModID(int modID) {
+		this.componentModID = modID;
+	}
+	
+	/**
+	 * Return the modification ID of the last change that may affect the mass data of
+	 * this component or any of its subcomponents.  Changes of the component itself, its
+	 * subcomponents, its parent components and the components it depends on (see
+	 * {@link #isDependentOn(RocketComponent)}) change the ID.
+	 * <p>
+	 * Calculators may use the ID to recompute cached data only for the changed subtrees
+	 * of the rocket.  The ID is not changed by undo/redo events, since these always
+	 * replace the component objects.
+	 *
+	 * @return	the subtree mass modification ID of this component.
+	 */
+	public final int getSubtreeMassModID() {
+		return subtreeMassModID;
+	}
+	
+	/**
+	 * Return the modification ID of the last change that may affect the aerodynamic
+	 * data of this component.  Changes of the component itself, its parent components
+	 * and the components it depends on (see {@link #isDependentOn(RocketComponent)})
+	 * change the ID.
+	 *
+	 * @return	the aerodynamic modification ID of this component.
+	 */
+	public final int getComponentAeroModID() {
+		return componentAeroModID;
+	}
+	
+	/**
+	 * Record a change that may affect the data of this component and its subcomponents.
+	 * The mass modification ID's of the parent components are updated as well.
+	 * Called by the rocket when a change event is fired.
+	 *
+	 * @param modID		the modification ID of the change.
+	 * @param mass		whether the change may affect the mass data.
+	 * @param aero		whether the change may affect the aerodynamic data.
+	 */
+	final void markChanged(int modID, boolean mass, boolean aero) {
+		if (mass) {
+			for (RocketComponent c = this.parent; c != null && c.subtreeMassModID != modID; c = c.parent) {
+				c.subtreeMassModID = modID;
+			}
+		}
+		Iterator<RocketComponent> iterator = this.iterator(true);
+		while (iterator.hasNext()) {
+			RocketComponent c = iterator.next();
+			if (mass) {
+				c.subtreeMassModID = modID;
+			}
+			if (aero) {
+				c.componentAeroModID = modID;
+			}
+		}
+	}
+	
+	/**
+	 * Return whether the mass or aerodynamic data of this component may depend on
+	 * another component that is not one of its parent components, for example when its
+	 * dimensions are computed automatically from the adjacent components.  This component
+	 * is considered changed whenever a component it depends on changes.
+	 * <p>
+	 * The default implementation returns <code>false</code>.
+	 *
+	 * @param component		the changed component, not this component.
+	 * @return				whether a change of the component may affect this component.
+	 */
+	protected boolean isDependentOn(RocketComponent component) {
+		return false;
+	}
+	
 	/**
 	 * Generate a new ID for this component.
 	 */
@@ -1584,7 +1721,10 @@ public abstract class RocketComponent implements ChangeSource, Cloneable, Iterab
 	protected void fireComponentChangeEvent(ComponentChangeEvent e) {
 		checkState();
 		if (parent == null) {
-			/* Ignore if root invalid. */
+			/* Ignore if root invalid, but record the change for copies made later. */
+			if (!e.isUndoChange()) {
+				e.getSource().setComponentModID(UniqueID.next());
+			}
 			return;
 		}
 		getRoot().fireComponentChangeEvent(e);
@@ -1827,6 +1967,9 @@ public abstract class RocketComponent implements ChangeSource, Cloneable, Iterab
 		this.name = src.name;
 		this.comment = src.comment;
 		this.id = src.id;
+		this.componentModID = src.componentModID;
+		this.subtreeMassModID = src.subtreeMassModID;
+		this.componentAeroModID = src.componentAeroModID;
 		
 		// Add source components to invalidation tree
 		for (RocketComponent c : src) {
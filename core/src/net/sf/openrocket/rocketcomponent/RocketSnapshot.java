@@ -0,0 +1,177 @@
+package net.sf.openrocket.rocketcomponent;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An immutable snapshot of a rocket structure, used for storing the undo history.
+ * <p>
+ * A snapshot stores a copy of each component separately from the tree structure.  When
+ * a snapshot is created based on a previous snapshot, the component copies of the
+ * previous snapshot are shared for all components whose component modification ID
+ * ({@link RocketComponent#getComponentModID()}) and position in the tree have not
+ * changed, and subtrees that are wholly unchanged are shared as a whole.  Creating a
+ * snapshot after a small modification therefore copies only the modified components
+ * and the path from them to the root.
+ * <p>
+ * The component copies are never handed out; {@link #toRocket()} creates a new rocket
+ * structure with copies of the stored components each time it is called.
+ */
+public class RocketSnapshot {
+
+	private final Node root;
+	private final int modID;
+	private final int componentCount;
+	private final int createdCount;
+
+
+	private RocketSnapshot(Node root, int modID, int componentCount, int createdCount) {
+		this.root = root;
+		this.modID = modID;
+		this.componentCount = componentCount;
+		this.createdCount = createdCount;
+	}
+
+
+	/**
+	 * Create a snapshot of the current state of a rocket.  If a previous snapshot of the
+	 * same rocket is given, the unchanged components are shared with it.
+	 *
+	 * @param rocket	the rocket to take a snapshot of.
+	 * @param previous	a previous snapshot of the rocket, or <code>null</code>.
+	 * @return			a snapshot of the rocket.
+	 */
+	public static RocketSnapshot create(Rocket rocket, RocketSnapshot previous) {
+		int[] counts = new int[2];
+
+		// The root is always copied, since the rocket modification ID's are stored in it
+		Node[] children = createChildren(rocket, (previous != null) ? previous.root : null, counts);
+		Node root = new Node(rocket.copyComponentWithOriginalID(), children);
+		counts[0]++;
+		counts[1]++;
+
+		return new RocketSnapshot(root, rocket.getModID(), counts[0], counts[1]);
+	}
+
+
+	private static Node createNode(RocketComponent component, Node previous, int[] counts) {
+		Node[] children = createChildren(component, previous, counts);
+		counts[0]++;
+
+		if (previous != null && previous.component.getComponentModID() == component.getComponentModID()) {
+			if (children == previous.children) {
+				return previous;
+			}
+			return new Node(previous.component, children);
+		}
+
+		counts[1]++;
+		return new Node(component.copyComponentWithOriginalID(), children);
+	}
+
+
+	/**
+	 * Create the child nodes of a component.  Returns the children array of the previous
+	 * node if all child nodes are unchanged.
+	 */
+	private static Node[] createChildren(RocketComponent component, Node previous, int[] counts) {
+		List<RocketComponent> list = component.getChildren();
+		Node[] children = new Node[list.size()];
+		boolean unchanged = (previous != null && previous.children.length == children.length);
+
+		for (int i = 0; i < children.length; i++) {
+			RocketComponent child = list.get(i);
+			Node old = (previous != null) ? previous.findChild(child.getID(), i) : null;
+			children[i] = createNode(child, old, counts);
+			if (unchanged && children[i] != previous.children[i]) {
+				unchanged = false;
+			}
+		}
+
+		if (unchanged) {
+			return previous.children;
+		}
+		return children;
+	}
+
+
+	/**
+	 * Create a new rocket structure from this snapshot.  The components of the returned
+	 * rocket are new copies that retain the original component ID's, and no events are
+	 * fired.  The result is suitable for {@link Rocket#loadFrom(Rocket)}.
+	 *
+	 * @return	a new copy of the stored rocket structure.
+	 */
+	public Rocket toRocket() {
+		Rocket rocket = (Rocket) root.toComponent();
+
+		// Clear any cached values that depend on the surrounding components
+		Iterator<RocketComponent> iterator = rocket.iterator(true);
+		while (iterator.hasNext()) {
+			RocketComponent c = iterator.next();
+			c.componentChanged(new ComponentChangeEvent(c, ComponentChangeEvent.UNDO_CHANGE |
+					ComponentChangeEvent.BOTH_CHANGE | ComponentChangeEvent.TREE_CHANGE));
+		}
+		return rocket;
+	}
+
+
+	/**
+	 * Return the modification ID of the rocket at the time the snapshot was taken.
+	 */
+	public int getModID() {
+		return modID;
+	}
+
+	/**
+	 * Return the total number of components in this snapshot, including the rocket.
+	 */
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	/**
+	 * Return the number of component copies created for this snapshot, i.e. the
+	 * number of components that are not shared with the previous snapshot.
+	 */
+	public int getCreatedComponentCount() {
+		return createdCount;
+	}
+
+
+
+	private static final class Node {
+		private final RocketComponent component;
+		private final Node[] children;
+
+		public Node(RocketComponent component, Node[] children) {
+			this.component = component;
+			this.children = children;
+		}
+
+		/**
+		 * Find the child node with the specified component ID, checking the expected
+		 * index first.
+		 */
+		public Node findChild(String id, int index) {
+			if (index < children.length && children[index].component.getID().equals(id)) {
+				return children[index];
+			}
+			for (Node n : children) {
+				if (n.component.getID().equals(id)) {
+					return n;
+				}
+			}
+			return null;
+		}
+
+		public RocketComponent toComponent() {
+			RocketComponent copy = component.copyComponentWithOriginalID();
+			for (Node n : children) {
+				copy.addChildWithoutEvents(n.toComponent());
+			}
+			return copy;
+		}
+	}
+
+}
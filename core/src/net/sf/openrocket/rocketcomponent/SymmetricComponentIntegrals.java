@@ -0,0 +1,320 @@
+package net.sf.openrocket.rocketcomponent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The volume, area and inertia integrals of the body of revolution of a
+ * {@link SymmetricComponent}.
+ * <p>
+ * The integrals are computed from the radius function of the component.  For linear
+ * profiles (cylinders and cones) the integrands are piecewise polynomials, which are
+ * integrated exactly.  Other profiles are integrated using adaptive Gauss-Legendre
+ * quadrature with a relative tolerance of {@value #TOLERANCE}.
+ * <p>
+ * The integrals depend only on the profile of the component and not on its material,
+ * so they are shared between all components with identical profiles.  Components that
+ * identify their profile by {@link SymmetricComponent#getProfileKey()} are looked up
+ * from a cache of recently integrated profiles.
+ */
+final class SymmetricComponentIntegrals {
+
+	/** Relative tolerance of the adaptive quadrature. */
+	static final double TOLERANCE = 1e-6;
+
+	private static final int INITIAL_DIVISIONS = 8;
+	private static final int MAX_DEPTH = 24;
+	private static final int CACHE_SIZE = 256;
+
+	// Indices of the integrands
+	private static final int FULL_VOLUME = 0;
+	private static final int VOLUME = 1;
+	private static final int VOLUME_MOMENT = 2;
+	private static final int WET_AREA = 3;
+	private static final int PLAN_AREA = 4;
+	private static final int PLAN_MOMENT = 5;
+	private static final int VOLUME_ROTATIONAL = 6;
+	private static final int VOLUME_LONGITUDINAL = 7;
+	private static final int SURFACE_ROTATIONAL = 8;
+	private static final int SURFACE_LONGITUDINAL = 9;
+	private static final int COUNT = 10;
+
+	// Three-point Gauss-Legendre rule, exact for polynomials up to degree five
+	private static final double[] GAUSS_NODES = { -Math.sqrt(0.6), 0, Math.sqrt(0.6) };
+	private static final double[] GAUSS_WEIGHTS = { 5.0 / 9, 8.0 / 9, 5.0 / 9 };
+
+	private static final Map<Key, SymmetricComponentIntegrals> cache =
+			new LinkedHashMap<Key, SymmetricComponentIntegrals>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, SymmetricComponentIntegrals> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			};
+
+
+	/** The volume of the component when filled. */
+	final double fullVolume;
+	/** The volume of the component. */
+	final double volume;
+	/** The x-coordinate of the center of the volume, or zero if the volume is zero. */
+	final double volumeCenter;
+	/** The wetted area of the component. */
+	final double wetArea;
+	/** The planform area of the component. */
+	final double planArea;
+	/** The x-coordinate of the center of the planform, or zero if the area is zero. */
+	final double planCenter;
+	/** The rotational and longitudinal unit inertia by volume, around the x-axis and origin. */
+	final double volumeRotationalInertia;
+	final double volumeLongitudinalInertia;
+	/** The rotational and longitudinal unit inertia by surface, around the x-axis and origin. */
+	final double surfaceRotationalInertia;
+	final double surfaceLongitudinalInertia;
+
+
+	private SymmetricComponentIntegrals(double[] sums) {
+		fullVolume = sums[FULL_VOLUME];
+		volume = sums[VOLUME];
+		wetArea = sums[WET_AREA];
+		planArea = sums[PLAN_AREA];
+		volumeCenter = (volume > 0) ? sums[VOLUME_MOMENT] / volume : 0;
+		planCenter = (planArea > 0) ? sums[PLAN_MOMENT] / planArea : 0;
+		volumeRotationalInertia = (volume > 0) ? sums[VOLUME_ROTATIONAL] / volume : 0;
+		volumeLongitudinalInertia = (volume > 0) ? sums[VOLUME_LONGITUDINAL] / volume : 0;
+		surfaceRotationalInertia = (wetArea > 0) ? sums[SURFACE_ROTATIONAL] / wetArea : 0;
+		surfaceLongitudinalInertia = (wetArea > 0) ? sums[SURFACE_LONGITUDINAL] / wetArea : 0;
+	}
+
+
+	/**
+	 * Return the integrals of a component, from the cache if a component with the same
+	 * profile has been integrated recently.
+	 *
+	 * @param component		the component.
+	 * @return				the integrals of the component.
+	 */
+	static SymmetricComponentIntegrals get(SymmetricComponent component) {
+		Object profile = component.getProfileKey();
+		if (profile == null) {
+			return new Integrator(component).integrate();
+		}
+
+		Key key = new Key(profile, component.getLength(), component.thickness, component.filled);
+		SymmetricComponentIntegrals integrals;
+		synchronized (cache) {
+			integrals = cache.get(key);
+		}
+		if (integrals == null) {
+			integrals = new Integrator(component).integrate();
+			synchronized (cache) {
+				cache.put(key, integrals);
+			}
+		}
+		return integrals;
+	}
+
+
+
+	/**
+	 * Computes the integrals of a single component.
+	 */
+	private static final class Integrator {
+		private final SymmetricComponent component;
+		private final double length;
+		private final double thickness;
+		private final boolean filled;
+		private final double[] tolerances = new double[COUNT];
+
+		private Integrator(SymmetricComponent component) {
+			this.component = component;
+			this.length = component.getLength();
+			this.thickness = component.thickness;
+			this.filled = component.filled;
+		}
+
+
+		SymmetricComponentIntegrals integrate() {
+			double[] sums = new double[COUNT];
+			if (length > 0) {
+				if (component.isProfileLinear()) {
+					integrateLinear(sums);
+				} else {
+					integrateAdaptive(sums);
+				}
+			}
+			return new SymmetricComponentIntegrals(sums);
+		}
+
+
+		/**
+		 * Integrate a linear profile exactly.  The wall is solid where the radius is
+		 * less than the wall height, so the integrands are polynomials on both sides of
+		 * the position where they are equal.
+		 */
+		private void integrateLinear(double[] sums) {
+			double r0 = component.getRadius(0);
+			double slope = (component.getRadius(length) - r0) / length;
+			double height = thickness * Math.sqrt(1 + slope * slope);
+
+			double split = (slope != 0) ? (height - r0) / slope : -1;
+			if (split > 0 && split < length) {
+				gauss(0, split, r0, slope, sums);
+				gauss(split, length, r0, slope, sums);
+			} else {
+				gauss(0, length, r0, slope, sums);
+			}
+		}
+
+		private void gauss(double a, double b, double r0, double slope, double[] sums) {
+			double center = (a + b) / 2;
+			double half = (b - a) / 2;
+			for (int i = 0; i < GAUSS_NODES.length; i++) {
+				double x = center + half * GAUSS_NODES[i];
+				evaluate(x, r0 + slope * x, slope, half * GAUSS_WEIGHTS[i], sums);
+			}
+		}
+
+
+		/**
+		 * Integrate a general profile adaptively.  The interval is first divided into
+		 * equal panels, whose sums determine the scale of the error tolerance of each
+		 * integrand.  Each panel is then halved until the halves agree with the whole
+		 * panel within its share of the tolerance.  The share decreases only with the
+		 * square root of the panel width, so that the singular tips of nose cones do
+		 * not require excessive subdivision.
+		 */
+		private void integrateAdaptive(double[] sums) {
+			double step = length / INITIAL_DIVISIONS;
+			double[][] panels = new double[INITIAL_DIVISIONS][];
+			for (int n = 0; n < INITIAL_DIVISIONS; n++) {
+				panels[n] = gauss(n * step, (n == INITIAL_DIVISIONS - 1) ? length : (n + 1) * step);
+				for (int i = 0; i < COUNT; i++) {
+					tolerances[i] += Math.abs(panels[n][i]);
+				}
+			}
+			for (int i = 0; i < COUNT; i++) {
+				tolerances[i] *= TOLERANCE;
+			}
+
+			for (int n = 0; n < INITIAL_DIVISIONS; n++) {
+				adapt(n * step, (n == INITIAL_DIVISIONS - 1) ? length : (n + 1) * step, panels[n], 0, sums);
+			}
+		}
+
+		private void adapt(double a, double b, double[] whole, int depth, double[] sums) {
+			double m = (a + b) / 2;
+			double[] left = gauss(a, m);
+			double[] right = gauss(m, b);
+
+			boolean converged = true;
+			if (depth < MAX_DEPTH) {
+				for (int i = 0; i < COUNT; i++) {
+					if (Math.abs(left[i] + right[i] - whole[i]) > tolerances[i] * Math.sqrt((b - a) / length)) {
+						converged = false;
+						break;
+					}
+				}
+			}
+
+			if (converged) {
+				for (int i = 0; i < COUNT; i++) {
+					sums[i] += left[i] + right[i];
+				}
+			} else {
+				adapt(a, m, left, depth + 1, sums);
+				adapt(m, b, right, depth + 1, sums);
+			}
+		}
+
+		private double[] gauss(double a, double b) {
+			double[] result = new double[COUNT];
+			double center = (a + b) / 2;
+			double half = (b - a) / 2;
+			double delta = 1e-6 * half;
+			for (int i = 0; i < GAUSS_NODES.length; i++) {
+				double x = center + half * GAUSS_NODES[i];
+				double r = component.getRadius(x);
+				double slope = (component.getRadius(x + delta) - r) / delta;
+				evaluate(x, r, slope, half * GAUSS_WEIGHTS[i], result);
+			}
+			return result;
+		}
+
+
+		/**
+		 * Add the weighted integrands at position x to the sums.  The wall thickness is
+		 * normal to the surface, so its height in the radial direction grows with the
+		 * slope of the profile.
+		 */
+		private void evaluate(double x, double r, double slope, double weight, double[] sums) {
+			final double stretch = Math.sqrt(1 + slope * slope);
+			final double height = thickness * stretch;
+
+			final double fullArea = Math.PI * r * r;
+			final double area;
+			final double inner;
+			if (filled || r < height) {
+				area = fullArea;
+				inner = 0;
+			} else {
+				area = Math.PI * height * (2 * r - height);
+				inner = r - height;
+			}
+			final double radii2 = r * r + inner * inner;
+			final double circumference = 2 * Math.PI * r * stretch;
+
+			sums[FULL_VOLUME] += weight * fullArea;
+			sums[VOLUME] += weight * area;
+			sums[VOLUME_MOMENT] += weight * area * x;
+			sums[WET_AREA] += weight * circumference;
+			sums[PLAN_AREA] += weight * 2 * r;
+			sums[PLAN_MOMENT] += weight * 2 * r * x;
+			sums[VOLUME_ROTATIONAL] += weight * area * radii2 / 2;
+			sums[VOLUME_LONGITUDINAL] += weight * area * (radii2 / 4 + x * x);
+			sums[SURFACE_ROTATIONAL] += weight * circumference * r * r;
+			sums[SURFACE_LONGITUDINAL] += weight * circumference * (r * r / 2 + x * x);
+		}
+	}
+
+
+
+	/**
+	 * The cache key, consisting of the profile key of the component and the parameters
+	 * common to all symmetric components.
+	 */
+	private static final class Key {
+		private final Object profile;
+		private final double length;
+		private final double thickness;
+		private final boolean filled;
+
+		private Key(Object profile, double length, double thickness, boolean filled) {
+			this.profile = profile;
+			this.length = length;
+			this.thickness = thickness;
+			this.filled = filled;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return profile.equals(other.profile) &&
+					Double.compare(length, other.length) == 0 &&
+					Double.compare(thickness, other.thickness) == 0 &&
+					filled == other.filled;
+		}
+
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(length) * 31 + Double.doubleToLongBits(thickness);
+			return profile.hashCode() * 31 + (int) (bits ^ (bits >>> 32)) + (filled ? 1 : 0);
+		}
+	}
+
+}
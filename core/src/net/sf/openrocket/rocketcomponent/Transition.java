@@ -7,6 +7,7 @@ import net.sf.openrocket.startup.Application;
 import net.sf.openrocket.util.Coordinate;
 import net.sf.openrocket.util.MathUtil;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import static java.lang.Math.sin;
@@ -343,6 +344,16 @@ public class Transition extends SymmetricComponent {
 
 
 
+	@Override
+	protected Object getProfileKey() {
+		return Arrays.<Object> asList(getClass(), type, isClipped(), shapeParameter, getForeRadius(), getAftRadius());
+	}
+
+	@Override
+	protected boolean isProfileLinear() {
+		return type == Shape.CONICAL || getForeRadius() == getAftRadius();
+	}
+
 	/**
 	 * Return the radius at point x of the transition.
 	 */
@@ -114,8 +114,6 @@ public abstract class AbstractSimulationStepper implements SimulationStepper {
 	 */
 	protected MassData calculateMassData(SimulationStatus status) throws SimulationException {
 		MassData mass;
-		Coordinate cg;
-		double longitudinalInertia, rotationalInertia, propellantMass;
 		
 		// Call pre-listener
 		mass = SimulationListenerHelper.firePreMassCalculation(status);
@@ -124,11 +122,7 @@ public abstract class AbstractSimulationStepper implements SimulationStepper {
 		}
 		
 		MassCalculator calc = status.getSimulationConditions().getMassCalculator();
-		cg = calc.getCG(status.getConfiguration(), status.getMotorConfiguration());
-		longitudinalInertia = calc.getLongitudinalInertia(status.getConfiguration(), status.getMotorConfiguration());
-		rotationalInertia = calc.getRotationalInertia(status.getConfiguration(), status.getMotorConfiguration());
-		propellantMass = calc.getPropellantMass(status.getConfiguration(), status.getMotorConfiguration());
-		mass = new MassData(cg, longitudinalInertia, rotationalInertia, propellantMass);
+		mass = calc.getMassData(status.getConfiguration(), status.getMotorConfiguration());
 		
 		// Call post-listener
 		mass = SimulationListenerHelper.firePostMassCalculation(status, mass);
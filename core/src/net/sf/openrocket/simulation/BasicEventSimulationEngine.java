@@ -2,6 +2,8 @@ package net.sf.openrocket.simulation;
 
 import java.util.Iterator;
 
+import net.sf.openrocket.aerodynamics.AerodynamicCalculator;
+import net.sf.openrocket.aerodynamics.BarrowmanCalculator;
 import net.sf.openrocket.aerodynamics.Warning;
 import net.sf.openrocket.l10n.Translator;
 import net.sf.openrocket.motor.Motor;
@@ -23,6 +25,7 @@ import net.sf.openrocket.simulation.exception.SimulationLaunchException;
 import net.sf.openrocket.simulation.listeners.SimulationListenerHelper;
 import net.sf.openrocket.simulation.listeners.system.OptimumCoastListener;
 import net.sf.openrocket.startup.Application;
+import net.sf.openrocket.util.BugException;
 import net.sf.openrocket.util.Coordinate;
 import net.sf.openrocket.util.MathUtil;
 import net.sf.openrocket.util.Pair;
@@ -38,7 +41,7 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 	private static final Logger log = LoggerFactory.getLogger(BasicEventSimulationEngine.class);
 	
 	// TODO: MEDIUM: Allow selecting steppers
-	private SimulationStepper flightStepper = new RK4SimulationStepper();
+	private SimulationStepper flightStepper;
 	private SimulationStepper landingStepper = new BasicLandingStepper();
 	private SimulationStepper tumbleStepper = new BasicTumbleStepper();
 	
@@ -56,6 +59,9 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 	
 	private String flightConfigurationId;
 	
+	// Locates events within the steps of steppers that support it
+	private final EventLocator eventLocator = new EventLocator();
+	
 	private SimpleStack<SimulationStatus> stages = new SimpleStack<SimulationStatus>();
 	
 	
@@ -65,6 +71,19 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 		// Set up flight data
 		FlightData flightData = new FlightData();
 		
+		if (simulationConditions.isAdaptiveTimeStep()) {
+			flightStepper = new RK45SimulationStepper(eventLocator);
+		} else {
+			flightStepper = new RK4SimulationStepper();
+		}
+		
+		// Set up the aerodynamic coefficient tables
+		AerodynamicCalculator aerodynamicCalculator = simulationConditions.getAerodynamicCalculator();
+		if (aerodynamicCalculator instanceof BarrowmanCalculator) {
+			((BarrowmanCalculator) aerodynamicCalculator).setTableTolerance(
+					simulationConditions.getAerodynamicTableTolerance());
+		}
+		
 		// Set up rocket configuration
 		Configuration configuration = setupConfiguration(simulationConditions);
 		flightConfigurationId = configuration.getFlightConfigurationID();
@@ -78,7 +97,8 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 		{
 			// main sustainer stage
 			RocketComponent sustainer = configuration.getRocket().getChild(0);
-			status.setFlightData(new FlightDataBranch(sustainer.getName(), FlightDataType.TYPE_TIME));
+			status.setFlightData(new FlightDataBranch(sustainer.getName(),
+					simulationConditions.isSinglePrecisionData(), FlightDataType.TYPE_TIME));
 		}
 		stages.add(status);
 		
@@ -118,6 +138,7 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 		// Get originating position (in case listener has modified launch position)
 		Coordinate origin = status.getRocketPosition();
 		Coordinate originVelocity = status.getRocketVelocity();
+		eventLocator.origin = origin;
 		
 		try {
 			// Start the simulation
@@ -134,6 +155,7 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 						maxStepTime = MathUtil.max(nextEvent.getTime() - status.getSimulationTime(), 0.001);
 					}
 					log.trace("BasicEventSimulationEngine: Taking simulation step at t=" + status.getSimulationTime());
+					eventLocator.apogeeLocated = false;
 					currentStepper.step(status, maxStepTime);
 				}
 				SimulationListenerHelper.firePostStep(status);
@@ -186,8 +208,9 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 				}
 				
 				
-				// Check for apogee
-				if (!status.isApogeeReached() && status.getRocketPosition().z < status.getMaxAlt() - 0.01) {
+				// Check for apogee, either located at the end of the step or passed during it
+				if (!status.isApogeeReached() && (eventLocator.apogeeLocated ||
+						status.getRocketPosition().z < status.getMaxAlt() - 0.01)) {
 					status.setMaxAltTime(status.getSimulationTime());
 					addEvent(new FlightEvent(FlightEvent.Type.APOGEE, status.getSimulationTime(),
 							status.getConfiguration().getRocket()));
@@ -445,7 +468,8 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 				
 				// Prepare the booster status for simulation.
 				SimulationStatus boosterStatus = new SimulationStatus(status);
-				boosterStatus.setFlightData(new FlightDataBranch(stage.getName(), FlightDataType.TYPE_TIME));
+				boosterStatus.setFlightData(new FlightDataBranch(stage.getName(),
+						status.getSimulationConditions().isSinglePrecisionData(), FlightDataType.TYPE_TIME));
 				
 				stages.add(boosterStatus);
 				
@@ -583,6 +607,135 @@ public class BasicEventSimulationEngine implements SimulationEngine {
 	
 	
 	
+	/**
+	 * Locates the events that are detected after each step from the state of the rocket:
+	 * launch guide clearance, apogee, altitude-triggered recovery device deployment and
+	 * ground hit.  The step is ended just after the first event, so that the checks made
+	 * after the step detect it.  Apogee is located as the point where the vertical velocity
+	 * becomes zero, and is reported to the apogee check by {@link #apogeeLocated}.
+	 */
+	private class EventLocator implements StepEventLocator {
+		
+		// Bracket width of the located events
+		private static final double TIME_TOLERANCE = 1e-6;
+		private static final int MAX_ITERATIONS = 50;
+		
+		private static final int LAUNCH_ROD = 0;
+		private static final int APOGEE = 1;
+		private static final int ALTITUDE = 2;
+		private static final int GROUND = 3;
+		
+		private Coordinate origin;
+		private boolean apogeeLocated;
+		
+		private StepInterpolant step;
+		private double parameter;
+		
+		@Override
+		public double locateEvent(SimulationStatus status, StepInterpolant step) {
+			this.step = step;
+			double end = step.getEndTime();
+			boolean apogee = false;
+			
+			if (!status.isLaunchRodCleared()) {
+				parameter = status.getSimulationConditions().getLaunchRodLength();
+				end = locate(LAUNCH_ROD, end);
+			}
+			
+			if (status.isLiftoff()) {
+				if (!status.isApogeeReached()) {
+					double t = locate(APOGEE, end);
+					apogee = (t < end);
+					end = t;
+				}
+				
+				Iterator<RocketComponent> iterator = status.getConfiguration().iterator();
+				while (iterator.hasNext()) {
+					RocketComponent c = iterator.next();
+					if (!(c instanceof RecoveryDevice) || status.getDeployedRecoveryDevices().contains(c)) {
+						continue;
+					}
+					DeploymentConfiguration deployConfig = ((RecoveryDevice) c).getDeploymentConfiguration().get(flightConfigurationId);
+					if (deployConfig.getDeployEvent() == DeploymentConfiguration.DeployEvent.ALTITUDE) {
+						parameter = deployConfig.getDeployAltitude();
+						double t = locate(ALTITUDE, end);
+						apogee &= (t == end);
+						end = t;
+					}
+				}
+				
+				parameter = 0;
+				double t = locate(GROUND, end);
+				apogee &= (t == end);
+				end = t;
+			}
+			
+			apogeeLocated = apogee;
+			return end;
+		}
+		
+		/**
+		 * Return the time just after an event occurs within the step before the given end
+		 * time, or the end time if it does not occur.  The event is located by the Illinois
+		 * variant of the regula falsi method, keeping the event condition true at the end
+		 * of the bracket.
+		 */
+		private double locate(int event, double end) {
+			double t0 = step.getStartTime();
+			double g0 = evaluate(event, t0);
+			double g1 = evaluate(event, end);
+			if (!(g0 < 0 && g1 >= 0)) {
+				return end;
+			}
+			
+			double t1 = end;
+			int side = 0;
+			for (int i = 0; i < MAX_ITERATIONS && t1 - t0 > TIME_TOLERANCE; i++) {
+				double t = MathUtil.clamp(t1 - g1 * (t1 - t0) / (g1 - g0), t0 + TIME_TOLERANCE / 2, t1 - TIME_TOLERANCE / 2);
+				double g = evaluate(event, t);
+				if (g >= 0) {
+					t1 = t;
+					g1 = g;
+					if (side == 1) {
+						g0 /= 2;
+					}
+					side = 1;
+				} else {
+					t0 = t;
+					g0 = g;
+					if (side == -1) {
+						g1 /= 2;
+					}
+					side = -1;
+				}
+			}
+			return t1;
+		}
+		
+		/**
+		 * Return a function of the state that is negative before the event and
+		 * non-negative once it has occurred.
+		 */
+		private double evaluate(int event, double time) {
+			switch (event) {
+			case LAUNCH_ROD:
+				double distance = step.getPosition(time).sub(origin).length();
+				return (distance > parameter) ? distance - parameter : Math.min(distance - parameter, -Double.MIN_VALUE);
+			case APOGEE:
+				return -step.getVelocity(time).z;
+			case ALTITUDE:
+				return parameter - step.getPosition(time).z;
+			case GROUND:
+				double z = step.getPosition(time).z;
+				return (z < 0) ? -z : Math.min(-z, -Double.MIN_VALUE);
+			default:
+				throw new BugException("Unknown event " + event);
+			}
+		}
+	}
+	
+	
+	
 	private void checkNaN() throws SimulationException {
 		double d = 0;
 		boolean b = false;
@@ -1,5 +1,6 @@
 package net.sf.openrocket.simulation;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -7,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.sf.openrocket.aerodynamics.WarningSet;
+import net.sf.openrocket.document.Simulation;
 import net.sf.openrocket.util.MathUtil;
 import net.sf.openrocket.util.Mutable;
 
@@ -20,6 +22,10 @@ import net.sf.openrocket.util.Mutable;
  * </ul> 
  * <p>
  * A FlightData object can be made immutable by calling {@link #immute()}.
+ * <p>
+ * The data branches may be loaded lazily using a {@link FlightDataBranchLoader}, in which
+ * case the summary values are provided at construction and the branches are loaded when
+ * they are first accessed.
  * 
  * @author Sampo Niskanen <sampo.niskanen@iki.fi>
  */
@@ -42,6 +48,9 @@ public class FlightData {
 	
 	private final WarningSet warnings = new WarningSet();
 	
+	private FlightDataBranchLoader branchLoader = null;
+	private boolean loadFailed = false;
+	
 	private double maxAltitude = Double.NaN;
 	private double maxVelocity = Double.NaN;
 	private double maxAcceleration = Double.NaN;
@@ -121,6 +130,7 @@ public class FlightData {
 	
 	public void addBranch(FlightDataBranch branch) {
 		mutable.check();
+		loadBranches();
 		
 		branch.immute();
 		branches.add(branch);
@@ -131,14 +141,71 @@ public class FlightData {
 	}
 	
 	public int getBranchCount() {
+		loadBranches();
 		return branches.size();
 	}
 	
 	public FlightDataBranch getBranch(int n) {
+		loadBranches();
 		return branches.get(n);
 	}
 	
 	
+	/**
+	 * Set the loader used to load the data branches when they are first accessed.
+	 * The summary values are not recomputed from the loaded branches.
+	 * 
+	 * @param loader	the branch loader.
+	 */
+	public void setBranchLoader(FlightDataBranchLoader loader) {
+		mutable.check();
+		this.branchLoader = loader;
+	}
+	
+	/**
+	 * Return whether the data branches have been loaded.  This is false only if
+	 * a branch loader has been set and the branches have not yet been accessed.
+	 */
+	public synchronized boolean isLoaded() {
+		return branchLoader == null;
+	}
+	
+	/**
+	 * Return whether loading the data branches using the branch loader failed.  In that
+	 * case the data contains no branches, and the simulation must be run again to obtain
+	 * them.
+	 * 
+	 * @see Simulation#getStatus()
+	 */
+	public synchronized boolean isLoadFailed() {
+		return loadFailed;
+	}
+	
+	/**
+	 * Load the data branches using the branch loader, if not already done.
+	 * If loading fails, the data contains no branches and is marked as failed.
+	 */
+	private synchronized void loadBranches() {
+		if (branchLoader == null)
+			return;
+		
+		FlightDataBranchLoader loader = branchLoader;
+		branchLoader = null;
+		List<FlightDataBranch> loaded;
+		try {
+			loaded = loader.loadBranches();
+		} catch (IOException e) {
+			log.error("Unable to load flight data branches, the simulation must be run again", e);
+			loadFailed = true;
+			return;
+		}
+		for (FlightDataBranch b : loaded) {
+			b.immute();
+			branches.add(b);
+		}
+	}
+	
+	
 
 	public double getMaxAltitude() {
 		return maxAltitude;
@@ -203,8 +270,8 @@ public class FlightData {
 		
 
 		// Time to apogee
-		List<Double> time = branch.get(FlightDataType.TYPE_TIME);
-		List<Double> altitude = branch.get(FlightDataType.TYPE_ALTITUDE);
+		List<Double> time = getView(branch, FlightDataType.TYPE_TIME);
+		List<Double> altitude = getView(branch, FlightDataType.TYPE_ALTITUDE);
 		
 		if (time == null || altitude == null) {
 			timeToApogee = Double.NaN;
@@ -230,17 +297,17 @@ public class FlightData {
 		for (FlightEvent event : branch.getEvents()) {
 			if (event.getType() == FlightEvent.Type.LAUNCHROD) {
 				double t = event.getTime();
-				List<Double> velocity = branch.get(FlightDataType.TYPE_VELOCITY_TOTAL);
+				List<Double> velocity = getView(branch, FlightDataType.TYPE_VELOCITY_TOTAL);
 				launchRodVelocity = MathUtil.interpolate( time, velocity, t);
 			} else if ( event.getType() == FlightEvent.Type.RECOVERY_DEVICE_DEPLOYMENT) {
 				double t = event.getTime();
-				List<Double> velocity = branch.get(FlightDataType.TYPE_VELOCITY_TOTAL);
+				List<Double> velocity = getView(branch, FlightDataType.TYPE_VELOCITY_TOTAL);
 				deploymentVelocity = MathUtil.interpolate( time, velocity, t);
 			}
 		}
 		
 		// Max. acceleration (must be after apogee time)
-		if (branch.get(FlightDataType.TYPE_ACCELERATION_TOTAL) != null) {
+		if (branch.getColumn(FlightDataType.TYPE_ACCELERATION_TOTAL) != null) {
 			maxAcceleration = calculateMaxAcceleration();
 		} else {
 			maxAcceleration = Double.NaN;
@@ -290,8 +357,8 @@ public class FlightData {
 			}
 		}
 		
-		List<Double> time = branch.get(FlightDataType.TYPE_TIME);
-		List<Double> acceleration = branch.get(FlightDataType.TYPE_ACCELERATION_TOTAL);
+		FlightDataColumn time = branch.getColumn(FlightDataType.TYPE_TIME);
+		FlightDataColumn acceleration = branch.getColumn(FlightDataType.TYPE_ACCELERATION_TOTAL);
 		
 		if (time == null || acceleration == null) {
 			return Double.NaN;
@@ -310,4 +377,17 @@ public class FlightData {
 		
 		return max;
 	}
+	
+	
+	/**
+	 * Return a read-only view of the values of the given type, or <code>null</code> if
+	 * the branch does not contain the type.
+	 */
+	private static List<Double> getView(FlightDataBranch branch, FlightDataType type) {
+		FlightDataColumn column = branch.getColumn(type);
+		if (column == null)
+			return null;
+		return column.asList();
+	}
+	
 }
@@ -1,7 +1,6 @@
 package net.sf.openrocket.simulation;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +20,10 @@ import net.sf.openrocket.util.Mutable;
  * not defined in the constructor can be added using {@link #setValue(FlightDataType, double)}, they
  * will be created and all previous values will be set to NaN.
  * <p>
+ * The values are stored column-wise in primitive arrays (see {@link FlightDataColumn}), optionally
+ * in single precision.  {@link #getColumn(FlightDataType)} provides read access to the data
+ * without copying it.
+ * <p>
  * After populating a FlightDataBranch object it can be made immutable by calling {@link #immute()}.
  * 
  * @author Sampo Niskanen <sampo.niskanen@iki.fi>
@@ -30,11 +33,14 @@ public class FlightDataBranch implements Monitorable {
 	/** The name of this flight data branch. */
 	private final String branchName;
 	
-	private final Map<FlightDataType, ArrayList<Double>> values =
-			new LinkedHashMap<FlightDataType, ArrayList<Double>>();
+	/** Whether new columns store their values in single precision. */
+	private final boolean singlePrecision;
+	
+	private final Map<FlightDataType, FlightDataColumn> values =
+			new LinkedHashMap<FlightDataType, FlightDataColumn>();
 	
-	private final Map<FlightDataType, Double> maxValues = new HashMap<FlightDataType, Double>();
-	private final Map<FlightDataType, Double> minValues = new HashMap<FlightDataType, Double>();
+	/** Number of data points in this branch. */
+	private int length = 0;
 	
 	/**
 	 * time for the rocket to reach apogee if the flight had been no recovery deployment
@@ -52,17 +58,31 @@ public class FlightDataBranch implements Monitorable {
 	private int modID = 0;
 	
 	/**
-	 * Sole constructor.  Defines the name of the FlightDataBranch and at least one variable type.
+	 * Constructor.  Defines the name of the FlightDataBranch and at least one variable type.
+	 * The data is stored in double precision.
 	 * 
 	 * @param name		the name of this FlightDataBranch.
 	 * @param types		data types to include (must include at least one type).
 	 */
 	public FlightDataBranch(String name, FlightDataType... types) {
+		this(name, false, types);
+	}
+	
+	/**
+	 * Constructor.  Defines the name of the FlightDataBranch, the storage precision and
+	 * at least one variable type.
+	 * 
+	 * @param name				the name of this FlightDataBranch.
+	 * @param singlePrecision	whether to store the data values as floats instead of doubles.
+	 * @param types				data types to include (must include at least one type).
+	 */
+	public FlightDataBranch(String name, boolean singlePrecision, FlightDataType... types) {
 		if (types.length == 0) {
 			throw new IllegalArgumentException("Must specify at least one data type.");
 		}
 		
 		this.branchName = name;
+		this.singlePrecision = singlePrecision;
 		
 		for (FlightDataType t : types) {
 			if (values.containsKey(t)) {
@@ -70,9 +90,7 @@ public class FlightDataBranch implements Monitorable {
 						"times in constructor.");
 			}
 			
-			values.put(t, new ArrayList<Double>());
-			minValues.put(t, Double.NaN);
-			maxValues.put(t, Double.NaN);
+			values.put(t, new FlightDataColumn(singlePrecision, 0));
 		}
 	}
 	
@@ -81,6 +99,7 @@ public class FlightDataBranch implements Monitorable {
 	 */
 	public FlightDataBranch() {
 		branchName = "Empty branch";
+		singlePrecision = false;
 		for (FlightDataType type : FlightDataType.ALL_TYPES) {
 			this.setValue(type, Double.NaN);
 		}
@@ -95,9 +114,51 @@ public class FlightDataBranch implements Monitorable {
 	public void addPoint() {
 		mutable.check();
 		
-		for (FlightDataType t : values.keySet()) {
-			values.get(t).add(Double.NaN);
+		for (FlightDataColumn column : values.values()) {
+			column.add(Double.NaN);
+		}
+		length++;
+		modID++;
+	}
+	
+	
+	/**
+	 * Adds several points into the data branch at once.  The values of each given type
+	 * are read from the corresponding array of <code>data</code>, which must contain at
+	 * least <code>count</code> values.  The values of types defined in this branch but
+	 * not given are set to NaN.
+	 * 
+	 * @param count		the number of points to add.
+	 * @param types		the types of the given values.
+	 * @param data		the values of each type.
+	 * @throws IllegalStateException	if this object has been made immutable.
+	 * @throws IllegalArgumentException	if a type is not defined in this branch or
+	 * 									too few values are given.
+	 */
+	public void addPoints(int count, FlightDataType[] types, double[][] data) {
+		mutable.check();
+		
+		if (types.length != data.length) {
+			throw new IllegalArgumentException("types.length=" + types.length + " data.length=" + data.length);
+		}
+		for (int i = 0; i < types.length; i++) {
+			if (!values.containsKey(types[i])) {
+				throw new IllegalArgumentException("Type " + types[i] + " not defined in branch");
+			}
+			if (data[i].length < count) {
+				throw new IllegalArgumentException("Too few values for type " + types[i]);
+			}
+		}
+		
+		for (Map.Entry<FlightDataType, FlightDataColumn> entry : values.entrySet()) {
+			int index = Arrays.asList(types).indexOf(entry.getKey());
+			if (index >= 0) {
+				entry.getValue().addAll(data[index], 0, count);
+			} else {
+				entry.getValue().fill(Double.NaN, count);
+			}
 		}
+		length += count;
 		modID++;
 	}
 	
@@ -113,32 +174,15 @@ public class FlightDataBranch implements Monitorable {
 	public void setValue(FlightDataType type, double value) {
 		mutable.check();
 		
-		ArrayList<Double> list = values.get(type);
+		FlightDataColumn column = values.get(type);
 		
-		if (list == null) {
-			list = new ArrayList<Double>();
-			int n = getLength();
-			for (int i = 0; i < n; i++) {
-				list.add(Double.NaN);
-			}
-			values.put(type, list);
-			minValues.put(type, value);
-			maxValues.put(type, value);
-		}
-		
-		if (list.size() > 0) {
-			list.set(list.size() - 1, value);
+		if (column == null) {
+			column = new FlightDataColumn(singlePrecision, length);
+			column.fill(Double.NaN, length);
+			values.put(type, column);
 		}
 		
-		double min = minValues.get(type);
-		double max = maxValues.get(type);
-		
-		if (Double.isNaN(min) || (value < min)) {
-			minValues.put(type, value);
-		}
-		if (Double.isNaN(max) || (value > max)) {
-			maxValues.put(type, value);
-		}
+		column.setLast(value);
 		modID++;
 	}
 	
@@ -160,28 +204,53 @@ public class FlightDataBranch implements Monitorable {
 		return array;
 	}
 	
+	/**
+	 * Return the number of variable types included in this branch.
+	 */
+	public int getTypeCount() {
+		return values.size();
+	}
+	
 	/**
 	 * Return the number of data points in this branch.
 	 */
 	public int getLength() {
-		for (FlightDataType t : values.keySet()) {
-			return values.get(t).size();
-		}
-		return 0;
+		return length;
+	}
+	
+	/**
+	 * Return whether the values of this branch are stored in single precision.
+	 */
+	public boolean isSinglePrecision() {
+		return singlePrecision;
 	}
 	
 	/**
-	 * Return an array of values for the specified variable type.
+	 * Return an array of values for the specified variable type.  The returned list
+	 * is a copy of the data.  Use {@link #getColumn(FlightDataType)} to access the data
+	 * without copying it.
 	 * 
 	 * @param type	the variable type.
 	 * @return		a list of the variable values, or <code>null</code> if
 	 * 				the variable type hasn't been added to this branch.
 	 */
 	public List<Double> get(FlightDataType type) {
-		ArrayList<Double> list = values.get(type);
-		if (list == null)
+		FlightDataColumn column = values.get(type);
+		if (column == null)
 			return null;
-		return list.clone();
+		return new ArrayList<Double>(column.asList());
+	}
+	
+	/**
+	 * Return the column of values for the specified variable type.  The column is not
+	 * a copy, and it reflects any points added to this branch later on.
+	 * 
+	 * @param type	the variable type.
+	 * @return		the column of the variable values, or <code>null</code> if
+	 * 				the variable type hasn't been added to this branch.
+	 */
+	public FlightDataColumn getColumn(FlightDataType type) {
+		return values.get(type);
 	}
 	
 	/**
@@ -192,10 +261,10 @@ public class FlightDataBranch implements Monitorable {
 	 * @return		the last value in this branch, or NaN.
 	 */
 	public double getLast(FlightDataType type) {
-		ArrayList<Double> list = values.get(type);
-		if (list == null || list.isEmpty())
+		FlightDataColumn column = values.get(type);
+		if (column == null)
 			return Double.NaN;
-		return list.get(list.size() - 1);
+		return column.getLast();
 	}
 	
 	/**
@@ -206,10 +275,10 @@ public class FlightDataBranch implements Monitorable {
 	 * @return		the minimum value in this branch, or NaN.
 	 */
 	public double getMinimum(FlightDataType type) {
-		Double v = minValues.get(type);
-		if (v == null)
+		FlightDataColumn column = values.get(type);
+		if (column == null)
 			return Double.NaN;
-		return v;
+		return column.getMinimum();
 	}
 	
 	/**
@@ -220,10 +289,10 @@ public class FlightDataBranch implements Monitorable {
 	 * @return		the maximum value in this branch, or NaN.
 	 */
 	public double getMaximum(FlightDataType type) {
-		Double v = maxValues.get(type);
-		if (v == null)
+		FlightDataColumn column = values.get(type);
+		if (column == null)
 			return Double.NaN;
-		return v;
+		return column.getMaximum();
 	}
 	
 	
@@ -325,8 +394,14 @@ public class FlightDataBranch implements Monitorable {
 	/**
 	 * Make this FlightDataBranch immutable.  Any calls to the set methods that would
 	 * modify this object will after this call throw an <code>IllegalStateException</code>.
+	 * Any unused capacity of the data columns is released.
 	 */
 	public void immute() {
+		if (mutable.isMutable()) {
+			for (FlightDataColumn column : values.values()) {
+				column.trimToSize();
+			}
+		}
 		mutable.immute();
 	}
 	
@@ -0,0 +1,22 @@
+package net.sf.openrocket.simulation;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A loader of the data branches of a {@link FlightData} object.  This allows stored
+ * simulation data to be read only when it is first accessed.
+ *
+ * @see FlightData#setBranchLoader(FlightDataBranchLoader)
+ */
+public interface FlightDataBranchLoader {
+
+	/**
+	 * Load the data branches.  This method is called at most once.
+	 *
+	 * @return	the data branches, in order.
+	 * @throws IOException	if the data cannot be read.
+	 */
+	public List<FlightDataBranch> loadBranches() throws IOException;
+
+}
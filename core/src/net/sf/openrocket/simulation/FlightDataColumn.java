@@ -0,0 +1,268 @@
+package net.sf.openrocket.simulation;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A single column of flight data values stored in a primitive array.  The column
+ * grows automatically as values are added, and keeps track of its minimum and
+ * maximum values.
+ * <p>
+ * The values may optionally be stored in single precision, which halves the
+ * memory required at the cost of roughly seven significant digits of accuracy.
+ * All values are returned as doubles regardless of the storage precision.
+ * <p>
+ * The column may be read by anyone, but only the owning {@link FlightDataBranch}
+ * may modify it.  The object returned by {@link #asList()} is a read-only view
+ * backed by this column, and reflects any values added later on.
+ */
+public final class FlightDataColumn {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final boolean singlePrecision;
+	private double[] doubleValues;
+	private float[] floatValues;
+	private int size = 0;
+
+	private double minimum = Double.NaN;
+	private double maximum = Double.NaN;
+
+
+	/**
+	 * Create a new column.
+	 *
+	 * @param singlePrecision	whether to store the values as floats instead of doubles.
+	 * @param capacity			the initial capacity of the column.
+	 */
+	FlightDataColumn(boolean singlePrecision, int capacity) {
+		this.singlePrecision = singlePrecision;
+		capacity = Math.max(capacity, INITIAL_CAPACITY);
+		if (singlePrecision) {
+			floatValues = new float[capacity];
+		} else {
+			doubleValues = new double[capacity];
+		}
+	}
+
+
+	/**
+	 * Append a value to the end of this column.
+	 */
+	void add(double value) {
+		ensureCapacity(size + 1);
+		size++;
+		store(size - 1, value);
+	}
+
+	/**
+	 * Append <code>count</code> copies of a value to the end of this column.
+	 */
+	void fill(double value, int count) {
+		ensureCapacity(size + count);
+		if (singlePrecision) {
+			Arrays.fill(floatValues, size, size + count, (float) value);
+			updateLimits((float) value);
+		} else {
+			Arrays.fill(doubleValues, size, size + count, value);
+			updateLimits(value);
+		}
+		size += count;
+	}
+
+	/**
+	 * Append values from an array to the end of this column.
+	 */
+	void addAll(double[] src, int srcPos, int count) {
+		ensureCapacity(size + count);
+		for (int i = 0; i < count; i++) {
+			store(size + i, src[srcPos + i]);
+		}
+		size += count;
+	}
+
+	/**
+	 * Set the last value of this column.  If the column is empty, only the
+	 * minimum and maximum values are updated.
+	 */
+	void setLast(double value) {
+		if (size > 0) {
+			store(size - 1, value);
+		} else {
+			updateLimits(singlePrecision ? (float) value : value);
+		}
+	}
+
+	/**
+	 * Set the value at the specified index.
+	 */
+	void set(int index, double value) {
+		checkIndex(index);
+		store(index, value);
+	}
+
+	/**
+	 * Release any unused capacity of this column.
+	 */
+	void trimToSize() {
+		if (singlePrecision) {
+			if (floatValues.length > size) {
+				floatValues = Arrays.copyOf(floatValues, size);
+			}
+		} else {
+			if (doubleValues.length > size) {
+				doubleValues = Arrays.copyOf(doubleValues, size);
+			}
+		}
+	}
+
+
+	/**
+	 * Return whether this column stores its values in single precision.
+	 */
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * Return the number of values in this column.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the value at the specified index.
+	 *
+	 * @throws IndexOutOfBoundsException	if the index is out of range.
+	 */
+	public double get(int index) {
+		checkIndex(index);
+		if (singlePrecision) {
+			return floatValues[index];
+		}
+		return doubleValues[index];
+	}
+
+	/**
+	 * Return the last value of this column, or NaN if the column is empty.
+	 */
+	public double getLast() {
+		if (size == 0) {
+			return Double.NaN;
+		}
+		if (singlePrecision) {
+			return floatValues[size - 1];
+		}
+		return doubleValues[size - 1];
+	}
+
+	/**
+	 * Return the minimum value stored in this column, or NaN if no non-NaN values have been stored.
+	 */
+	public double getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * Return the maximum value stored in this column, or NaN if no non-NaN values have been stored.
+	 */
+	public double getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * Copy the values of this column into a new array.
+	 */
+	public double[] toArray() {
+		double[] array = new double[size];
+		copyTo(0, array, 0, size);
+		return array;
+	}
+
+	/**
+	 * Copy values from this column into an array.
+	 *
+	 * @param srcPos	the first index of this column to copy.
+	 * @param dest		the destination array.
+	 * @param destPos	the first index of the destination array to write.
+	 * @param length	the number of values to copy.
+	 */
+	public void copyTo(int srcPos, double[] dest, int destPos, int length) {
+		if (srcPos < 0 || length < 0 || srcPos + length > size) {
+			throw new IndexOutOfBoundsException("srcPos=" + srcPos + " length=" + length + " size=" + size);
+		}
+		if (singlePrecision) {
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = floatValues[srcPos + i];
+			}
+		} else {
+			System.arraycopy(doubleValues, srcPos, dest, destPos, length);
+		}
+	}
+
+	/**
+	 * Return a read-only list view of this column.  The view is not a copy; it
+	 * reflects later changes to the column.
+	 */
+	public List<Double> asList() {
+		return new ColumnView();
+	}
+
+
+
+	private void store(int index, double value) {
+		if (singlePrecision) {
+			float f = (float) value;
+			floatValues[index] = f;
+			updateLimits(f);
+		} else {
+			doubleValues[index] = value;
+			updateLimits(value);
+		}
+	}
+
+	private void updateLimits(double value) {
+		if (Double.isNaN(minimum) || value < minimum) {
+			minimum = value;
+		}
+		if (Double.isNaN(maximum) || value > maximum) {
+			maximum = value;
+		}
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		int capacity = singlePrecision ? floatValues.length : doubleValues.length;
+		if (minCapacity <= capacity) {
+			return;
+		}
+		int newCapacity = Math.max(capacity + (capacity >> 1), minCapacity);
+		if (singlePrecision) {
+			floatValues = Arrays.copyOf(floatValues, newCapacity);
+		} else {
+			doubleValues = Arrays.copyOf(doubleValues, newCapacity);
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+	}
+
+
+	private class ColumnView extends AbstractList<Double> implements RandomAccess {
+		@Override
+		public Double get(int index) {
+			return FlightDataColumn.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+}
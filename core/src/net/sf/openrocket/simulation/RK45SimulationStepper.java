@@ -0,0 +1,508 @@
+package net.sf.openrocket.simulation;
+
+import net.sf.openrocket.l10n.Translator;
+import net.sf.openrocket.motor.MotorId;
+import net.sf.openrocket.motor.MotorInstance;
+import net.sf.openrocket.motor.MotorInstanceConfiguration;
+import net.sf.openrocket.rocketcomponent.RocketComponent;
+import net.sf.openrocket.simulation.exception.SimulationCalculationException;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.startup.Application;
+import net.sf.openrocket.util.Coordinate;
+import net.sf.openrocket.util.MathUtil;
+import net.sf.openrocket.util.Quaternion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A simulation stepper using the Dormand-Prince embedded Runge-Kutta method of order
+ * 5(4).  The time step is selected from an estimate of the local truncation error, so
+ * that the error of each step stays within the relative and absolute tolerances of the
+ * simulation conditions.
+ * <p>
+ * The steps may be much longer than the time step of the simulation conditions, which
+ * instead sets the interval of the stored data points.  The points between the ends
+ * of a long step are interpolated:  the position, velocity and orientation using the
+ * dense output of the method, and the other values linearly between the ends of the
+ * step.
+ * <p>
+ * The aerodynamic, mass and thrust computations are those of {@link RK4SimulationStepper}.
+ * The time step is additionally limited while on the launch rod and while the motors
+ * are burning, since the thrust is averaged over each step.  A step never extends past
+ * the burnout of a motor, so that burnout is detected at the end of the thrust curve.
+ * <p>
+ * If a {@link StepEventLocator} is given, each step is ended at the first event it
+ * locates on the dense output of the step.  Otherwise the time step is also limited
+ * when approaching apogee or the ground, so that these are detected with the accuracy
+ * of the data points.
+ */
+public class RK45SimulationStepper extends RK4SimulationStepper {
+
+	private static final Logger log = LoggerFactory.getLogger(RK45SimulationStepper.class);
+	private static final Translator trans = Application.getTranslator();
+
+
+	/**
+	 * A recommended relative error tolerance of a single step.
+	 */
+	public static final double RECOMMENDED_RELATIVE_TOLERANCE = 1e-6;
+
+	/**
+	 * A recommended absolute error tolerance of a single step.
+	 */
+	public static final double RECOMMENDED_ABSOLUTE_TOLERANCE = 1e-4;
+
+
+	private static final double MIN_TIME_STEP = 0.0001;
+
+	// Limits of the factor by which the time step changes between steps
+	private static final double SAFETY_FACTOR = 0.9;
+	private static final double MIN_STEP_FACTOR = 0.2;
+	private static final double MAX_STEP_FACTOR = 5;
+
+
+	// Indices of the state vector:  position, velocity, rotation velocity and orientation change
+	private static final int POSITION = 0;
+	private static final int VELOCITY = 3;
+	private static final int ROTATION_VELOCITY = 6;
+	private static final int ORIENTATION = 9;
+	private static final int STATE_SIZE = 12;
+
+	private static final int STAGES = 7;
+
+	// Dormand-Prince coefficients.  The last stage is evaluated at the result of the step.
+	private static final double[] C = { 0, 1.0 / 5, 3.0 / 10, 4.0 / 5, 8.0 / 9, 1, 1 };
+	private static final double[][] A = {
+			{},
+			{ 1.0 / 5 },
+			{ 3.0 / 40, 9.0 / 40 },
+			{ 44.0 / 45, -56.0 / 15, 32.0 / 9 },
+			{ 19372.0 / 6561, -25360.0 / 2187, 64448.0 / 6561, -212.0 / 729 },
+			{ 9017.0 / 3168, -355.0 / 33, 46732.0 / 5247, 49.0 / 176, -5103.0 / 18656 },
+			{ 35.0 / 384, 0, 500.0 / 1113, 125.0 / 192, -2187.0 / 6784, 11.0 / 84 }
+	};
+	// Difference between the fifth and fourth order solutions
+	private static final double[] E = {
+			71.0 / 57600, 0, -71.0 / 16695, 71.0 / 1920, -17253.0 / 339200, 22.0 / 525, -1.0 / 40
+	};
+	// Coefficients of the dense output
+	private static final double[] D = {
+			-12715105075.0 / 11282082432.0, 0, 87487479700.0 / 32700410799.0, -10690763975.0 / 1880347072.0,
+			701980252875.0 / 199316789632.0, -1453857185.0 / 822651844.0, 69997945.0 / 29380423.0
+	};
+
+
+	private final RK4Parameters parameters = new RK4Parameters();
+	private final double[][] slopes = new double[STAGES][STATE_SIZE];
+	private final double[] initial = new double[STATE_SIZE];
+	private final double[] result = new double[STATE_SIZE];
+	private final double[] stage = new double[STATE_SIZE];
+	private final double[] endState = new double[STATE_SIZE];
+
+	// The data of the start and the end of the step
+	private final DataStore startStore = new DataStore();
+	private final DataStore store = new DataStore();
+
+	private double nextTimeStep;
+
+	private final StepEventLocator eventLocator;
+	private final Interpolant interpolant = new Interpolant();
+
+
+	/**
+	 * Create a stepper that detects events only at the ends of the steps.
+	 */
+	public RK45SimulationStepper() {
+		this(null);
+	}
+
+	/**
+	 * Create a stepper that ends each step at the first event found by an event locator.
+	 *
+	 * @param eventLocator	the event locator, or <code>null</code> for none.
+	 */
+	public RK45SimulationStepper(StepEventLocator eventLocator) {
+		this.eventLocator = eventLocator;
+	}
+
+
+
+	@Override
+	public RK4SimulationStatus initialize(SimulationStatus original) {
+		RK4SimulationStatus status = super.initialize(original);
+		nextTimeStep = status.getPreviousTimeStep();
+		store.reset();
+		return status;
+	}
+
+
+
+	@Override
+	public void step(SimulationStatus simulationStatus, double maxTimeStep) throws SimulationException {
+
+		RK4SimulationStatus status = (RK4SimulationStatus) simulationStatus;
+		SimulationConditions conditions = status.getSimulationConditions();
+		double outputInterval = MathUtil.max(conditions.getTimeStep(), MIN_TIME_STEP);
+
+		double timestep = MathUtil.max(MathUtil.min(nextTimeStep, getMaxTimeStep(status, outputInterval, maxTimeStep)),
+				MIN_TIME_STEP);
+		checkNaN(timestep);
+
+		double pitchRandom = randomMomentPerturbation();
+		double yawRandom = randomMomentPerturbation();
+
+		getState(status, initial);
+
+		/*
+		 * Take the step, reducing the time step until the error estimate is within the
+		 * tolerances.  The tolerances are ignored at the minimum time step.  The motors
+		 * are stepped on a copy, which is kept only once the step is accepted.
+		 */
+		MotorInstanceConfiguration motors = status.getMotorConfiguration();
+		double error;
+		while (true) {
+			status.setMotorConfiguration(motors.clone());
+			double thrust = calculateThrust(status, timestep, status.getPreviousAcceleration(),
+					status.getPreviousAtmosphericConditions(), true);
+			startStore.reset();
+			startStore.timestep = timestep;
+			startStore.thrustForce = thrust;
+			startStore.pitchRandom = pitchRandom;
+			startStore.yawRandom = yawRandom;
+			store.reset();
+			store.timestep = timestep;
+			store.thrustForce = thrust;
+			store.pitchRandom = pitchRandom;
+			store.yawRandom = yawRandom;
+
+			computeStages(status, timestep);
+			error = getErrorNorm(timestep, conditions.getRelativeTolerance(), conditions.getAbsoluteTolerance());
+
+			if (error <= 1 || timestep <= MIN_TIME_STEP) {
+				break;
+			}
+			double reduced = MathUtil.max(timestep * MathUtil.max(SAFETY_FACTOR * Math.pow(error, -0.2),
+					MIN_STEP_FACTOR), MIN_TIME_STEP);
+			log.trace("Rejected time step " + timestep + " with error " + error + ", retrying with " + reduced);
+			timestep = reduced;
+		}
+
+		if (error > 1) {
+			log.trace("Error " + error + " exceeds the tolerances at the minimum time step " + timestep);
+		}
+		if (error > 0) {
+			nextTimeStep = timestep * MathUtil.clamp(SAFETY_FACTOR * Math.pow(error, -0.2),
+					MIN_STEP_FACTOR, MAX_STEP_FACTOR);
+		} else {
+			nextTimeStep = timestep * MAX_STEP_FACTOR;
+		}
+
+		/*
+		 * End the step at the first located event.  The motors are then stepped again
+		 * only up to the event, so that burnout is not detected early.
+		 */
+		double startTime = status.getSimulationTime();
+		double length = timestep;
+		System.arraycopy(result, 0, endState, 0, STATE_SIZE);
+		if (eventLocator != null) {
+			interpolant.startTime = startTime;
+			interpolant.timestep = timestep;
+			double endTime = eventLocator.locateEvent(status, interpolant);
+			if (endTime < startTime + timestep) {
+				length = endTime - startTime;
+				log.trace("Ending step at event after " + length + " of " + timestep);
+				for (int i = 0; i < STATE_SIZE; i++) {
+					endState[i] = interpolate(i, length / timestep, timestep);
+				}
+				status.setMotorConfiguration(motors.clone());
+				calculateThrust(status, length, status.getPreviousAcceleration(),
+						status.getPreviousAtmosphericConditions(), true);
+			}
+		}
+
+		// Store the data at the start of the step and advance the status to its end
+		storeData(status, startStore, status.getFlightData());
+
+		Quaternion startOrientation = status.getRocketOrientationQuaternion();
+		setState(status, startTime + length, endState, startOrientation);
+		status.setRocketOrientationQuaternion(status.getRocketOrientationQuaternion().normalizeIfNecessary());
+		status.setPreviousTimeStep(length);
+
+		int points = (int) Math.ceil(length / outputInterval - 0.0001);
+		if (points > 1) {
+			storeIntermediateData(status, startTime, startOrientation, timestep, length, points);
+		}
+
+		// Verify that values don't run out of range
+		if (status.getRocketVelocity().length2() > 1e18 ||
+				status.getRocketPosition().length2() > 1e18 ||
+				status.getRocketRotationVelocity().length2() > 1e18) {
+			throw new SimulationCalculationException(trans.get("error.valuesTooLarge"));
+		}
+	}
+
+
+	/**
+	 * Return the maximum time step to take from the current status.
+	 */
+	private double getMaxTimeStep(RK4SimulationStatus status, double outputInterval, double maxTimeStep) {
+		SimulationConditions conditions = status.getSimulationConditions();
+		double max = maxTimeStep;
+
+		Coordinate velocity = status.getRocketVelocity();
+		if (!status.isLaunchRodCleared()) {
+			max = MathUtil.min(max, outputInterval / 5);
+			if (velocity.length() > 0) {
+				max = MathUtil.min(max, conditions.getLaunchRodLength() / velocity.length() / 10);
+			}
+		}
+
+		// End the step at the burnout of a motor, so that burnout is detected at its time
+		double burnout = getTimeToBurnout(status);
+		if (!Double.isNaN(burnout)) {
+			max = MathUtil.min(max, outputInterval, MathUtil.max(burnout, MIN_TIME_STEP));
+		}
+
+		// Apogee and ground hit are located within the steps by the event locator
+		if (eventLocator != null) {
+			return max;
+		}
+
+		// Approach apogee and the ground in steps that halve the remaining time
+		if (!status.isLiftoff()) {
+			// Nothing to approach yet
+		} else if (!status.isApogeeReached()) {
+			if (velocity.z > 0 && store.linearAcceleration != null && store.linearAcceleration.z < 0) {
+				max = MathUtil.min(max, MathUtil.max(velocity.z / -store.linearAcceleration.z / 2, outputInterval));
+			} else if (velocity.z <= 0) {
+				max = MathUtil.min(max, outputInterval);
+			}
+		} else if (velocity.z < 0) {
+			max = MathUtil.min(max, MathUtil.max(status.getRocketPosition().z / -velocity.z / 2, outputInterval));
+		}
+
+		return max;
+	}
+
+
+	/**
+	 * Return the time from the current time until the first burnout of an active motor
+	 * of the active stages, or NaN if there is no such motor.  Motors that have not
+	 * been ignited yet have an infinite time to burnout.
+	 */
+	private double getTimeToBurnout(SimulationStatus status) {
+		MotorInstanceConfiguration motors = status.getMotorConfiguration();
+		double time = Double.NaN;
+		for (MotorId id : motors.getMotorIDs()) {
+			MotorInstance motor = motors.getMotorInstance(id);
+			if (motor.isActive() &&
+					status.getConfiguration().isComponentActive((RocketComponent) motors.getMotorMount(id))) {
+				double burnout = motors.getMotorIgnitionTime(id) + motor.getBurnoutTime() - status.getSimulationTime();
+				time = MathUtil.min(time, burnout);
+			}
+		}
+		return time;
+	}
+
+
+	/**
+	 * Compute the slopes of all stages of a step.  The result of the step is stored
+	 * in {@link #result} and the data at its start and end in the data stores.
+	 */
+	private void computeStages(RK4SimulationStatus status, double timestep) throws SimulationException {
+
+		computeParameters(status, startStore, parameters);
+		getSlope(parameters, slopes[0]);
+
+		double time = status.getSimulationTime();
+		Quaternion orientation = status.getRocketOrientationQuaternion();
+		for (int s = 1; s < STAGES; s++) {
+			double[] state = (s == STAGES - 1) ? result : stage;
+			for (int i = 0; i < STATE_SIZE; i++) {
+				double sum = 0;
+				for (int j = 0; j < s; j++) {
+					sum += A[s][j] * slopes[j][i];
+				}
+				state[i] = initial[i] + timestep * sum;
+			}
+
+			computeParametersAt(status, store, time + C[s] * timestep,
+					new Coordinate(state[POSITION], state[POSITION + 1], state[POSITION + 2]),
+					new Coordinate(state[VELOCITY], state[VELOCITY + 1], state[VELOCITY + 2]),
+					orientation.multiplyLeftRotation(state[ORIENTATION], state[ORIENTATION + 1], state[ORIENTATION + 2]),
+					new Coordinate(state[ROTATION_VELOCITY], state[ROTATION_VELOCITY + 1], state[ROTATION_VELOCITY + 2]),
+					parameters);
+			getSlope(parameters, slopes[s]);
+		}
+	}
+
+
+	/**
+	 * Return the root mean square of the estimated error of the step relative to the
+	 * tolerances.  The orientation change is compared to one radian.
+	 */
+	private double getErrorNorm(double timestep, double relativeTolerance, double absoluteTolerance) {
+		double sum = 0;
+		for (int i = 0; i < STATE_SIZE; i++) {
+			double error = 0;
+			for (int j = 0; j < STAGES; j++) {
+				error += E[j] * slopes[j][i];
+			}
+			error *= timestep;
+
+			double scale;
+			if (i < ORIENTATION) {
+				scale = absoluteTolerance + relativeTolerance * MathUtil.max(Math.abs(initial[i]), Math.abs(result[i]));
+			} else {
+				scale = absoluteTolerance + relativeTolerance;
+			}
+			sum += MathUtil.pow2(error / scale);
+		}
+		return Math.sqrt(sum / STATE_SIZE);
+	}
+
+
+	/**
+	 * Store the points between the ends of the step.  The status is at the end of the
+	 * step, and the data at the start of the step is the last point of the flight data.
+	 * The state values of the points are computed from the dense output of the step,
+	 * and all other values are interpolated linearly between the ends of the computed
+	 * step, which may extend beyond the end of a step ended at an event.
+	 */
+	private void storeIntermediateData(RK4SimulationStatus status, double startTime, Quaternion startOrientation,
+			double timestep, double length, int points) {
+
+		FlightDataBranch data = status.getFlightData();
+		FlightDataBranch end = new FlightDataBranch(data.getBranchName(), FlightDataType.TYPE_TIME);
+		storeData(status, store, end);
+
+		FlightDataType[] types = end.getTypes();
+		double[] startValues = new double[types.length];
+		double[] endValues = new double[types.length];
+		for (int i = 0; i < types.length; i++) {
+			startValues[i] = data.getLast(types[i]);
+			endValues[i] = end.getLast(types[i]);
+		}
+
+		double endTime = status.getSimulationTime();
+		Quaternion endOrientation = status.getRocketOrientationQuaternion();
+		for (int n = 1; n < points; n++) {
+			double theta = length * n / points / timestep;
+			for (int i = 0; i < STATE_SIZE; i++) {
+				stage[i] = interpolate(i, theta, timestep);
+			}
+
+			data.addPoint();
+			for (int i = 0; i < types.length; i++) {
+				data.setValue(types[i], startValues[i] + theta * (endValues[i] - startValues[i]));
+			}
+			setState(status, startTime + theta * timestep, stage, startOrientation);
+			storeStateData(status, data);
+		}
+
+		setState(status, endTime, endState, startOrientation);
+		status.setRocketOrientationQuaternion(endOrientation);
+	}
+
+
+	/**
+	 * Return a component of the dense output of the step at the fraction theta of the step.
+	 */
+	private double interpolate(int i, double theta, double timestep) {
+		double y0 = initial[i];
+		double difference = result[i] - y0;
+		double start = timestep * slopes[0][i] - difference;
+		double end = difference - timestep * slopes[STAGES - 1][i] - start;
+		double dense = 0;
+		for (int j = 0; j < STAGES; j++) {
+			dense += D[j] * slopes[j][i];
+		}
+		dense *= timestep;
+		return y0 + theta * (difference + (1 - theta) * (start + theta * (end + (1 - theta) * dense)));
+	}
+
+
+	/**
+	 * The dense output of the last computed step, for the event locator.
+	 */
+	private class Interpolant implements StepInterpolant {
+		private double startTime;
+		private double timestep;
+
+		@Override
+		public double getStartTime() {
+			return startTime;
+		}
+
+		@Override
+		public double getEndTime() {
+			return startTime + timestep;
+		}
+
+		@Override
+		public Coordinate getPosition(double time) {
+			return get(POSITION, time);
+		}
+
+		@Override
+		public Coordinate getVelocity(double time) {
+			return get(VELOCITY, time);
+		}
+
+		private Coordinate get(int index, double time) {
+			double theta = (time - startTime) / timestep;
+			return new Coordinate(interpolate(index, theta, timestep), interpolate(index + 1, theta, timestep),
+					interpolate(index + 2, theta, timestep));
+		}
+	}
+
+
+	private static void getState(SimulationStatus status, double[] state) {
+		Coordinate position = status.getRocketPosition();
+		Coordinate velocity = status.getRocketVelocity();
+		Coordinate rotationVelocity = status.getRocketRotationVelocity();
+		state[POSITION] = position.x;
+		state[POSITION + 1] = position.y;
+		state[POSITION + 2] = position.z;
+		state[VELOCITY] = velocity.x;
+		state[VELOCITY + 1] = velocity.y;
+		state[VELOCITY + 2] = velocity.z;
+		state[ROTATION_VELOCITY] = rotationVelocity.x;
+		state[ROTATION_VELOCITY + 1] = rotationVelocity.y;
+		state[ROTATION_VELOCITY + 2] = rotationVelocity.z;
+		state[ORIENTATION] = 0;
+		state[ORIENTATION + 1] = 0;
+		state[ORIENTATION + 2] = 0;
+	}
+
+	private static void setState(SimulationStatus status, double time, double[] state, Quaternion orientation) {
+		status.setSimulationTime(time);
+		status.setRocketPosition(new Coordinate(state[POSITION], state[POSITION + 1], state[POSITION + 2]));
+		status.setRocketVelocity(new Coordinate(state[VELOCITY], state[VELOCITY + 1], state[VELOCITY + 2]));
+		status.setRocketRotationVelocity(new Coordinate(state[ROTATION_VELOCITY], state[ROTATION_VELOCITY + 1],
+				state[ROTATION_VELOCITY + 2]));
+		status.setRocketOrientationQuaternion(orientation.multiplyLeftRotation(state[ORIENTATION],
+				state[ORIENTATION + 1], state[ORIENTATION + 2]));
+
+		SimulationConditions conditions = status.getSimulationConditions();
+		status.setRocketWorldPosition(conditions.getGeodeticComputation().addCoordinate(conditions.getLaunchSite(),
+				status.getRocketPosition()));
+	}
+
+	private static void getSlope(RK4Parameters parameters, double[] slope) {
+		slope[POSITION] = parameters.v.x;
+		slope[POSITION + 1] = parameters.v.y;
+		slope[POSITION + 2] = parameters.v.z;
+		slope[VELOCITY] = parameters.a.x;
+		slope[VELOCITY + 1] = parameters.a.y;
+		slope[VELOCITY + 2] = parameters.a.z;
+		slope[ROTATION_VELOCITY] = parameters.ra.x;
+		slope[ROTATION_VELOCITY + 1] = parameters.ra.y;
+		slope[ROTATION_VELOCITY + 2] = parameters.ra.z;
+		slope[ORIENTATION] = parameters.rv.x;
+		slope[ORIENTATION + 1] = parameters.rv.y;
+		slope[ORIENTATION + 2] = parameters.rv.z;
+	}
+
+}
@@ -13,6 +13,7 @@ import net.sf.openrocket.l10n.Translator;
 import net.sf.openrocket.models.atmosphere.AtmosphericConditions;
 import net.sf.openrocket.simulation.exception.SimulationCalculationException;
 import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.simulation.listeners.SimulationListenerDispatch;
 import net.sf.openrocket.simulation.listeners.SimulationListenerHelper;
 import net.sf.openrocket.startup.Application;
 import net.sf.openrocket.util.Coordinate;
@@ -62,6 +63,23 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 	
 	private Random random;
 	
+	/*
+	 * Working state reused between steps when the simulation conditions request it.
+	 * This avoids allocating the data store, time step limits and RK4 parameters anew
+	 * on every step, and cloning the status for the intermediate states of the step
+	 * unless computation listeners require a separate status.  Only the immutable
+	 * coordinates and quaternions held by the status and the data store are allocated.
+	 */
+	private boolean reuseState = false;
+	private final DataStore workStore = new DataStore();
+	private final double[] workTimeSteps = new double[8];
+	private final RK4Parameters[] workParameters = {
+			new RK4Parameters(), new RK4Parameters(), new RK4Parameters(), new RK4Parameters()
+	};
+	
+	/* Work vector for rotating the accelerations into world coordinates */
+	private final double[] workVector = new double[3];
+	
 	
 	
 	
@@ -81,6 +99,7 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 				));
 		
 		this.random = new Random(original.getSimulationConditions().getRandomSeed() ^ SEED_RANDOMIZATION);
+		this.reuseState = sim.isReuseStepperState();
 		
 		return status;
 	}
@@ -92,12 +111,28 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 	public void step(SimulationStatus simulationStatus, double maxTimeStep) throws SimulationException {
 		
 		RK4SimulationStatus status = (RK4SimulationStatus) simulationStatus;
-		DataStore store = new DataStore();
+		DataStore store;
+		double[] dt;
+		RK4Parameters k1, k2, k3, k4;
 		
-		////////  Perform RK4 integration:  ////////
+		if (reuseState) {
+			store = workStore;
+			store.reset();
+			dt = workTimeSteps;
+			k1 = workParameters[0];
+			k2 = workParameters[1];
+			k3 = workParameters[2];
+			k4 = workParameters[3];
+		} else {
+			store = new DataStore();
+			dt = new double[8];
+			k1 = new RK4Parameters();
+			k2 = new RK4Parameters();
+			k3 = new RK4Parameters();
+			k4 = new RK4Parameters();
+		}
 		
-		RK4SimulationStatus status2;
-		RK4Parameters k1, k2, k3, k4;
+		////////  Perform RK4 integration:  ////////
 		
 		/*
 		 * Start with previous time step which is used to compute the initial thrust estimate.
@@ -120,7 +155,7 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 
 		//// First position, k1 = f(t, y)
 		
-		k1 = computeParameters(status, store);
+		computeParameters(status, store, k1);
 		
 		/*
 		 * Select the actual time step to use.  It is the minimum of the following:
@@ -138,7 +173,6 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 		 * 
 		 * The step is still at least 1/20th of the user-selected time step.
 		 */
-		double[] dt = new double[8];
 		Arrays.fill(dt, Double.MAX_VALUE);
 
 		// If the user selected a really small timestep, use MIN_TIME_STEP instead.
@@ -191,7 +225,7 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 						" correct=" + store.thrustForce +
 						" timestep=" + store.timestep +
 						", recomputing k1 parameters");
-				k1 = computeParameters(status, store);
+				computeParameters(status, store, k1);
 			} else {
 				log.trace("Thrust estimate differs from correct value by " +
 						(Math.rint(1000 * (thrustDiff + 0.000001) / thrustEstimate) / 10.0) + "%," +
@@ -204,61 +238,96 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 		
 		// Store data
 		// TODO: MEDIUM: Store acceleration etc of entire RK4 step, store should be cloned or something...
-		storeData(status, store);
+		storeData(status, store, status.getFlightData());
 		
 
-		//// Second position, k2 = f(t + h/2, y + k1*h/2)
+		if (reuseState) {
+			
+			computeParametersInPlace(status, store, k1, store.timestep / 2, k2);
+			computeParametersInPlace(status, store, k2, store.timestep / 2, k3);
+			computeParametersInPlace(status, store, k3, store.timestep, k4);
+			
+			//// Sum all together,  y(n+1) = y(n) + h*(k1 + 2*k2 + 2*k3 + k4)/6
+			
+			double h6 = store.timestep / 6;
+			Coordinate v = status.getRocketVelocity();
+			Coordinate p = status.getRocketPosition();
+			Coordinate rv = status.getRocketRotationVelocity();
+			status.setRocketVelocity(new Coordinate(
+					v.x + ((k2.a.x + k3.a.x) * 2 + k1.a.x + k4.a.x) * h6,
+					v.y + ((k2.a.y + k3.a.y) * 2 + k1.a.y + k4.a.y) * h6,
+					v.z + ((k2.a.z + k3.a.z) * 2 + k1.a.z + k4.a.z) * h6));
+			status.setRocketPosition(new Coordinate(
+					p.x + ((k2.v.x + k3.v.x) * 2 + k1.v.x + k4.v.x) * h6,
+					p.y + ((k2.v.y + k3.v.y) * 2 + k1.v.y + k4.v.y) * h6,
+					p.z + ((k2.v.z + k3.v.z) * 2 + k1.v.z + k4.v.z) * h6));
+			status.setRocketRotationVelocity(new Coordinate(
+					rv.x + ((k2.ra.x + k3.ra.x) * 2 + k1.ra.x + k4.ra.x) * h6,
+					rv.y + ((k2.ra.y + k3.ra.y) * 2 + k1.ra.y + k4.ra.y) * h6,
+					rv.z + ((k2.ra.z + k3.ra.z) * 2 + k1.ra.z + k4.ra.z) * h6));
+			status.setRocketOrientationQuaternion(status.getRocketOrientationQuaternion().multiplyLeftRotation(
+					((k2.rv.x + k3.rv.x) * 2 + k1.rv.x + k4.rv.x) * h6,
+					((k2.rv.y + k3.rv.y) * 2 + k1.rv.y + k4.rv.y) * h6,
+					((k2.rv.z + k3.rv.z) * 2 + k1.rv.z + k4.rv.z) * h6).normalizeIfNecessary());
+			
+		} else {
+			
+			RK4SimulationStatus status2;
+			
+			//// Second position, k2 = f(t + h/2, y + k1*h/2)
 		
-		status2 = status.clone();
-		status2.setSimulationTime(status.getSimulationTime() + store.timestep / 2);
-		status2.setRocketPosition(status.getRocketPosition().add(k1.v.multiply(store.timestep / 2)));
-		status2.setRocketVelocity(status.getRocketVelocity().add(k1.a.multiply(store.timestep / 2)));
-		status2.setRocketOrientationQuaternion(status.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(k1.rv.multiply(store.timestep / 2))));
-		status2.setRocketRotationVelocity(status.getRocketRotationVelocity().add(k1.ra.multiply(store.timestep / 2)));
+			status2 = status.clone();
+			status2.setSimulationTime(status.getSimulationTime() + store.timestep / 2);
+			status2.setRocketPosition(status.getRocketPosition().add(k1.v.multiply(store.timestep / 2)));
+			status2.setRocketVelocity(status.getRocketVelocity().add(k1.a.multiply(store.timestep / 2)));
+			status2.setRocketOrientationQuaternion(status.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(k1.rv.multiply(store.timestep / 2))));
+			status2.setRocketRotationVelocity(status.getRocketRotationVelocity().add(k1.ra.multiply(store.timestep / 2)));
 		
-		k2 = computeParameters(status2, store);
+			computeParameters(status2, store, k2);
 		
 
-		//// Third position, k3 = f(t + h/2, y + k2*h/2)
+			//// Third position, k3 = f(t + h/2, y + k2*h/2)
 		
-		status2 = status.clone();
-		status2.setSimulationTime(status.getSimulationTime() + store.timestep / 2);
-		status2.setRocketPosition(status.getRocketPosition().add(k2.v.multiply(store.timestep / 2)));
-		status2.setRocketVelocity(status.getRocketVelocity().add(k2.a.multiply(store.timestep / 2)));
-		status2.setRocketOrientationQuaternion(status2.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(k2.rv.multiply(store.timestep / 2))));
-		status2.setRocketRotationVelocity(status.getRocketRotationVelocity().add(k2.ra.multiply(store.timestep / 2)));
+			status2 = status.clone();
+			status2.setSimulationTime(status.getSimulationTime() + store.timestep / 2);
+			status2.setRocketPosition(status.getRocketPosition().add(k2.v.multiply(store.timestep / 2)));
+			status2.setRocketVelocity(status.getRocketVelocity().add(k2.a.multiply(store.timestep / 2)));
+			status2.setRocketOrientationQuaternion(status2.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(k2.rv.multiply(store.timestep / 2))));
+			status2.setRocketRotationVelocity(status.getRocketRotationVelocity().add(k2.ra.multiply(store.timestep / 2)));
 		
-		k3 = computeParameters(status2, store);
+			computeParameters(status2, store, k3);
 		
 
-		//// Fourth position, k4 = f(t + h, y + k3*h)
+			//// Fourth position, k4 = f(t + h, y + k3*h)
 		
-		status2 = status.clone();
-		status2.setSimulationTime(status.getSimulationTime() + store.timestep);
-		status2.setRocketPosition(status.getRocketPosition().add(k3.v.multiply(store.timestep)));
-		status2.setRocketVelocity(status.getRocketVelocity().add(k3.a.multiply(store.timestep)));
-		status2.setRocketOrientationQuaternion(status2.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(k3.rv.multiply(store.timestep))));
-		status2.setRocketRotationVelocity(status.getRocketRotationVelocity().add(k3.ra.multiply(store.timestep)));
+			status2 = status.clone();
+			status2.setSimulationTime(status.getSimulationTime() + store.timestep);
+			status2.setRocketPosition(status.getRocketPosition().add(k3.v.multiply(store.timestep)));
+			status2.setRocketVelocity(status.getRocketVelocity().add(k3.a.multiply(store.timestep)));
+			status2.setRocketOrientationQuaternion(status2.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(k3.rv.multiply(store.timestep))));
+			status2.setRocketRotationVelocity(status.getRocketRotationVelocity().add(k3.ra.multiply(store.timestep)));
 		
-		k4 = computeParameters(status2, store);
+			computeParameters(status2, store, k4);
 		
 
-		//// Sum all together,  y(n+1) = y(n) + h*(k1 + 2*k2 + 2*k3 + k4)/6
+			//// Sum all together,  y(n+1) = y(n) + h*(k1 + 2*k2 + 2*k3 + k4)/6
 		
 
 
-		Coordinate deltaV, deltaP, deltaR, deltaO;
-		deltaV = k2.a.add(k3.a).multiply(2).add(k1.a).add(k4.a).multiply(store.timestep / 6);
-		deltaP = k2.v.add(k3.v).multiply(2).add(k1.v).add(k4.v).multiply(store.timestep / 6);
-		deltaR = k2.ra.add(k3.ra).multiply(2).add(k1.ra).add(k4.ra).multiply(store.timestep / 6);
-		deltaO = k2.rv.add(k3.rv).multiply(2).add(k1.rv).add(k4.rv).multiply(store.timestep / 6);
+			Coordinate deltaV, deltaP, deltaR, deltaO;
+			deltaV = k2.a.add(k3.a).multiply(2).add(k1.a).add(k4.a).multiply(store.timestep / 6);
+			deltaP = k2.v.add(k3.v).multiply(2).add(k1.v).add(k4.v).multiply(store.timestep / 6);
+			deltaR = k2.ra.add(k3.ra).multiply(2).add(k1.ra).add(k4.ra).multiply(store.timestep / 6);
+			deltaO = k2.rv.add(k3.rv).multiply(2).add(k1.rv).add(k4.rv).multiply(store.timestep / 6);
 		
 
 
-		status.setRocketVelocity(status.getRocketVelocity().add(deltaV));
-		status.setRocketPosition(status.getRocketPosition().add(deltaP));
-		status.setRocketRotationVelocity(status.getRocketRotationVelocity().add(deltaR));
-		status.setRocketOrientationQuaternion(status.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(deltaO)).normalizeIfNecessary());
+			status.setRocketVelocity(status.getRocketVelocity().add(deltaV));
+			status.setRocketPosition(status.getRocketPosition().add(deltaP));
+			status.setRocketRotationVelocity(status.getRocketRotationVelocity().add(deltaR));
+			status.setRocketOrientationQuaternion(status.getRocketOrientationQuaternion().multiplyLeft(Quaternion.rotation(deltaO)).normalizeIfNecessary());
+		
+		}
 		
 		WorldCoordinate w = status.getSimulationConditions().getLaunchSite();
 		w = status.getSimulationConditions().getGeodeticComputation().addCoordinate(w, status.getRocketPosition());
@@ -280,13 +349,8 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 
 
 
-	private RK4Parameters computeParameters(RK4SimulationStatus status, DataStore dataStore)
+	void computeParameters(RK4SimulationStatus status, DataStore dataStore, RK4Parameters params)
 			throws SimulationException {
-		RK4Parameters params = new RK4Parameters();
-		
-		//		if (dataStore == null) {
-		//			dataStore = new DataStore();
-		//		}
 		
 		calculateAcceleration(status, dataStore);
 		params.a = dataStore.linearAcceleration;
@@ -298,8 +362,84 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 		checkNaN(params.ra);
 		checkNaN(params.v);
 		checkNaN(params.rv);
+	}
+	
+	
+	/**
+	 * Compute the RK4 parameters at the intermediate state <code>y + k*h</code> without
+	 * cloning the status.
+	 */
+	private void computeParametersInPlace(RK4SimulationStatus status, DataStore dataStore,
+			RK4Parameters k, double h, RK4Parameters result) throws SimulationException {
+		
+		Coordinate position = status.getRocketPosition();
+		Coordinate velocity = status.getRocketVelocity();
+		Coordinate rotationVelocity = status.getRocketRotationVelocity();
+		
+		computeParametersAt(status, dataStore, status.getSimulationTime() + h,
+				new Coordinate(position.x + k.v.x * h, position.y + k.v.y * h, position.z + k.v.z * h),
+				new Coordinate(velocity.x + k.a.x * h, velocity.y + k.a.y * h, velocity.z + k.a.z * h),
+				status.getRocketOrientationQuaternion().multiplyLeftRotation(k.rv.x * h, k.rv.y * h, k.rv.z * h),
+				new Coordinate(rotationVelocity.x + k.ra.x * h, rotationVelocity.y + k.ra.y * h,
+						rotationVelocity.z + k.ra.z * h),
+				result);
+	}
+	
+	
+	/**
+	 * Compute the RK4 parameters at the given intermediate state.  Normally the status
+	 * is not cloned:  it is temporarily advanced to the intermediate state, and all values
+	 * the computation may modify are restored afterwards, so the result is identical to
+	 * computing the parameters using a clone of the status.
+	 * <p>
+	 * Computation listeners may modify or keep a reference to the status they are passed,
+	 * so if the listener dispatch requires a separate status, the parameters are computed
+	 * using a clone of the status and listeners never see the status in an intermediate
+	 * state.  Listeners that only handle steps and events are not called during the
+	 * computation and do not prevent reusing the status.
+	 * 
+	 * @see SimulationListenerDispatch#isSeparateStatusRequired()
+	 */
+	void computeParametersAt(RK4SimulationStatus status, DataStore dataStore, double time,
+			Coordinate position, Coordinate velocity, Quaternion orientation, Coordinate rotationVelocity,
+			RK4Parameters result) throws SimulationException {
+		
+		if (status.getSimulationConditions().getSimulationListenerDispatch().isSeparateStatusRequired()) {
+			RK4SimulationStatus intermediate = status.clone();
+			intermediate.setSimulationTime(time);
+			intermediate.setRocketPosition(position);
+			intermediate.setRocketVelocity(velocity);
+			intermediate.setRocketOrientationQuaternion(orientation);
+			intermediate.setRocketRotationVelocity(rotationVelocity);
+			computeParameters(intermediate, dataStore, result);
+			return;
+		}
 		
-		return params;
+		double originalTime = status.getSimulationTime();
+		Coordinate originalPosition = status.getRocketPosition();
+		Coordinate originalVelocity = status.getRocketVelocity();
+		Quaternion originalOrientation = status.getRocketOrientationQuaternion();
+		Coordinate originalRotationVelocity = status.getRocketRotationVelocity();
+		double maxZVelocity = status.getMaxZVelocity();
+		double startWarningTime = status.getStartWarningTime();
+		
+		try {
+			status.setSimulationTime(time);
+			status.setRocketPosition(position);
+			status.setRocketVelocity(velocity);
+			status.setRocketOrientationQuaternion(orientation);
+			status.setRocketRotationVelocity(rotationVelocity);
+			
+			computeParameters(status, dataStore, result);
+		} finally {
+			status.setSimulationTime(originalTime);
+			status.setRocketPosition(originalPosition);
+			status.setRocketVelocity(originalVelocity);
+			status.setRocketOrientationQuaternion(originalOrientation);
+			status.setRocketRotationVelocity(originalRotationVelocity);
+			status.setMaxZVelocity(maxZVelocity);
+			status.setStartWarningTime(startWarningTime);
+		}
 	}
 	
 	
@@ -343,36 +483,40 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 		
 		double forceZ = store.thrustForce - store.dragForce;
 		
-		store.linearAcceleration = new Coordinate(-fN / store.massData.getCG().weight,
-					-fSide / store.massData.getCG().weight,
-					forceZ / store.massData.getCG().weight);
-		
-		store.linearAcceleration = store.thetaRotation.rotateZ(store.linearAcceleration);
+		double ax = -fN / store.massData.getCG().weight;
+		double ay = -fSide / store.massData.getCG().weight;
+		double az = forceZ / store.massData.getCG().weight;
 		
 		// Convert into rocket world coordinates
-		store.linearAcceleration = status.getRocketOrientationQuaternion().rotate(store.linearAcceleration);
+		double[] acceleration = workVector;
+		Rotation2D theta = store.thetaRotation;
+		status.getRocketOrientationQuaternion().rotate(theta.cos * ax - theta.sin * ay,
+				theta.cos * ay + theta.sin * ax, az, acceleration);
 		
 		// add effect of gravity
 		store.gravity = modelGravity(status);
-		store.linearAcceleration = store.linearAcceleration.sub(0, 0, store.gravity);
 		
 		// add effect of Coriolis acceleration
 		store.coriolisAcceleration = status.getSimulationConditions().getGeodeticComputation()
 				.getCoriolisAcceleration(status.getRocketWorldPosition(), status.getRocketVelocity());
-		store.linearAcceleration = store.linearAcceleration.add(store.coriolisAcceleration);
+		ax = acceleration[0] + store.coriolisAcceleration.x;
+		ay = acceleration[1] + store.coriolisAcceleration.y;
+		az = (acceleration[2] - store.gravity) + store.coriolisAcceleration.z;
 		
 		// If still on the launch rod, project acceleration onto launch rod direction and
 		// set angular acceleration to zero.
 		if (!status.isLaunchRodCleared()) {
 			
-			store.linearAcceleration = status.getLaunchRodDirection().multiply(
-						store.linearAcceleration.dot(status.getLaunchRodDirection()));
+			Coordinate rod = status.getLaunchRodDirection();
+			store.linearAcceleration = rod.multiply(ax * rod.x + ay * rod.y + az * rod.z);
 			store.angularAcceleration = Coordinate.NUL;
 			store.rollAcceleration = 0;
 			store.lateralPitchAcceleration = 0;
 			
 		} else {
 			
+			store.linearAcceleration = new Coordinate(ax, ay, az);
+			
 			// Shift moments to CG
 			double Cm = store.forces.getCm() - store.forces.getCN() * store.massData.getCG().x / refLength;
 			double Cyaw = store.forces.getCyaw() - store.forces.getCside() * store.massData.getCG().x / refLength;
@@ -383,19 +527,18 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 			double momZ = store.forces.getCroll() * dynP * refArea * refLength;
 			
 			// Compute acceleration in rocket coordinates
-			store.angularAcceleration = new Coordinate(momX / store.massData.getLongitudinalInertia(),
-						momY / store.massData.getLongitudinalInertia(),
-						momZ / store.massData.getRotationalInertia());
+			double rx = momX / store.massData.getLongitudinalInertia();
+			double ry = momY / store.massData.getLongitudinalInertia();
+			double rz = momZ / store.massData.getRotationalInertia();
 			
-			store.rollAcceleration = store.angularAcceleration.z;
+			store.rollAcceleration = rz;
 			// TODO: LOW: This should be hypot, but does it matter?
-			store.lateralPitchAcceleration = MathUtil.max(Math.abs(store.angularAcceleration.x),
-						Math.abs(store.angularAcceleration.y));
-			
-			store.angularAcceleration = store.thetaRotation.rotateZ(store.angularAcceleration);
+			store.lateralPitchAcceleration = MathUtil.max(Math.abs(rx), Math.abs(ry));
 			
 			// Convert to world coordinates
-			store.angularAcceleration = status.getRocketOrientationQuaternion().rotate(store.angularAcceleration);
+			status.getRocketOrientationQuaternion().rotate(theta.cos * rx - theta.sin * ry,
+					theta.cos * ry + theta.sin * rx, rz, acceleration);
+			store.angularAcceleration = new Coordinate(acceleration[0], acceleration[1], acceleration[2]);
 			
 		}
 		
@@ -446,8 +589,10 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 
 		// Add very small randomization to yaw & pitch moments to prevent over-perfect flight
 		// TODO: HIGH: This should rather be performed as a listener
-		store.forces.setCm(store.forces.getCm() + (PITCH_YAW_RANDOM * 2 * (random.nextDouble() - 0.5)));
-		store.forces.setCyaw(store.forces.getCyaw() + (PITCH_YAW_RANDOM * 2 * (random.nextDouble() - 0.5)));
+		double pitchRandom = Double.isNaN(store.pitchRandom) ? randomMomentPerturbation() : store.pitchRandom;
+		double yawRandom = Double.isNaN(store.yawRandom) ? randomMomentPerturbation() : store.yawRandom;
+		store.forces.setCm(store.forces.getCm() + pitchRandom);
+		store.forces.setCyaw(store.forces.getCyaw() + yawRandom);
 		
 
 		// Call post-listeners
@@ -456,6 +601,15 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 	
 	
 
+	/**
+	 * Return a random perturbation of a pitch or yaw moment coefficient.
+	 */
+	double randomMomentPerturbation() {
+		return PITCH_YAW_RANDOM * 2 * (random.nextDouble() - 0.5);
+	}
+	
+	
+
 	/**
 	 * Calculate and return the flight conditions for the current rocket status.
 	 * Listeners can override these if necessary.
@@ -542,32 +696,22 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 	
 	
 
-	private void storeData(RK4SimulationStatus status, DataStore store) {
+	/**
+	 * Add a new point to the flight data and store the values of the status and the
+	 * data store at the point.
+	 */
+	void storeData(RK4SimulationStatus status, DataStore store, FlightDataBranch data) {
 		
-		FlightDataBranch data = status.getFlightData();
 		boolean extra = status.getSimulationConditions().isCalculateExtras();
 		
 		data.addPoint();
-		data.setValue(FlightDataType.TYPE_TIME, status.getSimulationTime());
-		data.setValue(FlightDataType.TYPE_ALTITUDE, status.getRocketPosition().z);
-		data.setValue(FlightDataType.TYPE_POSITION_X, status.getRocketPosition().x);
-		data.setValue(FlightDataType.TYPE_POSITION_Y, status.getRocketPosition().y);
+		storeStateData(status, data);
 		
-		data.setValue(FlightDataType.TYPE_LATITUDE, status.getRocketWorldPosition().getLatitudeRad());
-		data.setValue(FlightDataType.TYPE_LONGITUDE, status.getRocketWorldPosition().getLongitudeRad());
 		if (status.getSimulationConditions().getGeodeticComputation() != GeodeticComputationStrategy.FLAT) {
 			data.setValue(FlightDataType.TYPE_CORIOLIS_ACCELERATION, store.coriolisAcceleration.length());
 		}
 		
 		if (extra) {
-			data.setValue(FlightDataType.TYPE_POSITION_XY,
-					MathUtil.hypot(status.getRocketPosition().x, status.getRocketPosition().y));
-			data.setValue(FlightDataType.TYPE_POSITION_DIRECTION,
-					Math.atan2(status.getRocketPosition().y, status.getRocketPosition().x));
-			
-			data.setValue(FlightDataType.TYPE_VELOCITY_XY,
-					MathUtil.hypot(status.getRocketVelocity().x, status.getRocketVelocity().y));
-			
 			if (store.linearAcceleration != null) {
 				data.setValue(FlightDataType.TYPE_ACCELERATION_XY,
 						MathUtil.hypot(store.linearAcceleration.x, store.linearAcceleration.y));
@@ -583,13 +727,11 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 			}
 		}
 		
-		data.setValue(FlightDataType.TYPE_VELOCITY_Z, status.getRocketVelocity().z);
 		if (store.linearAcceleration != null) {
 			data.setValue(FlightDataType.TYPE_ACCELERATION_Z, store.linearAcceleration.z);
 		}
 		
 		if (store.flightConditions != null) {
-			data.setValue(FlightDataType.TYPE_VELOCITY_TOTAL, status.getRocketVelocity().length());
 			data.setValue(FlightDataType.TYPE_MACH_NUMBER, store.flightConditions.getMach());
 		}
 		
@@ -652,17 +794,6 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 			data.setValue(FlightDataType.TYPE_AOA, store.flightConditions.getAOA());
 		}
 		
-
-		if (extra) {
-			Coordinate c = status.getRocketOrientationQuaternion().rotateZ();
-			double theta = Math.atan2(c.z, MathUtil.hypot(c.x, c.y));
-			double phi = Math.atan2(c.y, c.x);
-			if (phi < -(Math.PI - 0.0001))
-				phi = Math.PI;
-			data.setValue(FlightDataType.TYPE_ORIENTATION_THETA, theta);
-			data.setValue(FlightDataType.TYPE_ORIENTATION_PHI, phi);
-		}
-		
 		data.setValue(FlightDataType.TYPE_WIND_VELOCITY, store.windSpeed);
 		
 		if (store.flightConditions != null) {
@@ -681,9 +812,50 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 	}
 	
 	
+	/**
+	 * Store the values that depend only on the state of the rocket at the latest point
+	 * of the flight data.
+	 */
+	void storeStateData(SimulationStatus status, FlightDataBranch data) {
+		
+		boolean extra = status.getSimulationConditions().isCalculateExtras();
+		
+		data.setValue(FlightDataType.TYPE_TIME, status.getSimulationTime());
+		data.setValue(FlightDataType.TYPE_ALTITUDE, status.getRocketPosition().z);
+		data.setValue(FlightDataType.TYPE_POSITION_X, status.getRocketPosition().x);
+		data.setValue(FlightDataType.TYPE_POSITION_Y, status.getRocketPosition().y);
+		
+		data.setValue(FlightDataType.TYPE_LATITUDE, status.getRocketWorldPosition().getLatitudeRad());
+		data.setValue(FlightDataType.TYPE_LONGITUDE, status.getRocketWorldPosition().getLongitudeRad());
+		
+		if (extra) {
+			data.setValue(FlightDataType.TYPE_POSITION_XY,
+					MathUtil.hypot(status.getRocketPosition().x, status.getRocketPosition().y));
+			data.setValue(FlightDataType.TYPE_POSITION_DIRECTION,
+					Math.atan2(status.getRocketPosition().y, status.getRocketPosition().x));
+			
+			data.setValue(FlightDataType.TYPE_VELOCITY_XY,
+					MathUtil.hypot(status.getRocketVelocity().x, status.getRocketVelocity().y));
+		}
+		
+		data.setValue(FlightDataType.TYPE_VELOCITY_Z, status.getRocketVelocity().z);
+		data.setValue(FlightDataType.TYPE_VELOCITY_TOTAL, status.getRocketVelocity().length());
+		
+		if (extra) {
+			Coordinate c = status.getRocketOrientationQuaternion().rotateZ();
+			double theta = Math.atan2(c.z, MathUtil.hypot(c.x, c.y));
+			double phi = Math.atan2(c.y, c.x);
+			if (phi < -(Math.PI - 0.0001))
+				phi = Math.PI;
+			data.setValue(FlightDataType.TYPE_ORIENTATION_THETA, theta);
+			data.setValue(FlightDataType.TYPE_ORIENTATION_PHI, phi);
+		}
+	}
+	
+	
 
 
-	private static class RK4Parameters {
+	static class RK4Parameters {
 		/** Linear acceleration */
 		public Coordinate a;
 		/** Linear velocity */
@@ -694,7 +866,7 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 		public Coordinate rv;
 	}
 	
-	private static class DataStore {
+	static class DataStore {
 		public double timestep = Double.NaN;
 		
 		public AccelerationData accelerationData;
@@ -725,6 +897,36 @@ public class RK4SimulationStepper extends AbstractSimulationStepper {
 		
 		public Rotation2D thetaRotation;
 		
+		// random pitch and yaw moment perturbations, or NaN to draw new ones for each computation
+		public double pitchRandom = Double.NaN;
+		public double yawRandom = Double.NaN;
+		
+		/**
+		 * Reset all values to their initial state.
+		 */
+		public void reset() {
+			timestep = Double.NaN;
+			accelerationData = null;
+			atmosphericConditions = null;
+			flightConditions = null;
+			longitudinalAcceleration = Double.NaN;
+			massData = null;
+			coriolisAcceleration = null;
+			linearAcceleration = null;
+			angularAcceleration = null;
+			forces = null;
+			windSpeed = Double.NaN;
+			gravity = Double.NaN;
+			thrustForce = Double.NaN;
+			dragForce = Double.NaN;
+			lateralPitchRate = Double.NaN;
+			rollAcceleration = Double.NaN;
+			lateralPitchAcceleration = Double.NaN;
+			thetaRotation = null;
+			pitchRandom = Double.NaN;
+			yawRandom = Double.NaN;
+		}
+		
 	}
 	
 }
@@ -1,9 +1,12 @@
 package net.sf.openrocket.simulation;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import net.sf.openrocket.aerodynamics.AerodynamicCalculator;
+import net.sf.openrocket.aerodynamics.BarrowmanCalculator;
 import net.sf.openrocket.document.Simulation;
 import net.sf.openrocket.masscalc.MassCalculator;
 import net.sf.openrocket.models.atmosphere.AtmosphericModel;
@@ -11,6 +14,7 @@ import net.sf.openrocket.models.gravity.GravityModel;
 import net.sf.openrocket.models.wind.WindModel;
 import net.sf.openrocket.rocketcomponent.Rocket;
 import net.sf.openrocket.simulation.listeners.SimulationListener;
+import net.sf.openrocket.simulation.listeners.SimulationListenerDispatch;
 import net.sf.openrocket.util.BugException;
 import net.sf.openrocket.util.Coordinate;
 import net.sf.openrocket.util.GeodeticComputationStrategy;
@@ -61,11 +65,32 @@ public class SimulationConditions implements Monitorable, Cloneable {
 	private double timeStep = RK4SimulationStepper.RECOMMENDED_TIME_STEP;
 	private double maximumAngleStep = RK4SimulationStepper.RECOMMENDED_ANGLE_STEP;
 	
+	/* Whether to use the error-controlled stepper and its tolerances */
+	private boolean adaptiveTimeStep = false;
+	private double relativeTolerance = RK45SimulationStepper.RECOMMENDED_RELATIVE_TOLERANCE;
+	private double absoluteTolerance = RK45SimulationStepper.RECOMMENDED_ABSOLUTE_TOLERANCE;
+	
+	/* The relative tolerance of the aerodynamic coefficient tables, or zero to calculate them exactly */
+	private double aerodynamicTableTolerance = 0;
+	
 	/* Whether to calculate additional data or only primary simulation figures */
 	private boolean calculateExtras = true;
 	
+	/* Whether to store the flight data in single precision to reduce memory use */
+	private boolean singlePrecisionData = false;
+	
+	/*
+	 * Whether the stepper should reuse its working state between steps instead of allocating it anew.
+	 * This does not change the results, or the status objects user computation listeners are passed.
+	 */
+	private boolean reuseStepperState = false;
+	
 	
-	private List<SimulationListener> simulationListeners = new ArrayList<SimulationListener>();
+	private ListenerList simulationListeners = new ListenerList();
+	
+	/* The dispatch of the listeners and the modification count of the list it was created for */
+	private SimulationListenerDispatch listenerDispatch = null;
+	private int listenerDispatchModCount = -1;
 	
 	
 	private int randomSeed = 0;
@@ -269,6 +294,56 @@ public class SimulationConditions implements Monitorable, Cloneable {
 	}
 	
 	
+	public boolean isAdaptiveTimeStep() {
+		return adaptiveTimeStep;
+	}
+	
+	
+	public void setAdaptiveTimeStep(boolean adaptiveTimeStep) {
+		this.adaptiveTimeStep = adaptiveTimeStep;
+		this.modID++;
+	}
+	
+	
+	public double getRelativeTolerance() {
+		return relativeTolerance;
+	}
+	
+	
+	public void setRelativeTolerance(double relativeTolerance) {
+		this.relativeTolerance = relativeTolerance;
+		this.modID++;
+	}
+	
+	
+	public double getAbsoluteTolerance() {
+		return absoluteTolerance;
+	}
+	
+	
+	public void setAbsoluteTolerance(double absoluteTolerance) {
+		this.absoluteTolerance = absoluteTolerance;
+		this.modID++;
+	}
+	
+	
+	public double getAerodynamicTableTolerance() {
+		return aerodynamicTableTolerance;
+	}
+	
+	
+	/**
+	 * Set the relative tolerance of the aerodynamic coefficient tables.  The tolerance is
+	 * applied to a {@link BarrowmanCalculator} when the simulation is started.
+	 * 
+	 * @see BarrowmanCalculator#setTableTolerance(double)
+	 */
+	public void setAerodynamicTableTolerance(double aerodynamicTableTolerance) {
+		this.aerodynamicTableTolerance = aerodynamicTableTolerance;
+		this.modID++;
+	}
+	
+	
 	public boolean isCalculateExtras() {
 		return calculateExtras;
 	}
@@ -280,6 +355,28 @@ public class SimulationConditions implements Monitorable, Cloneable {
 	}
 	
 	
+	public boolean isSinglePrecisionData() {
+		return singlePrecisionData;
+	}
+	
+	
+	public void setSinglePrecisionData(boolean singlePrecisionData) {
+		this.singlePrecisionData = singlePrecisionData;
+		this.modID++;
+	}
+	
+	
+	public boolean isReuseStepperState() {
+		return reuseStepperState;
+	}
+	
+	
+	public void setReuseStepperState(boolean reuseStepperState) {
+		this.reuseStepperState = reuseStepperState;
+		this.modID++;
+	}
+	
+	
 	
 	public int getRandomSeed() {
 		return randomSeed;
@@ -304,6 +401,18 @@ public class SimulationConditions implements Monitorable, Cloneable {
 		return simulationListeners;
 	}
 	
+	/**
+	 * Return the dispatch of the current simulation listeners.  The dispatch is created
+	 * again only when the listener list has been modified.
+	 */
+	public SimulationListenerDispatch getSimulationListenerDispatch() {
+		if (listenerDispatch == null || listenerDispatchModCount != simulationListeners.getModCount()) {
+			listenerDispatch = new SimulationListenerDispatch(simulationListeners);
+			listenerDispatchModCount = simulationListeners.getModCount();
+		}
+		return listenerDispatch;
+	}
+	
 	
 	@Override
 	public int getModID() {
@@ -319,14 +428,57 @@ public class SimulationConditions implements Monitorable, Cloneable {
 		try {
 			// TODO: HIGH: Deep clone models
 			SimulationConditions clone = (SimulationConditions) super.clone();
-			clone.simulationListeners = new ArrayList<SimulationListener>(this.simulationListeners.size());
+			clone.simulationListeners = new ListenerList();
 			for (SimulationListener listener : this.simulationListeners) {
 				clone.simulationListeners.add(listener.clone());
 			}
+			clone.listenerDispatch = null;
 			return clone;
 		} catch (CloneNotSupportedException e) {
 			throw new BugException(e);
 		}
 	}
 	
+	
+	/**
+	 * A listener list that exposes its modification count.  The list wraps an array list
+	 * instead of extending it, so that every modification, including those made through
+	 * iterators and sorting, goes through the counting methods below.
+	 */
+	private static class ListenerList extends AbstractList<SimulationListener> implements RandomAccess {
+		private final ArrayList<SimulationListener> listeners = new ArrayList<SimulationListener>();
+		
+		@Override
+		public SimulationListener get(int index) {
+			return listeners.get(index);
+		}
+		
+		@Override
+		public int size() {
+			return listeners.size();
+		}
+		
+		@Override
+		public SimulationListener set(int index, SimulationListener element) {
+			modCount++;
+			return listeners.set(index, element);
+		}
+		
+		@Override
+		public void add(int index, SimulationListener element) {
+			modCount++;
+			listeners.add(index, element);
+		}
+		
+		@Override
+		public SimulationListener remove(int index) {
+			modCount++;
+			return listeners.remove(index);
+		}
+		
+		public int getModCount() {
+			return modCount;
+		}
+	}
+	
 }
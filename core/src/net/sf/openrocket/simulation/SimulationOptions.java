@@ -84,6 +84,12 @@ public class SimulationOptions implements ChangeSource, Cloneable {
 	private double timeStep = preferences.getDouble(Preferences.SIMULATION_TIME_STEP, RK4SimulationStepper.RECOMMENDED_TIME_STEP);
 	private double maximumAngle = RK4SimulationStepper.RECOMMENDED_ANGLE_STEP;
 	
+	private boolean adaptiveTimeStep = false;
+	private double relativeTolerance = RK45SimulationStepper.RECOMMENDED_RELATIVE_TOLERANCE;
+	private double absoluteTolerance = RK45SimulationStepper.RECOMMENDED_ABSOLUTE_TOLERANCE;
+	
+	private double aerodynamicTableTolerance = 0;
+	
 	private int randomSeed = new Random().nextInt();
 	
 	private boolean calculateExtras = true;
@@ -371,6 +377,82 @@ public class SimulationOptions implements ChangeSource, Cloneable {
 	}
 	
 	
+	/**
+	 * Return whether the simulation uses an error-controlled time step.  In that case
+	 * the time step is selected to meet the relative and absolute tolerances, and the
+	 * time step option sets the interval of the stored data points instead.
+	 */
+	public boolean isAdaptiveTimeStep() {
+		return adaptiveTimeStep;
+	}
+	
+	public void setAdaptiveTimeStep(boolean adaptiveTimeStep) {
+		if (this.adaptiveTimeStep == adaptiveTimeStep)
+			return;
+		this.adaptiveTimeStep = adaptiveTimeStep;
+		fireChangeEvent();
+	}
+	
+	
+	/**
+	 * Return the relative error tolerance of a single step of the error-controlled time step.
+	 */
+	public double getRelativeTolerance() {
+		return relativeTolerance;
+	}
+	
+	public void setRelativeTolerance(double relativeTolerance) {
+		if (!(relativeTolerance > 0)) {
+			throw new IllegalArgumentException("relativeTolerance must be positive, was " + relativeTolerance);
+		}
+		if (MathUtil.equals(this.relativeTolerance, relativeTolerance))
+			return;
+		this.relativeTolerance = relativeTolerance;
+		fireChangeEvent();
+	}
+	
+	
+	/**
+	 * Return the absolute error tolerance of a single step of the error-controlled time step.
+	 * The tolerance is in SI units of the position, velocity and rotation of the rocket.
+	 */
+	public double getAbsoluteTolerance() {
+		return absoluteTolerance;
+	}
+	
+	public void setAbsoluteTolerance(double absoluteTolerance) {
+		if (!(absoluteTolerance > 0)) {
+			throw new IllegalArgumentException("absoluteTolerance must be positive, was " + absoluteTolerance);
+		}
+		if (MathUtil.equals(this.absoluteTolerance, absoluteTolerance))
+			return;
+		this.absoluteTolerance = absoluteTolerance;
+		fireChangeEvent();
+	}
+	
+	
+	/**
+	 * Return the relative tolerance of the aerodynamic coefficient tables, or zero if the
+	 * coefficients are calculated exactly at every step, which is the default.
+	 * 
+	 * @see BarrowmanCalculator#setTableTolerance(double)
+	 */
+	public double getAerodynamicTableTolerance() {
+		return aerodynamicTableTolerance;
+	}
+	
+	public void setAerodynamicTableTolerance(double aerodynamicTableTolerance) {
+		if (!(aerodynamicTableTolerance >= 0)) {
+			throw new IllegalArgumentException("aerodynamicTableTolerance must be non-negative, was " +
+					aerodynamicTableTolerance);
+		}
+		if (MathUtil.equals(this.aerodynamicTableTolerance, aerodynamicTableTolerance))
+			return;
+		this.aerodynamicTableTolerance = aerodynamicTableTolerance;
+		fireChangeEvent();
+	}
+	
+	
 	
 	public boolean getCalculateExtras() {
 		return calculateExtras;
@@ -470,6 +552,10 @@ public class SimulationOptions implements ChangeSource, Cloneable {
 		this.launchTemperature = src.launchTemperature;
 		this.maximumAngle = src.maximumAngle;
 		this.timeStep = src.timeStep;
+		this.adaptiveTimeStep = src.adaptiveTimeStep;
+		this.relativeTolerance = src.relativeTolerance;
+		this.absoluteTolerance = src.absoluteTolerance;
+		this.aerodynamicTableTolerance = src.aerodynamicTableTolerance;
 		this.windAverage = src.windAverage;
 		this.windTurbulence = src.windTurbulence;
 		this.windDirection = src.windDirection;
@@ -524,6 +610,22 @@ public class SimulationOptions implements ChangeSource, Cloneable {
 			isChanged = true;
 			this.timeStep = src.timeStep;
 		}
+		if (this.adaptiveTimeStep != src.adaptiveTimeStep) {
+			isChanged = true;
+			this.adaptiveTimeStep = src.adaptiveTimeStep;
+		}
+		if (this.relativeTolerance != src.relativeTolerance) {
+			isChanged = true;
+			this.relativeTolerance = src.relativeTolerance;
+		}
+		if (this.absoluteTolerance != src.absoluteTolerance) {
+			isChanged = true;
+			this.absoluteTolerance = src.absoluteTolerance;
+		}
+		if (this.aerodynamicTableTolerance != src.aerodynamicTableTolerance) {
+			isChanged = true;
+			this.aerodynamicTableTolerance = src.aerodynamicTableTolerance;
+		}
 		if (this.windAverage != src.windAverage) {
 			isChanged = true;
 			this.windAverage = src.windAverage;
@@ -571,6 +673,10 @@ public class SimulationOptions implements ChangeSource, Cloneable {
 				MathUtil.equals(this.launchTemperature, o.launchTemperature) &&
 				MathUtil.equals(this.maximumAngle, o.maximumAngle) &&
 				MathUtil.equals(this.timeStep, o.timeStep) &&
+				this.adaptiveTimeStep == o.adaptiveTimeStep &&
+				MathUtil.equals(this.relativeTolerance, o.relativeTolerance) &&
+				MathUtil.equals(this.absoluteTolerance, o.absoluteTolerance) &&
+				MathUtil.equals(this.aerodynamicTableTolerance, o.aerodynamicTableTolerance) &&
 				MathUtil.equals(this.windAverage, o.windAverage) &&
 				MathUtil.equals(this.windTurbulence, o.windTurbulence) &&
 				MathUtil.equals(this.windDirection, o.windDirection) &&
@@ -642,6 +748,10 @@ public class SimulationOptions implements ChangeSource, Cloneable {
 		
 		conditions.setTimeStep(getTimeStep());
 		conditions.setMaximumAngleStep(getMaximumStepAngle());
+		conditions.setAdaptiveTimeStep(isAdaptiveTimeStep());
+		conditions.setRelativeTolerance(getRelativeTolerance());
+		conditions.setAbsoluteTolerance(getAbsoluteTolerance());
+		conditions.setAerodynamicTableTolerance(getAerodynamicTableTolerance());
 		
 		conditions.setCalculateExtras(getCalculateExtras());
 		
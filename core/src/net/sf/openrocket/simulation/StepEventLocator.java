@@ -0,0 +1,21 @@
+package net.sf.openrocket.simulation;
+
+/**
+ * Locates flight events within a simulation step, so that a simulation stepper can end
+ * the step at the first event instead of the event being detected only at the end of
+ * a possibly long step.
+ */
+public interface StepEventLocator {
+
+	/**
+	 * Return the time at which a step should end.  This is called once the step has been
+	 * computed, while the status is still at the start of the step.
+	 *
+	 * @param status	the current simulation status, at the start of the step.
+	 * @param step		the interpolant of the computed step.
+	 * @return			the end time of the step if no event occurs within it, otherwise a
+	 * 					time just after the first event.
+	 */
+	public double locateEvent(SimulationStatus status, StepInterpolant step);
+
+}
@@ -0,0 +1,39 @@
+package net.sf.openrocket.simulation;
+
+import net.sf.openrocket.util.Coordinate;
+
+/**
+ * A continuous approximation of the rocket position and velocity over a single
+ * simulation step, provided by simulation steppers that support event location.
+ *
+ * @see StepEventLocator
+ */
+public interface StepInterpolant {
+
+	/**
+	 * Return the simulation time at the start of the step.
+	 */
+	public double getStartTime();
+
+	/**
+	 * Return the simulation time at the end of the step.
+	 */
+	public double getEndTime();
+
+	/**
+	 * Return the interpolated rocket position at the specified time.
+	 *
+	 * @param time	a time between the start and the end of the step.
+	 * @return		the position of the rocket relative to the launch site.
+	 */
+	public Coordinate getPosition(double time);
+
+	/**
+	 * Return the interpolated rocket velocity at the specified time.
+	 *
+	 * @param time	a time between the start and the end of the step.
+	 * @return		the velocity of the rocket.
+	 */
+	public Coordinate getVelocity(double time);
+
+}
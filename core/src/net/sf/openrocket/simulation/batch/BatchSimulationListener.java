@@ -0,0 +1,22 @@
+package net.sf.openrocket.simulation.batch;
+
+/**
+ * A listener that is notified as the simulations of a {@link BatchSimulationRunner}
+ * finish.
+ * <p>
+ * The methods are called from the worker threads of the runner, possibly concurrently,
+ * so implementations must be thread-safe.
+ */
+public interface BatchSimulationListener {
+	
+	/**
+	 * Called when a simulation of the batch has finished, either successfully or
+	 * with an error.
+	 * 
+	 * @param result			the result of the simulation.
+	 * @param finishedCount		the number of simulations of the batch finished so far, including this one.
+	 * @param totalCount		the total number of simulations in the batch.
+	 */
+	public void simulationFinished(BatchSimulationResult result, int finishedCount, int totalCount);
+	
+}
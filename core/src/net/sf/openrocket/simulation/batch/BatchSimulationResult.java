@@ -0,0 +1,76 @@
+package net.sf.openrocket.simulation.batch;
+
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.exception.SimulationException;
+
+/**
+ * The result of a single simulation run by a {@link BatchSimulationRunner}.  Exactly
+ * one of the flight data and the exception is non-null, unless the simulation was
+ * cancelled before it started, in which case both are <code>null</code>.
+ */
+public class BatchSimulationResult {
+	
+	private final int index;
+	private final SimulationConditions conditions;
+	private final FlightData data;
+	private final SimulationException exception;
+	private final long runTime;
+	
+	BatchSimulationResult(int index, SimulationConditions conditions, FlightData data,
+			SimulationException exception, long runTime) {
+		this.index = index;
+		this.conditions = conditions;
+		this.data = data;
+		this.exception = exception;
+		this.runTime = runTime;
+	}
+	
+	/**
+	 * Return the index of the simulation within the batch.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Return the conditions that were simulated.
+	 */
+	public SimulationConditions getConditions() {
+		return conditions;
+	}
+	
+	/**
+	 * Return the simulated flight data, or <code>null</code> if the simulation failed.
+	 */
+	public FlightData getFlightData() {
+		return data;
+	}
+	
+	/**
+	 * Return the exception the simulation failed with, or <code>null</code> if it succeeded.
+	 */
+	public SimulationException getException() {
+		return exception;
+	}
+	
+	/**
+	 * Return whether the simulation completed successfully.
+	 */
+	public boolean isSuccessful() {
+		return data != null;
+	}
+	
+	/**
+	 * Return the wall-clock time the simulation took, in milliseconds.
+	 */
+	public long getRunTime() {
+		return runTime;
+	}
+	
+	@Override
+	public String toString() {
+		return "BatchSimulationResult[index=" + index + ", successful=" + isSuccessful() +
+				", runTime=" + runTime + "ms]";
+	}
+}
@@ -0,0 +1,347 @@
+package net.sf.openrocket.simulation.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.simulation.BasicEventSimulationEngine;
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.simulation.SimulationStatus;
+import net.sf.openrocket.simulation.exception.SimulationCancelledException;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.simulation.listeners.AbstractSimulationListener;
+import net.sf.openrocket.util.Instantiable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A headless runner that simulates a batch of simulations in parallel.
+ * <p>
+ * The simulations are executed on a work-stealing thread pool, by default with as many
+ * threads as there are processors available.  Each simulation is run with its own copy
+ * of the rocket, its own aerodynamic and mass calculator instances and its own wind,
+ * atmospheric and gravity model instances, so that no mutable state is shared between
+ * the worker threads.  Mass calculators and models are copied only if they implement
+ * {@link Instantiable}; other implementations are shared and must be thread-safe.  Preparing these copies is
+ * performed in the calling thread, and only a bounded number of simulations are
+ * prepared ahead of the workers, which keeps the memory use independent of the batch
+ * size when the conditions are generated lazily.
+ * <p>
+ * Completed simulations are reported to a {@link BatchSimulationListener} as soon
+ * as they finish.  If the calling thread is interrupted while waiting for the batch,
+ * the remaining simulations are cancelled and an <code>InterruptedException</code>
+ * is thrown.
+ * <p>
+ * The public methods of this class are NOT thread-safe and should be called from
+ * only one thread at a time.
+ */
+public class BatchSimulationRunner {
+	private static final Logger log = LoggerFactory.getLogger(BatchSimulationRunner.class);
+
+	private final ForkJoinPool pool;
+	private final int maxPending;
+
+
+	/**
+	 * Construct a runner that uses the same number of computational threads as there are
+	 * processors available.
+	 */
+	public BatchSimulationRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct a runner that uses the specified number of computational threads.
+	 *
+	 * @param threadCount	the number of threads to use.
+	 */
+	public BatchSimulationRunner(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount must be positive, was " + threadCount);
+		}
+		this.pool = new ForkJoinPool(threadCount);
+		this.maxPending = 2 * threadCount;
+	}
+
+
+	/**
+	 * Return the number of computational threads used by this runner.
+	 */
+	public int getThreadCount() {
+		return pool.getParallelism();
+	}
+
+
+	/**
+	 * Simulate a list of simulations and store the results in them.  The simulation
+	 * conditions are created in the calling thread, and the results are stored in the
+	 * simulations in the calling thread after all of the simulations have finished, so
+	 * any change listeners of the simulations are also notified in the calling thread.
+	 *
+	 * @param simulations	the simulations to simulate.
+	 * @param listener		a listener notified when each simulation finishes, or <code>null</code>.
+	 * @return				the results of the simulations, in the same order as the simulations.
+	 * @throws InterruptedException	if the calling thread was interrupted while waiting.
+	 */
+	public List<BatchSimulationResult> runSimulations(List<Simulation> simulations,
+			BatchSimulationListener listener) throws InterruptedException {
+
+		int count = simulations.size();
+		BatchSimulationResult[] results = new BatchSimulationResult[count];
+		BatchSimulationListener collector = new CollectingListener(results, listener);
+
+		List<SimulationOptions> simulatedOptions = new ArrayList<SimulationOptions>(count);
+		Batch batch = new Batch(count, collector);
+		try {
+			for (int i = 0; i < count; i++) {
+				Simulation simulation = simulations.get(i);
+				simulatedOptions.add(simulation.getOptions().clone());
+				SimulationConditions conditions;
+				try {
+					conditions = simulation.toSimulationConditions();
+				} catch (SimulationException e) {
+					batch.finished(new BatchSimulationResult(i, null, null, e, 0));
+					continue;
+				}
+				// The rocket and calculators are already new, but the models may be shared
+				isolateModels(conditions);
+				batch.submit(i, conditions);
+			}
+			batch.await();
+		} catch (InterruptedException e) {
+			batch.cancel();
+			throw e;
+		}
+
+		for (int i = 0; i < count; i++) {
+			if (results[i].isSuccessful()) {
+				simulations.get(i).setSimulatedData(results[i].getFlightData(), simulatedOptions.get(i));
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+
+	/**
+	 * Simulate a list of simulation conditions.  The conditions themselves are not
+	 * modified; each simulation is run using a copy of the conditions with its own
+	 * copy of the rocket, calculators, models and simulation listeners.
+	 *
+	 * @param conditions	the conditions to simulate.
+	 * @param listener		a listener notified when each simulation finishes, or <code>null</code>.
+	 * @return				the results of the simulations, in the same order as the conditions.
+	 * @throws InterruptedException	if the calling thread was interrupted while waiting.
+	 */
+	public List<BatchSimulationResult> runConditions(List<SimulationConditions> conditions,
+			BatchSimulationListener listener) throws InterruptedException {
+		BatchSimulationResult[] results = new BatchSimulationResult[conditions.size()];
+		run(conditions.iterator(), conditions.size(), new CollectingListener(results, listener));
+		return Arrays.asList(results);
+	}
+
+
+	/**
+	 * Simulate the conditions provided by an iterator.  The results are only reported to
+	 * the listener and are not retained by this runner, and the iterator is advanced only
+	 * as worker threads become available.  This allows simulating very large batches
+	 * whose conditions are generated on the fly.
+	 * <p>
+	 * The conditions themselves are not modified; each simulation is run using a copy of
+	 * the conditions with its own copy of the rocket, calculators, models and simulation
+	 * listeners.
+	 *
+	 * @param conditions	an iterator providing the conditions to simulate.
+	 * @param totalCount	the number of conditions the iterator provides (used for progress reporting).
+	 * @param listener		a listener notified when each simulation finishes.
+	 * @throws InterruptedException	if the calling thread was interrupted while waiting.
+	 */
+	public void run(Iterator<SimulationConditions> conditions, int totalCount,
+			BatchSimulationListener listener) throws InterruptedException {
+		Batch batch = new Batch(totalCount, listener);
+		try {
+			int index = 0;
+			while (conditions.hasNext()) {
+				batch.submit(index, isolate(conditions.next()));
+				index++;
+			}
+			batch.await();
+		} catch (InterruptedException e) {
+			batch.cancel();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Shut down the worker threads of this runner.  Running simulations are allowed to
+	 * finish, but the runner cannot be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+
+	/**
+	 * Return a copy of the conditions that shares no mutable rocket, calculator or model
+	 * state with the original.  The simulation listeners are cloned by the conditions.
+	 */
+	private static SimulationConditions isolate(SimulationConditions conditions) {
+		SimulationConditions copy = conditions.clone();
+		copy.setRocket((Rocket) conditions.getRocket().copy());
+		copy.setAerodynamicCalculator(conditions.getAerodynamicCalculator().newInstance());
+		copy.setMassCalculator(newInstance(conditions.getMassCalculator()));
+		isolateModels(copy);
+		return copy;
+	}
+
+	/**
+	 * Replace the wind, atmospheric and gravity models of the conditions with new instances.
+	 * The models may keep state between calls, such as the wind of the previous step.
+	 */
+	private static void isolateModels(SimulationConditions conditions) {
+		conditions.setWindModel(newInstance(conditions.getWindModel()));
+		conditions.setAtmosphericModel(newInstance(conditions.getAtmosphericModel()));
+		conditions.setGravityModel(newInstance(conditions.getGravityModel()));
+	}
+
+	/**
+	 * Return a new instance of a model or calculator if it is {@link Instantiable}.  Other
+	 * implementations cannot be copied and are shared between the simulations, so they
+	 * must be thread-safe.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T newInstance(T model) {
+		if (model instanceof Instantiable) {
+			return ((Instantiable<T>) model).newInstance();
+		}
+		log.debug(model + " is not instantiable, sharing it between the simulations");
+		return model;
+	}
+
+
+
+	/**
+	 * The bookkeeping of a single batch.
+	 */
+	private class Batch {
+		private final int totalCount;
+		private final BatchSimulationListener listener;
+		private final Semaphore pending = new Semaphore(maxPending);
+		private final AtomicInteger finishedCount = new AtomicInteger();
+		private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+		public Batch(int totalCount, BatchSimulationListener listener) {
+			this.totalCount = totalCount;
+			this.listener = listener;
+		}
+
+		public void submit(final int index, final SimulationConditions conditions) throws InterruptedException {
+			pending.acquire();
+			conditions.getSimulationListenerList().add(new CancelListener(cancelled));
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						finished(simulate(index, conditions));
+					} finally {
+						pending.release();
+					}
+				}
+			});
+		}
+
+		public void await() throws InterruptedException {
+			pending.acquire(maxPending);
+			pending.release(maxPending);
+		}
+
+		public void cancel() {
+			log.info("Cancelling batch simulation");
+			cancelled.set(true);
+		}
+
+		private BatchSimulationResult simulate(int index, SimulationConditions conditions) {
+			if (cancelled.get()) {
+				return new BatchSimulationResult(index, conditions, null, null, 0);
+			}
+
+			long t0 = System.currentTimeMillis();
+			try {
+				FlightData data = new BasicEventSimulationEngine().simulate(conditions);
+				return new BatchSimulationResult(index, conditions, data, null, System.currentTimeMillis() - t0);
+			} catch (SimulationException e) {
+				return new BatchSimulationResult(index, conditions, null, e, System.currentTimeMillis() - t0);
+			} catch (Throwable e) {
+				// Also errors thrown by simulation listeners are reported as a failed simulation
+				log.warn("Unexpected exception in batch simulation " + index, e);
+				return new BatchSimulationResult(index, conditions, null,
+						new SimulationException("Unexpected error in simulation: " + e.getMessage(), e),
+						System.currentTimeMillis() - t0);
+			}
+		}
+
+		public void finished(BatchSimulationResult result) {
+			int finished = finishedCount.incrementAndGet();
+			if (listener != null) {
+				listener.simulationFinished(result, finished, totalCount);
+			}
+		}
+	}
+
+
+	/**
+	 * A listener that stores the results in an array and forwards them to another listener.
+	 */
+	private static class CollectingListener implements BatchSimulationListener {
+		private final BatchSimulationResult[] results;
+		private final BatchSimulationListener delegate;
+
+		public CollectingListener(BatchSimulationResult[] results, BatchSimulationListener delegate) {
+			this.results = results;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void simulationFinished(BatchSimulationResult result, int finishedCount, int totalCount) {
+			// Array elements are published to the calling thread by the semaphore of the batch
+			results[result.getIndex()] = result;
+			if (delegate != null) {
+				delegate.simulationFinished(result, finishedCount, totalCount);
+			}
+		}
+	}
+
+
+	/**
+	 * A simulation listener that aborts the simulation when the batch is cancelled.
+	 */
+	private static class CancelListener extends AbstractSimulationListener {
+		private final AtomicBoolean cancelled;
+
+		public CancelListener(AtomicBoolean cancelled) {
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public void postStep(SimulationStatus status) throws SimulationException {
+			if (cancelled.get()) {
+				throw new SimulationCancelledException("The batch simulation was cancelled.");
+			}
+		}
+
+		@Override
+		public boolean isSystemListener() {
+			return true;
+		}
+	}
+}
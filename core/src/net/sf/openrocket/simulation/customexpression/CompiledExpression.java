@@ -0,0 +1,129 @@
+package net.sf.openrocket.simulation.customexpression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.simulation.SimulationStatus;
+import de.congrace.exp4j.Calculable;
+import de.congrace.exp4j.Variable;
+
+/**
+ * A custom expression prepared for repeated evaluation during a single simulation.
+ * The expression is parsed only once, and the variables used in it are bound to the
+ * flight data columns by slot instead of being set by name at every evaluation.
+ * <p>
+ * Instances are not thread-safe, since the built expressions hold the variable values.
+ *
+ * @see CustomExpression#compile()
+ */
+abstract class CompiledExpression {
+
+	/**
+	 * Evaluate the expression using the last values of the flight data.
+	 *
+	 * @param status			the simulation status.
+	 * @param subExpressions	the values of the sub-expressions already evaluated for
+	 * 							the current state, by their key.  New values are added.
+	 * @return					the value of the expression.
+	 */
+	abstract Variable evaluate(SimulationStatus status, Map<String, Variable> subExpressions);
+
+
+	/**
+	 * Evaluate a sub-expression, or return its value if it has already been evaluated
+	 * for the current state.  Values that depend on flight data changed since then must
+	 * have been removed from the map by the caller.
+	 */
+	static Variable evaluateShared(String key, CompiledExpression expression, SimulationStatus status,
+			Map<String, Variable> subExpressions) {
+		Variable value = subExpressions.get(key);
+		if (value == null) {
+			value = expression.evaluate(status, subExpressions);
+			subExpressions.put(key, value);
+		}
+		return value;
+	}
+
+
+	/**
+	 * Binds the variables of a built expression to the columns of a flight data branch.
+	 * The columns are resolved again only when the branch or its set of types changes.
+	 */
+	static final class VariableBinding {
+		private final Calculable calc;
+
+		private FlightDataBranch branch = null;
+		private int typeCount = -1;
+
+		private final List<String> symbols = new ArrayList<String>();
+		private final List<FlightDataColumn> columns = new ArrayList<FlightDataColumn>();
+		private int[] slots = new int[0];
+
+		VariableBinding(Calculable calc) {
+			this.calc = calc;
+		}
+
+		/**
+		 * Set the variables of the expression to the last values of the branch.
+		 */
+		void bind(FlightDataBranch data) {
+			if (data != branch || data.getTypeCount() != typeCount) {
+				resolve(data);
+			}
+			for (int i = 0; i < slots.length; i++) {
+				calc.setVariable(slots[i], new Variable(symbols.get(i), columns.get(i).getLast()));
+			}
+		}
+
+		private void resolve(FlightDataBranch data) {
+			// Variables that are no longer available revert to placeholders
+			for (int i = 0; i < slots.length; i++) {
+				calc.setVariable(slots[i], new Variable(symbols.get(i)));
+			}
+
+			// Later types override earlier ones with the same symbol, as when setting by name
+			int[] typeSlots = new int[0];
+			symbols.clear();
+			columns.clear();
+			for (FlightDataType type : data.getTypes()) {
+				int slot = calc.getVariableSlot(type.getSymbol());
+				if (slot < 0) {
+					continue;
+				}
+				int index = indexOf(typeSlots, slot);
+				if (index < 0) {
+					typeSlots = append(typeSlots, slot);
+					symbols.add(type.getSymbol());
+					columns.add(data.getColumn(type));
+				} else {
+					columns.set(index, data.getColumn(type));
+				}
+			}
+
+			slots = typeSlots;
+			branch = data;
+			typeCount = data.getTypeCount();
+		}
+
+		private static int indexOf(int[] array, int value) {
+			for (int i = 0; i < array.length; i++) {
+				if (array[i] == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static int[] append(int[] array, int value) {
+			int[] result = new int[array.length + 1];
+			System.arraycopy(array, 0, result, 0, array.length);
+			result[array.length] = value;
+			return result;
+		}
+	}
+
+}
@@ -1,6 +1,8 @@
 package net.sf.openrocket.simulation.customexpression;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -373,10 +375,7 @@ public class CustomExpression implements Cloneable {
 	}
 	
 	public Double evaluateDouble(SimulationStatus status) {
-		double result = evaluate(status).getDoubleValue();
-		if (result == Double.NEGATIVE_INFINITY || result == Double.POSITIVE_INFINITY)
-			result = Double.NaN;
-		return result;
+		return toDouble(evaluate(status));
 	}
 	
 	/*
@@ -409,32 +408,95 @@ public class CustomExpression implements Cloneable {
 	 * Returns NaN on any error.
 	 */
 	public Variable evaluate(SimulationStatus status) {
-		
-		Calculable calc = buildExpression(builder);
+		return compile().evaluate(status, new HashMap<String, Variable>());
+	}
+	
+	/*
+	 * Returns the value of an evaluated expression, converting infinite values to NaN.
+	 */
+	static double toDouble(Variable value) {
+		double result = value.getDoubleValue();
+		if (result == Double.NEGATIVE_INFINITY || result == Double.POSITIVE_INFINITY)
+			result = Double.NaN;
+		return result;
+	}
+	
+	/*
+	 * Prepares the expression for repeated evaluation during a single simulation.
+	 * The expression and its sub expressions are built once.
+	 */
+	CompiledExpression compile() {
+		final Calculable calc = buildExpression(builder);
 		if (calc == null) {
-			return new Variable("Unknown");
+			return compileUnknown();
 		}
 		
-		// Evaluate any sub expressions and set associated variables in the calculable
-		for (CustomExpression expr : this.subExpressions) {
-			calc.setVariable(expr.evaluate(status));
-		}
-		
-		// Set all the built-in variables. Strictly we surely won't need all of them
-		// Going through and checking them to include only the ones used *might* give a speedup
-		for (FlightDataType type : status.getFlightData().getTypes()) {
-			double value = status.getFlightData().getLast(type);
-			calc.setVariable(new Variable(type.getSymbol(), value));
-		}
-		
-		double result = Double.NaN;
-		try {
-			result = calc.calculate().getDoubleValue();
-		} catch (java.util.EmptyStackException e) {
-			log.info(Markers.USER_MARKER, "Unable to calculate expression " + this.expression + " due to empty stack exception");
+		final int count = subExpressions.size();
+		final String[] keys = new String[count];
+		final CompiledExpression[] compiledSubExpressions = new CompiledExpression[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = subExpressions.get(i).getSharingKey();
+			compiledSubExpressions[i] = subExpressions.get(i).compile();
 		}
+		final CompiledExpression.VariableBinding binding = new CompiledExpression.VariableBinding(calc);
 		
-		return new Variable(name, result);
+		return new CompiledExpression() {
+			@Override
+			Variable evaluate(SimulationStatus status, Map<String, Variable> values) {
+				// Evaluate any sub expressions and set associated variables in the calculable
+				for (int i = 0; i < count; i++) {
+					calc.setVariable(evaluateShared(keys[i], compiledSubExpressions[i], status, values));
+				}
+				
+				// Set the flight data variables used in the expression
+				binding.bind(status.getFlightData());
+				
+				double result = Double.NaN;
+				try {
+					result = calc.calculate().getDoubleValue();
+				} catch (java.util.EmptyStackException e) {
+					log.info(Markers.USER_MARKER, "Unable to calculate expression " + expression + " due to empty stack exception");
+				}
+				
+				return new Variable(name, result);
+			}
+		};
+	}
+	
+	/*
+	 * Returns a compiled expression that always evaluates to an unknown value.
+	 */
+	static CompiledExpression compileUnknown() {
+		return new CompiledExpression() {
+			@Override
+			Variable evaluate(SimulationStatus status, Map<String, Variable> values) {
+				return new Variable("Unknown");
+			}
+		};
+	}
+	
+	/*
+	 * Returns a key identifying the value of this expression when used as a sub expression.
+	 * Sub expressions with equal keys are evaluated only once for each simulation step.
+	 */
+	String getSharingKey() {
+		return getClass().getName() + ":" + symbol + ":" + getExpressionString();
+	}
+	
+	/*
+	 * Returns whether the value of this expression, when used as a sub expression, may change
+	 * when the flight data of the given symbol changes.  A symbol appearing anywhere in the
+	 * expression string counts as a dependency, so this may give false positives.
+	 */
+	boolean dependsOn(String symbol) {
+		return symbol.equals(this.symbol) || getExpressionString().contains(symbol);
+	}
+	
+	/*
+	 * Returns the time indexed and range sub expressions of this expression.
+	 */
+	List<CustomExpression> getSubExpressions() {
+		return subExpressions;
 	}
 	
 	/*
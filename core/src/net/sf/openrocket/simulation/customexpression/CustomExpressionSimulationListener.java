@@ -1,8 +1,14 @@
 package net.sf.openrocket.simulation.customexpression;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataType;
 import net.sf.openrocket.simulation.SimulationStatus;
 import net.sf.openrocket.simulation.exception.SimulationException;
 import net.sf.openrocket.simulation.listeners.AbstractSimulationListener;
@@ -10,28 +16,84 @@ import net.sf.openrocket.simulation.listeners.AbstractSimulationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.congrace.exp4j.Variable;
+
 public class CustomExpressionSimulationListener extends AbstractSimulationListener {
 	
 	private static final Logger log = LoggerFactory.getLogger(CustomExpressionSimulationListener.class);
 	private final List<CustomExpression> expressions;
 	
+	/*
+	 * The expressions compiled for the current simulation, their flight data types, the
+	 * keys of the sub expressions that depend on each of them, and the values of the sub
+	 * expressions evaluated during the current step.
+	 */
+	private List<CompiledExpression> compiled = null;
+	private List<FlightDataType> types = null;
+	private List<Set<String>> dependentKeys = null;
+	private Map<String, Variable> subExpressionValues = null;
+	
 	public CustomExpressionSimulationListener(List<CustomExpression> expressions) {
 		super();
 		this.expressions = expressions;
 	}
 	
+	@Override
+	public void startSimulation(SimulationStatus status) throws SimulationException {
+		compile();
+	}
+	
 	@Override
 	public void postStep(SimulationStatus status) throws SimulationException {
 		if (expressions == null || expressions.size() == 0) {
 			return;
 		}
+		if (compiled == null) {
+			compile();
+		}
+		
 		// Calculate values for custom expressions
 		FlightDataBranch data = status.getFlightData();
-		for (CustomExpression expression : expressions) {
-			double value = expression.evaluateDouble(status);
+		subExpressionValues.clear();
+		for (int i = 0; i < compiled.size(); i++) {
+			double value = CustomExpression.toDouble(compiled.get(i).evaluate(status, subExpressionValues));
 			//log.debug("Setting value of custom expression "+expression.toString()+" = "+value);
-			data.setValue(expression.getType(), value);
+			data.setValue(types.get(i), value);
+			
+			// Sub expressions of this value evaluated earlier in the step are now stale
+			for (String key : dependentKeys.get(i)) {
+				subExpressionValues.remove(key);
+			}
+		}
+	}
+	
+	/*
+	 * Builds the expressions once for the simulation, so that evaluating them at each
+	 * step does not parse the expressions or look up the variables by name.
+	 */
+	private void compile() {
+		compiled = new ArrayList<CompiledExpression>();
+		types = new ArrayList<FlightDataType>();
+		dependentKeys = new ArrayList<Set<String>>();
+		subExpressionValues = new HashMap<String, Variable>();
+		if (expressions == null) {
+			return;
+		}
+		for (CustomExpression expression : expressions) {
+			compiled.add(expression.compile());
+			types.add(expression.getType());
+			
+			Set<String> keys = new HashSet<String>();
+			for (CustomExpression other : expressions) {
+				for (CustomExpression sub : other.getSubExpressions()) {
+					if (sub.dependsOn(expression.getSymbol())) {
+						keys.add(sub.getSharingKey());
+					}
+				}
+			}
+			dependentKeys.add(keys);
 		}
+		log.debug("Compiled " + compiled.size() + " custom expressions");
 	}
 	
 	@Override
@@ -39,4 +101,15 @@ public class CustomExpressionSimulationListener extends AbstractSimulationListen
 		return true;
 	}
 	
+	@Override
+	public CustomExpressionSimulationListener clone() {
+		// The compiled expressions hold the variable values, so they must not be shared
+		CustomExpressionSimulationListener clone = (CustomExpressionSimulationListener) super.clone();
+		clone.compiled = null;
+		clone.types = null;
+		clone.dependentKeys = null;
+		clone.subExpressionValues = null;
+		return clone;
+	}
+	
 }
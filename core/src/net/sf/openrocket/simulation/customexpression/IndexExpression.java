@@ -1,6 +1,6 @@
 package net.sf.openrocket.simulation.customexpression;
 
-import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +11,8 @@ import de.congrace.exp4j.Variable;
 import net.sf.openrocket.document.OpenRocketDocument;
 import net.sf.openrocket.logging.Markers;
 import net.sf.openrocket.simulation.customexpression.CustomExpression;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
 import net.sf.openrocket.simulation.FlightDataType;
 import net.sf.openrocket.simulation.SimulationStatus;
 import net.sf.openrocket.util.LinearInterpolator;
@@ -29,37 +31,112 @@ public class IndexExpression extends CustomExpression {
 	}
 	
 	@Override
-	public Variable evaluate(SimulationStatus status){
-		Calculable calc = buildExpression();
+	CompiledExpression compile(){
+		final Calculable calc = buildExpression();
 		if (calc == null){
-			return new Variable("Unknown");
+			return compileUnknown();
 		}
 		
-		// From the given datatype, get the time and function values and make an interpolator
-
 		//Note: must get in a way that flight data system will figure out units. Otherwise there will be a type conflict when we get the new data.
-		FlightDataType myType = FlightDataType.getType(null, getSymbol(), null);  
+		final FlightDataType myType = FlightDataType.getType(null, getSymbol(), null);
+		final CompiledExpression.VariableBinding binding = new CompiledExpression.VariableBinding(calc);
+		final ColumnInterpolator interpolator = new ColumnInterpolator();
+		
+		return new CompiledExpression() {
+			@Override
+			Variable evaluate(SimulationStatus status, Map<String, Variable> values){
+				// From the given datatype, get the time and function values to interpolate
+				FlightDataBranch branch = status.getFlightData();
+				FlightDataColumn data = branch.getColumn(myType);
+				FlightDataColumn time = branch.getColumn(FlightDataType.TYPE_TIME);
+				if (data == null || time == null){
+					return new Variable("Unknown");
+				}
+				// Set the variables in the expression to evaluate
+				binding.bind(branch);
 				
-		List<Double> data = status.getFlightData().get(myType);
-		List<Double> time = status.getFlightData().get(FlightDataType.TYPE_TIME);
-		LinearInterpolator interp = new LinearInterpolator(time, data); 
+				// Evaluate this expression to get the t value
+				try{
+					double tvalue = calc.calculate().getDoubleValue();
+					return new Variable(hash(), interpolator.getValue(time, data, tvalue));
+				}
+				catch (java.util.EmptyStackException e){
+					log.info(Markers.USER_MARKER, "Unable to calculate time index for indexed expression "+getExpressionString()+" due to empty stack exception");
+					return new Variable("Unknown");
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Linear interpolation of flight data columns at a given time, with the same results
+	 * as a {@link LinearInterpolator} of the time and data columns.  The times of simulated
+	 * data are increasing, so the point is found by a binary search of the time column
+	 * instead of copying the columns into an interpolator at each evaluation.  Columns
+	 * only grow during a simulation, so only the points added since the previous evaluation
+	 * are checked to be increasing.  Other data falls back to a sorting interpolator.
+	 */
+	static final class ColumnInterpolator {
+		private FlightDataColumn checkedTime;
+		private int checkedLength;
 		
-		// Set the variables in the expression to evaluate
-		for (FlightDataType etype : status.getFlightData().getTypes()){
-			double value = status.getFlightData().getLast(etype); 
-			calc.setVariable( new Variable(etype.getSymbol(), value ) );
+		double getValue(FlightDataColumn time, FlightDataColumn data, double t) {
+			int n = time.size();
+			if (n == 0) {
+				throw new IllegalStateException("No points added yet to the interpolator.");
+			}
+			if (!isIncreasing(time)) {
+				return new LinearInterpolator(time.toArray(), data.toArray()).getValue(t);
+			}
+			
+			if (!(t > time.get(0))) {
+				// Also NaN values, which are ordered after all other values
+				return (t != t) ? data.get(n - 1) : data.get(0);
+			}
+			if (t >= time.get(n - 1)) {
+				return data.get(n - 1);
+			}
+			
+			// Find the last point at or before t
+			int low = 0;
+			int high = n - 1;
+			while (high - low > 1) {
+				int mid = (low + high) >>> 1;
+				if (time.get(mid) <= t) {
+					low = mid;
+				} else {
+					high = mid;
+				}
+			}
+			
+			double t1 = time.get(low);
+			double y1 = data.get(low);
+			if (t == t1) {
+				return y1;
+			}
+			return (t - t1) / (time.get(high) - t1) * (data.get(high) - y1) + y1;
 		}
 		
-		// Evaluate this expression to get the t value
-		//System.out.println("Evaluating expression to get t value "+this.getExpressionString());
-		try{
-			double tvalue = calc.calculate().getDoubleValue();
-			//System.out.println("t = "+tvalue);
-			return new Variable(hash(), interp.getValue( tvalue ) );
-		}
-		catch (java.util.EmptyStackException e){
-			log.info(Markers.USER_MARKER, "Unable to calculate time index for indexed expression "+getExpressionString()+" due to empty stack exception");
-			return new Variable("Unknown");
+		/**
+		 * Return whether the time column is strictly increasing.  The last checked point
+		 * is checked again, since the values of the last point may still be changing.
+		 */
+		private boolean isIncreasing(FlightDataColumn time) {
+			int n = time.size();
+			if (time != checkedTime || n < checkedLength) {
+				checkedTime = time;
+				checkedLength = 0;
+			}
+			for (int i = Math.max(checkedLength - 1, 0); i < n; i++) {
+				double value = time.get(i);
+				// Negated comparisons to also reject NaN values
+				if (value != value || (i > 0 && !(value > time.get(i - 1)))) {
+					checkedLength = i;
+					return false;
+				}
+			}
+			checkedLength = n;
+			return true;
 		}
 	}
 }
@@ -4,7 +4,7 @@
 
 package net.sf.openrocket.simulation.customexpression;
 
-import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +15,8 @@ import de.congrace.exp4j.Variable;
 import net.sf.openrocket.document.OpenRocketDocument;
 import net.sf.openrocket.logging.Markers;
 import net.sf.openrocket.simulation.customexpression.CustomExpression;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataColumn;
 import net.sf.openrocket.simulation.FlightDataType;
 import net.sf.openrocket.simulation.SimulationStatus;
 import net.sf.openrocket.util.ArrayUtils;
@@ -26,6 +28,7 @@ public class RangeExpression extends CustomExpression {
 	private static final Logger log = LoggerFactory.getLogger(RangeExpression.class);
 
 	private ExpressionBuilder startBuilder, endBuilder;
+	private final String startTime, endTime;
 	
 	public RangeExpression(OpenRocketDocument doc, String startTime, String endTime, String variableType) {
 		super(doc);
@@ -37,6 +40,8 @@ public class RangeExpression extends CustomExpression {
 			endTime = "t";
 		}
 		
+		this.startTime = startTime;
+		this.endTime = endTime;
 		this.setName("");
 		this.setSymbol(variableType);
 		this.setExpressions(startTime, endTime);
@@ -59,62 +64,75 @@ public class RangeExpression extends CustomExpression {
 	}
 	
 	@Override
-	public Variable evaluate(SimulationStatus status){
+	String getSharingKey(){
+		return super.getSharingKey()+":"+startTime+":"+endTime;
+	}
+	
+	@Override
+	CompiledExpression compile(){
 		
-		Calculable startCalc = buildExpression(startBuilder);
-		Calculable endCalc = buildExpression(endBuilder);
+		final Calculable startCalc = buildExpression(startBuilder);
+		final Calculable endCalc = buildExpression(endBuilder);
 		if (startCalc == null || endCalc == null){
-			return new Variable("Unknown");
+			return compileUnknown();
 		}
 		
-		// Set the variables in the start and end calculators
-		for (FlightDataType type : status.getFlightData().getTypes()){
-			double value = status.getFlightData().getLast(type); 
-			startCalc.setVariable( new Variable(type.getSymbol(), value ) );
-			endCalc.setVariable( new Variable(type.getSymbol(), value ) );
-		}		
-		
-		// From the given datatype, get the time and function values and make an interpolator
-
 		//Note: must get in a way that flight data system will figure out units. Otherwise there will be a type conflict when we get the new data.
-		FlightDataType type = FlightDataType.getType(null, getSymbol(), null);
-		
-		List<Double> data = status.getFlightData().get(type);
-		List<Double> time = status.getFlightData().get(FlightDataType.TYPE_TIME);
-		LinearInterpolator interp = new LinearInterpolator(time, data); 
-		
-		// Evaluate the expression to get the start and end of the range
-		double startTime, endTime;
-		try{
-			startTime = startCalc.calculate().getDoubleValue();
-			startTime = MathUtil.clamp(startTime, 0, Double.MAX_VALUE);
-			
-			endTime = endCalc.calculate().getDoubleValue();
-			endTime = MathUtil.clamp(endTime, 0, time.get(time.size()-1));
-		}
-		catch (java.util.EmptyStackException e){
-			log.info(Markers.USER_MARKER, "Unable to calculate time index for range expression "+getSymbol()+" due to empty stack exception");
-			return new Variable("Unknown");
-		}
+		final FlightDataType type = FlightDataType.getType(null, getSymbol(), null);
+		final CompiledExpression.VariableBinding startBinding = new CompiledExpression.VariableBinding(startCalc);
+		final CompiledExpression.VariableBinding endBinding = new CompiledExpression.VariableBinding(endCalc);
 		
-		// generate an array representing the range
-		double step = status.getSimulationConditions().getSimulation().getOptions().getTimeStep();
-		double[] t = ArrayUtils.range(startTime, endTime,  step);
-		double[] y = new double[t.length]; 
-		int i = 0;
-		for (double tval : t){
-			y[i] = interp.getValue( tval );
-			i++;
-		}
+		return new CompiledExpression() {
+			@Override
+			Variable evaluate(SimulationStatus status, Map<String, Variable> values){
 				
-		Variable result;
-		if (y.length == 0){
-			result = new Variable("Unknown");
-		}
-		else {
-			result = new Variable(hash(), y, startTime, step);
-		}
-		
-		return result;
+				// Set the variables in the start and end calculators
+				FlightDataBranch branch = status.getFlightData();
+				startBinding.bind(branch);
+				endBinding.bind(branch);
+				
+				// From the given datatype, get the time and function values and make an interpolator
+				FlightDataColumn data = branch.getColumn(type);
+				FlightDataColumn time = branch.getColumn(FlightDataType.TYPE_TIME);
+				if (data == null || time == null || time.size() == 0){
+					return new Variable("Unknown");
+				}
+				LinearInterpolator interp = new LinearInterpolator(time.toArray(), data.toArray());
+				
+				// Evaluate the expression to get the start and end of the range
+				double startTime, endTime;
+				try{
+					startTime = startCalc.calculate().getDoubleValue();
+					startTime = MathUtil.clamp(startTime, 0, Double.MAX_VALUE);
+					
+					endTime = endCalc.calculate().getDoubleValue();
+					endTime = MathUtil.clamp(endTime, 0, time.getLast());
+				}
+				catch (java.util.EmptyStackException e){
+					log.info(Markers.USER_MARKER, "Unable to calculate time index for range expression "+getSymbol()+" due to empty stack exception");
+					return new Variable("Unknown");
+				}
+				
+				// generate an array representing the range
+				double step = status.getSimulationConditions().getSimulation().getOptions().getTimeStep();
+				double[] t = ArrayUtils.range(startTime, endTime,  step);
+				double[] y = new double[t.length]; 
+				int i = 0;
+				for (double tval : t){
+					y[i] = interp.getValue( tval );
+					i++;
+				}
+				
+				Variable result;
+				if (y.length == 0){
+					result = new Variable("Unknown");
+				}
+				else {
+					result = new Variable(hash(), y, startTime, step);
+				}
+				
+				return result;
+			}
+		};
 	}
 }
@@ -0,0 +1,142 @@
+package net.sf.openrocket.simulation.dispersion;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import net.sf.openrocket.models.wind.PinkNoiseWindModel;
+import net.sf.openrocket.models.wind.WindModel;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.batch.BatchSimulationListener;
+import net.sf.openrocket.simulation.batch.BatchSimulationResult;
+import net.sf.openrocket.simulation.batch.BatchSimulationRunner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Monte Carlo dispersion analysis.  A number of flights are simulated with normally
+ * distributed perturbations of the wind, launch rod orientation, motor impulse and drag
+ * coefficient, and the results are aggregated into a {@link DispersionResult}.
+ * <p>
+ * The simulation conditions of the flights are generated lazily and the flight data
+ * of each flight is discarded once its statistics have been recorded, so the memory
+ * use does not depend on the number of flights.  The perturbations and the simulation
+ * random seed of each flight depend only on the random seed of the options and the
+ * index of the flight, so the results are reproducible.
+ */
+public class DispersionAnalysis {
+	private static final Logger log = LoggerFactory.getLogger(DispersionAnalysis.class);
+	
+	private final SimulationConditions base;
+	private final DispersionOptions options;
+	
+	
+	/**
+	 * Construct a dispersion analysis.
+	 * 
+	 * @param base		the nominal simulation conditions.  These are not modified.
+	 * @param options	the dispersion options.
+	 */
+	public DispersionAnalysis(SimulationConditions base, DispersionOptions options) {
+		this.base = base.clone();
+		this.options = options.clone();
+	}
+	
+	
+	/**
+	 * Run the analysis.
+	 * 
+	 * @param runner	the runner used to simulate the flights.
+	 * @param progress	a listener notified as each flight finishes, or <code>null</code>.
+	 * @return			the aggregated results of the analysis.
+	 * @throws InterruptedException	if the calling thread was interrupted while waiting.
+	 */
+	public DispersionResult run(BatchSimulationRunner runner, final BatchSimulationListener progress)
+			throws InterruptedException {
+		final DispersionResult result = new DispersionResult(options.getQuantiles());
+		if (!(base.getWindModel() instanceof PinkNoiseWindModel)) {
+			log.warn("Wind model " + base.getWindModel() + " cannot be perturbed, using it unmodified");
+		}
+		
+		log.info("Starting dispersion analysis with " + options.getRunCount() + " flights");
+		runner.run(new ConditionIterator(), options.getRunCount(), new BatchSimulationListener() {
+			@Override
+			public void simulationFinished(BatchSimulationResult r, int finishedCount, int totalCount) {
+				if (r.isSuccessful()) {
+					result.add(r.getFlightData());
+				} else {
+					result.addFailure();
+				}
+				if (progress != null) {
+					progress.simulationFinished(r, finishedCount, totalCount);
+				}
+			}
+		});
+		log.info("Dispersion analysis finished: " + result);
+		
+		return result;
+	}
+	
+	
+	/**
+	 * Create the perturbed simulation conditions of a single flight.
+	 * 
+	 * @param index		the index of the flight.
+	 * @return			the simulation conditions of the flight.
+	 */
+	SimulationConditions createConditions(int index) {
+		Random rnd = new Random(options.getRandomSeed() * 0x9E3779B97F4A7C15L + index);
+		SimulationConditions conditions = base.clone();
+		
+		conditions.setRandomSeed(rnd.nextInt());
+		conditions.setSinglePrecisionData(true);
+		conditions.setCalculateExtras(false);
+		conditions.setReuseStepperState(true);
+		
+		// Only pink noise wind is perturbed; the batch runner copies other wind models per flight
+		WindModel wind = base.getWindModel();
+		if (wind instanceof PinkNoiseWindModel) {
+			PinkNoiseWindModel nominal = (PinkNoiseWindModel) wind;
+			PinkNoiseWindModel perturbed = new PinkNoiseWindModel(conditions.getRandomSeed());
+			perturbed.setAverage(nominal.getAverage() + rnd.nextGaussian() * options.getWindSpeedDeviation());
+			perturbed.setStandardDeviation(nominal.getStandardDeviation());
+			perturbed.setDirection(nominal.getDirection() + rnd.nextGaussian() * options.getWindDirectionDeviation());
+			conditions.setWindModel(perturbed);
+		}
+		
+		conditions.setLaunchRodAngle(Math.abs(base.getLaunchRodAngle() +
+				rnd.nextGaussian() * options.getLaunchRodAngleDeviation()));
+		conditions.setLaunchRodDirection(base.getLaunchRodDirection() +
+				rnd.nextGaussian() * options.getLaunchRodDirectionDeviation());
+		
+		double thrustFactor = Math.max(1 + rnd.nextGaussian() * options.getImpulseDeviation(), 0);
+		double dragFactor = Math.max(1 + rnd.nextGaussian() * options.getDragDeviation(), 0);
+		conditions.getSimulationListenerList().add(new DispersionSimulationListener(thrustFactor, dragFactor));
+		
+		return conditions;
+	}
+	
+	
+	private class ConditionIterator implements Iterator<SimulationConditions> {
+		private int index = 0;
+		
+		@Override
+		public boolean hasNext() {
+			return index < options.getRunCount();
+		}
+		
+		@Override
+		public SimulationConditions next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return createConditions(index++);
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
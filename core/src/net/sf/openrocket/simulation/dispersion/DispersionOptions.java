@@ -0,0 +1,157 @@
+package net.sf.openrocket.simulation.dispersion;
+
+import java.util.Arrays;
+
+import net.sf.openrocket.util.BugException;
+
+/**
+ * The options of a Monte Carlo dispersion analysis.  These define the number of
+ * flights to simulate and the standard deviations of the normally distributed
+ * perturbations applied to each flight.  All deviations default to zero, meaning
+ * the corresponding parameter is not perturbed.
+ */
+public class DispersionOptions implements Cloneable {
+	
+	private int runCount = 1000;
+	private int randomSeed = 0;
+	
+	/** Standard deviation of the average wind speed, m/s */
+	private double windSpeedDeviation = 0;
+	/** Standard deviation of the wind direction, radians */
+	private double windDirectionDeviation = 0;
+	/** Standard deviation of the launch rod angle, radians */
+	private double launchRodAngleDeviation = 0;
+	/** Standard deviation of the launch rod direction, radians */
+	private double launchRodDirectionDeviation = 0;
+	/** Relative standard deviation of the motor total impulse */
+	private double impulseDeviation = 0;
+	/** Relative standard deviation of the drag coefficient */
+	private double dragDeviation = 0;
+	
+	/** The quantiles to estimate for apogee and landing distance */
+	private double[] quantiles = { 0.05, 0.5, 0.95 };
+	
+	
+	public int getRunCount() {
+		return runCount;
+	}
+	
+	public void setRunCount(int runCount) {
+		if (runCount < 1) {
+			throw new IllegalArgumentException("runCount must be positive, was " + runCount);
+		}
+		this.runCount = runCount;
+	}
+	
+	
+	/**
+	 * Return the base random seed.  The perturbations and the simulation random seed of
+	 * each flight are derived from this seed and the index of the flight, so an analysis
+	 * is reproducible regardless of the number of threads used.
+	 */
+	public int getRandomSeed() {
+		return randomSeed;
+	}
+	
+	public void setRandomSeed(int randomSeed) {
+		this.randomSeed = randomSeed;
+	}
+	
+	
+	public double getWindSpeedDeviation() {
+		return windSpeedDeviation;
+	}
+	
+	public void setWindSpeedDeviation(double windSpeedDeviation) {
+		this.windSpeedDeviation = checkDeviation(windSpeedDeviation);
+	}
+	
+	
+	public double getWindDirectionDeviation() {
+		return windDirectionDeviation;
+	}
+	
+	public void setWindDirectionDeviation(double windDirectionDeviation) {
+		this.windDirectionDeviation = checkDeviation(windDirectionDeviation);
+	}
+	
+	
+	public double getLaunchRodAngleDeviation() {
+		return launchRodAngleDeviation;
+	}
+	
+	public void setLaunchRodAngleDeviation(double launchRodAngleDeviation) {
+		this.launchRodAngleDeviation = checkDeviation(launchRodAngleDeviation);
+	}
+	
+	
+	public double getLaunchRodDirectionDeviation() {
+		return launchRodDirectionDeviation;
+	}
+	
+	public void setLaunchRodDirectionDeviation(double launchRodDirectionDeviation) {
+		this.launchRodDirectionDeviation = checkDeviation(launchRodDirectionDeviation);
+	}
+	
+	
+	/**
+	 * Return the relative standard deviation of the motor total impulse (e.g. 0.03 for 3%).
+	 */
+	public double getImpulseDeviation() {
+		return impulseDeviation;
+	}
+	
+	public void setImpulseDeviation(double impulseDeviation) {
+		this.impulseDeviation = checkDeviation(impulseDeviation);
+	}
+	
+	
+	/**
+	 * Return the relative standard deviation of the drag coefficient (e.g. 0.05 for 5%).
+	 */
+	public double getDragDeviation() {
+		return dragDeviation;
+	}
+	
+	public void setDragDeviation(double dragDeviation) {
+		this.dragDeviation = checkDeviation(dragDeviation);
+	}
+	
+	
+	/**
+	 * Return the quantiles estimated for the apogee and landing distance.
+	 */
+	public double[] getQuantiles() {
+		return quantiles.clone();
+	}
+	
+	public void setQuantiles(double... quantiles) {
+		for (double p : quantiles) {
+			if (!(p >= 0 && p <= 1)) {
+				throw new IllegalArgumentException("Quantile must be between 0 and 1, was " + p);
+			}
+		}
+		this.quantiles = quantiles.clone();
+		Arrays.sort(this.quantiles);
+	}
+	
+	
+	private static double checkDeviation(double deviation) {
+		if (!(deviation >= 0)) {
+			throw new IllegalArgumentException("Deviation must be non-negative, was " + deviation);
+		}
+		return deviation;
+	}
+	
+	
+	@Override
+	public DispersionOptions clone() {
+		try {
+			DispersionOptions clone = (DispersionOptions) super.clone();
+			clone.quantiles = this.quantiles.clone();
+			return clone;
+		} catch (CloneNotSupportedException e) {
+			throw new BugException(e);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package net.sf.openrocket.simulation.dispersion;
+
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.util.MathUtil;
+import net.sf.openrocket.util.QuantileEstimator;
+import net.sf.openrocket.util.RunningStatistics;
+
+/**
+ * The aggregated results of a Monte Carlo dispersion analysis.  Only streaming
+ * statistics of the flights are stored, not the flight data itself, so the memory
+ * use is independent of the number of flights simulated.
+ * <p>
+ * Flights are added concurrently from the worker threads of the analysis, and all
+ * methods of this class are synchronized.  The statistics objects returned by the
+ * getters are live and must not be modified.
+ */
+public class DispersionResult {
+	
+	private final RunningStatistics apogee = new RunningStatistics();
+	private final RunningStatistics maxVelocity = new RunningStatistics();
+	private final RunningStatistics flightTime = new RunningStatistics();
+	private final RunningStatistics landingX = new RunningStatistics();
+	private final RunningStatistics landingY = new RunningStatistics();
+	private final RunningStatistics landingDistance = new RunningStatistics();
+	private double landingCoMoment = 0;
+	
+	private final QuantileEstimator[] apogeeQuantiles;
+	private final QuantileEstimator[] landingDistanceQuantiles;
+	
+	private int successCount = 0;
+	private int failureCount = 0;
+	
+	
+	DispersionResult(double[] quantiles) {
+		apogeeQuantiles = new QuantileEstimator[quantiles.length];
+		landingDistanceQuantiles = new QuantileEstimator[quantiles.length];
+		for (int i = 0; i < quantiles.length; i++) {
+			apogeeQuantiles[i] = new QuantileEstimator(quantiles[i]);
+			landingDistanceQuantiles[i] = new QuantileEstimator(quantiles[i]);
+		}
+	}
+	
+	
+	/**
+	 * Add the results of a successfully simulated flight.
+	 */
+	synchronized void add(FlightData data) {
+		successCount++;
+		
+		apogee.add(data.getMaxAltitude());
+		maxVelocity.add(data.getMaxVelocity());
+		flightTime.add(data.getFlightTime());
+		for (QuantileEstimator q : apogeeQuantiles) {
+			q.add(data.getMaxAltitude());
+		}
+		
+		if (data.getBranchCount() == 0) {
+			return;
+		}
+		FlightDataBranch branch = data.getBranch(0);
+		double x = branch.getLast(FlightDataType.TYPE_POSITION_X);
+		double y = branch.getLast(FlightDataType.TYPE_POSITION_Y);
+		if (Double.isNaN(x) || Double.isNaN(y)) {
+			return;
+		}
+		
+		// Co-moment update for the covariance, see Welford's algorithm
+		double dx = (landingX.getCount() == 0) ? 0 : x - landingX.getMean();
+		landingX.add(x);
+		landingY.add(y);
+		landingCoMoment += dx * (y - landingY.getMean());
+		
+		double distance = MathUtil.hypot(x, y);
+		landingDistance.add(distance);
+		for (QuantileEstimator q : landingDistanceQuantiles) {
+			q.add(distance);
+		}
+	}
+	
+	/**
+	 * Record a flight that failed to simulate.
+	 */
+	synchronized void addFailure() {
+		failureCount++;
+	}
+	
+	
+	/**
+	 * Return the number of successfully simulated flights.
+	 */
+	public synchronized int getSuccessCount() {
+		return successCount;
+	}
+	
+	/**
+	 * Return the number of flights that failed to simulate.
+	 */
+	public synchronized int getFailureCount() {
+		return failureCount;
+	}
+	
+	public synchronized RunningStatistics getApogee() {
+		return apogee;
+	}
+	
+	public synchronized RunningStatistics getMaxVelocity() {
+		return maxVelocity;
+	}
+	
+	public synchronized RunningStatistics getFlightTime() {
+		return flightTime;
+	}
+	
+	public synchronized RunningStatistics getLandingX() {
+		return landingX;
+	}
+	
+	public synchronized RunningStatistics getLandingY() {
+		return landingY;
+	}
+	
+	/**
+	 * Return the statistics of the horizontal distance of the landing point from the launch point.
+	 */
+	public synchronized RunningStatistics getLandingDistance() {
+		return landingDistance;
+	}
+	
+	
+	/**
+	 * Return the estimate of a quantile of the apogee altitude.
+	 * 
+	 * @param p		one of the quantiles defined in the dispersion options.
+	 * @return		the estimated quantile.
+	 * @throws IllegalArgumentException	if the quantile was not defined in the options.
+	 */
+	public synchronized double getApogeeQuantile(double p) {
+		return findQuantile(apogeeQuantiles, p).getValue();
+	}
+	
+	/**
+	 * Return the estimate of a quantile of the landing distance.
+	 * 
+	 * @param p		one of the quantiles defined in the dispersion options.
+	 * @return		the estimated quantile.
+	 * @throws IllegalArgumentException	if the quantile was not defined in the options.
+	 */
+	public synchronized double getLandingDistanceQuantile(double p) {
+		return findQuantile(landingDistanceQuantiles, p).getValue();
+	}
+	
+	
+	/**
+	 * Return the ellipse containing the given fraction of the landing points,
+	 * assuming they are normally distributed.
+	 * 
+	 * @param probability	the fraction of landing points to contain, e.g. 0.95.
+	 * @return				the landing ellipse, or <code>null</code> if fewer than two landing points are available.
+	 */
+	public synchronized LandingEllipse getLandingEllipse(double probability) {
+		if (!(probability > 0 && probability < 1)) {
+			throw new IllegalArgumentException("probability must be between 0 and 1, was " + probability);
+		}
+		long n = landingX.getCount();
+		if (n < 2) {
+			return null;
+		}
+		return new LandingEllipse(landingX.getMean(), landingY.getMean(),
+				landingX.getVariance(), landingY.getVariance(), landingCoMoment / n, probability);
+	}
+	
+	
+	private static QuantileEstimator findQuantile(QuantileEstimator[] estimators, double p) {
+		for (QuantileEstimator q : estimators) {
+			if (q.getQuantile() == p) {
+				return q;
+			}
+		}
+		throw new IllegalArgumentException("Quantile " + p + " was not estimated");
+	}
+	
+	
+	@Override
+	public synchronized String toString() {
+		return "DispersionResult[success=" + successCount + ", failures=" + failureCount +
+				", apogee=" + apogee + ", landingDistance=" + landingDistance + "]";
+	}
+}
@@ -0,0 +1,50 @@
+package net.sf.openrocket.simulation.dispersion;
+
+import net.sf.openrocket.aerodynamics.AerodynamicForces;
+import net.sf.openrocket.simulation.SimulationStatus;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.simulation.listeners.AbstractSimulationListener;
+
+/**
+ * A simulation listener that applies the motor impulse and drag perturbations of a
+ * single dispersion flight.  The thrust is scaled over the whole burn, which scales
+ * the total impulse while keeping the burn time unchanged.
+ */
+class DispersionSimulationListener extends AbstractSimulationListener {
+	
+	private final double thrustFactor;
+	private final double dragFactor;
+	
+	public DispersionSimulationListener(double thrustFactor, double dragFactor) {
+		this.thrustFactor = thrustFactor;
+		this.dragFactor = dragFactor;
+	}
+	
+	@Override
+	public double postSimpleThrustCalculation(SimulationStatus status, double thrust) throws SimulationException {
+		if (thrustFactor == 1) {
+			return Double.NaN;
+		}
+		return thrust * thrustFactor;
+	}
+	
+	@Override
+	public AerodynamicForces postAerodynamicCalculation(SimulationStatus status, AerodynamicForces forces)
+			throws SimulationException {
+		if (dragFactor == 1) {
+			return null;
+		}
+		forces.setCaxial(forces.getCaxial() * dragFactor);
+		forces.setCD(forces.getCD() * dragFactor);
+		forces.setPressureCD(forces.getPressureCD() * dragFactor);
+		forces.setBaseCD(forces.getBaseCD() * dragFactor);
+		forces.setFrictionCD(forces.getFrictionCD() * dragFactor);
+		return forces;
+	}
+	
+	@Override
+	public boolean isSystemListener() {
+		// The perturbations are intentional, so no warning is produced
+		return true;
+	}
+}
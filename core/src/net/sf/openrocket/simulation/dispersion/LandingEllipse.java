@@ -0,0 +1,83 @@
+package net.sf.openrocket.simulation.dispersion;
+
+/**
+ * An ellipse containing a given fraction of the landing points of a dispersion
+ * analysis, assuming the landing points are normally distributed.  The coordinates
+ * are in the simulation's horizontal coordinate system (x east, y north, meters).
+ */
+public class LandingEllipse {
+	
+	private final double centerX;
+	private final double centerY;
+	private final double semiMajorAxis;
+	private final double semiMinorAxis;
+	private final double angle;
+	private final double probability;
+	
+	
+	/**
+	 * Compute the ellipse from the mean and covariance of the landing points.
+	 * 
+	 * @param meanX			the mean x coordinate.
+	 * @param meanY			the mean y coordinate.
+	 * @param varX			the variance of the x coordinate.
+	 * @param varY			the variance of the y coordinate.
+	 * @param covXY			the covariance of the x and y coordinates.
+	 * @param probability	the fraction of landing points the ellipse should contain.
+	 */
+	LandingEllipse(double meanX, double meanY, double varX, double varY, double covXY, double probability) {
+		this.centerX = meanX;
+		this.centerY = meanY;
+		this.probability = probability;
+		
+		// Eigenvalues of the covariance matrix
+		double mid = (varX + varY) / 2;
+		double diff = Math.sqrt(Math.max(0, (varX - varY) * (varX - varY) / 4 + covXY * covXY));
+		double major = mid + diff;
+		double minor = Math.max(0, mid - diff);
+		
+		// Chi-square quantile with two degrees of freedom
+		double scale = Math.sqrt(-2 * Math.log(1 - probability));
+		
+		this.semiMajorAxis = scale * Math.sqrt(major);
+		this.semiMinorAxis = scale * Math.sqrt(minor);
+		this.angle = 0.5 * Math.atan2(2 * covXY, varX - varY);
+	}
+	
+	
+	public double getCenterX() {
+		return centerX;
+	}
+	
+	public double getCenterY() {
+		return centerY;
+	}
+	
+	public double getSemiMajorAxis() {
+		return semiMajorAxis;
+	}
+	
+	public double getSemiMinorAxis() {
+		return semiMinorAxis;
+	}
+	
+	/**
+	 * Return the angle of the major axis from the x axis, in radians.
+	 */
+	public double getAngle() {
+		return angle;
+	}
+	
+	/**
+	 * Return the fraction of landing points the ellipse contains.
+	 */
+	public double getProbability() {
+		return probability;
+	}
+	
+	@Override
+	public String toString() {
+		return "LandingEllipse[center=(" + centerX + "," + centerY + "), a=" + semiMajorAxis +
+				", b=" + semiMinorAxis + ", angle=" + angle + ", p=" + probability + "]";
+	}
+}
@@ -1,8 +1,14 @@
 package net.sf.openrocket.simulation.extension.impl;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import net.sf.openrocket.aerodynamics.Warning;
@@ -21,6 +27,29 @@ public class ScriptingExtension extends AbstractSimulationExtension {
 	
 	private static final String DEFAULT_LANGUAGE = "JavaScript";
 	
+	/** The maximum number of compiled scripts retained for each thread. */
+	private static final int COMPILED_CACHE_SIZE = 8;
+	
+	/*
+	 * Scripts compiled by each thread, by the hash of their language and script.
+	 * Script engines are not necessarily thread-safe, so the compiled scripts are
+	 * not shared between threads.  A thread runs a single simulation at a time,
+	 * and each simulation evaluates the script into bindings of its own.
+	 */
+	private static final ThreadLocal<Map<String, CompiledScript>> compiledScripts = new ThreadLocal<Map<String, CompiledScript>>() {
+		@Override
+		protected Map<String, CompiledScript> initialValue() {
+			return new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+					return size() > COMPILED_CACHE_SIZE;
+				}
+			};
+		}
+	};
+	
 	@Inject
 	private ScriptingUtil util;
 	
@@ -91,22 +120,44 @@ public class ScriptingExtension extends AbstractSimulationExtension {
 	
 	
 	SimulationListener getListener() throws SimulationException {
-		ScriptEngineManager manager = new ScriptEngineManager();
-		ScriptEngine engine = manager.getEngineByName(getLanguage());
-		if (engine == null) {
-			throw new SimulationException("Your JRE does not support the scripting language '" + getLanguage() + "'");
+		String language = getLanguage();
+		String script = getScript();
+		String key = ScriptingUtil.hash(language, script);
+		
+		Map<String, CompiledScript> cache = compiledScripts.get();
+		CompiledScript compiled = cache.get(key);
+		ScriptEngine engine;
+		if (compiled != null) {
+			engine = compiled.getEngine();
+		} else {
+			engine = ScriptingUtil.getEngine(language);
+			if (engine == null) {
+				throw new SimulationException("Your JRE does not support the scripting language '" + language + "'");
+			}
+		}
+		
+		if (!(engine instanceof Invocable)) {
+			throw new SimulationException("The scripting language '" + language + "' does not implement the Invocable interface");
 		}
 		
 		try {
-			engine.eval(getScript());
+			if (compiled == null && engine instanceof Compilable) {
+				compiled = ((Compilable) engine).compile(script);
+				cache.put(key, compiled);
+			}
+			
+			// Evaluate the script into new bindings, so that no state remains from previous simulations
+			Bindings bindings = engine.createBindings();
+			if (compiled != null) {
+				compiled.eval(bindings);
+			} else {
+				engine.eval(script, bindings);
+			}
+			engine.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+			return new ScriptingSimulationListener(engine, bindings);
 		} catch (ScriptException e) {
 			throw new SimulationException("Invalid script: " + e.getMessage());
 		}
-		
-		if (!(engine instanceof Invocable)) {
-			throw new SimulationException("The scripting language '" + getLanguage() + "' does not implement the Invocable interface");
-		}
-		return new ScriptingSimulationListener((Invocable) engine);
 	}
 	
 }
@@ -1,9 +1,14 @@
 package net.sf.openrocket.simulation.extension.impl;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import javax.script.Bindings;
 import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import net.sf.openrocket.aerodynamics.AerodynamicForces;
@@ -37,12 +42,84 @@ public class ScriptingSimulationListener implements SimulationListener, Simulati
 	 * so that unimplemented script methods are not called unnecessarily.
 	 */
 	
-	private Invocable invocable;
-	private Set<String> missing = new HashSet<String>();
+	/** The names of the listener methods that may be implemented by the script. */
+	static final List<String> CALLBACKS = Arrays.asList(
+			"startSimulation", "endSimulation", "preStep", "postStep",
+			"addFlightEvent", "handleFlightEvent", "motorIgnition", "recoveryDeviceDeployment",
+			"preAccelerationCalculation", "preAerodynamicCalculation", "preAtmosphericModel",
+			"preFlightConditions", "preGravityModel", "preMassCalculation",
+			"preSimpleThrustCalculation", "preWindModel",
+			"postAccelerationCalculation", "postAerodynamicCalculation", "postAtmosphericModel",
+			"postFlightConditions", "postGravityModel", "postMassCalculation",
+			"postSimpleThrustCalculation", "postWindModel");
+	
+	private final Invocable invocable;
+	private final ScriptEngine engine;
+	private final Bindings bindings;
+	private Map<String, Callback> callbacks = new HashMap<String, Callback>();
 	
 	
 	public ScriptingSimulationListener(Invocable invocable) {
 		this.invocable = invocable;
+		this.engine = null;
+		this.bindings = null;
+		for (String method : CALLBACKS) {
+			callbacks.put(method, new Callback());
+		}
+	}
+	
+	/**
+	 * Construct a listener for a script that has been evaluated into the specified
+	 * engine scope bindings.  The bindings are made the engine scope of the engine
+	 * whenever a script function is invoked, so that the engine may be shared by
+	 * several listeners that are not used concurrently.
+	 * <p>
+	 * If the script functions are visible in the bindings, the callbacks that the
+	 * script does not define are never invoked.
+	 * 
+	 * @param engine	the script engine, which must implement {@link Invocable}.
+	 * @param bindings	the engine scope bindings containing the evaluated script.
+	 */
+	public ScriptingSimulationListener(ScriptEngine engine, Bindings bindings) {
+		this.invocable = (Invocable) engine;
+		this.engine = engine;
+		this.bindings = bindings;
+		
+		boolean probed = false;
+		for (String method : CALLBACKS) {
+			if (bindings.containsKey(method)) {
+				probed = true;
+			}
+		}
+		for (String method : CALLBACKS) {
+			Callback callback = new Callback();
+			// If no callbacks are visible, the engine may not expose functions as bindings
+			callback.missing = probed && !bindings.containsKey(method);
+			callbacks.put(method, callback);
+		}
+	}
+	
+	
+	/**
+	 * Return whether the script function of a listener method may be invoked.
+	 * This is false for methods that the script is known not to define.
+	 */
+	public boolean isImplemented(String method) {
+		return !callbacks.get(method).missing;
+	}
+	
+	/**
+	 * Return the number of times the script function of a listener method has been invoked.
+	 */
+	public int getInvocationCount(String method) {
+		return callbacks.get(method).count;
+	}
+	
+	/**
+	 * Return the total time spent in the script function of a listener method, in nanoseconds.
+	 */
+	public long getInvocationTime(String method) {
+		return callbacks.get(method).time;
 	}
 	
 	
@@ -56,7 +133,12 @@ public class ScriptingSimulationListener implements SimulationListener, Simulati
 	public SimulationListener clone() {
 		try {
 			ScriptingSimulationListener clone = (ScriptingSimulationListener) super.clone();
-			clone.missing = new HashSet<String>(missing);
+			clone.callbacks = new HashMap<String, Callback>();
+			for (Map.Entry<String, Callback> entry : callbacks.entrySet()) {
+				Callback callback = new Callback();
+				callback.missing = entry.getValue().missing;
+				clone.callbacks.put(entry.getKey(), callback);
+			}
 			return clone;
 		} catch (CloneNotSupportedException e) {
 			throw new BugException(e);
@@ -78,6 +160,7 @@ public class ScriptingSimulationListener implements SimulationListener, Simulati
 			invoke(Void.class, null, "endSimulation", status, exception);
 		} catch (SimulationException e) {
 		}
+		logTimings();
 	}
 	
 	@Override
@@ -201,27 +284,62 @@ public class ScriptingSimulationListener implements SimulationListener, Simulati
 	
 	@SuppressWarnings("unchecked")
 	private <T> T invoke(Class<T> retType, T def, String method, Object... args) throws SimulationException {
+		Callback callback = callbacks.get(method);
+		if (callback.missing) {
+			return def;
+		}
+		
+		if (bindings != null && engine.getBindings(ScriptContext.ENGINE_SCOPE) != bindings) {
+			engine.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+		}
+		
+		long start = System.nanoTime();
 		try {
-			if (!missing.contains(method)) {
-				Object o = invocable.invokeFunction(method, args);
-				if (o == null) {
-					// Use default/null if function returns nothing
-					return def;
-				} else if (!o.getClass().equals(retType)) {
-					throw new SimulationListenerException("Custom script function " + method + " returned type " +
-							o.getClass().getSimpleName() + ", expected " + retType.getSimpleName());
-				} else {
-					return (T) o;
-				}
+			Object o = invocable.invokeFunction(method, args);
+			if (o == null) {
+				// Use default/null if function returns nothing
+				return def;
+			} else if (!o.getClass().equals(retType)) {
+				throw new SimulationListenerException("Custom script function " + method + " returned type " +
+						o.getClass().getSimpleName() + ", expected " + retType.getSimpleName());
+			} else {
+				return (T) o;
 			}
 		} catch (NoSuchMethodException e) {
-			missing.add(method);
-			// fall-through
+			callback.missing = true;
+			return def;
 		} catch (ScriptException e) {
 			logger.warn("Script exception in " + method + ": " + e, e);
 			throw new SimulationException("Script failed: " + e.getMessage());
+		} finally {
+			if (!callback.missing) {
+				callback.count++;
+				callback.time += System.nanoTime() - start;
+			}
 		}
-		return def;
+	}
+	
+	private void logTimings() {
+		if (!logger.isDebugEnabled()) {
+			return;
+		}
+		for (String method : CALLBACKS) {
+			Callback callback = callbacks.get(method);
+			if (callback.count > 0) {
+				logger.debug("Script function " + method + " invoked " + callback.count + " times, total " +
+						(callback.time / 1000000) + " ms");
+			}
+		}
+	}
+	
+	
+	/**
+	 * The state and timing of the script function of a single listener method.
+	 */
+	private static class Callback {
+		private boolean missing = false;
+		private int count = 0;
+		private long time = 0;
 	}
 	
 }
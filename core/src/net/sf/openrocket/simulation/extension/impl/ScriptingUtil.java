@@ -33,11 +33,25 @@ public class ScriptingUtil {
 	/** The name to be chosen from a list of alternatives.  If not found, will use the default name. */
 	private static final List<String> PREFERRED_LANGUAGE_NAMES = Arrays.asList("JavaScript");
 	
+	/** Shared manager, since creating a manager looks up all the engine factories. */
+	private static final ScriptEngineManager MANAGER = new ScriptEngineManager();
+	
 	@Inject
 	Preferences prefs;
 	
 	
 	
+	/**
+	 * Return a new script engine for a script language name.
+	 * 
+	 * @return	a new script engine, or null if the language is not supported.
+	 */
+	static ScriptEngine getEngine(String language) {
+		synchronized (MANAGER) {
+			return MANAGER.getEngineByName(language);
+		}
+	}
+	
 	
 	/**
 	 * Return the preferred internal language name based on a script language name.
@@ -49,8 +63,7 @@ public class ScriptingUtil {
 			return null;
 		}
 		
-		ScriptEngineManager manager = new ScriptEngineManager();
-		ScriptEngine engine = manager.getEngineByName(language);
+		ScriptEngine engine = getEngine(language);
 		if (engine == null) {
 			return null;
 		}
@@ -60,9 +73,10 @@ public class ScriptingUtil {
 	
 	public List<String> getLanguages() {
 		List<String> langs = new ArrayList<String>();
-		ScriptEngineManager manager = new ScriptEngineManager();
-		for (ScriptEngineFactory factory : manager.getEngineFactories()) {
-			langs.add(getLanguage(factory));
+		synchronized (MANAGER) {
+			for (ScriptEngineFactory factory : MANAGER.getEngineFactories()) {
+				langs.add(getLanguage(factory));
+			}
 		}
 		return langs;
 	}
@@ -20,6 +20,7 @@ import net.sf.openrocket.util.Coordinate;
  * An abstract base class for implementing simulation listeners.  This class implements all
  * of the simulation listener interfaces using methods that have no effect on the simulation.
  * The recommended way of implementing simulation listeners is to extend this class.
+ * Only the methods overridden by a subclass are invoked during a simulation.
  * 
  * @author Sampo Niskanen <sampo.niskanen@iki.fi>
  */
@@ -0,0 +1,205 @@
+package net.sf.openrocket.simulation.listeners;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import net.sf.openrocket.aerodynamics.AerodynamicForces;
+import net.sf.openrocket.aerodynamics.FlightConditions;
+import net.sf.openrocket.models.atmosphere.AtmosphericConditions;
+import net.sf.openrocket.motor.MotorId;
+import net.sf.openrocket.motor.MotorInstance;
+import net.sf.openrocket.rocketcomponent.MotorMount;
+import net.sf.openrocket.rocketcomponent.RecoveryDevice;
+import net.sf.openrocket.simulation.AccelerationData;
+import net.sf.openrocket.simulation.FlightEvent;
+import net.sf.openrocket.simulation.MassData;
+import net.sf.openrocket.simulation.SimulationStatus;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.util.Coordinate;
+
+/**
+ * The listeners of a simulation that implement each of the listener callbacks.
+ * <p>
+ * A listener that extends {@link AbstractSimulationListener} declares the callbacks it
+ * implements by overriding them; the callbacks it inherits have no effect and are not
+ * invoked.  Listeners that implement the listener interfaces directly are invoked for
+ * all callbacks of the interfaces they implement.
+ *
+ * @see SimulationListenerHelper
+ */
+public final class SimulationListenerDispatch {
+
+	/**
+	 * The listener callbacks.
+	 */
+	public enum Callback {
+		START_SIMULATION(SimulationListener.class, "startSimulation", SimulationStatus.class),
+		END_SIMULATION(SimulationListener.class, "endSimulation", SimulationStatus.class, SimulationException.class),
+		PRE_STEP(SimulationListener.class, "preStep", SimulationStatus.class),
+		POST_STEP(SimulationListener.class, "postStep", SimulationStatus.class),
+
+		ADD_FLIGHT_EVENT(SimulationEventListener.class, "addFlightEvent", SimulationStatus.class, FlightEvent.class),
+		HANDLE_FLIGHT_EVENT(SimulationEventListener.class, "handleFlightEvent", SimulationStatus.class, FlightEvent.class),
+		MOTOR_IGNITION(SimulationEventListener.class, "motorIgnition", SimulationStatus.class, MotorId.class,
+				MotorMount.class, MotorInstance.class),
+		RECOVERY_DEVICE_DEPLOYMENT(SimulationEventListener.class, "recoveryDeviceDeployment", SimulationStatus.class,
+				RecoveryDevice.class),
+
+		PRE_ATMOSPHERIC_MODEL(SimulationComputationListener.class, "preAtmosphericModel", SimulationStatus.class),
+		POST_ATMOSPHERIC_MODEL(SimulationComputationListener.class, "postAtmosphericModel", SimulationStatus.class,
+				AtmosphericConditions.class),
+		PRE_WIND_MODEL(SimulationComputationListener.class, "preWindModel", SimulationStatus.class),
+		POST_WIND_MODEL(SimulationComputationListener.class, "postWindModel", SimulationStatus.class, Coordinate.class),
+		PRE_GRAVITY_MODEL(SimulationComputationListener.class, "preGravityModel", SimulationStatus.class),
+		POST_GRAVITY_MODEL(SimulationComputationListener.class, "postGravityModel", SimulationStatus.class, double.class),
+		PRE_FLIGHT_CONDITIONS(SimulationComputationListener.class, "preFlightConditions", SimulationStatus.class),
+		POST_FLIGHT_CONDITIONS(SimulationComputationListener.class, "postFlightConditions", SimulationStatus.class,
+				FlightConditions.class),
+		PRE_AERODYNAMIC_CALCULATION(SimulationComputationListener.class, "preAerodynamicCalculation",
+				SimulationStatus.class),
+		POST_AERODYNAMIC_CALCULATION(SimulationComputationListener.class, "postAerodynamicCalculation",
+				SimulationStatus.class, AerodynamicForces.class),
+		PRE_MASS_CALCULATION(SimulationComputationListener.class, "preMassCalculation", SimulationStatus.class),
+		POST_MASS_CALCULATION(SimulationComputationListener.class, "postMassCalculation", SimulationStatus.class,
+				MassData.class),
+		PRE_SIMPLE_THRUST_CALCULATION(SimulationComputationListener.class, "preSimpleThrustCalculation",
+				SimulationStatus.class),
+		POST_SIMPLE_THRUST_CALCULATION(SimulationComputationListener.class, "postSimpleThrustCalculation",
+				SimulationStatus.class, double.class),
+		PRE_ACCELERATION_CALCULATION(SimulationComputationListener.class, "preAccelerationCalculation",
+				SimulationStatus.class),
+		POST_ACCELERATION_CALCULATION(SimulationComputationListener.class, "postAccelerationCalculation",
+				SimulationStatus.class, AccelerationData.class);
+
+		private final Class<?> listenerInterface;
+		private final String methodName;
+		private final Class<?>[] parameterTypes;
+
+		private Callback(Class<?> listenerInterface, String methodName, Class<?>... parameterTypes) {
+			this.listenerInterface = listenerInterface;
+			this.methodName = methodName;
+			this.parameterTypes = parameterTypes;
+		}
+
+		/**
+		 * Return the name of the listener method of this callback.
+		 */
+		public String getMethodName() {
+			return methodName;
+		}
+	}
+
+
+	private static final SimulationListener[] NO_LISTENERS = new SimulationListener[0];
+
+	/** The callbacks implemented by each listener class. */
+	private static final Map<Class<?>, Set<Callback>> implementedCallbacks = new WeakHashMap<Class<?>, Set<Callback>>();
+
+
+	private final SimulationListener[][] listeners;
+	private final boolean separateStatusRequired;
+
+
+	/**
+	 * Sole constructor.
+	 *
+	 * @param listeners		the listeners of the simulation, in the order they are invoked.
+	 */
+	public SimulationListenerDispatch(List<SimulationListener> listeners) {
+		Callback[] callbacks = Callback.values();
+		this.listeners = new SimulationListener[callbacks.length][];
+		for (Callback callback : callbacks) {
+			List<SimulationListener> list = new ArrayList<SimulationListener>();
+			for (SimulationListener l : listeners) {
+				if (getImplementedCallbacks(l.getClass()).contains(callback)) {
+					list.add(l);
+				}
+			}
+			this.listeners[callback.ordinal()] = list.isEmpty() ? NO_LISTENERS : list.toArray(new SimulationListener[list.size()]);
+		}
+		
+		boolean required = false;
+		for (Callback callback : callbacks) {
+			if (callback.listenerInterface != SimulationComputationListener.class) {
+				continue;
+			}
+			for (SimulationListener l : getListeners(callback)) {
+				required |= !l.isSystemListener();
+			}
+		}
+		this.separateStatusRequired = required;
+	}
+
+
+	/**
+	 * Return the listeners that implement a callback, in the order they are invoked.
+	 * The returned array must not be modified.
+	 *
+	 * @param callback	the callback.
+	 * @return			the listeners implementing the callback, possibly an empty array.
+	 */
+	public SimulationListener[] getListeners(Callback callback) {
+		return listeners[callback.ordinal()];
+	}
+
+
+	/**
+	 * Return whether the computation listeners must be passed a separate status for the
+	 * intermediate states of a simulation step.  This is the case if a listener other than
+	 * a system listener implements a computation callback, since it may modify or keep a
+	 * reference to the status.  Listeners that only implement the step and event callbacks
+	 * are never passed an intermediate state, and system listeners do neither.
+	 *
+	 * @return	whether the intermediate states must be computed using a copy of the status.
+	 */
+	public boolean isSeparateStatusRequired() {
+		return separateStatusRequired;
+	}
+
+
+	/**
+	 * Return the callbacks implemented by a listener class.
+	 *
+	 * @param listenerClass		the listener class.
+	 * @return					the callbacks that instances of the class are invoked for.
+	 */
+	public static Set<Callback> getImplementedCallbacks(Class<? extends SimulationListener> listenerClass) {
+		synchronized (implementedCallbacks) {
+			Set<Callback> set = implementedCallbacks.get(listenerClass);
+			if (set == null) {
+				set = EnumSet.noneOf(Callback.class);
+				for (Callback callback : Callback.values()) {
+					if (isImplemented(listenerClass, callback)) {
+						set.add(callback);
+					}
+				}
+				set = Collections.unmodifiableSet(set);
+				implementedCallbacks.put(listenerClass, set);
+			}
+			return set;
+		}
+	}
+
+	private static boolean isImplemented(Class<?> listenerClass, Callback callback) {
+		if (!callback.listenerInterface.isAssignableFrom(listenerClass)) {
+			return false;
+		}
+		if (!AbstractSimulationListener.class.isAssignableFrom(listenerClass)) {
+			return true;
+		}
+		try {
+			Method method = listenerClass.getMethod(callback.methodName, callback.parameterTypes);
+			return method.getDeclaringClass() != AbstractSimulationListener.class;
+		} catch (NoSuchMethodException e) {
+			// Cannot happen for implementations of the interface, but invoke it to be safe
+			return true;
+		}
+	}
+
+}
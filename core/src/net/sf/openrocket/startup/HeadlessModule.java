@@ -0,0 +1,62 @@
+package net.sf.openrocket.startup;
+
+import net.sf.openrocket.database.ComponentPresetDao;
+import net.sf.openrocket.database.ComponentPresetDatabase;
+import net.sf.openrocket.database.motor.MotorDatabase;
+import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
+import net.sf.openrocket.formatting.RocketDescriptor;
+import net.sf.openrocket.formatting.RocketDescriptorImpl;
+import net.sf.openrocket.l10n.ResourceBundleTranslator;
+import net.sf.openrocket.l10n.Translator;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Scopes;
+
+/**
+ * HeadlessModule is the Guice Module for running OpenRocket without a user interface.
+ * <p>
+ * The motor and component preset databases are bound to the instances provided by
+ * this module, which are initially empty.  As with the Swing application, the databases
+ * must be populated only after the injector created with this module has been registered
+ * in the Application object.
+ *
+ * <code>
+ * HeadlessModule module = new HeadlessModule();
+ * Application.setInjector(Guice.createInjector(module, new PluginModule()));
+ * // add motors to module.getMotorDatabase()
+ * </code>
+ */
+public class HeadlessModule extends AbstractModule {
+
+	private final ThrustCurveMotorSetDatabase motorDatabase = new ThrustCurveMotorSetDatabase();
+	private final ComponentPresetDatabase presetDatabase = new ComponentPresetDatabase();
+
+
+	@Override
+	protected void configure() {
+
+		bind(Preferences.class).to(HeadlessPreferences.class).in(Scopes.SINGLETON);
+		bind(Translator.class).toInstance(new ResourceBundleTranslator("l10n.messages"));
+		bind(RocketDescriptor.class).to(RocketDescriptorImpl.class).in(Scopes.SINGLETON);
+
+		bind(ComponentPresetDao.class).toInstance(presetDatabase);
+		bind(ThrustCurveMotorSetDatabase.class).toInstance(motorDatabase);
+		bind(MotorDatabase.class).toInstance(motorDatabase);
+
+	}
+
+	/**
+	 * Return the motor database bound by this module.
+	 */
+	public ThrustCurveMotorSetDatabase getMotorDatabase() {
+		return motorDatabase;
+	}
+
+	/**
+	 * Return the component preset database bound by this module.
+	 */
+	public ComponentPresetDatabase getComponentPresetDatabase() {
+		return presetDatabase;
+	}
+
+}
@@ -0,0 +1,119 @@
+package net.sf.openrocket.startup;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.openrocket.material.Material;
+import net.sf.openrocket.preset.ComponentPreset;
+
+/**
+ * Preferences for running OpenRocket without a user interface.
+ * <p>
+ * The preferences are kept in memory only and start out with their default values,
+ * so that headless runs do not depend on the preferences of the user running them.
+ * The preference nodes returned by {@link #getNode(String)} are the persistent nodes
+ * shared with the Swing application, so that for example scripts trusted in the user
+ * interface are trusted also in headless runs.
+ */
+public class HeadlessPreferences extends Preferences {
+
+	private static final String NODENAME = "OpenRocket";
+
+	private final Map<String, Object> values = new ConcurrentHashMap<String, Object>();
+	private final Set<Material> userMaterials = Collections.synchronizedSet(new HashSet<Material>());
+
+
+	@Override
+	public boolean getBoolean(String key, boolean defaultValue) {
+		Object value = values.get(key);
+		return (value instanceof Boolean) ? (Boolean) value : defaultValue;
+	}
+
+	@Override
+	public void putBoolean(String key, boolean value) {
+		values.put(key, value);
+	}
+
+	@Override
+	public int getInt(String key, int defaultValue) {
+		Object value = values.get(key);
+		return (value instanceof Integer) ? (Integer) value : defaultValue;
+	}
+
+	@Override
+	public void putInt(String key, int value) {
+		values.put(key, value);
+	}
+
+	@Override
+	public double getDouble(String key, double defaultValue) {
+		Object value = values.get(key);
+		return (value instanceof Double) ? (Double) value : defaultValue;
+	}
+
+	@Override
+	public void putDouble(String key, double value) {
+		values.put(key, value);
+	}
+
+	@Override
+	public String getString(String key, String defaultValue) {
+		Object value = values.get(key);
+		return (value instanceof String) ? (String) value : defaultValue;
+	}
+
+	@Override
+	public void putString(String key, String value) {
+		if (value == null) {
+			values.remove(key);
+		} else {
+			values.put(key, value);
+		}
+	}
+
+	@Override
+	public String getString(String directory, String key, String defaultValue) {
+		return getString(directory + "/" + key, defaultValue);
+	}
+
+	@Override
+	public void putString(String directory, String key, String value) {
+		putString(directory + "/" + key, value);
+	}
+
+	@Override
+	public java.util.prefs.Preferences getNode(String nodeName) {
+		return java.util.prefs.Preferences.userRoot().node(NODENAME).node(nodeName);
+	}
+
+	@Override
+	public void addUserMaterial(Material m) {
+		userMaterials.add(m);
+	}
+
+	@Override
+	public Set<Material> getUserMaterials() {
+		synchronized (userMaterials) {
+			return new HashSet<Material>(userMaterials);
+		}
+	}
+
+	@Override
+	public void removeUserMaterial(Material m) {
+		userMaterials.remove(m);
+	}
+
+	@Override
+	public void setComponentFavorite(ComponentPreset preset, ComponentPreset.Type type, boolean favorite) {
+		// Favorites are only used by the user interface
+	}
+
+	@Override
+	public Set<String> getComponentFavorites(ComponentPreset.Type type) {
+		return Collections.emptySet();
+	}
+
+}
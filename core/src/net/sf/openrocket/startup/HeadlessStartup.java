@@ -0,0 +1,533 @@
+package net.sf.openrocket.startup;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import net.sf.openrocket.aerodynamics.WarningSet;
+import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
+import net.sf.openrocket.document.OpenRocketDocument;
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.file.BinaryFlightDataExport;
+import net.sf.openrocket.file.CSVExport;
+import net.sf.openrocket.file.GeneralRocketLoader;
+import net.sf.openrocket.file.RocketLoadException;
+import net.sf.openrocket.file.iterator.DirectoryIterator;
+import net.sf.openrocket.file.iterator.FileIterator;
+import net.sf.openrocket.file.motor.BinaryMotorLoader;
+import net.sf.openrocket.file.motor.GeneralMotorLoader;
+import net.sf.openrocket.gui.util.SimpleFileFilter;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+import net.sf.openrocket.plugin.PluginModule;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.simulation.batch.BatchSimulationListener;
+import net.sf.openrocket.simulation.batch.BatchSimulationResult;
+import net.sf.openrocket.simulation.batch.BatchSimulationRunner;
+import net.sf.openrocket.unit.Unit;
+import net.sf.openrocket.util.Pair;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Runs the simulations of OpenRocket documents from the command line, without a
+ * user interface.  This allows running OpenRocket on machines without a display,
+ * for example for regression testing and batch processing.
+ * <p>
+ * The simulations of all the given documents are run in parallel using a
+ * {@link BatchSimulationRunner}, and the flight data of each simulation is written
+ * to its own file in the output directory, either as CSV using {@link CSVExport} or
+ * in the binary format of {@link BinaryFlightDataExport}.  All values are written
+ * in SI units.  A summary line of each simulation is printed to standard output.
+ * <p>
+ * The exit status is 0 if all simulations succeeded, 1 if a document could not be
+ * loaded or a simulation failed, and 2 if the command line arguments are invalid.
+ */
+public class HeadlessStartup {
+
+	private final static Logger log = LoggerFactory.getLogger(HeadlessStartup.class);
+
+	private static final String THRUSTCURVE_DIRECTORY = "datafiles/thrustcurves/";
+
+	/** Configuration argument for simulating every flight configuration of the rocket */
+	static final String ALL_CONFIGURATIONS = "all";
+
+	/**
+	 * The output file formats.
+	 */
+	public static enum Format {
+		CSV("csv"), BINARY("bin");
+
+		private final String extension;
+
+		private Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+
+	private final List<File> documentFiles = new ArrayList<File>();
+	private final List<String> simulationSelections = new ArrayList<String>();
+	private final List<String> configurationSelections = new ArrayList<String>();
+	private final List<File> motorFiles = new ArrayList<File>();
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private File outputDirectory = new File(".");
+	private Format format = Format.CSV;
+	private boolean help = false;
+
+	private final Set<String> usedOutputNames = new HashSet<String>();
+
+
+	public static void main(String[] args) {
+		HeadlessStartup startup = new HeadlessStartup();
+		try {
+			startup.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println();
+			printUsage();
+			System.exit(2);
+		}
+		if (startup.help) {
+			printUsage();
+			return;
+		}
+
+		startup.initialize();
+		System.exit(startup.run());
+	}
+
+
+	private static void printUsage() {
+		System.err.println("Usage:  java " + HeadlessStartup.class.getCanonicalName() + " [options] <file.ork>...");
+		System.err.println();
+		System.err.println("Options:");
+		System.err.println("  -s, --simulation <name|number>   Simulation to run, may be repeated (default all)");
+		System.err.println("  -c, --configuration <id|" + ALL_CONFIGURATIONS + ">    Flight configuration ID to simulate the selected");
+		System.err.println("                                   simulations with, may be repeated (default the");
+		System.err.println("                                   configuration of each simulation)");
+		System.err.println("  -t, --threads <count>            Number of simulation threads (default " +
+				Runtime.getRuntime().availableProcessors() + ")");
+		System.err.println("  -f, --format csv|binary          Output format (default csv)");
+		System.err.println("  -o, --output <directory>         Output directory (default current directory)");
+		System.err.println("  -m, --motors <file|directory>    Additional thrust curve files, may be repeated");
+		System.err.println("  -h, --help                       Print this help");
+	}
+
+
+	/**
+	 * Parse the command line arguments.
+	 *
+	 * @param args	the command line arguments.
+	 * @throws IllegalArgumentException	if the arguments are invalid.
+	 */
+	void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-h") || arg.equals("--help")) {
+				help = true;
+			} else if (arg.equals("-s") || arg.equals("--simulation")) {
+				simulationSelections.add(getValue(args, ++i, arg));
+			} else if (arg.equals("-c") || arg.equals("--configuration")) {
+				configurationSelections.add(getValue(args, ++i, arg));
+			} else if (arg.equals("-t") || arg.equals("--threads")) {
+				String value = getValue(args, ++i, arg);
+				try {
+					threadCount = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					threadCount = 0;
+				}
+				if (threadCount < 1) {
+					throw new IllegalArgumentException("Invalid thread count: " + value);
+				}
+			} else if (arg.equals("-f") || arg.equals("--format")) {
+				String value = getValue(args, ++i, arg);
+				try {
+					format = Format.valueOf(value.toUpperCase(Locale.ENGLISH));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Invalid output format: " + value);
+				}
+			} else if (arg.equals("-o") || arg.equals("--output")) {
+				outputDirectory = new File(getValue(args, ++i, arg));
+			} else if (arg.equals("-m") || arg.equals("--motors")) {
+				motorFiles.add(new File(getValue(args, ++i, arg)));
+			} else if (arg.startsWith("-")) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			} else {
+				documentFiles.add(new File(arg));
+			}
+		}
+		if (documentFiles.isEmpty() && !help) {
+			throw new IllegalArgumentException("No files specified");
+		}
+	}
+
+	private static String getValue(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Option " + option + " requires a value");
+		}
+		return args[i];
+	}
+
+
+	/**
+	 * Set up the application services and load the motor database.
+	 */
+	private void initialize() {
+		Application.setExceptionHandler(new HeadlessExceptionHandler());
+
+		HeadlessModule module = new HeadlessModule();
+		Injector injector = Guice.createInjector(module, new PluginModule());
+		Application.setInjector(injector);
+
+		loadMotors(module.getMotorDatabase());
+	}
+
+
+	private void loadMotors(ThrustCurveMotorSetDatabase database) {
+		FileIterator iterator = DirectoryIterator.findDirectory(THRUSTCURVE_DIRECTORY,
+				new SimpleFileFilter("", false, BinaryMotorLoader.EXTENSION));
+		if (iterator == null) {
+			System.err.println("Warning: motor database " + THRUSTCURVE_DIRECTORY + " not found in classpath");
+		} else {
+			while (iterator.hasNext()) {
+				Pair<String, InputStream> f = iterator.next();
+				try {
+					addMotors(database, new BinaryMotorLoader().load(f.getV(), f.getU()));
+				} catch (IOException e) {
+					System.err.println("Unable to read motor database " + f.getU() + ": " + e.getMessage());
+				} finally {
+					close(f.getV());
+				}
+			}
+		}
+
+		GeneralMotorLoader loader = new GeneralMotorLoader();
+		for (File file : motorFiles) {
+			if (file.isDirectory()) {
+				try {
+					iterator = new DirectoryIterator(file, new SimpleFileFilter("", loader.getSupportedExtensions()), true);
+				} catch (IOException e) {
+					System.err.println("Unable to read motor directory " + file + ": " + e.getMessage());
+					continue;
+				}
+				while (iterator.hasNext()) {
+					Pair<String, InputStream> f = iterator.next();
+					try {
+						addMotors(database, loader.load(f.getV(), f.getU()));
+					} catch (IOException e) {
+						System.err.println("Unable to read motor file " + f.getU() + ": " + e.getMessage());
+					} finally {
+						close(f.getV());
+					}
+				}
+			} else {
+				InputStream is = null;
+				try {
+					is = new FileInputStream(file);
+					addMotors(database, loader.load(is, file.getName()));
+				} catch (IOException e) {
+					System.err.println("Unable to read motor file " + file + ": " + e.getMessage());
+				} finally {
+					close(is);
+				}
+			}
+		}
+		log.info("Loaded " + database.getMotorSets().size() + " motor sets");
+	}
+
+	private static void addMotors(ThrustCurveMotorSetDatabase database, List<Motor> motors) {
+		for (Motor m : motors) {
+			database.addMotor((ThrustCurveMotor) m);
+		}
+	}
+
+
+	/**
+	 * Load the documents, run the selected simulations and write the results.
+	 *
+	 * @return	the exit status.
+	 */
+	private int run() {
+		int status = 0;
+
+		List<Simulation> simulations = new ArrayList<Simulation>();
+		List<String> outputNames = new ArrayList<String>();
+		for (File file : documentFiles) {
+			GeneralRocketLoader loader = new GeneralRocketLoader(file);
+			loader.setLazySimulationData(true);
+			OpenRocketDocument document;
+			try {
+				document = loader.load();
+			} catch (RocketLoadException e) {
+				System.err.println("Unable to load " + file + ": " + e.getMessage());
+				status = 1;
+				continue;
+			}
+			WarningSet warnings = loader.getWarnings();
+			if (!warnings.isEmpty()) {
+				System.err.println("Warnings while loading " + file + ": " + warnings);
+			}
+
+			List<Simulation> selected;
+			try {
+				selected = selectSimulations(document);
+			} catch (IllegalArgumentException e) {
+				System.err.println(file + ": " + e.getMessage());
+				status = 1;
+				continue;
+			}
+			String baseName = file.getName().replaceAll("\\.[^.]*$", "");
+			for (Simulation simulation : selected) {
+				simulations.add(simulation);
+				outputNames.add(getOutputName(baseName, simulation));
+			}
+		}
+
+		try {
+			if (simulate(simulations, outputNames) != 0) {
+				status = 1;
+			}
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted");
+			status = 1;
+		}
+		return status;
+	}
+
+
+	/**
+	 * Return the simulations of a document selected by the command line arguments.
+	 * If flight configurations were selected, the returned simulations are copies of the
+	 * document simulations using the selected configurations.
+	 *
+	 * @param document	the document.
+	 * @return			the selected simulations.
+	 * @throws IllegalArgumentException	if a selected simulation or configuration does not exist.
+	 */
+	List<Simulation> selectSimulations(OpenRocketDocument document) {
+		List<Simulation> selected = new ArrayList<Simulation>();
+		if (simulationSelections.isEmpty()) {
+			selected.addAll(document.getSimulations());
+		} else {
+			for (String selection : simulationSelections) {
+				selected.add(findSimulation(document, selection));
+			}
+		}
+
+		if (configurationSelections.isEmpty()) {
+			return selected;
+		}
+
+		Rocket rocket = document.getRocket();
+		List<String> ids = new ArrayList<String>();
+		for (String selection : configurationSelections) {
+			if (selection.equals(ALL_CONFIGURATIONS)) {
+				for (String id : rocket.getFlightConfigurationIDs()) {
+					if (id != null) {
+						ids.add(id);
+					}
+				}
+			} else if (rocket.isFlightConfigurationID(selection)) {
+				ids.add(selection);
+			} else {
+				throw new IllegalArgumentException("Unknown flight configuration " + selection);
+			}
+		}
+
+		List<Simulation> configured = new ArrayList<Simulation>();
+		for (Simulation simulation : selected) {
+			for (String id : ids) {
+				Simulation copy = simulation.copy();
+				copy.getOptions().setMotorConfigurationID(id);
+				configured.add(copy);
+			}
+		}
+		return configured;
+	}
+
+	private static Simulation findSimulation(OpenRocketDocument document, String selection) {
+		for (Simulation simulation : document.getSimulations()) {
+			if (simulation.getName().equals(selection)) {
+				return simulation;
+			}
+		}
+		try {
+			int n = Integer.parseInt(selection);
+			if (n >= 1 && n <= document.getSimulationCount()) {
+				return document.getSimulation(n - 1);
+			}
+		} catch (NumberFormatException e) {
+			// Not a simulation number
+		}
+		throw new IllegalArgumentException("Unknown simulation " + selection);
+	}
+
+
+	/**
+	 * Run simulations and write their flight data to the output directory.
+	 *
+	 * @param simulations	the simulations to run.
+	 * @param outputNames	the output file names of the simulations, without extension.
+	 * @return				the number of simulations that failed.
+	 * @throws InterruptedException	if the thread is interrupted while waiting for the simulations.
+	 */
+	int simulate(List<Simulation> simulations, final List<String> outputNames) throws InterruptedException {
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			System.err.println("Unable to create output directory " + outputDirectory);
+			return simulations.size();
+		}
+
+		BatchSimulationRunner runner = new BatchSimulationRunner(threadCount);
+		List<BatchSimulationResult> results;
+		try {
+			results = runner.runSimulations(simulations, new BatchSimulationListener() {
+				@Override
+				public void simulationFinished(BatchSimulationResult result, int finishedCount, int totalCount) {
+					log.info("Finished simulation " + finishedCount + "/" + totalCount + ": " + outputNames.get(result.getIndex()));
+				}
+			});
+		} finally {
+			runner.shutdown();
+		}
+
+		int failures = 0;
+		for (int i = 0; i < simulations.size(); i++) {
+			Simulation simulation = simulations.get(i);
+			BatchSimulationResult result = results.get(i);
+			String name = outputNames.get(i);
+			if (!result.isSuccessful()) {
+				String message = (result.getException() != null) ? result.getException().getMessage() : "cancelled";
+				System.out.println(name + ": FAILED: " + message);
+				failures++;
+				continue;
+			}
+
+			try {
+				writeResults(simulation, name);
+			} catch (IOException e) {
+				System.out.println(name + ": FAILED: unable to write results: " + e.getMessage());
+				failures++;
+				continue;
+			}
+
+			FlightData data = simulation.getSimulatedData();
+			System.out.println(String.format(Locale.ENGLISH,
+					"%s: apogee %.2f m, max velocity %.2f m/s, time to apogee %.2f s, flight time %.2f s (%d ms)",
+					name, data.getMaxAltitude(), data.getMaxVelocity(), data.getTimeToApogee(),
+					data.getFlightTime(), result.getRunTime()));
+		}
+		return failures;
+	}
+
+
+	private void writeResults(Simulation simulation, String name) throws IOException {
+		FlightData data = simulation.getSimulatedData();
+		if (format == Format.BINARY) {
+			OutputStream os = new FileOutputStream(new File(outputDirectory, name + "." + format.getExtension()));
+			try {
+				BinaryFlightDataExport.exportBinary(os, simulation);
+			} finally {
+				os.close();
+			}
+			return;
+		}
+
+		// One CSV file per branch
+		for (int b = 0; b < data.getBranchCount(); b++) {
+			FlightDataBranch branch = data.getBranch(b);
+			FlightDataType[] types = branch.getTypes();
+			Unit[] units = new Unit[types.length];
+			for (int i = 0; i < types.length; i++) {
+				units[i] = types[i].getUnitGroup().getSIUnit();
+			}
+			String fileName = name + ((b == 0) ? "" : "-branch" + (b + 1)) + "." + format.getExtension();
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(new File(outputDirectory, fileName)));
+			// CSVExport closes the stream
+			CSVExport.exportCSV(os, simulation, branch, types, units, ",", "#", true, true, true);
+		}
+	}
+
+
+	/**
+	 * Return a unique output file name for a simulation, without extension.
+	 */
+	String getOutputName(String baseName, Simulation simulation) {
+		String name = baseName + "-" + simulation.getName();
+		String configuration = simulation.getOptions().getMotorConfigurationID();
+		if (!configurationSelections.isEmpty() && configuration != null) {
+			name += "-" + configuration;
+		}
+		name = name.replaceAll("[^a-zA-Z0-9._-]", "_");
+
+		String unique = name;
+		for (int n = 2; !usedOutputNames.add(unique); n++) {
+			unique = name + "-" + n;
+		}
+		return unique;
+	}
+
+
+	private static void close(InputStream is) {
+		if (is != null) {
+			try {
+				is.close();
+			} catch (IOException e) {
+				log.warn("Unable to close stream", e);
+			}
+		}
+	}
+
+
+	/**
+	 * Reports errors to standard error.
+	 */
+	private static class HeadlessExceptionHandler implements ExceptionHandler {
+
+		@Override
+		public void handleErrorCondition(String message) {
+			log.error(message);
+			System.err.println("Error: " + message);
+		}
+
+		@Override
+		public void handleErrorCondition(String message, Throwable exception) {
+			log.error(message, exception);
+			System.err.println("Error: " + message + ": " + exception);
+		}
+
+		@Override
+		public void handleErrorCondition(Throwable exception) {
+			log.error("Error occurred", exception);
+			System.err.println("Error: " + exception);
+		}
+
+		@Override
+		public void uncaughtException(Thread thread, Throwable throwable) {
+			log.error("Uncaught exception in thread " + thread.getName(), throwable);
+			System.err.println("Uncaught exception in thread " + thread.getName() + ": " + throwable);
+			throwable.printStackTrace();
+		}
+	}
+
+}
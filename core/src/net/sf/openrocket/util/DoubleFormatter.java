@@ -0,0 +1,229 @@
+package net.sf.openrocket.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A formatter of double values for storage.  This implements the format of
+ * {@link TextUtil#doubleToString(double)}, which delegates to it.  The value is
+ * formatted directly into a character buffer that is reused for each value, so
+ * formatting does not create any objects.  This is intended for writing large
+ * amounts of numerical data, such as stored flight data.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class DoubleFormatter {
+
+	private static final int BUFFER_LENGTH = 32;
+
+	private final char[] buffer = new char[BUFFER_LENGTH];
+	private final char[] decimal = new char[BUFFER_LENGTH];
+
+
+	/**
+	 * Format a value into the buffer of this formatter.  The formatted value is
+	 * stored at the beginning of the buffer returned by {@link #getBuffer()}, and
+	 * remains valid until the next value is formatted.
+	 *
+	 * @param d		the value to format.
+	 * @return		the number of characters written to the buffer.
+	 */
+	public int format(double d) {
+
+		// Check for special cases
+		if (MathUtil.equals(d, 0))
+			return copy("0");
+
+		if (Double.isNaN(d))
+			return copy("NaN");
+
+		if (Double.isInfinite(d)) {
+			if (d < 0)
+				return copy("-Inf");
+			else
+				return copy("Inf");
+		}
+
+
+		int pos = 0;
+		if (d < 0) {
+			buffer[pos++] = '-';
+		}
+		double abs = Math.abs(d);
+
+		// Small and large values always in exponential notation
+		if (abs < 0.001 || abs >= 100000000) {
+			return exponentialFormat(abs, buffer, pos);
+		}
+
+		// Check whether decimal or exponential notation is shorter
+
+		int expEnd = exponentialFormat(abs, buffer, pos);
+		int decLength = decimalFormat(abs, decimal, 0);
+
+		if (decLength <= expEnd - pos) {
+			System.arraycopy(decimal, 0, buffer, pos, decLength);
+			return pos + decLength;
+		} else {
+			return expEnd;
+		}
+	}
+
+
+	/**
+	 * Return the buffer containing the last formatted value.  The buffer must not be
+	 * modified.
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+
+	/**
+	 * Format a value and append it to a string builder.
+	 *
+	 * @param sb	the string builder to append to.
+	 * @param d		the value to format.
+	 */
+	public void append(StringBuilder sb, double d) {
+		int length = format(d);
+		sb.append(buffer, 0, length);
+	}
+
+
+	/**
+	 * Format a value and write it to a writer.
+	 *
+	 * @param writer	the writer to write to.
+	 * @param d			the value to format.
+	 * @throws IOException	if an I/O error occurs.
+	 */
+	public void write(Writer writer, double d) throws IOException {
+		int length = format(d);
+		writer.write(buffer, 0, length);
+	}
+
+
+	/**
+	 * Format a value into a string.  This is equivalent to
+	 * {@link TextUtil#doubleToString(double)}.
+	 */
+	public String toString(double d) {
+		int length = format(d);
+		return new String(buffer, 0, length);
+	}
+
+
+
+	private int copy(String str) {
+		str.getChars(0, str.length(), buffer, 0);
+		return str.length();
+	}
+
+
+	/*
+	 * value must be positive and not zero!
+	 */
+	private static int exponentialFormat(double value, char[] buf, int pos) {
+		int exp;
+
+		exp = 0;
+		while (value < 1.0) {
+			value *= 10;
+			exp--;
+		}
+		while (value >= 10.0) {
+			value /= 10;
+			exp++;
+		}
+
+		pos = shortDecimal(value, 4, buf, pos);
+		buf[pos++] = 'e';
+		return writeInt(exp, buf, pos);
+	}
+
+
+	/*
+	 * value must be positive and not zero!
+	 */
+	private static int decimalFormat(double value, char[] buf, int pos) {
+		if (value >= 10000)
+			return writeInt((int) (value + 0.5), buf, pos);
+
+		int decimals = 1;
+		double v = value;
+		while (v < 1000) {
+			v *= 10;
+			decimals++;
+		}
+
+		return shortDecimal(value, decimals, buf, pos);
+	}
+
+
+	/*
+	 * value must be positive!
+	 */
+	private static int shortDecimal(double value, int decimals, char[] buf, int pos) {
+
+		// Calculate rounding and limit values (rounding slightly smaller)
+		int rounding = 1;
+		double limit = 0.5;
+		for (int i = 0; i < decimals; i++) {
+			rounding *= 10;
+			limit /= 10;
+		}
+
+		// Round value
+		value = (Math.rint(value * rounding) + 0.1) / rounding;
+
+
+		int whole = (int) value;
+		value -= whole;
+
+		pos = writeInt(whole, buf, pos);
+
+		if (value < limit)
+			return pos;
+		limit *= 10;
+
+		buf[pos++] = '.';
+
+
+		for (int i = 0; i < decimals; i++) {
+
+			value *= 10;
+			whole = (int) value;
+			value -= whole;
+			buf[pos++] = (char) ('0' + whole);
+
+			if (value < limit)
+				return pos;
+			limit *= 10;
+
+		}
+
+		return pos;
+	}
+
+
+	private static int writeInt(int value, char[] buf, int pos) {
+		if (value < 0) {
+			buf[pos++] = '-';
+			value = -value;
+		}
+
+		int digits = 1;
+		for (int v = value / 10; v > 0; v /= 10) {
+			digits++;
+		}
+
+		int end = pos + digits;
+		for (int i = end - 1; i >= pos; i--) {
+			buf[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+
+}
@@ -0,0 +1,22 @@
+package net.sf.openrocket.util;
+
+/**
+ * Optional interface for objects that can create a new, independent instance of
+ * themselves.  The new instance has the same parameters as the original but shares
+ * no mutable state with it, and it starts again from its initial state.
+ * <p>
+ * This is used to give each concurrently run simulation its own instances of
+ * stateful models.  Objects that do not implement this interface are used as-is.
+ *
+ * @param <T>	the type of the created instances
+ */
+public interface Instantiable<T> {
+
+	/**
+	 * Return a new instance of this object with the same parameters.
+	 *
+	 * @return	a new, independent instance of this object
+	 */
+	public T newInstance();
+
+}
@@ -1,153 +1,256 @@
 package net.sf.openrocket.util;
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-public class LinearInterpolator implements Cloneable {
+/**
+ * An immutable piecewise linear interpolator.  Outside the range of the points
+ * the value of the nearest end point is returned.
+ * <p>
+ * The points are stored in primitive arrays sorted by x-coordinate, and are located
+ * using binary search.  The segment found by the previous lookup is remembered, so
+ * that consecutive lookups with slowly changing arguments (such as the Mach number
+ * during a simulation) usually need only a single comparison.  Lookups do not
+ * allocate any objects.
+ * <p>
+ * Instances are safe to be used from multiple threads simultaneously.  Interpolators
+ * whose points are not available as ready arrays can be constructed using a
+ * {@link Builder}.
+ */
+public final class LinearInterpolator implements Cloneable {
 
-	private TreeMap<Double, Double> sortMap = new TreeMap<Double,Double>();
+	private final double[] xPoints;
+	private final double[] yPoints;
 
-	/**
-	 * Construct a <code>LinearInterpolator</code> with no points.  Some points must be
-	 * added using {@link #addPoints(double[], double[])} before using the interpolator.
+	/*
+	 * Index of the segment found by the previous lookup.  Updated without
+	 * synchronization; any value written is a valid segment index, so a stale
+	 * value only causes a binary search.
 	 */
-	public LinearInterpolator() {
-	}
+	private int hint = 0;
 
 	/**
-	 * Construct a <code>LinearInterpolator</code> with the given points.
-	 * 
+	 * Construct a <code>LinearInterpolator</code> with the given points.  The points
+	 * need not be sorted.  If the same x-coordinate occurs multiple times, the last
+	 * occurrence is used.
+	 *
 	 * @param x		the x-coordinates of the points.
 	 * @param y		the y-coordinates of the points.
 	 * @throws IllegalArgumentException		if the lengths of <code>x</code> and <code>y</code>
 	 * 										are not equal.
-	 * @see #addPoints(double[], double[])
 	 */
 	public LinearInterpolator(double[] x, double[] y) {
-		addPoints(x,y);
+		if (x.length != y.length) {
+			throw new IllegalArgumentException("Array lengths do not match, x="+x.length +
+					" y="+y.length);
+		}
+		if (isStrictlyIncreasing(x)) {
+			// Fast path for the common case of already sorted points
+			this.xPoints = x.clone();
+			this.yPoints = y.clone();
+		} else {
+			LinearInterpolator sorted = new Builder().addPoints(x, y).build();
+			this.xPoints = sorted.xPoints;
+			this.yPoints = sorted.yPoints;
+		}
 	}
 
+	/**
+	 * Construct a <code>LinearInterpolator</code> with the given points.
+	 *
+	 * @see #LinearInterpolator(double[], double[])
+	 */
 	public LinearInterpolator(List<Double> x, List<Double> y) {
-		addPoints(x,y);
+		this(toArray(x), toArray(y));
 	}
 
-	/**
-	 * Add the point to the linear interpolation.
-	 * 
-	 * @param x		the x-coordinate of the point.
-	 * @param y		the y-coordinate of the point.
-	 */
-	public void addPoint(double x, double y) {
-		sortMap.put(x, y);
+	private LinearInterpolator(SortedMap<Double, Double> points) {
+		this.xPoints = new double[points.size()];
+		this.yPoints = new double[points.size()];
+		int i = 0;
+		for (Map.Entry<Double, Double> e : points.entrySet()) {
+			xPoints[i] = e.getKey();
+			yPoints[i] = e.getValue();
+			i++;
+		}
 	}
 
+
 	/**
-	 * Add the points to the linear interpolation.
-	 * 
-	 * @param x		the x-coordinates of the points.
-	 * @param y		the y-coordinates of the points.
-	 * @throws IllegalArgumentException		if the lengths of <code>x</code> and <code>y</code>
-	 * 										are not equal.
+	 * Return the interpolated value at the specified point.
+	 *
+	 * @param x		the x-coordinate.
+	 * @return		the interpolated value, or the value of the nearest end point if
+	 * 				<code>x</code> is outside the range of the points.
+	 * @throws IllegalStateException	if the interpolator has no points.
 	 */
-	public void addPoints(double[] x, double[] y) {
-		if (x.length != y.length) {
-			throw new IllegalArgumentException("Array lengths do not match, x="+x.length +
-					" y="+y.length);
-		}
-		for (int i=0; i < x.length; i++) {
-			sortMap.put(x[i],y[i]);
+	public double getValue(double x) {
+		final double[] xs = xPoints;
+		final int n = xs.length;
+		if (n == 0) {
+			throw new IllegalStateException("No points added yet to the interpolator.");
 		}
-	}
 
-	public void addPoints(List<Double> x, List<Double> y){
-		if (x.size() != y.size()) {
-			throw new IllegalArgumentException("Array lengths do not match, x="+x.size() +
-					" y="+y.size());
+		int i = hint;
+		if (!(i < n - 1 && xs[i] <= x && x < xs[i + 1])) {
+			if (!(x > xs[0])) {
+				// Also NaN values, which are ordered after all other values
+				if (x != x) {
+					return yPoints[n - 1];
+				}
+				return yPoints[0];
+			}
+			if (x >= xs[n - 1]) {
+				return yPoints[n - 1];
+			}
+			i = Arrays.binarySearch(xs, x);
+			if (i >= 0) {
+				return yPoints[i];
+			}
+			i = -i - 2;
+			hint = i;
 		}
-		for (int i=0; i < x.size(); i++) {
-			sortMap.put( (Double) x.toArray()[i], (Double) y.toArray()[i]);
+
+		if (x == xs[i]) {
+			return yPoints[i];
 		}
+		double x1 = xs[i];
+		double x2 = xs[i + 1];
+		double y1 = yPoints[i];
+		double y2 = yPoints[i + 1];
+		return (x - x1)/(x2-x1) * (y2-y1) + y1;
 	}
 
 
-	public double getValue(double x) {
-		double x1, x2;
-		Double y1, y2;
-		// Froyo does not support floorEntry, firstEntry or higherEntry.  We instead have to
-		// resort to using other more awkward methods.
+	/**
+	 * Return the number of points of this interpolator.
+	 */
+	public int getPointCount() {
+		return xPoints.length;
+	}
+
+	/**
+	 * Return the x-coordinates of the points in ascending order.
+	 */
+	public double[] getXPoints() {
+		return xPoints.clone();
+	}
 
-		y1 = sortMap.get(x);
+	/**
+	 * Return the y-coordinates of the points, in the order of the x-coordinates.
+	 */
+	public double[] getYPoints() {
+		return yPoints.clone();
+	}
 
-		if ( y1 != null ) {
-			// Wow, x was a key in the map.  Such luck.
-			return y1.doubleValue();
-		}
 
-		// we now know that x is not in the map, so we need to find the lower and higher keys.
-		
-		// let's just make certain that our map is not empty.
-		if ( sortMap.isEmpty() ) {
-			throw new IllegalStateException("No points added yet to the interpolator.");
-		}
-		
-		// firstKey in the map - cannot be null since the map is not empty.
-		Double firstKey = sortMap.firstKey();
-
-		// x is smaller than the first entry in the map.
-		if ( x < firstKey.doubleValue() ) {
-			y1 = sortMap.get(firstKey);
-			return y1.doubleValue();
-		}
-		
-		// floor key is the largest key smaller than x - since we have at least one key,
-		// and x>=firstKey, we know that floorKey != null.
-		Double floorKey = sortMap.subMap(firstKey, x).lastKey();
+	/**
+	 * Return a builder initialized with the points of this interpolator.
+	 */
+	public Builder toBuilder() {
+		return new Builder().addPoints(xPoints, yPoints);
+	}
 
-		x1 = floorKey.doubleValue();
-		y1 = sortMap.get(floorKey);
 
-		// Now we need to find the key that is greater or equal to x
-		SortedMap<Double,Double> tailMap = sortMap.tailMap(x);
+	/**
+	 * Return this interpolator.  Interpolators are immutable, so no copy is necessary.
+	 */
+	@Override
+	public LinearInterpolator clone() {
+		return this;
+	}
 
-		// Check if x is bigger than all the entries.
-		if ( tailMap.isEmpty() ) {
-			return y1.doubleValue();
-		}
-		Double ceilKey = tailMap.firstKey();
-		
-		// Check if x is bigger than all the entries.
-		if ( ceilKey == null ) {
-			return y1.doubleValue();
+
+
+	private static boolean isStrictlyIncreasing(double[] x) {
+		for (int i = 0; i < x.length; i++) {
+			// Negated comparisons to also reject NaN values
+			if (x[i] != x[i]) {
+				return false;
+			}
+			if (i > 0 && !(x[i] > x[i - 1])) {
+				return false;
+			}
 		}
-		
-		x2 = ceilKey.doubleValue();
-		y2 = sortMap.get(ceilKey);
+		return true;
+	}
 
-		return (x - x1)/(x2-x1) * (y2-y1) + y1;
+	private static double[] toArray(List<Double> list) {
+		double[] array = new double[list.size()];
+		int i = 0;
+		for (Double d : list) {
+			array[i++] = d;
+		}
+		return array;
 	}
 
 
-	public double[] getXPoints() {
-		double[] x = new double[sortMap.size()];
-		Iterator<Double> iter = sortMap.keySet().iterator();
-		for (int i=0; iter.hasNext(); i++) {
-			x[i] = iter.next();
+
+	/**
+	 * A mutable builder of {@link LinearInterpolator} objects.  Points may be added
+	 * in any order; adding a point with an existing x-coordinate replaces the old point.
+	 */
+	public static final class Builder {
+
+		private final TreeMap<Double, Double> sortMap = new TreeMap<Double, Double>();
+
+		/**
+		 * Add the point to the linear interpolation.
+		 *
+		 * @param x		the x-coordinate of the point.
+		 * @param y		the y-coordinate of the point.
+		 * @return		this builder.
+		 */
+		public Builder addPoint(double x, double y) {
+			sortMap.put(x, y);
+			return this;
 		}
-		return x;
-	}
 
+		/**
+		 * Add the points to the linear interpolation.
+		 *
+		 * @param x		the x-coordinates of the points.
+		 * @param y		the y-coordinates of the points.
+		 * @return		this builder.
+		 * @throws IllegalArgumentException		if the lengths of <code>x</code> and <code>y</code>
+		 * 										are not equal.
+		 */
+		public Builder addPoints(double[] x, double[] y) {
+			if (x.length != y.length) {
+				throw new IllegalArgumentException("Array lengths do not match, x="+x.length +
+						" y="+y.length);
+			}
+			for (int i=0; i < x.length; i++) {
+				sortMap.put(x[i], y[i]);
+			}
+			return this;
+		}
 
-	@SuppressWarnings("unchecked")
-	@Override
-	public LinearInterpolator clone() {
-		try {
-			LinearInterpolator other = (LinearInterpolator)super.clone();
-			other.sortMap = (TreeMap<Double,Double>)this.sortMap.clone();
-			return other;
-		} catch (CloneNotSupportedException e) {
-			throw new BugException("CloneNotSupportedException?!",e);
+		/**
+		 * Add the points to the linear interpolation.
+		 *
+		 * @see #addPoints(double[], double[])
+		 */
+		public Builder addPoints(List<Double> x, List<Double> y) {
+			return addPoints(toArray(x), toArray(y));
+		}
+
+		/**
+		 * Return the number of points added to this builder.
+		 */
+		public int getPointCount() {
+			return sortMap.size();
+		}
+
+		/**
+		 * Create an interpolator of the points added so far.  The builder may be used
+		 * further after this call without affecting the returned interpolator.
+		 */
+		public LinearInterpolator build() {
+			return new LinearInterpolator(sortMap);
 		}
 	}
 
@@ -0,0 +1,161 @@
+package net.sf.openrocket.util;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a single quantile of a stream of values in constant memory using the
+ * P-square algorithm of Jain and Chlamtac ("The P-square algorithm for dynamic
+ * calculation of percentiles and histograms without storing observations",
+ * Communications of the ACM, 1985).
+ * <p>
+ * The estimator keeps five markers whose heights are adjusted with piecewise-parabolic
+ * interpolation as values arrive.  Until five values have been added the quantile is
+ * computed exactly.  NaN values are ignored.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class QuantileEstimator {
+	
+	private static final int MARKERS = 5;
+	
+	private final double p;
+	
+	/** Marker heights */
+	private final double[] q = new double[MARKERS];
+	/** Actual marker positions */
+	private final double[] n = new double[MARKERS];
+	/** Desired marker positions */
+	private final double[] desired = new double[MARKERS];
+	/** Increments of the desired marker positions */
+	private final double[] increment;
+	
+	private long count = 0;
+	
+	
+	/**
+	 * Create an estimator for the specified quantile.
+	 * 
+	 * @param p		the quantile to estimate, between 0 and 1 (e.g. 0.5 for the median).
+	 */
+	public QuantileEstimator(double p) {
+		if (!(p >= 0 && p <= 1)) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1, was " + p);
+		}
+		this.p = p;
+		this.increment = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+	}
+	
+	
+	/**
+	 * Return the quantile this estimator estimates.
+	 */
+	public double getQuantile() {
+		return p;
+	}
+	
+	/**
+	 * Return the number of (non-NaN) values added.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	
+	/**
+	 * Add a value to the estimator.
+	 */
+	public void add(double x) {
+		if (Double.isNaN(x)) {
+			return;
+		}
+		
+		if (count < MARKERS) {
+			q[(int) count] = x;
+			count++;
+			if (count == MARKERS) {
+				Arrays.sort(q);
+				for (int i = 0; i < MARKERS; i++) {
+					n[i] = i;
+				}
+				desired[0] = 0;
+				desired[1] = 2 * p;
+				desired[2] = 4 * p;
+				desired[3] = 2 + 2 * p;
+				desired[4] = 4;
+			}
+			return;
+		}
+		count++;
+		
+		// Find the cell containing the value and update the extreme markers
+		int k;
+		if (x < q[0]) {
+			q[0] = x;
+			k = 0;
+		} else if (x >= q[4]) {
+			q[4] = x;
+			k = 3;
+		} else {
+			k = 0;
+			while (k < 3 && x >= q[k + 1]) {
+				k++;
+			}
+		}
+		
+		for (int i = k + 1; i < MARKERS; i++) {
+			n[i]++;
+		}
+		for (int i = 0; i < MARKERS; i++) {
+			desired[i] += increment[i];
+		}
+		
+		// Adjust the heights of the middle markers if necessary
+		for (int i = 1; i <= 3; i++) {
+			double d = desired[i] - n[i];
+			if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+				int sign = (d > 0) ? 1 : -1;
+				double candidate = parabolic(i, sign);
+				if (q[i - 1] < candidate && candidate < q[i + 1]) {
+					q[i] = candidate;
+				} else {
+					q[i] = linear(i, sign);
+				}
+				n[i] += sign;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Return the current estimate of the quantile, or NaN if no values have been added.
+	 */
+	public double getValue() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (count < MARKERS) {
+			double[] sorted = Arrays.copyOf(q, (int) count);
+			Arrays.sort(sorted);
+			int index = (int) Math.round(p * (count - 1));
+			return sorted[index];
+		}
+		return q[2];
+	}
+	
+	
+	private double parabolic(int i, int d) {
+		return q[i] + d / (n[i + 1] - n[i - 1]) *
+				((n[i] - n[i - 1] + d) * (q[i + 1] - q[i]) / (n[i + 1] - n[i]) +
+				(n[i + 1] - n[i] - d) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+	}
+	
+	private double linear(int i, int d) {
+		return q[i] + d * (q[i + d] - q[i]) / (n[i + d] - n[i]);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "QuantileEstimator[p=" + p + ", count=" + count + ", value=" + getValue() + "]";
+	}
+}
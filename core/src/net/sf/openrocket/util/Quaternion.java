@@ -172,6 +172,41 @@ public class Quaternion {
 		return new Quaternion(newW, newX, newY, newZ);
 	}
 	
+	/**
+	 * Multiply this quaternion from the left side by the rotation quaternion of a
+	 * rotation vector.  This is equivalent to
+	 * <code>multiplyLeft(Quaternion.rotation(new Coordinate(x, y, z)))</code>,
+	 * but does not create the intermediate objects.
+	 * 
+	 * @param x		the x-component of the rotation vector.
+	 * @param y		the y-component of the rotation vector.
+	 * @param z		the z-component of the rotation vector.
+	 * @return		the product <code>rotation * this</code>.
+	 */
+	public Quaternion multiplyLeftRotation(double x, double y, double z) {
+		double ow, ox, oy, oz;
+		double length = MathUtil.safeSqrt(x * x + y * y + z * z);
+		if (length < 0.000001) {
+			ow = 1;
+			ox = 0;
+			oy = 0;
+			oz = 0;
+		} else {
+			double sin = Math.sin(length / 2);
+			ow = Math.cos(length / 2);
+			ox = sin * x / length;
+			oy = sin * y / length;
+			oz = sin * z / length;
+		}
+		
+		double newW = (ow * this.w - ox * this.x - oy * this.y - oz * this.z);
+		double newX = (ow * this.x + ox * this.w + oy * this.z - oz * this.y);
+		double newY = (ow * this.y + oy * this.w + oz * this.x - ox * this.z);
+		double newZ = (ow * this.z + oz * this.w + ox * this.y - oy * this.x);
+		
+		return new Quaternion(newW, newX, newY, newZ);
+	}
+	
 	
 
 
@@ -265,6 +300,35 @@ public class Quaternion {
 				coord.weight);
 	}
 	
+	/**
+	 * Perform a coordinate rotation using this unit quaternion, and store the x, y and z
+	 * components of the result in an array.  This is equivalent to
+	 * {@link #rotate(Coordinate)}, but does not create the intermediate objects.
+	 * <p>
+	 * This method assumes that the norm of this quaternion is one.
+	 * 
+	 * @param cx		the x-component of the coordinate to rotate.
+	 * @param cy		the y-component of the coordinate to rotate.
+	 * @param cz		the z-component of the coordinate to rotate.
+	 * @param result	the array in which to store the rotated coordinate, of length at least 3.
+	 */
+	public void rotate(double cx, double cy, double cz, double[] result) {
+		double a, b, c, d;
+		
+		assert (Math.abs(norm2() - 1) < 0.00001) : "Quaternion not unit length: " + this;
+		
+		//  (a,b,c,d) = this * coord = (w,x,y,z) * (0,cx,cy,cz)
+		a = -x * cx - y * cy - z * cz; // w
+		b = w * cx + y * cz - z * cy; // x i
+		c = w * cy - x * cz + z * cx; // y j
+		d = w * cz + x * cy - y * cx; // z k
+		
+		//  return = (a,b,c,d) * (this)^-1 = (a,b,c,d) * (w,-x,-y,-z)
+		result[0] = -a * x + b * w - c * z + d * y;
+		result[1] = -a * y + b * z + c * w - d * x;
+		result[2] = -a * z - b * y + c * x + d * w;
+	}
+	
 	/**
 	 * Perform an inverse coordinate rotation using this unit quaternion.  The result is
 	 * <code>this^(-1) * coord * this</code>.
@@ -0,0 +1,107 @@
+package net.sf.openrocket.util;
+
+/**
+ * Accumulates the count, mean, variance, minimum and maximum of a stream of values
+ * without storing the values themselves.  The mean and variance are updated using
+ * Welford's algorithm, which is numerically stable for long streams.
+ * <p>
+ * NaN values are ignored.  The variance is the population variance, consistent with
+ * {@link ArrayUtils#variance(double[])}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class RunningStatistics {
+	
+	private long count = 0;
+	private double mean = 0;
+	private double m2 = 0;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+	
+	
+	/**
+	 * Add a value to the statistics.
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+		
+		if (count == 1 || value < min) {
+			min = value;
+		}
+		if (count == 1 || value > max) {
+			max = value;
+		}
+	}
+	
+	
+	/**
+	 * Return the number of (non-NaN) values added.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Return the mean of the values, or NaN if no values have been added.
+	 */
+	public double getMean() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return mean;
+	}
+	
+	/**
+	 * Return the population variance of the values, or NaN if no values have been added.
+	 */
+	public double getVariance() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return m2 / count;
+	}
+	
+	/**
+	 * Return the sample variance of the values, or NaN if fewer than two values have been added.
+	 */
+	public double getSampleVariance() {
+		if (count < 2) {
+			return Double.NaN;
+		}
+		return m2 / (count - 1);
+	}
+	
+	/**
+	 * Return the population standard deviation of the values, or NaN if no values have been added.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+	
+	/**
+	 * Return the minimum value, or NaN if no values have been added.
+	 */
+	public double getMinimum() {
+		return min;
+	}
+	
+	/**
+	 * Return the maximum value, or NaN if no values have been added.
+	 */
+	public double getMaximum() {
+		return max;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "RunningStatistics[count=" + count + ", mean=" + getMean() + ", stdev=" + getStandardDeviation() +
+				", min=" + min + ", max=" + max + "]";
+	}
+}
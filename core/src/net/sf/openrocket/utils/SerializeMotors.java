@@ -3,17 +3,21 @@ package net.sf.openrocket.utils;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.openrocket.file.iterator.DirectoryIterator;
 import net.sf.openrocket.file.iterator.FileIterator;
+import net.sf.openrocket.file.motor.BinaryMotorSaver;
 import net.sf.openrocket.file.motor.GeneralMotorLoader;
 import net.sf.openrocket.gui.util.SimpleFileFilter;
 import net.sf.openrocket.motor.Motor;
 import net.sf.openrocket.util.Pair;
 
+/**
+ * Preprocesses the thrust curve files of a directory into the binary motor database
+ * format read by {@link net.sf.openrocket.file.motor.BinaryMotorLoader}.
+ */
 public class SerializeMotors {
 	
 	public static void main(String[] args) throws Exception {
@@ -30,9 +34,6 @@ public class SerializeMotors {
 		
 		File outFile = new File(outputFile);
 		
-		FileOutputStream ofs = new FileOutputStream(outFile);
-		final ObjectOutputStream oos = new ObjectOutputStream(ofs);
-		
 		final List<Motor> allMotors = new ArrayList<Motor>();
 		
 		
@@ -53,11 +54,12 @@ public class SerializeMotors {
 			}
 		}
 		
-		oos.writeObject(allMotors);
-		
-		oos.flush();
-		ofs.flush();
-		ofs.close();
+		FileOutputStream ofs = new FileOutputStream(outFile);
+		try {
+			new BinaryMotorSaver().save(ofs, allMotors);
+		} finally {
+			ofs.close();
+		}
 	}
 	
 }
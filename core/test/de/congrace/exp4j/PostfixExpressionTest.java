@@ -0,0 +1,63 @@
+package de.congrace.exp4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PostfixExpressionTest {
+
+	@Test
+	public void testConstantsAreFolded() throws Exception {
+		PostfixExpression expr = (PostfixExpression) new ExpressionBuilder("2*3+sqrt(16)*x").withVariableNames("x").build();
+		// 2*3 and sqrt(16) are folded, leaving "6 4 x * +"
+		assertEquals(5, expr.getTokens().length);
+		expr.setVariable(new Variable("x", 0.5));
+		assertEquals(8, expr.calculate().getDoubleValue(), 0);
+
+		PostfixExpression constant = (PostfixExpression) new ExpressionBuilder("(1+2)^2-cos(0)").build();
+		assertEquals(1, constant.getTokens().length);
+		assertEquals(8, constant.calculate().getDoubleValue(), 0);
+	}
+
+	@Test
+	public void testRandomIsNotFolded() throws Exception {
+		Calculable expr = new ExpressionBuilder("random(1000)").build();
+		double first = expr.calculate().getDoubleValue();
+		boolean changed = false;
+		for (int i = 0; i < 10 && !changed; i++) {
+			changed = expr.calculate().getDoubleValue() != first;
+		}
+		assertTrue(changed);
+	}
+
+	@Test
+	public void testVariableSlots() throws Exception {
+		Calculable expr = new ExpressionBuilder("x*y+x").withVariableNames("x", "y").build();
+		int x = expr.getVariableSlot("x");
+		int y = expr.getVariableSlot("y");
+		assertTrue(x >= 0);
+		assertTrue(y >= 0);
+		assertTrue(x != y);
+		assertEquals(-1, expr.getVariableSlot("z"));
+
+		expr.setVariable(x, new Variable("x", 2));
+		expr.setVariable(y, new Variable("y", 3));
+		assertEquals(8, expr.calculate().getDoubleValue(), 0);
+
+		// Setting by name uses the same slots, and unused names are ignored
+		expr.setVariable(new Variable("y", 5));
+		expr.setVariable(new Variable("z", 7));
+		assertEquals(12, expr.calculate().getDoubleValue(), 0);
+	}
+
+	@Test
+	public void testArrayVariables() throws Exception {
+		Calculable expr = new ExpressionBuilder("2*3*x").withVariableNames("x").build();
+		expr.setVariable(new Variable("x", new double[] { 1, 2 }));
+		Variable result = expr.calculate();
+		assertEquals(Variable.Primary.ARRAY, result.getPrimary());
+		assertEquals(6, result.getArrayValue()[0], 0);
+		assertEquals(12, result.getArrayValue()[1], 0);
+	}
+}
@@ -0,0 +1,172 @@
+package net.sf.openrocket.aerodynamics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.models.atmosphere.AtmosphericConditions;
+import net.sf.openrocket.rocketcomponent.BodyTube;
+import net.sf.openrocket.rocketcomponent.Configuration;
+import net.sf.openrocket.rocketcomponent.FinSet;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.rocketcomponent.RocketComponent;
+import net.sf.openrocket.simulation.BasicEventSimulationEngine;
+import net.sf.openrocket.simulation.RK4SimulationStepper;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Test;
+
+public class BarrowmanCalculatorTest extends BaseTestCase {
+
+	private static final double TOLERANCE = 0.001;
+
+	@Test
+	public void testTabulatedForcesMatchExact() {
+		Configuration configuration = TestRockets.makeBigBlue().getDefaultConfiguration();
+		BarrowmanCalculator exact = new BarrowmanCalculator();
+		BarrowmanCalculator tabulated = new BarrowmanCalculator();
+		tabulated.setTableTolerance(TOLERANCE);
+
+		for (double mach = 0.05; mach < 2.5; mach += 0.0371) {
+			for (double aoa = 0; aoa < 12 * Math.PI / 180; aoa += 0.0123) {
+				FlightConditions conditions = createConditions(configuration, mach, aoa);
+				assertForcesEqual(exact.getAerodynamicForces(configuration, conditions, null),
+						tabulated.getAerodynamicForces(configuration, conditions, null));
+			}
+		}
+	}
+
+	@Test
+	public void testWarningsAreReported() {
+		Configuration configuration = TestRockets.makeBigBlue().getDefaultConfiguration();
+		BarrowmanCalculator exact = new BarrowmanCalculator();
+		BarrowmanCalculator tabulated = new BarrowmanCalculator();
+		tabulated.setTableTolerance(TOLERANCE);
+
+		FlightConditions conditions = createConditions(configuration, 0.3, 0.05);
+		WarningSet expected = new WarningSet();
+		exact.getAerodynamicForces(configuration, conditions, expected);
+
+		// The first call fills the table, the second one is interpolated
+		tabulated.getAerodynamicForces(configuration, conditions, new WarningSet());
+		WarningSet actual = new WarningSet();
+		tabulated.getAerodynamicForces(configuration, conditions, actual);
+		assertEquals(expected.size(), actual.size());
+	}
+
+	@Test
+	public void testModificationVoidsTables() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		Configuration configuration = rocket.getDefaultConfiguration();
+		BarrowmanCalculator exact = new BarrowmanCalculator();
+		BarrowmanCalculator tabulated = new BarrowmanCalculator();
+		tabulated.setTableTolerance(TOLERANCE);
+
+		FlightConditions conditions = createConditions(configuration, 0.4, 0.05);
+		AerodynamicForces before = tabulated.getAerodynamicForces(configuration, conditions, null);
+
+		FinSet fins = findFinSet(rocket);
+		fins.setFinCount(fins.getFinCount() + 2);
+
+		AerodynamicForces after = tabulated.getAerodynamicForces(configuration, conditions, null);
+		assertTrue(Math.abs(before.getCNa() - after.getCNa()) > 0.01);
+		assertForcesEqual(exact.getAerodynamicForces(configuration, conditions, null), after);
+	}
+
+	@Test
+	public void testChangedComponentsAreRecalculated() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		Configuration configuration = rocket.getDefaultConfiguration();
+		BarrowmanCalculator calculator = new BarrowmanCalculator();
+		FlightConditions conditions = createConditions(configuration, 0.4, 0.05);
+		calculator.getAerodynamicForces(configuration, conditions, null);
+
+		FinSet fins = findFinSet(rocket);
+		fins.setFinCount(fins.getFinCount() + 1);
+		assertForcesIdentical(new BarrowmanCalculator().getAerodynamicForces(configuration, conditions, null),
+				calculator.getAerodynamicForces(configuration, conditions, null));
+
+		// The fins depend on the body tube they are attached to
+		BodyTube tube = (BodyTube) fins.getParent();
+		tube.setOuterRadius(tube.getOuterRadius() * 1.2);
+		assertForcesIdentical(new BarrowmanCalculator().getAerodynamicForces(configuration, conditions, null),
+				calculator.getAerodynamicForces(configuration, conditions, null));
+	}
+
+	@Test
+	public void testNewInstanceCopiesTolerance() {
+		BarrowmanCalculator calculator = new BarrowmanCalculator();
+		assertEquals(0, calculator.getTableTolerance(), 0);
+		calculator.setTableTolerance(TOLERANCE);
+		assertEquals(TOLERANCE, calculator.newInstance().getTableTolerance(), 0);
+	}
+
+	@Test
+	public void testToleranceFromSimulationOptions() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		assertEquals(0, options.getAerodynamicTableTolerance(), 0);
+		options.setAerodynamicTableTolerance(TOLERANCE);
+
+		SimulationConditions conditions = options.toSimulationConditions();
+		assertEquals(TOLERANCE, conditions.getAerodynamicTableTolerance(), 0);
+		new BasicEventSimulationEngine().simulate(conditions);
+		BarrowmanCalculator calculator = (BarrowmanCalculator) conditions.getAerodynamicCalculator();
+		assertEquals(TOLERANCE, calculator.getTableTolerance(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeTolerance() {
+		new BarrowmanCalculator().setTableTolerance(-1);
+	}
+
+
+	private static FlightConditions createConditions(Configuration configuration, double mach, double aoa) {
+		FlightConditions conditions = new FlightConditions(configuration);
+		conditions.setAtmosphericConditions(new AtmosphericConditions());
+		conditions.setMach(mach);
+		conditions.setAOA(aoa);
+		conditions.setTheta(0.3);
+		conditions.setPitchRate(0.1);
+		conditions.setYawRate(-0.05);
+		return conditions;
+	}
+
+	private static FinSet findFinSet(Rocket rocket) {
+		for (RocketComponent c : rocket) {
+			if (c instanceof FinSet) {
+				return (FinSet) c;
+			}
+		}
+		throw new AssertionError("No fin set found");
+	}
+
+	private static void assertForcesEqual(AerodynamicForces expected, AerodynamicForces actual) {
+		// The table is validated only at cell centers, so allow some slack
+		assertRelativeEquals(expected.getCNa(), actual.getCNa());
+		assertRelativeEquals(expected.getCN(), actual.getCN());
+		assertRelativeEquals(expected.getCm(), actual.getCm());
+		assertRelativeEquals(expected.getCP().x, actual.getCP().x);
+		assertRelativeEquals(expected.getCD(), actual.getCD());
+		assertRelativeEquals(expected.getCaxial(), actual.getCaxial());
+	}
+
+	private static void assertForcesIdentical(AerodynamicForces expected, AerodynamicForces actual) {
+		assertEquals(expected.getCNa(), actual.getCNa(), 0);
+		assertEquals(expected.getCm(), actual.getCm(), 0);
+		assertEquals(expected.getCP(), actual.getCP());
+		assertEquals(expected.getCD(), actual.getCD(), 0);
+	}
+
+	private static void assertRelativeEquals(double expected, double actual) {
+		assertEquals(expected, actual, 10 * TOLERANCE * Math.abs(expected) + 1e-9);
+	}
+
+}
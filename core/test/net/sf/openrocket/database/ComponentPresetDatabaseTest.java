@@ -0,0 +1,127 @@
+package net.sf.openrocket.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.openrocket.motor.Manufacturer;
+import net.sf.openrocket.preset.ComponentPreset;
+import net.sf.openrocket.preset.ComponentPresetFactory;
+import net.sf.openrocket.preset.InvalidComponentPresetException;
+import net.sf.openrocket.preset.TypedPropertyMap;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+
+import org.junit.Test;
+
+public class ComponentPresetDatabaseTest extends BaseTestCase {
+
+	@Test
+	public void testAddAll() throws Exception {
+		ComponentPresetDatabase db = new ComponentPresetDatabase();
+		CountingListener listener = new CountingListener();
+		db.addDatabaseListener(listener);
+
+		ComponentPreset a = makePreset(ComponentPreset.Type.BODY_TUBE, "Estes", "BT-20", 0.1);
+		ComponentPreset b = makePreset(ComponentPreset.Type.BODY_TUBE, "Estes", "BT-50", 0.1);
+		ComponentPreset c = makePreset(ComponentPreset.Type.TUBE_COUPLER, "Apogee", "C-1", 0.05);
+		ComponentPreset d = makePreset(ComponentPreset.Type.BODY_TUBE, "Estes", "BT-20", 0.2);
+
+		assertTrue(db.add(b));
+		List<ComponentPreset> presets = new ArrayList<ComponentPreset>();
+		presets.add(d);
+		presets.add(b);
+		presets.add(c);
+		presets.add(a);
+		presets.add(c);
+		assertTrue(db.addAll(presets));
+
+		assertEquals(1, listener.added);
+		assertEquals(1, listener.batches);
+		assertEquals(3, listener.batchElements);
+		assertEquals(4, db.size());
+		for (int i = 1; i < db.size(); i++) {
+			assertTrue(db.get(i - 1).compareTo(db.get(i)) <= 0);
+		}
+
+		assertFalse(db.addAll(presets));
+		assertEquals(1, listener.batches);
+	}
+
+	@Test
+	public void testIndexes() throws Exception {
+		ComponentPresetDatabase db = new ComponentPresetDatabase();
+		ComponentPreset a = makePreset(ComponentPreset.Type.BODY_TUBE, "Estes", "BT-20", 0.1);
+		ComponentPreset b = makePreset(ComponentPreset.Type.BODY_TUBE, "Estes", "BT-20", 0.2);
+		ComponentPreset c = makePreset(ComponentPreset.Type.TUBE_COUPLER, "Apogee", "C-1", 0.05);
+		ComponentPreset d = makePreset(ComponentPreset.Type.BODY_TUBE, "Apogee", "T-1", 0.3);
+		List<ComponentPreset> presets = new ArrayList<ComponentPreset>();
+		presets.add(a);
+		presets.add(b);
+		presets.add(c);
+		db.addAll(presets);
+
+		assertEquals(2, db.find("Estes", "BT-20").size());
+		assertEquals(0, db.find("Estes", "C-1").size());
+		assertEquals(2, db.listForType(ComponentPreset.Type.BODY_TUBE).size());
+		assertEquals(1, db.listForType(ComponentPreset.Type.TUBE_COUPLER).size());
+		assertEquals(0, db.listForType(ComponentPreset.Type.NOSE_CONE).size());
+
+		// Indexes must follow changes to the database
+		db.add(d);
+		assertEquals(3, db.listForType(ComponentPreset.Type.BODY_TUBE).size());
+		assertEquals(1, db.find("Apogee", "T-1").size());
+
+		Iterator<ComponentPreset> iterator = db.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() == a) {
+				iterator.remove();
+			}
+		}
+		assertEquals(1, db.find("Estes", "BT-20").size());
+
+		List<ComponentPreset> both = db.listForTypes(ComponentPreset.Type.TUBE_COUPLER, ComponentPreset.Type.BODY_TUBE);
+		assertEquals(db.size(), both.size());
+		for (int i = 0; i < db.size(); i++) {
+			assertTrue(db.get(i) == both.get(i));
+		}
+	}
+
+
+	private static ComponentPreset makePreset(ComponentPreset.Type type, String manufacturer, String partNo,
+			double length) throws InvalidComponentPresetException {
+		TypedPropertyMap presetspec = new TypedPropertyMap();
+		presetspec.put(ComponentPreset.TYPE, type);
+		presetspec.put(ComponentPreset.MANUFACTURER, Manufacturer.getManufacturer(manufacturer));
+		presetspec.put(ComponentPreset.PARTNO, partNo);
+		presetspec.put(ComponentPreset.LENGTH, length);
+		presetspec.put(ComponentPreset.OUTER_DIAMETER, 0.02);
+		presetspec.put(ComponentPreset.INNER_DIAMETER, 0.019);
+		return ComponentPresetFactory.create(presetspec);
+	}
+
+	private static class CountingListener implements DatabaseListener<ComponentPreset> {
+		private int added = 0;
+		private int batches = 0;
+		private int batchElements = 0;
+
+		@Override
+		public void elementAdded(ComponentPreset element, Database<ComponentPreset> source) {
+			added++;
+		}
+
+		@Override
+		public void elementsAdded(List<ComponentPreset> elements, Database<ComponentPreset> source) {
+			batches++;
+			batchElements += elements.size();
+		}
+
+		@Override
+		public void elementRemoved(ComponentPreset element, Database<ComponentPreset> source) {
+		}
+	}
+
+}
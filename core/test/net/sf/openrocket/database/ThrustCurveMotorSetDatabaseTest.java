@@ -0,0 +1,184 @@
+package net.sf.openrocket.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.openrocket.database.motor.ThrustCurveMotorSet;
+import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
+import net.sf.openrocket.motor.Manufacturer;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+import net.sf.openrocket.util.Coordinate;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThrustCurveMotorSetDatabaseTest {
+
+	private static final String[] MANUFACTURERS = { "Aerotech", "Cesaroni", "Estes", "Quest", "Foo" };
+	private static final double[] DIAMETERS = { 0.013, 0.018, 0.024, 0.029, 0.038, 0.054 };
+	private static final String[] CLASSES = { "A", "B", "C", "D", "E", "F", "G", "H" };
+	private static final String[] SUFFIXES = { "T", "W", "J", "-SK", "" };
+	private static final Motor.Type[] TYPES = { Motor.Type.SINGLE, Motor.Type.RELOAD, Motor.Type.UNKNOWN };
+
+	private ThrustCurveMotorSetDatabase db;
+
+	@Before
+	public void setUp() {
+		Random rnd = new Random(42);
+		db = new ThrustCurveMotorSetDatabase();
+		for (int i = 0; i < 500; i++) {
+			String designation = CLASSES[rnd.nextInt(CLASSES.length)] + (5 + rnd.nextInt(20)) +
+					SUFFIXES[rnd.nextInt(SUFFIXES.length)];
+			if (rnd.nextBoolean()) {
+				designation = designation.toLowerCase();
+			}
+			double thrust = 5 + rnd.nextInt(200);
+			db.addMotor(createMotor(MANUFACTURERS[rnd.nextInt(MANUFACTURERS.length)], designation,
+					TYPES[rnd.nextInt(TYPES.length)], DIAMETERS[rnd.nextInt(DIAMETERS.length)],
+					0.05 + rnd.nextInt(10) * 0.01, thrust, "digest" + rnd.nextInt(400)));
+		}
+	}
+
+
+	@Test
+	public void testAddMotorSets() {
+		// Every motor must be in the first matching set, as with a linear search
+		List<ThrustCurveMotorSet> sets = db.getMotorSets();
+		for (int i = 0; i < sets.size(); i++) {
+			for (ThrustCurveMotor m : sets.get(i).getMotors()) {
+				for (int j = 0; j < i; j++) {
+					assertTrue(!sets.get(j).matches(m) || sets.get(j).getMotors().contains(m));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFindMotorsMatchesLinearSearch() {
+		Random rnd = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			Motor.Type type = rnd.nextBoolean() ? null : TYPES[rnd.nextInt(TYPES.length)];
+			String manufacturer = rnd.nextBoolean() ? null : MANUFACTURERS[rnd.nextInt(MANUFACTURERS.length)];
+			String designation = null;
+			if (rnd.nextInt(3) == 0) {
+				List<ThrustCurveMotor> all = allMotors();
+				designation = all.get(rnd.nextInt(all.size())).getDesignation();
+				if (rnd.nextBoolean()) {
+					designation = designation.toUpperCase();
+				}
+			}
+			double diameter = rnd.nextBoolean() ? Double.NaN : DIAMETERS[rnd.nextInt(DIAMETERS.length)] +
+					(rnd.nextDouble() - 0.5) * 0.004;
+			double length = rnd.nextBoolean() ? Double.NaN : 0.05 + rnd.nextDouble() * 0.1;
+
+			assertEquals(linearFind(type, manufacturer, designation, diameter, length),
+					db.findMotors(type, manufacturer, designation, diameter, length));
+		}
+	}
+
+	@Test
+	public void testFindMotorsNoMatch() {
+		assertEquals(0, db.findMotors(null, null, "Z99", Double.NaN, Double.NaN).size());
+		assertEquals(0, db.findMotors(null, "Nonexistent", null, Double.NaN, Double.NaN).size());
+		assertEquals(0, db.findMotors(null, null, null, 0.5, Double.NaN).size());
+		assertEquals(allMotors(), db.findMotors(null, null, null, Double.NaN, Double.NaN));
+	}
+
+	@Test
+	public void testFindMotorsByRange() {
+		List<ThrustCurveMotor> expected = new ArrayList<ThrustCurveMotor>();
+		for (ThrustCurveMotor m : allMotors()) {
+			if (m.getDiameter() >= 0.0285 && m.getDiameter() <= 0.0295 &&
+					m.getTotalImpulseEstimate() >= 80 && m.getTotalImpulseEstimate() <= 160) {
+				expected.add(m);
+			}
+		}
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, db.findMotors(null, 0.0285, 0.0295, Double.NaN, Double.NaN, 80, 160));
+
+		// The type is matched against the type of the motor set
+		expected.clear();
+		for (ThrustCurveMotorSet set : db.getMotorSets()) {
+			if (set.getType() != Motor.Type.RELOAD)
+				continue;
+			for (ThrustCurveMotor m : set.getMotors()) {
+				if (m.getLength() <= 0.1 && m.getTotalImpulseEstimate() >= 100) {
+					expected.add(m);
+				}
+			}
+		}
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, db.findMotors(Motor.Type.RELOAD, Double.NaN, Double.NaN,
+				Double.NaN, 0.1, 100, Double.NaN));
+
+		assertEquals(allMotors(), db.findMotors(null, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+				Double.NaN, Double.NaN));
+		assertEquals(0, db.findMotors(null, 0.03, 0.02, Double.NaN, Double.NaN, Double.NaN, Double.NaN).size());
+	}
+
+	@Test
+	public void testFindMotorsByDigest() {
+		for (ThrustCurveMotor m : allMotors()) {
+			List<ThrustCurveMotor> found = db.findMotorsByDigest(m.getDigest());
+			assertTrue(found.contains(m));
+			for (ThrustCurveMotor f : found) {
+				assertEquals(m.getDigest(), f.getDigest());
+			}
+		}
+		assertEquals(0, db.findMotorsByDigest("nonexistent").size());
+	}
+
+	@Test
+	public void testQueryAfterAdd() {
+		assertEquals(0, db.findMotors(null, null, "M1000W", Double.NaN, Double.NaN).size());
+		ThrustCurveMotor m = createMotor("Aerotech", "M1000W", Motor.Type.RELOAD, 0.098, 0.75, 1000, "digestM");
+		db.addMotor(m);
+		List<ThrustCurveMotor> found = db.findMotors(null, null, "M1000W", Double.NaN, Double.NaN);
+		assertEquals(1, found.size());
+		assertEquals(m, found.get(0));
+		assertEquals(found, db.findMotorsByDigest("digestM"));
+	}
+
+
+	private List<ThrustCurveMotor> allMotors() {
+		List<ThrustCurveMotor> motors = new ArrayList<ThrustCurveMotor>();
+		for (ThrustCurveMotorSet set : db.getMotorSets()) {
+			motors.addAll(set.getMotors());
+		}
+		return motors;
+	}
+
+	private List<ThrustCurveMotor> linearFind(Motor.Type type, String manufacturer, String designation,
+			double diameter, double length) {
+		ArrayList<ThrustCurveMotor> results = new ArrayList<ThrustCurveMotor>();
+		for (ThrustCurveMotorSet set : db.getMotorSets()) {
+			if (type != null && type != set.getType())
+				continue;
+			for (ThrustCurveMotor m : set.getMotors()) {
+				if (manufacturer != null && !m.getManufacturer().matches(manufacturer))
+					continue;
+				if (designation != null && !designation.equalsIgnoreCase(m.getDesignation()))
+					continue;
+				if (!Double.isNaN(diameter) && (Math.abs(diameter - m.getDiameter()) > 0.0015))
+					continue;
+				if (!Double.isNaN(length) && (Math.abs(length - m.getLength()) > 0.0015))
+					continue;
+				results.add(m);
+			}
+		}
+		return results;
+	}
+
+	private static ThrustCurveMotor createMotor(String manufacturer, String designation, Motor.Type type,
+			double diameter, double length, double thrust, String digest) {
+		return new ThrustCurveMotor(Manufacturer.getManufacturer(manufacturer),
+				designation, "Desc", type, new double[] {},
+				diameter, length, new double[] { 0, 1, 2 }, new double[] { 0, thrust, 0 },
+				new Coordinate[] { Coordinate.NUL, Coordinate.NUL, Coordinate.NUL }, digest);
+	}
+}
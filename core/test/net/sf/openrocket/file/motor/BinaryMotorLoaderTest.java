@@ -0,0 +1,119 @@
+package net.sf.openrocket.file.motor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.MotorDigest;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+
+import org.junit.Test;
+
+public class BinaryMotorLoaderTest {
+
+	@Test
+	public void testStreamRoundTrip() throws IOException {
+		List<Motor> original = loadTestMotors();
+
+		List<Motor> loaded = new BinaryMotorLoader().load(new ByteArrayInputStream(save(original)), "test.motordb");
+		assertMotorsEqual(original, loaded);
+	}
+
+	@Test
+	public void testFileRoundTrip() throws IOException {
+		List<Motor> original = loadTestMotors();
+
+		File file = File.createTempFile("openrocket", "." + BinaryMotorLoader.EXTENSION);
+		try {
+			FileOutputStream os = new FileOutputStream(file);
+			os.write(save(original));
+			os.close();
+
+			List<Motor> loaded = new BinaryMotorLoader().load(file);
+			assertMotorsEqual(original, loaded);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testStatisticsAvailableBeforeCurve() throws IOException {
+		List<Motor> original = loadTestMotors();
+		List<Motor> loaded = new BinaryMotorLoader().load(new ByteArrayInputStream(save(original)), null);
+
+		for (int i = 0; i < original.size(); i++) {
+			ThrustCurveMotor o = (ThrustCurveMotor) original.get(i);
+			ThrustCurveMotor l = (ThrustCurveMotor) loaded.get(i);
+			assertEquals(o.getDataPointCount(), l.getDataPointCount());
+			assertEquals(o.getTotalImpulseEstimate(), l.getTotalImpulseEstimate(), 0);
+			// Loading the curve must not change the point count
+			assertEquals(o.getTimePoints().length, l.getTimePoints().length);
+			assertEquals(o.getDataPointCount(), l.getDataPointCount());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidMagic() throws IOException {
+		new BinaryMotorLoader().load(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }), null);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		byte[] bytes = save(loadTestMotors());
+		byte[] truncated = new byte[bytes.length / 10];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		new BinaryMotorLoader().load(new ByteArrayInputStream(truncated), null);
+	}
+
+
+	private List<Motor> loadTestMotors() throws IOException {
+		List<Motor> motors = new ArrayList<Motor>();
+		GeneralMotorLoader loader = new GeneralMotorLoader();
+		for (String file : new String[] { "test1.eng", "test2.rse", "test3.rse" }) {
+			InputStream is = this.getClass().getResourceAsStream(file);
+			motors.addAll(loader.load(is, file));
+			is.close();
+		}
+		return motors;
+	}
+
+	private static byte[] save(List<Motor> motors) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new BinaryMotorSaver().save(bytes, motors);
+		return bytes.toByteArray();
+	}
+
+	private static void assertMotorsEqual(List<Motor> expected, List<Motor> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ThrustCurveMotor e = (ThrustCurveMotor) expected.get(i);
+			ThrustCurveMotor a = (ThrustCurveMotor) actual.get(i);
+			assertEquals(e.getManufacturer(), a.getManufacturer());
+			assertEquals(e.getDesignation(), a.getDesignation());
+			assertEquals(e.getDescription(), a.getDescription());
+			assertEquals(e.getDigest(), a.getDigest());
+			assertEquals(e.getMotorType(), a.getMotorType());
+			assertArrayEquals(e.getStandardDelays(), a.getStandardDelays(), 0);
+			assertEquals(e.getDiameter(), a.getDiameter(), 0);
+			assertEquals(e.getLength(), a.getLength(), 0);
+			assertEquals(e.getMaxThrustEstimate(), a.getMaxThrustEstimate(), 0);
+			assertEquals(e.getBurnTimeEstimate(), a.getBurnTimeEstimate(), 0);
+			assertEquals(e.getAverageThrustEstimate(), a.getAverageThrustEstimate(), 0);
+			assertEquals(e.getTotalImpulseEstimate(), a.getTotalImpulseEstimate(), 0);
+			assertArrayEquals(e.getTimePoints(), a.getTimePoints(), 0);
+			assertArrayEquals(e.getThrustPoints(), a.getThrustPoints(), 0);
+			assertArrayEquals(e.getCGPoints(), a.getCGPoints());
+			assertEquals(e.getLaunchCG(), a.getLaunchCG());
+			assertEquals(MotorDigest.digestMotor(e), MotorDigest.digestMotor(a));
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package net.sf.openrocket.file.motor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.openrocket.gui.util.SimpleFileFilter;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelMotorLoaderTest {
+
+	private static final String[] FILES = { "test1.eng", "test2.rse", "test3.rse" };
+
+	private File dir;
+
+	@Before
+	public void createDirectory() throws IOException {
+		dir = File.createTempFile("openrocket", "");
+		dir.delete();
+		dir.mkdir();
+		new File(dir, "sub").mkdir();
+		copy(FILES[0], new File(dir, FILES[0]));
+		copy(FILES[1], new File(dir, FILES[1]));
+		copy(FILES[2], new File(dir, "sub/" + FILES[2]));
+		// A duplicate of a motor file must not produce duplicate motors
+		copy(FILES[0], new File(dir, "sub/copy.eng"));
+		copy("test.txt", new File(dir, "test.txt"));
+	}
+
+	@After
+	public void deleteDirectory() {
+		delete(dir);
+	}
+
+
+	@Test
+	public void testListFiles() throws IOException {
+		List<File> files = listFiles();
+		assertEquals(4, files.size());
+		assertEquals(new File(dir, "sub/copy.eng"), files.get(0));
+		assertEquals(new File(dir, "sub/" + FILES[2]), files.get(1));
+		assertEquals(new File(dir, FILES[0]), files.get(2));
+		assertEquals(new File(dir, FILES[1]), files.get(3));
+	}
+
+	@Test
+	public void testLoadMatchesSerialLoad() throws IOException {
+		List<Motor> expected = loadSerially(listFiles());
+		for (int threads = 1; threads <= 4; threads++) {
+			List<Motor> motors = new ParallelMotorLoader(null, threads).load(listFiles());
+			assertMotorsEqual(expected, motors);
+		}
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		File cacheFile = new File(dir, "cache.bin");
+		List<Motor> expected = loadSerially(listFiles());
+
+		MotorFileCache cache = new MotorFileCache(cacheFile);
+		cache.load();
+		assertMotorsEqual(expected, new ParallelMotorLoader(cache, 2).load(listFiles()));
+		cache.save();
+		assertTrue(cacheFile.isFile());
+
+		cache = new MotorFileCache(cacheFile);
+		cache.load();
+		File file = new File(dir, FILES[0]);
+		assertNotNull(cache.get(file));
+		assertMotorsEqual(expected, new ParallelMotorLoader(cache, 2).load(listFiles()));
+
+		// Changed files must be parsed again
+		assertTrue(file.setLastModified(file.lastModified() - 10000));
+		assertNull(cache.get(file));
+		assertMotorsEqual(expected, new ParallelMotorLoader(cache, 2).load(listFiles()));
+		assertNotNull(cache.get(file));
+	}
+
+	@Test
+	public void testInvalidCacheFile() throws IOException {
+		File cacheFile = new File(dir, "cache.bin");
+		OutputStream os = new FileOutputStream(cacheFile);
+		os.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		os.close();
+
+		MotorFileCache cache = new MotorFileCache(cacheFile);
+		cache.load();
+		assertNull(cache.get(new File(dir, FILES[0])));
+		assertMotorsEqual(loadSerially(listFiles()), new ParallelMotorLoader(cache, 2).load(listFiles()));
+	}
+
+
+	private List<File> listFiles() throws IOException {
+		return ParallelMotorLoader.listFiles(dir, new SimpleFileFilter("", new GeneralMotorLoader().getSupportedExtensions()));
+	}
+
+	private static List<Motor> loadSerially(List<File> files) throws IOException {
+		List<Motor> motors = new ArrayList<Motor>();
+		List<String> digests = new ArrayList<String>();
+		GeneralMotorLoader loader = new GeneralMotorLoader();
+		for (File file : files) {
+			InputStream is = new FileInputStream(file);
+			for (Motor m : loader.load(is, file.getName())) {
+				if (!digests.contains(m.getDigest())) {
+					digests.add(m.getDigest());
+					motors.add(m);
+				}
+			}
+			is.close();
+		}
+		return motors;
+	}
+
+	private static void assertMotorsEqual(List<Motor> expected, List<Motor> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ThrustCurveMotor e = (ThrustCurveMotor) expected.get(i);
+			ThrustCurveMotor a = (ThrustCurveMotor) actual.get(i);
+			assertEquals(e.getDigest(), a.getDigest());
+			assertEquals(e.getDesignation(), a.getDesignation());
+			assertArrayEquals(e.getTimePoints(), a.getTimePoints(), 0);
+			assertArrayEquals(e.getThrustPoints(), a.getThrustPoints(), 0);
+		}
+	}
+
+	private void copy(String resource, File target) throws IOException {
+		InputStream is = this.getClass().getResourceAsStream(resource);
+		OutputStream os = new FileOutputStream(target);
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = is.read(buffer)) >= 0) {
+			os.write(buffer, 0, n);
+		}
+		os.close();
+		is.close();
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
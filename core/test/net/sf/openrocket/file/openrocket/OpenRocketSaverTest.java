@@ -1,9 +1,14 @@
 package net.sf.openrocket.file.openrocket;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
@@ -12,6 +17,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 import net.sf.openrocket.ServicesForTesting;
 import net.sf.openrocket.database.ComponentPresetDao;
@@ -19,8 +26,10 @@ import net.sf.openrocket.database.ComponentPresetDatabase;
 import net.sf.openrocket.database.motor.MotorDatabase;
 import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
 import net.sf.openrocket.document.OpenRocketDocument;
+import net.sf.openrocket.document.Simulation;
 import net.sf.openrocket.document.StorageOptions;
 import net.sf.openrocket.file.GeneralRocketLoader;
+import net.sf.openrocket.file.GeneralRocketSaver;
 import net.sf.openrocket.file.RocketLoadException;
 import net.sf.openrocket.file.motor.GeneralMotorLoader;
 import net.sf.openrocket.l10n.DebugTranslator;
@@ -28,6 +37,11 @@ import net.sf.openrocket.l10n.Translator;
 import net.sf.openrocket.motor.Motor;
 import net.sf.openrocket.motor.ThrustCurveMotor;
 import net.sf.openrocket.plugin.PluginModule;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.simulation.FlightData;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.simulation.FlightEvent;
 import net.sf.openrocket.simulation.extension.impl.ScriptingExtension;
 import net.sf.openrocket.simulation.extension.impl.ScriptingUtil;
 import net.sf.openrocket.startup.Application;
@@ -190,6 +204,158 @@ public class OpenRocketSaverTest {
 	}
 	
 	
+	@Test
+	public void testBinarySimulationData() throws Exception {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		
+		StorageOptions options = new StorageOptions();
+		options.setSimulationTimeSkip(StorageOptions.SIMULATION_DATA_ALL);
+		options.setBinarySimulationData(true);
+		
+		String fileName = String.format(TMP_DIR + "%s_%s.ork", this.getClass().getName(), "binary");
+		File file = new File(fileName);
+		new GeneralRocketSaver().save(file, rocketDoc, options);
+		
+		OpenRocketDocument rocketDocLoaded = loadRocket(file.getPath());
+		assertTrue(rocketDocLoaded.getDefaultStorageOptions().isBinarySimulationData());
+		assertEquals(rocketDoc.getSimulationCount(), rocketDocLoaded.getSimulationCount());
+		
+		assertFlightDataEquals(rocketDoc.getSimulation(0).getSimulatedData(),
+				rocketDocLoaded.getSimulation(0).getSimulatedData());
+	}
+	
+	@Test
+	public void testLazyBinarySimulationData() throws Exception {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		
+		String fileName = String.format(TMP_DIR + "%s_%s.ork", this.getClass().getName(), "lazybinary");
+		File file = new File(fileName);
+		new GeneralRocketSaver().save(file, rocketDoc, optionsWithTimeSkip(StorageOptions.SIMULATION_DATA_ALL, true));
+		
+		OpenRocketDocument rocketDocLoaded = loadRocketLazily(file);
+		FlightData actual = rocketDocLoaded.getSimulation(0).getSimulatedData();
+		assertFalse(actual.isLoaded());
+		assertTrue(rocketDocLoaded.getDefaultStorageOptions().isBinarySimulationData());
+		assertEquals(StorageOptions.SIMULATION_DATA_ALL, rocketDocLoaded.getDefaultStorageOptions().getSimulationTimeSkip(), 0);
+		
+		FlightData expected = rocketDoc.getSimulation(0).getSimulatedData();
+		assertEquals(expected.getMaxAltitude(), actual.getMaxAltitude(), 0.5);
+		assertFalse(actual.isLoaded());
+		
+		assertFlightDataEquals(expected, actual);
+		assertTrue(actual.isLoaded());
+	}
+	
+	@Test
+	public void testLazyTextSimulationData() throws Exception {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		rocketDoc.getRocket().setName("lazytext");
+		File file = saveRocket(rocketDoc, optionsWithTimeSkip(StorageOptions.SIMULATION_DATA_ALL, false));
+		
+		OpenRocketDocument eager = loadRocket(file.getPath());
+		assertTrue(eager.getSimulation(0).getSimulatedData().isLoaded());
+		
+		OpenRocketDocument lazy = loadRocketLazily(file);
+		FlightData actual = lazy.getSimulation(0).getSimulatedData();
+		assertFalse(actual.isLoaded());
+		assertEquals(2, actual.getBranchCount());
+		assertTrue(actual.isLoaded());
+		assertFlightDataEquals(eager.getSimulation(0).getSimulatedData(), actual);
+	}
+	
+	@Test
+	public void testLazySimulationDataLoadFailure() throws Exception {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		rocketDoc.getRocket().setName("lazyfailure");
+		File file = saveRocket(rocketDoc, optionsWithTimeSkip(StorageOptions.SIMULATION_DATA_ALL, false));
+		
+		OpenRocketDocument lazy = loadRocketLazily(file);
+		FlightData actual = lazy.getSimulation(0).getSimulatedData();
+		assertFalse(actual.isLoaded());
+		
+		// The test rocket has no motors, so use a simulation that can be run again
+		Rocket rocket = TestRockets.makeSmallFlyable();
+		Simulation simulation = new Simulation(rocket, Simulation.Status.LOADED, "Loaded",
+				new Simulation(rocket).getOptions(), null, actual);
+		assertEquals(Simulation.Status.LOADED, simulation.getStatus());
+		
+		// The data cannot be loaded once the file is gone, so the simulation is outdated
+		assertTrue(file.delete());
+		assertEquals(0, actual.getBranchCount());
+		assertTrue(actual.isLoaded());
+		assertTrue(actual.isLoadFailed());
+		assertEquals(Simulation.Status.OUTDATED, simulation.getStatus());
+	}
+	
+	@Test
+	public void testBinarySimulationDataWithoutAttachments() throws Exception {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		File file = saveRocket(rocketDoc, optionsWithTimeSkip(StorageOptions.SIMULATION_DATA_ALL, false));
+		OpenRocketDocument textLoaded = loadRocket(file.getPath());
+		
+		// A plain XML file has no container for the attachments, so the data is stored as text
+		file = saveRocket(rocketDoc, optionsWithTimeSkip(StorageOptions.SIMULATION_DATA_ALL, true));
+		assertTrue(saver.getFlightDataAttachmentNames().isEmpty());
+		
+		OpenRocketDocument rocketDocLoaded = loadRocket(file.getPath());
+		assertFalse(rocketDocLoaded.getDefaultStorageOptions().isBinarySimulationData());
+		assertEquals(2, rocketDocLoaded.getSimulation(0).getSimulatedData().getBranchCount());
+		assertFlightDataEquals(textLoaded.getSimulation(0).getSimulatedData(),
+				rocketDocLoaded.getSimulation(0).getSimulatedData());
+	}
+	
+	@Test
+	public void testBinaryFlightDataTimeSkip() throws Exception {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		FlightDataBranch branch = rocketDoc.getSimulation(0).getSimulatedData().getBranch(0);
+		
+		// Select every point approximately 0.1 s apart from the 0.01 s data
+		saver.setFlightDataAttachmentsSupported(true);
+		saver.save(new ByteArrayOutputStream(), rocketDoc, optionsWithTimeSkip(0.1, true));
+		assertEquals(2, saver.getFlightDataAttachmentNames().size());
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		saver.saveFlightDataAttachment(saver.getFlightDataAttachmentNames().get(0), binary);
+		
+		FlightDataBranch loaded = new FlightDataBranch("test", branch.getTypes());
+		BinaryFlightData.read(new ByteArrayInputStream(binary.toByteArray()), loaded, branch.getTypes());
+		assertEquals(101, loaded.getLength());
+		assertEquals(branch.getColumn(FlightDataType.TYPE_TIME).get(0), loaded.getColumn(FlightDataType.TYPE_TIME).get(0), 0);
+		assertEquals(branch.getColumn(FlightDataType.TYPE_TIME).getLast(), loaded.getColumn(FlightDataType.TYPE_TIME).getLast(), 0);
+		assertEquals(0.1, loaded.getColumn(FlightDataType.TYPE_TIME).get(1), 0.00001);
+	}
+	
+	@Test
+	public void testBinaryFlightDataSinglePrecision() throws Exception {
+		FlightDataType[] types = { FlightDataType.TYPE_TIME, FlightDataType.TYPE_ALTITUDE };
+		FlightDataBranch branch = new FlightDataBranch("single", true, types);
+		for (int i = 0; i < 100; i++) {
+			branch.addPoint();
+			branch.setValue(FlightDataType.TYPE_TIME, i * 0.1);
+			branch.setValue(FlightDataType.TYPE_ALTITUDE, Math.sqrt(i));
+		}
+		int[] points = { 0, 5, 99 };
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFlightData.write(out, branch, types, points);
+		assertEquals(20 + 3 * 2 * 4, out.size());
+		
+		FlightDataBranch loaded = new FlightDataBranch("single", types);
+		BinaryFlightData.read(new ByteArrayInputStream(out.toByteArray()), loaded, types);
+		assertEquals(3, loaded.getLength());
+		for (int i = 0; i < points.length; i++) {
+			assertEquals(branch.getColumn(FlightDataType.TYPE_ALTITUDE).get(points[i]), loaded.getColumn(FlightDataType.TYPE_ALTITUDE).get(i), 0);
+		}
+		
+		// Truncated data must be rejected
+		byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+		try {
+			BinaryFlightData.read(new ByteArrayInputStream(truncated), new FlightDataBranch("single", types), types);
+			fail("Truncated data accepted");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+	
+	
 	////////////////////////////////
 	// Tests for File Version 1.0 // 
 	////////////////////////////////
@@ -305,15 +471,114 @@ public class OpenRocketSaverTest {
 	}
 	
 	
+	////////////////////////////////
+	// Tests for File Version 1.8 // 
+	////////////////////////////////
+	
+	@Test
+	public void testFileVersion108_withBinarySimulationData() {
+		OpenRocketDocument rocketDoc = makeDocumentWithFlightData();
+		assertEquals(107, saver.testAccessor_calculateNecessaryFileVersion(rocketDoc, optionsWithTimeSkip(0, true)));
+		saver.setFlightDataAttachmentsSupported(true);
+		assertEquals(107, saver.testAccessor_calculateNecessaryFileVersion(rocketDoc, optionsWithTimeSkip(0, false)));
+		assertEquals(108, saver.testAccessor_calculateNecessaryFileVersion(rocketDoc, optionsWithTimeSkip(0, true)));
+	}
+	
+	
+	////////////////////////////////
+	// Tests for File Version 1.9 // 
+	////////////////////////////////
+	
+	@Test
+	public void testFileVersion109_withAdaptiveTimeStep() {
+		OpenRocketDocument rocketDoc = TestRockets.makeTestRocket_v107_withSimulationExtension(SIMULATION_EXTENSION_SCRIPT);
+		assertEquals(107, getCalculatedFileVersion(rocketDoc));
+		rocketDoc.getSimulation(0).getOptions().setAdaptiveTimeStep(true);
+		assertEquals(109, getCalculatedFileVersion(rocketDoc));
+	}
+	
+	
+	@Test
+	public void testFileVersion109_withAerodynamicTableTolerance() {
+		OpenRocketDocument rocketDoc = TestRockets.makeTestRocket_v107_withSimulationExtension(SIMULATION_EXTENSION_SCRIPT);
+		rocketDoc.getSimulation(0).getOptions().setAerodynamicTableTolerance(0.001);
+		assertEquals(109, getCalculatedFileVersion(rocketDoc));
+		
+		File file = saveRocket(rocketDoc, new StorageOptions());
+		OpenRocketDocument rocketDocLoaded = loadRocket(file.getPath());
+		assertEquals(0.001, rocketDocLoaded.getSimulation(0).getOptions().getAerodynamicTableTolerance(), 0);
+	}
+	
+	
 	/*
 	 * Utility Functions
 	 */
 	
+	private static StorageOptions optionsWithTimeSkip(double timeSkip, boolean binary) {
+		StorageOptions options = new StorageOptions();
+		options.setSimulationTimeSkip(timeSkip);
+		options.setBinarySimulationData(binary);
+		return options;
+	}
+	
+	/**
+	 * Create a document with a simulation containing two data branches.
+	 */
+	private static OpenRocketDocument makeDocumentWithFlightData() {
+		OpenRocketDocument rocketDoc = TestRockets.makeTestRocket_v107_withSimulationExtension(SIMULATION_EXTENSION_SCRIPT);
+		Random rnd = new Random(1);
+		
+		FlightDataType[] types = { FlightDataType.TYPE_TIME, FlightDataType.TYPE_ALTITUDE, FlightDataType.TYPE_VELOCITY_Z };
+		FlightDataBranch[] branches = new FlightDataBranch[2];
+		for (int b = 0; b < branches.length; b++) {
+			branches[b] = new FlightDataBranch("Branch " + b, types);
+			for (int i = 0; i < 1001; i++) {
+				branches[b].addPoint();
+				branches[b].setValue(FlightDataType.TYPE_TIME, i * 0.01);
+				branches[b].setValue(FlightDataType.TYPE_ALTITUDE, rnd.nextGaussian() * 1000);
+				if (i % 10 != 0) {
+					branches[b].setValue(FlightDataType.TYPE_VELOCITY_Z, rnd.nextDouble());
+				}
+			}
+			branches[b].addEvent(new FlightEvent(FlightEvent.Type.LAUNCH, 0));
+			branches[b].addEvent(new FlightEvent(FlightEvent.Type.APOGEE, 5.5));
+			branches[b].immute();
+		}
+		
+		Simulation simulation = rocketDoc.getSimulation(0);
+		rocketDoc.removeSimulation(simulation);
+		rocketDoc.addSimulation(new Simulation(rocketDoc.getRocket(), Simulation.Status.UPTODATE, "Simulated",
+				simulation.getOptions(), simulation.getSimulationExtensions(), new FlightData(branches)));
+		return rocketDoc;
+	}
+	
+	
 	private int getCalculatedFileVersion(OpenRocketDocument rocketDoc) {
 		int fileVersion = this.saver.testAccessor_calculateNecessaryFileVersion(rocketDoc, null);
 		return fileVersion;
 	}
 	
+	private static void assertFlightDataEquals(FlightData expected, FlightData actual) {
+		assertEquals(expected.getBranchCount(), actual.getBranchCount());
+		for (int i = 0; i < expected.getBranchCount(); i++) {
+			FlightDataBranch expectedBranch = expected.getBranch(i);
+			FlightDataBranch actualBranch = actual.getBranch(i);
+			assertEquals(expectedBranch.getBranchName(), actualBranch.getBranchName());
+			assertEquals(expectedBranch.getLength(), actualBranch.getLength());
+			assertEquals(expectedBranch.getEvents().size(), actualBranch.getEvents().size());
+			assertArrayEquals(expectedBranch.getTypes(), actualBranch.getTypes());
+			for (FlightDataType type : expectedBranch.getTypes()) {
+				assertArrayEquals(expectedBranch.getColumn(type).toArray(), actualBranch.getColumn(type).toArray(), 0);
+			}
+		}
+	}
+	
+	private OpenRocketDocument loadRocketLazily(File file) throws RocketLoadException {
+		GeneralRocketLoader loader = new GeneralRocketLoader(file);
+		loader.setLazySimulationData(true);
+		return loader.load();
+	}
+	
 	private OpenRocketDocument loadRocket(String fileName) {
 		GeneralRocketLoader loader = new GeneralRocketLoader(new File(fileName));
 		OpenRocketDocument rocketDoc = null;
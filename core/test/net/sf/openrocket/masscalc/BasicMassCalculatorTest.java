@@ -0,0 +1,216 @@
+package net.sf.openrocket.masscalc;
+
+import static net.sf.openrocket.util.MathUtil.pow2;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import net.sf.openrocket.masscalc.MassCalculator.MassCalcType;
+import net.sf.openrocket.motor.Manufacturer;
+import net.sf.openrocket.motor.Motor;
+import net.sf.openrocket.motor.MotorId;
+import net.sf.openrocket.motor.MotorInstance;
+import net.sf.openrocket.motor.MotorInstanceConfiguration;
+import net.sf.openrocket.motor.ThrustCurveMotor;
+import net.sf.openrocket.rocketcomponent.BodyTube;
+import net.sf.openrocket.rocketcomponent.Configuration;
+import net.sf.openrocket.rocketcomponent.FinSet;
+import net.sf.openrocket.rocketcomponent.IgnitionConfiguration.IgnitionEvent;
+import net.sf.openrocket.rocketcomponent.NoseCone;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.rocketcomponent.RocketComponent;
+import net.sf.openrocket.rocketcomponent.Stage;
+import net.sf.openrocket.simulation.MassData;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.Coordinate;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BasicMassCalculatorTest extends BaseTestCase {
+
+	private static final double EPS = 1e-12;
+
+	private static final ThrustCurveMotor MOTOR = new ThrustCurveMotor(Manufacturer.getManufacturer("foo"),
+			"X6", "Description of X6", Motor.Type.RELOAD,
+			new double[] { 0, 2, Motor.PLUGGED }, 0.02, 0.10,
+			new double[] { 0, 1, 3, 4 },
+			new double[] { 0, 2, 3, 0 },
+			new Coordinate[] {
+					new Coordinate(0.05, 0, 0, 0.05),
+					new Coordinate(0.05, 0, 0, 0.05),
+					new Coordinate(0.05, 0, 0, 0.04),
+					new Coordinate(0.05, 0, 0, 0.03)
+			}, "digestX6");
+
+	private Rocket rocket;
+	private Configuration configuration;
+	private MotorInstanceConfiguration motors;
+
+	@Before
+	public void createRocket() {
+		rocket = TestRockets.makeSmallFlyable();
+		BodyTube sustainerTube = (BodyTube) rocket.getChild(0).getChild(1);
+
+		Stage booster = new Stage();
+		BodyTube boosterTube = new BodyTube(0.15, 0.012, 0.001);
+		boosterTube.setMaterial(sustainerTube.getMaterial());
+		booster.addChild(boosterTube);
+		rocket.addChild(booster);
+
+		configuration = rocket.getDefaultConfiguration();
+		configuration.setAllStages();
+
+		motors = new MotorInstanceConfiguration();
+		MotorInstance sustainerMotor = MOTOR.getInstance();
+		sustainerMotor.step(3.5, 0, null);
+		motors.addMotor(new MotorId(sustainerTube.getID(), 1), sustainerMotor, 5, sustainerTube,
+				IgnitionEvent.AUTOMATIC, 0, new Coordinate(0.22, 0.001, 0));
+		motors.addMotor(new MotorId(boosterTube.getID(), 1), MOTOR.getInstance(), 0, boosterTube,
+				IgnitionEvent.AUTOMATIC, 0, new Coordinate(0.35, 0, 0.002));
+	}
+
+	@Test
+	public void testMassDataMatchesIndividualMethods() {
+		BasicMassCalculator calc = new BasicMassCalculator();
+		MassData data = calc.getMassData(configuration, motors);
+		assertEquals(calc.getCG(configuration, motors), data.getCG());
+		assertEquals(calc.getLongitudinalInertia(configuration, motors), data.getLongitudinalInertia(), 0);
+		assertEquals(calc.getRotationalInertia(configuration, motors), data.getRotationalInertia(), 0);
+		assertEquals(calc.getPropellantMass(configuration, motors), data.getPropellantMass(), 0);
+	}
+
+	@Test
+	public void testMassData() {
+		BasicMassCalculator calc = new BasicMassCalculator();
+		verify(calc.getMassData(configuration, motors));
+		assertEquals(calc.getCG(configuration, MassCalcType.NO_MOTORS), calc.getCG(configuration, (MotorInstanceConfiguration) null));
+
+		// The airframe data must follow the active stages
+		configuration.setOnlyStage(0);
+		verify(calc.getMassData(configuration, motors));
+		configuration.setOnlyStage(1);
+		verify(calc.getMassData(configuration, motors));
+		configuration.setAllStages();
+		verify(calc.getMassData(configuration, motors));
+
+		// ... and changes to the rocket
+		((BodyTube) rocket.getChild(1).getChild(0)).setLength(0.3);
+		verify(calc.getMassData(configuration, motors));
+	}
+
+	@Test
+	public void testChangedSubtreesAreRecomputed() {
+		NoseCone nose = (NoseCone) rocket.getChild(0).getChild(0);
+		BodyTube sustainerTube = (BodyTube) rocket.getChild(0).getChild(1);
+		BodyTube boosterTube = (BodyTube) rocket.getChild(1).getChild(0);
+		nose.setAftRadiusAutomatic(true);
+
+		BasicMassCalculator calc = new BasicMassCalculator();
+		calc.getMassData(configuration, motors);
+
+		// Changes within a single stage
+		boosterTube.setLength(0.25);
+		assertMassDataEquals(new BasicMassCalculator().getMassData(configuration, motors),
+				calc.getMassData(configuration, motors));
+		((FinSet) sustainerTube.getChild(0)).setFinCount(4);
+		assertMassDataEquals(new BasicMassCalculator().getMassData(configuration, motors),
+				calc.getMassData(configuration, motors));
+
+		// The automatic nose cone radius follows the body tube
+		double noseMass = nose.getComponentMass();
+		sustainerTube.setOuterRadius(0.015);
+		assertTrue(nose.getComponentMass() > noseMass);
+		assertMassDataEquals(new BasicMassCalculator().getMassData(configuration, motors),
+				calc.getMassData(configuration, motors));
+	}
+
+	@Test
+	public void testTreeChangeInOtherStageIsRecomputed() {
+		Stage sustainer = (Stage) rocket.getChild(0);
+		BodyTube sustainerTube = (BodyTube) sustainer.getChild(1);
+		BodyTube lastTube = new BodyTube(0.1, 0.02, 0.001);
+		lastTube.setMaterial(sustainerTube.getMaterial());
+		sustainer.addChild(lastTube);
+		BodyTube boosterTube = (BodyTube) rocket.getChild(1).getChild(0);
+		boosterTube.setOuterRadiusAutomatic(true);
+
+		BasicMassCalculator calc = new BasicMassCalculator();
+		calc.getMassData(configuration, motors);
+
+		// The automatic booster radius follows the last component of the sustainer
+		double boosterMass = boosterTube.getComponentMass();
+		sustainer.removeChild(lastTube);
+		assertTrue(boosterTube.getComponentMass() < boosterMass);
+		assertMassDataEquals(new BasicMassCalculator().getMassData(configuration, motors),
+				calc.getMassData(configuration, motors));
+
+		sustainer.addChild(lastTube);
+		assertEquals(boosterMass, boosterTube.getComponentMass(), 0);
+		assertMassDataEquals(new BasicMassCalculator().getMassData(configuration, motors),
+				calc.getMassData(configuration, motors));
+	}
+
+
+	private static void assertMassDataEquals(MassData expected, MassData actual) {
+		assertEquals(expected.getCG(), actual.getCG());
+		assertEquals(expected.getLongitudinalInertia(), actual.getLongitudinalInertia(), 0);
+		assertEquals(expected.getRotationalInertia(), actual.getRotationalInertia(), 0);
+		assertEquals(expected.getPropellantMass(), actual.getPropellantMass(), 0);
+	}
+
+	/**
+	 * Verify mass data against the separately computed stages and the motors.
+	 */
+	private void verify(MassData data) {
+		int[] active = configuration.getActiveStages();
+
+		// Mass data of each active stage alone without motors
+		Coordinate[] cgs = new Coordinate[active.length + motors.getMotorIDs().size()];
+		double[] longitudinal = new double[cgs.length];
+		double[] rotational = new double[cgs.length];
+		int n = 0;
+		for (int stage : active) {
+			Configuration single = configuration.clone();
+			single.setOnlyStage(stage);
+			BasicMassCalculator calc = new BasicMassCalculator();
+			cgs[n] = calc.getCG(single, MassCalcType.NO_MOTORS);
+			longitudinal[n] = calc.getLongitudinalInertia(single, null);
+			rotational[n] = calc.getRotationalInertia(single, null);
+			n++;
+		}
+		double propellant = 0;
+		for (MotorId id : motors.getMotorIDs()) {
+			MotorInstance motor = motors.getMotorInstance(id);
+			propellant += motor.getCG().weight - motor.getParentMotor().getEmptyCG().weight;
+			if (configuration.isStageActive(((RocketComponent) motors.getMotorMount(id)).getStageNumber())) {
+				cgs[n] = motor.getCG().add(motors.getMotorPosition(id));
+				longitudinal[n] = motor.getLongitudinalInertia();
+				rotational[n] = motor.getRotationalInertia();
+				n++;
+			}
+		}
+
+		double mass = 0, x = 0, y = 0, z = 0;
+		for (int i = 0; i < n; i++) {
+			mass += cgs[i].weight;
+			x += cgs[i].x * cgs[i].weight;
+			y += cgs[i].y * cgs[i].weight;
+			z += cgs[i].z * cgs[i].weight;
+		}
+		Coordinate cg = new Coordinate(x / mass, y / mass, z / mass, mass);
+
+		double expectedLongitudinal = 0, expectedRotational = 0;
+		for (int i = 0; i < n; i++) {
+			expectedLongitudinal += longitudinal[i] + cgs[i].weight * pow2(cgs[i].x - cg.x);
+			expectedRotational += rotational[i] + cgs[i].weight * (pow2(cgs[i].y - cg.y) + pow2(cgs[i].z - cg.z));
+		}
+
+		assertEquals(cg.x, data.getCG().x, EPS);
+		assertEquals(cg.y, data.getCG().y, EPS);
+		assertEquals(cg.z, data.getCG().z, EPS);
+		assertEquals(cg.weight, data.getCG().weight, EPS);
+		assertEquals(expectedLongitudinal, data.getLongitudinalInertia(), EPS);
+		assertEquals(expectedRotational, data.getRotationalInertia(), EPS);
+		assertEquals(propellant, data.getPropellantMass(), EPS);
+	}
+}
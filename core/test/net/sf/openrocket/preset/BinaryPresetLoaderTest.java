@@ -0,0 +1,157 @@
+package net.sf.openrocket.preset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.openrocket.material.Material;
+import net.sf.openrocket.motor.Manufacturer;
+import net.sf.openrocket.rocketcomponent.ExternalComponent.Finish;
+import net.sf.openrocket.rocketcomponent.Transition;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+
+import org.junit.Test;
+
+public class BinaryPresetLoaderTest extends BaseTestCase {
+
+	@Test
+	public void testStreamRoundTrip() throws Exception {
+		List<ComponentPreset> original = makePresets();
+
+		List<ComponentPreset> loaded = new BinaryPresetLoader().load(new ByteArrayInputStream(save(original)));
+		assertPresetsEqual(original, loaded);
+	}
+
+	@Test
+	public void testFileRoundTrip() throws Exception {
+		List<ComponentPreset> original = makePresets();
+
+		File file = File.createTempFile("openrocket", "." + BinaryPresetLoader.EXTENSION);
+		try {
+			FileOutputStream os = new FileOutputStream(file);
+			os.write(save(original));
+			os.close();
+
+			List<ComponentPreset> loaded = new BinaryPresetLoader().load(file);
+			assertPresetsEqual(original, loaded);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testIdentityAvailableBeforeProperties() throws Exception {
+		List<ComponentPreset> original = makePresets();
+		List<ComponentPreset> loaded = new BinaryPresetLoader().load(new ByteArrayInputStream(save(original)));
+
+		for (int i = 0; i < original.size(); i++) {
+			ComponentPreset o = original.get(i);
+			ComponentPreset l = loaded.get(i);
+			assertEquals(o.getType(), l.getType());
+			assertEquals(o.getManufacturer(), l.getManufacturer());
+			assertEquals(o.getPartNo(), l.getPartNo());
+			assertEquals(o.getDigest(), l.getDigest());
+			// Loading the properties must not change the digest
+			assertTrue(l.has(ComponentPreset.LENGTH) || l.has(ComponentPreset.DIAMETER));
+			assertEquals(o.getDigest(), l.getDigest());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidMagic() throws IOException {
+		new BinaryPresetLoader().load(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws Exception {
+		byte[] bytes = save(makePresets());
+		byte[] truncated = new byte[bytes.length / 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		new BinaryPresetLoader().load(new ByteArrayInputStream(truncated));
+	}
+
+
+	/**
+	 * Return test presets, ordered by type as they are stored.
+	 */
+	private static List<ComponentPreset> makePresets() throws InvalidComponentPresetException {
+		List<ComponentPreset> presets = new ArrayList<ComponentPreset>();
+
+		TypedPropertyMap presetspec = new TypedPropertyMap();
+		presetspec.put(ComponentPreset.TYPE, ComponentPreset.Type.BODY_TUBE);
+		presetspec.put(ComponentPreset.MANUFACTURER, Manufacturer.getManufacturer("Estes"));
+		presetspec.put(ComponentPreset.PARTNO, "BT-20");
+		presetspec.put(ComponentPreset.DESCRIPTION, "Body tube \u00e4");
+		presetspec.put(ComponentPreset.LENGTH, 0.3);
+		presetspec.put(ComponentPreset.OUTER_DIAMETER, 0.0187);
+		presetspec.put(ComponentPreset.INNER_DIAMETER, 0.0179);
+		presetspec.put(ComponentPreset.FINISH, Finish.NORMAL);
+		presetspec.put(ComponentPreset.MATERIAL, Material.newMaterial(Material.Type.BULK, "Kraft", 700, true));
+		presets.add(ComponentPresetFactory.create(presetspec));
+
+		presetspec = new TypedPropertyMap();
+		presetspec.put(ComponentPreset.TYPE, ComponentPreset.Type.BODY_TUBE);
+		presetspec.put(ComponentPreset.MANUFACTURER, Manufacturer.getManufacturer("Apogee"));
+		presetspec.put(ComponentPreset.PARTNO, "T-1");
+		presetspec.put(ComponentPreset.LENGTH, 0.5);
+		presetspec.put(ComponentPreset.OUTER_DIAMETER, 0.025);
+		presetspec.put(ComponentPreset.INNER_DIAMETER, 0.024);
+		presetspec.put(ComponentPreset.MASS, 0.01);
+		presets.add(ComponentPresetFactory.create(presetspec));
+
+		presetspec = new TypedPropertyMap();
+		presetspec.put(ComponentPreset.TYPE, ComponentPreset.Type.NOSE_CONE);
+		presetspec.put(ComponentPreset.MANUFACTURER, Manufacturer.getManufacturer("Estes"));
+		presetspec.put(ComponentPreset.PARTNO, "NC-20");
+		presetspec.put(ComponentPreset.LENGTH, 0.05);
+		presetspec.put(ComponentPreset.SHAPE, Transition.Shape.OGIVE);
+		presetspec.put(ComponentPreset.AFT_OUTER_DIAMETER, 0.0187);
+		presetspec.put(ComponentPreset.FILLED, true);
+		presets.add(ComponentPresetFactory.create(presetspec));
+
+		presetspec = new TypedPropertyMap();
+		presetspec.put(ComponentPreset.TYPE, ComponentPreset.Type.PARACHUTE);
+		presetspec.put(ComponentPreset.MANUFACTURER, Manufacturer.getManufacturer("Estes"));
+		presetspec.put(ComponentPreset.PARTNO, "P-12");
+		presetspec.put(ComponentPreset.DIAMETER, 0.3);
+		presetspec.put(ComponentPreset.SIDES, 6);
+		presetspec.put(ComponentPreset.LINE_COUNT, 6);
+		presetspec.put(ComponentPreset.LINE_LENGTH, 0.3);
+		presetspec.put(ComponentPreset.LINE_MATERIAL, Material.newMaterial(Material.Type.LINE, "Cord", 0.001, true));
+		presetspec.put(ComponentPreset.MATERIAL, Material.newMaterial(Material.Type.SURFACE, "Mylar", 0.02, true));
+		presets.add(ComponentPresetFactory.create(presetspec));
+
+		return presets;
+	}
+
+	private static byte[] save(List<ComponentPreset> presets) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new BinaryPresetSaver().save(bytes, presets);
+		return bytes.toByteArray();
+	}
+
+	private static void assertPresetsEqual(List<ComponentPreset> expected, List<ComponentPreset> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ComponentPreset e = expected.get(i);
+			ComponentPreset a = actual.get(i);
+			for (TypedKey<?> key : ComponentPreset.ORDERED_KEY_LIST) {
+				assertEquals(key.getName(), e.has(key), a.has(key));
+				if (e.has(key)) {
+					assertEquals(key.getName(), e.get(key), a.get(key));
+				}
+			}
+			assertEquals(e.getType(), a.getType());
+			assertFalse(a.has(ComponentPreset.IMAGE));
+			assertEquals(e.getDigest(), a.getDigest());
+		}
+	}
+}
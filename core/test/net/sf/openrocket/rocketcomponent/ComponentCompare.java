@@ -18,7 +18,8 @@ public class ComponentCompare {
 	private static final String[] IGNORED_METHODS = {
 			"getClass", "getChildCount", "getChildren", "getNextComponent", "getID",
 			"getPreviousComponent", "getParent", "getRocket", "getRoot", "getStage",
-			"getStageNumber", "getComponentName",
+			"getStageNumber", "getComponentName", "getComponentModID",
+			"getSubtreeMassModID", "getComponentAeroModID",
 			"getStageSeparationConfiguration",
 			"getMotorConfiguration",
 			"getIgnitionConfiguration",
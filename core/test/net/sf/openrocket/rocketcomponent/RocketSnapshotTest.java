@@ -0,0 +1,180 @@
+package net.sf.openrocket.rocketcomponent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import net.sf.openrocket.document.OpenRocketDocument;
+import net.sf.openrocket.document.OpenRocketDocumentFactory;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Test;
+
+public class RocketSnapshotTest extends BaseTestCase {
+
+	@Test
+	public void testRestoreSnapshot() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		Rocket original = rocket.copyWithOriginalID();
+
+		RocketSnapshot snapshot = RocketSnapshot.create(rocket, null);
+		assertEquals(count(rocket), snapshot.getComponentCount());
+		assertEquals(count(rocket), snapshot.getCreatedComponentCount());
+		assertEquals(rocket.getModID(), snapshot.getModID());
+
+		// Modifying the rocket must not affect the snapshot
+		BodyTube tube = findBodyTube(rocket);
+		tube.setLength(tube.getLength() + 0.1);
+		tube.setName("Modified");
+
+		ComponentCompare.assertDeepEquality(original, snapshot.toRocket());
+		ComponentCompare.assertDeepEquality(original, snapshot.toRocket());
+	}
+
+	@Test
+	public void testUnchangedComponentsShared() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		int components = count(rocket);
+		RocketSnapshot first = RocketSnapshot.create(rocket, null);
+
+		RocketSnapshot second = RocketSnapshot.create(rocket, first);
+		assertEquals(components, second.getComponentCount());
+		assertEquals(1, second.getCreatedComponentCount());
+
+		BodyTube tube = findBodyTube(rocket);
+		tube.setLength(tube.getLength() + 0.1);
+		RocketSnapshot third = RocketSnapshot.create(rocket, second);
+		assertEquals(2, third.getCreatedComponentCount());
+
+		tube.addChild(new MassComponent());
+		RocketSnapshot fourth = RocketSnapshot.create(rocket, third);
+		assertEquals(components + 1, fourth.getComponentCount());
+		assertEquals(3, fourth.getCreatedComponentCount());
+
+		ComponentCompare.assertDeepEquality(rocket, fourth.toRocket());
+		assertEquals(tube.getLength() - 0.1, findBodyTube(second.toRocket()).getLength(), 0.0);
+		assertEquals(tube.getChildCount() - 1, findBodyTube(third.toRocket()).getChildCount());
+	}
+
+	@Test
+	public void testFrozenChangesCaptured() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		RocketSnapshot first = RocketSnapshot.create(rocket, null);
+
+		rocket.freeze();
+		try {
+			Iterator<RocketComponent> iterator = rocket.iterator(false);
+			while (iterator.hasNext()) {
+				RocketComponent c = iterator.next();
+				c.setName(c.getName() + " x");
+			}
+		} finally {
+			rocket.thaw();
+		}
+
+		RocketSnapshot second = RocketSnapshot.create(rocket, first);
+		assertEquals(count(rocket), second.getCreatedComponentCount());
+		ComponentCompare.assertDeepEquality(rocket, second.toRocket());
+	}
+
+	@Test
+	public void testDocumentUndoRedo() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		OpenRocketDocument document = OpenRocketDocumentFactory.createDocumentFromRocket(rocket);
+		BodyTube tube = findBodyTube(rocket);
+		double length = tube.getLength();
+
+		document.addUndoPosition("Length 1");
+		tube.setLength(length + 0.1);
+		document.addUndoPosition("Length 2");
+		findBodyTube(rocket).setLength(length + 0.2);
+		document.addUndoPosition("Remove");
+		findBodyTube(rocket).removeChild(0);
+
+		Rocket modified = rocket.copyWithOriginalID();
+
+		document.undo();
+		assertEquals(length + 0.2, findBodyTube(rocket).getLength(), 0.0);
+		document.undo();
+		assertEquals(length + 0.1, findBodyTube(rocket).getLength(), 0.0);
+		document.undo();
+		assertEquals(length, findBodyTube(rocket).getLength(), 0.0);
+		assertFalse(document.isUndoAvailable());
+
+		document.redo();
+		document.redo();
+		document.redo();
+		assertFalse(document.isRedoAvailable());
+		ComponentCompare.assertDeepEquality(modified, rocket);
+
+		// Modifying after undo continues from the restored state
+		document.undo();
+		document.addUndoPosition("Name");
+		findBodyTube(rocket).setName("Changed");
+		document.undo();
+		assertEquals(length + 0.2, findBodyTube(rocket).getLength(), 0.0);
+		assertTrue(document.isRedoAvailable());
+		document.redo();
+		assertEquals("Changed", findBodyTube(rocket).getName());
+	}
+
+	@Test
+	public void testDocumentUndoLimit() {
+		Rocket rocket = TestRockets.makeBigBlue();
+		BodyTube tube = findBodyTube(rocket);
+		for (int i = 0; i < 500; i++) {
+			tube.addChild(new MassComponent());
+		}
+		int components = count(rocket);
+		OpenRocketDocument document = OpenRocketDocumentFactory.createDocumentFromRocket(rocket);
+
+		// Modify all components at each level so that nothing is shared
+		for (int i = 0; i < OpenRocketDocument.UNDO_LEVELS; i++) {
+			document.addUndoPosition("Level " + i);
+			rocket.freeze();
+			try {
+				Iterator<RocketComponent> iterator = rocket.iterator(true);
+				while (iterator.hasNext()) {
+					iterator.next().setComment("Level " + i);
+				}
+			} finally {
+				rocket.thaw();
+			}
+		}
+
+		int levels = 0;
+		while (document.isUndoAvailable()) {
+			document.undo();
+			levels++;
+		}
+		assertTrue(levels < OpenRocketDocument.UNDO_LEVELS);
+		assertTrue(levels * components <= OpenRocketDocument.UNDO_COMPONENT_LIMIT + components);
+		assertTrue((levels + 1) * components > OpenRocketDocument.UNDO_COMPONENT_LIMIT - components);
+	}
+
+
+	private static int count(RocketComponent component) {
+		int count = 0;
+		Iterator<RocketComponent> iterator = component.iterator(true);
+		while (iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+		return count;
+	}
+
+	private static BodyTube findBodyTube(Rocket rocket) {
+		Iterator<RocketComponent> iterator = rocket.iterator(false);
+		while (iterator.hasNext()) {
+			RocketComponent c = iterator.next();
+			if (c instanceof BodyTube && c.getChildCount() > 0) {
+				return (BodyTube) c;
+			}
+		}
+		throw new AssertionError("No body tube with children found");
+	}
+
+}
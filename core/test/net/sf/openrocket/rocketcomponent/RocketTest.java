@@ -1,5 +1,6 @@
 package net.sf.openrocket.rocketcomponent;
 
+import static org.junit.Assert.assertEquals;
 import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
 
 import org.junit.Test;
@@ -20,4 +21,57 @@ public class RocketTest extends BaseTestCase {
 		ComponentCompare.assertDeepEquality(r1, r2);
 	}
 	
+	@Test
+	public void testSubtreeModIDs() {
+		Rocket rocket = new Rocket();
+		Stage sustainer = new Stage();
+		rocket.addChild(sustainer);
+		NoseCone nose = new NoseCone();
+		sustainer.addChild(nose);
+		BodyTube tube = new BodyTube(0.3, 0.025);
+		sustainer.addChild(tube);
+		TrapezoidFinSet fins = new TrapezoidFinSet();
+		tube.addChild(fins);
+		InnerTube inner = new InnerTube();
+		tube.addChild(inner);
+		Stage booster = new Stage();
+		rocket.addChild(booster);
+		BodyTube boosterTube = new BodyTube(0.2, 0.025);
+		booster.addChild(boosterTube);
+		
+		// Changing the fins affects the fins and the assemblies containing them
+		int noseMass = nose.getSubtreeMassModID();
+		int tubeAero = tube.getComponentAeroModID();
+		int innerMass = inner.getSubtreeMassModID();
+		int boosterMass = booster.getSubtreeMassModID();
+		fins.setFinCount(4);
+		int modID = rocket.getModID();
+		assertEquals(modID, fins.getSubtreeMassModID());
+		assertEquals(modID, fins.getComponentAeroModID());
+		assertEquals(modID, tube.getSubtreeMassModID());
+		assertEquals(modID, sustainer.getSubtreeMassModID());
+		assertEquals(modID, rocket.getSubtreeMassModID());
+		assertEquals(tubeAero, tube.getComponentAeroModID());
+		assertEquals(noseMass, nose.getSubtreeMassModID());
+		assertEquals(innerMass, inner.getSubtreeMassModID());
+		assertEquals(boosterMass, booster.getSubtreeMassModID());
+		
+		// Changing the body tube affects its subcomponents and the automatic nose cone radius
+		int boosterAero = boosterTube.getComponentAeroModID();
+		tube.setOuterRadius(0.03);
+		modID = rocket.getModID();
+		assertEquals(modID, tube.getComponentAeroModID());
+		assertEquals(modID, fins.getComponentAeroModID());
+		assertEquals(modID, inner.getSubtreeMassModID());
+		assertEquals(modID, nose.getSubtreeMassModID());
+		assertEquals(modID, nose.getComponentAeroModID());
+		assertEquals(boosterMass, booster.getSubtreeMassModID());
+		assertEquals(boosterAero, boosterTube.getComponentAeroModID());
+		
+		// Copies retain the ID's
+		rocket.loadFrom(rocket.copyWithOriginalID());
+		assertEquals(modID, rocket.getSubtreeMassModID());
+		assertEquals(modID, rocket.getChild(0).getSubtreeMassModID());
+	}
+	
 }
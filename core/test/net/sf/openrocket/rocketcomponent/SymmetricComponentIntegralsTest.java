@@ -0,0 +1,83 @@
+package net.sf.openrocket.rocketcomponent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+
+import org.junit.Test;
+
+public class SymmetricComponentIntegralsTest extends BaseTestCase {
+
+	private static final double LENGTH = 0.15;
+	private static final double RADIUS = 0.025;
+	private static final double EPS = 1e-5;
+
+	@Test
+	public void testFilledEllipsoid() {
+		SymmetricComponentIntegrals integrals = SymmetricComponentIntegrals.get(
+				createNoseCone(Transition.Shape.ELLIPSOID, 0, true));
+		double volume = 2 * Math.PI * RADIUS * RADIUS * LENGTH / 3;
+		assertRelative(volume, integrals.volume);
+		assertRelative(volume, integrals.fullVolume);
+		assertRelative(0.625 * LENGTH, integrals.volumeCenter);
+		assertRelative(Math.PI * RADIUS * LENGTH / 2, integrals.planArea);
+		assertRelative(LENGTH * (1 - 4 / (3 * Math.PI)), integrals.planCenter);
+		assertRelative(0.4 * RADIUS * RADIUS, integrals.volumeRotationalInertia);
+	}
+
+	@Test
+	public void testFilledPowerSeries() {
+		double k = 0.5;
+		SymmetricComponentIntegrals integrals = SymmetricComponentIntegrals.get(
+				createNoseCone(Transition.Shape.POWER, k, true));
+		assertRelative(Math.PI * RADIUS * RADIUS * LENGTH / (2 * k + 1), integrals.volume);
+		assertRelative(LENGTH * (2 * k + 1) / (2 * k + 2), integrals.volumeCenter);
+		assertRelative(2 * RADIUS * LENGTH / (k + 1), integrals.planArea);
+		assertRelative(LENGTH * (k + 1) / (k + 2), integrals.planCenter);
+	}
+
+	@Test
+	public void testHollowCone() {
+		NoseCone nose = createNoseCone(Transition.Shape.CONICAL, 0, false);
+		SymmetricComponentIntegrals integrals = SymmetricComponentIntegrals.get(nose);
+		double slant = Math.hypot(RADIUS, LENGTH);
+		assertRelative(Math.PI * RADIUS * slant, integrals.wetArea);
+		assertRelative(Math.PI * RADIUS * RADIUS * LENGTH / 3, integrals.fullVolume);
+		assertRelative(2 * LENGTH / 3, integrals.planCenter);
+		assertRelative((RADIUS * RADIUS / (2 * LENGTH * LENGTH) + 1) * LENGTH * LENGTH / 2,
+				integrals.surfaceLongitudinalInertia);
+
+		// The wall is solid up to where the radius equals the wall height
+		double height = nose.thickness * slant / LENGTH;
+		double x = height * LENGTH / RADIUS;
+		double solid = Math.PI * height * height * x / 3;
+		double hollow = Math.PI * height * (RADIUS / LENGTH * (LENGTH * LENGTH - x * x) - height * (LENGTH - x));
+		assertRelative(solid + hollow, integrals.volume);
+	}
+
+	@Test
+	public void testIntegralsAreShared() {
+		NoseCone nose1 = createNoseCone(Transition.Shape.OGIVE, 1, false);
+		NoseCone nose2 = createNoseCone(Transition.Shape.OGIVE, 1, false);
+		assertSame(SymmetricComponentIntegrals.get(nose1), SymmetricComponentIntegrals.get(nose2));
+
+		nose2.setThickness(0.003);
+		assertNotSame(SymmetricComponentIntegrals.get(nose1), SymmetricComponentIntegrals.get(nose2));
+		nose1.setThickness(0.003);
+		assertSame(SymmetricComponentIntegrals.get(nose1), SymmetricComponentIntegrals.get(nose2));
+	}
+
+
+	private static NoseCone createNoseCone(Transition.Shape shape, double parameter, boolean filled) {
+		NoseCone nose = new NoseCone(shape, LENGTH, RADIUS);
+		nose.setShapeParameter(parameter);
+		nose.setThickness(0.002);
+		nose.setFilled(filled);
+		return nose;
+	}
+
+	private static void assertRelative(double expected, double actual) {
+		assertEquals(expected, actual, EPS * Math.abs(expected));
+	}
+}
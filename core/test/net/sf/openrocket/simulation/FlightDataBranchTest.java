@@ -0,0 +1,112 @@
+package net.sf.openrocket.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+
+import org.junit.Test;
+
+public class FlightDataBranchTest extends BaseTestCase {
+
+	@Test
+	public void testAddPointAndSetValue() {
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME, FlightDataType.TYPE_ALTITUDE);
+
+		for (int i = 0; i < 1000; i++) {
+			branch.addPoint();
+			branch.setValue(FlightDataType.TYPE_TIME, i * 0.01);
+			branch.setValue(FlightDataType.TYPE_ALTITUDE, i);
+		}
+
+		assertEquals(1000, branch.getLength());
+		assertEquals(9.99, branch.getLast(FlightDataType.TYPE_TIME), 0);
+		assertEquals(0, branch.getMinimum(FlightDataType.TYPE_ALTITUDE), 0);
+		assertEquals(999, branch.getMaximum(FlightDataType.TYPE_ALTITUDE), 0);
+
+		List<Double> altitude = branch.get(FlightDataType.TYPE_ALTITUDE);
+		assertEquals(1000, altitude.size());
+		assertEquals(500, altitude.get(500), 0);
+
+		assertNull(branch.get(FlightDataType.TYPE_MACH_NUMBER));
+		assertNull(branch.getColumn(FlightDataType.TYPE_MACH_NUMBER));
+		assertTrue(Double.isNaN(branch.getLast(FlightDataType.TYPE_MACH_NUMBER)));
+	}
+
+	@Test
+	public void testNewTypeIsBackfilledWithNaN() {
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME);
+		for (int i = 0; i < 20; i++) {
+			branch.addPoint();
+			branch.setValue(FlightDataType.TYPE_TIME, i);
+		}
+		branch.setValue(FlightDataType.TYPE_MACH_NUMBER, 0.5);
+
+		FlightDataColumn mach = branch.getColumn(FlightDataType.TYPE_MACH_NUMBER);
+		assertEquals(20, mach.size());
+		assertTrue(Double.isNaN(mach.get(0)));
+		assertTrue(Double.isNaN(mach.get(18)));
+		assertEquals(0.5, mach.get(19), 0);
+		assertEquals(0.5, branch.getMinimum(FlightDataType.TYPE_MACH_NUMBER), 0);
+		assertEquals(0.5, branch.getMaximum(FlightDataType.TYPE_MACH_NUMBER), 0);
+	}
+
+	@Test
+	public void testColumnViewIsLive() {
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME);
+		List<Double> view = branch.getColumn(FlightDataType.TYPE_TIME).asList();
+		List<Double> copy = branch.get(FlightDataType.TYPE_TIME);
+
+		branch.addPoint();
+		branch.setValue(FlightDataType.TYPE_TIME, 1.5);
+
+		assertEquals(1, view.size());
+		assertEquals(1.5, view.get(0), 0);
+		assertEquals(0, copy.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testColumnViewIsReadOnly() {
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME);
+		branch.addPoint();
+		branch.getColumn(FlightDataType.TYPE_TIME).asList().set(0, 1.0);
+	}
+
+	@Test
+	public void testSinglePrecision() {
+		FlightDataBranch branch = new FlightDataBranch("test", true, FlightDataType.TYPE_TIME);
+		branch.addPoint();
+		branch.setValue(FlightDataType.TYPE_TIME, 0.1);
+		branch.setValue(FlightDataType.TYPE_ALTITUDE, 1234.5678);
+
+		assertTrue(branch.isSinglePrecision());
+		assertTrue(branch.getColumn(FlightDataType.TYPE_ALTITUDE).isSinglePrecision());
+		assertEquals((float) 0.1, branch.getLast(FlightDataType.TYPE_TIME), 0);
+		assertEquals(1234.5678, branch.getLast(FlightDataType.TYPE_ALTITUDE), 1e-3);
+		// Maximum must equal the stored value exactly
+		assertEquals(branch.getLast(FlightDataType.TYPE_ALTITUDE), branch.getMaximum(FlightDataType.TYPE_ALTITUDE), 0);
+	}
+
+	@Test
+	public void testImmute() {
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME);
+		branch.addPoint();
+		branch.setValue(FlightDataType.TYPE_TIME, 2.0);
+		branch.immute();
+
+		assertFalse(branch.isMutable());
+		assertEquals(1, branch.getColumn(FlightDataType.TYPE_TIME).toArray().length);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testImmutableAddPoint() {
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME);
+		branch.immute();
+		branch.addPoint();
+	}
+
+}
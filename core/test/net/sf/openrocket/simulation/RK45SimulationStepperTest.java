@@ -0,0 +1,123 @@
+package net.sf.openrocket.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Test;
+
+public class RK45SimulationStepperTest extends BaseTestCase {
+
+	@Test
+	public void testMatchesFineFixedStep() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setWindSpeedAverage(0);
+		options.setWindTurbulenceIntensity(0);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+
+		options.setTimeStep(0.002);
+		FlightData reference = simulate(simulation);
+
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setAdaptiveTimeStep(true);
+		FlightData adaptive = simulate(simulation);
+
+		assertEquals(reference.getMaxAltitude(), adaptive.getMaxAltitude(), 0.005 * reference.getMaxAltitude());
+		assertEquals(reference.getMaxVelocity(), adaptive.getMaxVelocity(), 0.005 * reference.getMaxVelocity());
+		assertEquals(reference.getTimeToApogee(), adaptive.getTimeToApogee(), RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+
+		// Data points are stored at about the requested interval
+		FlightDataBranch branch = adaptive.getBranch(0);
+		FlightDataColumn time = branch.getColumn(FlightDataType.TYPE_TIME);
+		assertTrue(branch.getLength() < reference.getBranch(0).getLength() / 10);
+		for (int i = 1; i < time.size(); i++) {
+			double dt = time.get(i) - time.get(i - 1);
+			assertTrue("time step " + dt + " at " + i, dt > 0 && dt <= RK4SimulationStepper.RECOMMENDED_TIME_STEP + 1e-6);
+		}
+	}
+
+	@Test
+	public void testApogeeIsLocated() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setWindSpeedAverage(0);
+		options.setWindTurbulenceIntensity(0);
+
+		options.setTimeStep(0.002);
+		FlightData reference = simulate(simulation);
+
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setAdaptiveTimeStep(true);
+		FlightData adaptive = simulate(simulation);
+
+		// The apogee event is at the point of zero vertical velocity, not at the end of a long step
+		FlightEvent apogee = adaptive.getBranch(0).getFirstEvent(FlightEvent.Type.APOGEE);
+		assertEquals(reference.getTimeToApogee(), apogee.getTime(), 0.005);
+		assertEquals(apogee.getTime(), adaptive.getTimeToApogee(), 1e-9);
+		assertEquals(reference.getMaxAltitude(), adaptive.getMaxAltitude(), 0.005 * reference.getMaxAltitude());
+	}
+
+	@Test
+	public void testBurnoutIsLocated() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setWindSpeedAverage(0);
+		options.setWindTurbulenceIntensity(0);
+
+		options.setTimeStep(0.001);
+		FlightData reference = simulate(simulation);
+
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setAdaptiveTimeStep(true);
+		FlightData adaptive = simulate(simulation);
+
+		// Burnout and the ejection charge are at the end of the thrust curve, not at the end of a step
+		for (FlightEvent.Type type : new FlightEvent.Type[] { FlightEvent.Type.BURNOUT, FlightEvent.Type.EJECTION_CHARGE }) {
+			double expected = reference.getBranch(0).getFirstEvent(type).getTime();
+			assertEquals(type.toString(), expected, adaptive.getBranch(0).getFirstEvent(type).getTime(), 0.001);
+		}
+	}
+
+	@Test
+	public void testIntermediateVelocity() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setWindSpeedAverage(0);
+		options.setWindTurbulenceIntensity(0);
+		options.setAdaptiveTimeStep(true);
+		FlightData adaptive = simulate(simulation);
+
+		// The total velocity of the interpolated points matches their velocity components
+		FlightDataBranch branch = adaptive.getBranch(0);
+		FlightDataColumn total = branch.getColumn(FlightDataType.TYPE_VELOCITY_TOTAL);
+		FlightDataColumn vertical = branch.getColumn(FlightDataType.TYPE_VELOCITY_Z);
+		FlightDataColumn lateral = branch.getColumn(FlightDataType.TYPE_VELOCITY_XY);
+		for (int i = 0; i < branch.getLength(); i++) {
+			assertEquals("point " + i, Math.hypot(vertical.get(i), lateral.get(i)), total.get(i), 1e-9);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalTolerance() {
+		new SimulationOptions(TestRockets.makeSmallFlyable()).setRelativeTolerance(0);
+	}
+
+
+	private static FlightData simulate(Simulation simulation) throws SimulationException {
+		return new BasicEventSimulationEngine().simulate(simulation.toSimulationConditions());
+	}
+
+}
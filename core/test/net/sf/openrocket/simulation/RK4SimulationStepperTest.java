@@ -0,0 +1,166 @@
+package net.sf.openrocket.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.simulation.listeners.AbstractSimulationListener;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Test;
+
+public class RK4SimulationStepperTest extends BaseTestCase {
+	
+	@Test
+	public void testReusedStateMatchesDefault() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		options.setWindSpeedAverage(4);
+		options.setWindTurbulenceIntensity(0.2);
+		options.setRandomSeed(1234);
+		
+		// Separate conditions are used, since the wind model is stateful
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		FlightDataBranch expected = new BasicEventSimulationEngine().simulate(conditions).getBranch(0);
+		
+		SimulationConditions reused = simulation.toSimulationConditions();
+		reused.setReuseStepperState(true);
+		FlightDataBranch actual = new BasicEventSimulationEngine().simulate(reused).getBranch(0);
+		
+		assertTrue(expected.getLength() > 10);
+		assertSameData(expected, actual);
+	}
+	
+	@Test
+	public void testListenersReceiveSeparateStatuses() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		options.setWindSpeedAverage(0);
+		options.setWindTurbulenceIntensity(0);
+		
+		StatusRecorder expected = new StatusRecorder();
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		conditions.getSimulationListenerList().add(expected);
+		FlightData expectedData = new BasicEventSimulationEngine().simulate(conditions);
+		
+		StatusRecorder actual = new StatusRecorder();
+		SimulationConditions reused = simulation.toSimulationConditions();
+		reused.setReuseStepperState(true);
+		reused.getSimulationListenerList().add(actual);
+		FlightData actualData = new BasicEventSimulationEngine().simulate(reused);
+		
+		// Each intermediate state of a step is passed to listeners as a separate status
+		assertTrue(expected.statuses.size() > 100);
+		assertEquals(expected.statuses.size(), actual.statuses.size());
+		assertEquals(distinct(expected.statuses), distinct(actual.statuses));
+		assertEquals(expectedData.getMaxAltitude(), actualData.getMaxAltitude(), 0);
+	}
+	
+	
+	@Test
+	public void testStepListenersDoNotPreventReuse() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		options.setWindSpeedAverage(0);
+		options.setWindTurbulenceIntensity(0);
+		
+		// A step listener like the batch cancel listener and a system computation listener
+		// like the dispersion listener
+		StepRecorder expected = new StepRecorder();
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		conditions.getSimulationListenerList().add(expected);
+		conditions.getSimulationListenerList().add(expected.computation);
+		FlightDataBranch expectedData = new BasicEventSimulationEngine().simulate(conditions).getBranch(0);
+		
+		StepRecorder actual = new StepRecorder();
+		SimulationConditions reused = simulation.toSimulationConditions();
+		reused.setReuseStepperState(true);
+		reused.getSimulationListenerList().add(actual);
+		reused.getSimulationListenerList().add(actual.computation);
+		FlightDataBranch actualData = new BasicEventSimulationEngine().simulate(reused).getBranch(0);
+		
+		// The intermediate states are computed using clones only without reuse
+		assertTrue(distinct(expected.computation.statuses) > 100);
+		assertEquals(expected.computation.statuses.size(), actual.computation.statuses.size());
+		Set<SimulationStatus> stepStatuses = Collections.newSetFromMap(new IdentityHashMap<SimulationStatus, Boolean>());
+		stepStatuses.addAll(actual.statuses);
+		for (SimulationStatus status : actual.computation.statuses) {
+			assertTrue(stepStatuses.contains(status));
+		}
+		
+		assertSameData(expectedData, actualData);
+	}
+	
+	
+	private static void assertSameData(FlightDataBranch expected, FlightDataBranch actual) {
+		assertEquals(expected.getLength(), actual.getLength());
+		for (FlightDataType type : expected.getTypes()) {
+			if (type == FlightDataType.TYPE_COMPUTATION_TIME) {
+				continue;
+			}
+			FlightDataColumn e = expected.getColumn(type);
+			FlightDataColumn a = actual.getColumn(type);
+			for (int i = 0; i < e.size(); i++) {
+				assertEquals(type.getName() + " at " + i, e.get(i), a.get(i), 0);
+			}
+		}
+	}
+	
+	private static int distinct(List<SimulationStatus> statuses) {
+		Set<SimulationStatus> set = Collections.newSetFromMap(new IdentityHashMap<SimulationStatus, Boolean>());
+		set.addAll(statuses);
+		return set.size();
+	}
+	
+	
+	/*
+	 * Listeners are cloned for the simulation, so the statuses are recorded in a shared list.
+	 */
+	private static class StatusRecorder extends AbstractSimulationListener {
+		private final List<SimulationStatus> statuses = new ArrayList<SimulationStatus>();
+		
+		@Override
+		public AccelerationData preAccelerationCalculation(SimulationStatus status) throws SimulationException {
+			statuses.add(status);
+			return null;
+		}
+	}
+	
+	private static class StepRecorder extends AbstractSimulationListener {
+		private final List<SimulationStatus> statuses = new ArrayList<SimulationStatus>();
+		private final StatusRecorder computation = new SystemStatusRecorder();
+		
+		@Override
+		public void postStep(SimulationStatus status) throws SimulationException {
+			statuses.add(status);
+		}
+	}
+	
+	private static class SystemStatusRecorder extends StatusRecorder {
+		@Override
+		public boolean isSystemListener() {
+			return true;
+		}
+	}
+	
+}
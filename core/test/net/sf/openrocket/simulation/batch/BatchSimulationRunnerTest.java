@@ -0,0 +1,187 @@
+package net.sf.openrocket.simulation.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.models.gravity.GravityModel;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.simulation.BasicEventSimulationEngine;
+import net.sf.openrocket.simulation.RK4SimulationStepper;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.simulation.SimulationStatus;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.simulation.listeners.AbstractSimulationListener;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+import net.sf.openrocket.util.WorldCoordinate;
+
+import org.junit.Test;
+
+public class BatchSimulationRunnerTest extends BaseTestCase {
+	
+	@Test
+	public void testRunSimulations() throws Exception {
+		Rocket rocket = TestRockets.makeSmallFlyable();
+		
+		List<Simulation> simulations = new ArrayList<Simulation>();
+		List<Double> expectedAltitudes = new ArrayList<Double>();
+		for (int i = 0; i < 6; i++) {
+			Simulation simulation = createSimulation(rocket);
+			simulation.getOptions().setRandomSeed(i);
+			simulation.getOptions().setWindSpeedAverage(i);
+			simulation.simulate();
+			expectedAltitudes.add(simulation.getSimulatedData().getMaxAltitude());
+			simulations.add(simulation.copy());
+		}
+		
+		final AtomicInteger notifications = new AtomicInteger();
+		BatchSimulationRunner runner = new BatchSimulationRunner(3);
+		List<BatchSimulationResult> results = runner.runSimulations(simulations, new BatchSimulationListener() {
+			@Override
+			public void simulationFinished(BatchSimulationResult result, int finishedCount, int totalCount) {
+				notifications.incrementAndGet();
+				assertEquals(6, totalCount);
+			}
+		});
+		runner.shutdown();
+		
+		assertEquals(6, notifications.get());
+		assertEquals(6, results.size());
+		for (int i = 0; i < 6; i++) {
+			BatchSimulationResult result = results.get(i);
+			assertEquals(i, result.getIndex());
+			assertTrue(result.isSuccessful());
+			assertEquals(Simulation.Status.UPTODATE, simulations.get(i).getStatus());
+			assertEquals(expectedAltitudes.get(i), simulations.get(i).getSimulatedData().getMaxAltitude(), 0);
+		}
+	}
+	
+	@Test
+	public void testRunConditionsDoesNotModifyConditions() throws Exception {
+		Rocket rocket = TestRockets.makeSmallFlyable();
+		Simulation simulation = createSimulation(rocket);
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		int listenerCount = conditions.getSimulationListenerList().size();
+		
+		List<SimulationConditions> list = new ArrayList<SimulationConditions>();
+		for (int i = 0; i < 4; i++) {
+			list.add(conditions);
+		}
+		
+		BatchSimulationRunner runner = new BatchSimulationRunner(2);
+		List<BatchSimulationResult> results = runner.runConditions(list, null);
+		runner.shutdown();
+		
+		assertEquals(listenerCount, conditions.getSimulationListenerList().size());
+		double altitude = results.get(0).getFlightData().getMaxAltitude();
+		for (BatchSimulationResult result : results) {
+			assertNotNull(result.getFlightData());
+			assertTrue(result.getConditions() != conditions);
+			assertEquals(altitude, result.getFlightData().getMaxAltitude(), 0);
+		}
+	}
+	
+	@Test
+	public void testModelsAreNotShared() throws Exception {
+		Simulation simulation = createSimulation(TestRockets.makeSmallFlyable());
+		simulation.getOptions().setWindSpeedAverage(5);
+		simulation.getOptions().setWindTurbulenceIntensity(0.3);
+		double expected = new BasicEventSimulationEngine().simulate(simulation.toSimulationConditions()).getMaxAltitude();
+		
+		// The stateful wind model would be used concurrently by all threads if it were shared
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		List<SimulationConditions> list = new ArrayList<SimulationConditions>();
+		for (int i = 0; i < 8; i++) {
+			list.add(conditions);
+		}
+		
+		BatchSimulationRunner runner = new BatchSimulationRunner(4);
+		List<BatchSimulationResult> results = runner.runConditions(list, null);
+		runner.shutdown();
+		
+		for (BatchSimulationResult result : results) {
+			assertTrue(result.getConditions().getWindModel() != conditions.getWindModel());
+			assertTrue(result.getConditions().getAtmosphericModel() != conditions.getAtmosphericModel());
+			assertTrue(result.getConditions().getGravityModel() != conditions.getGravityModel());
+			assertEquals(expected, result.getFlightData().getMaxAltitude(), 0);
+		}
+	}
+	
+	@Test
+	public void testNonInstantiableModelIsShared() throws Exception {
+		Simulation simulation = createSimulation(TestRockets.makeSmallFlyable());
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		// A third-party gravity model that cannot be copied
+		GravityModel gravity = new GravityModel() {
+			@Override
+			public double getGravity(WorldCoordinate wc) {
+				return 9.81;
+			}
+			
+			@Override
+			public int getModID() {
+				return 0;
+			}
+		};
+		conditions.setGravityModel(gravity);
+		
+		BatchSimulationRunner runner = new BatchSimulationRunner(2);
+		List<BatchSimulationResult> results = runner.runConditions(Arrays.asList(conditions, conditions), null);
+		runner.shutdown();
+		
+		for (BatchSimulationResult result : results) {
+			assertTrue(result.isSuccessful());
+			assertTrue(result.getConditions().getGravityModel() == gravity);
+			assertTrue(result.getConditions().getWindModel() != conditions.getWindModel());
+		}
+	}
+	
+	@Test
+	public void testListenerErrorIsReportedAsFailure() throws Exception {
+		Simulation simulation = createSimulation(TestRockets.makeSmallFlyable());
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		SimulationConditions failing = simulation.toSimulationConditions();
+		failing.getSimulationListenerList().add(new AbstractSimulationListener() {
+			@Override
+			public void postStep(SimulationStatus status) throws SimulationException {
+				throw new AssertionError("Listener failure");
+			}
+		});
+		
+		List<SimulationConditions> list = new ArrayList<SimulationConditions>();
+		list.add(conditions);
+		list.add(failing);
+		
+		BatchSimulationRunner runner = new BatchSimulationRunner(2);
+		List<BatchSimulationResult> results = runner.runConditions(list, null);
+		runner.shutdown();
+		
+		assertTrue(results.get(0).isSuccessful());
+		assertNotNull(results.get(1));
+		assertFalse(results.get(1).isSuccessful());
+		assertNotNull(results.get(1).getException());
+	}
+	
+	/**
+	 * Create a simulation with sensible options; the test preferences return zero for all values.
+	 */
+	private static Simulation createSimulation(Rocket rocket) {
+		Simulation simulation = new Simulation(rocket);
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		return simulation;
+	}
+	
+}
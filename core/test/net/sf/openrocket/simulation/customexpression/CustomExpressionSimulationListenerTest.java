@@ -0,0 +1,68 @@
+package net.sf.openrocket.simulation.customexpression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.openrocket.document.OpenRocketDocument;
+import net.sf.openrocket.document.OpenRocketDocumentFactory;
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.simulation.BasicEventSimulationEngine;
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.simulation.RK4SimulationStepper;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Test;
+
+public class CustomExpressionSimulationListenerTest extends BaseTestCase {
+
+	@Test
+	public void testSharedSubExpressionOfLaterExpression() throws Exception {
+		OpenRocketDocument doc = OpenRocketDocumentFactory.createDocumentFromRocket(TestRockets.makeSmallFlyable());
+		CustomExpression doubled = new CustomExpression(doc, "Doubled time", "Dt", "s", "2*t");
+		doc.addCustomExpression(doubled);
+
+		// Both use the same sub expression, before and after its data is set in the step
+		CustomExpression before = new CustomExpression(doc, "Before", "Bt", "s", "Dt[t]");
+		CustomExpression after = new CustomExpression(doc, "After", "At", "s", "Dt[t]");
+		assertEquals(before.getSubExpressions().get(0).getSharingKey(), after.getSubExpressions().get(0).getSharingKey());
+
+		List<CustomExpression> expressions = new ArrayList<CustomExpression>();
+		expressions.add(before);
+		expressions.add(doubled);
+		expressions.add(after);
+
+		Simulation simulation = new Simulation(doc.getRocket());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+
+		SimulationConditions conditions = simulation.toSimulationConditions();
+		conditions.getSimulationListenerList().add(new CustomExpressionSimulationListener(expressions));
+		FlightDataBranch branch = new BasicEventSimulationEngine().simulate(conditions).getBranch(0);
+
+		List<Double> time = branch.get(FlightDataType.TYPE_TIME);
+		List<Double> beforeValues = branch.get(before.getType());
+		List<Double> afterValues = branch.get(after.getType());
+		assertTrue(time.size() > 10);
+
+		// The later expression sees the value set during the same step
+		int stale = 0;
+		for (int i = 1; i < time.size(); i++) {
+			assertEquals("t=" + time.get(i), 2 * time.get(i), afterValues.get(i), 1e-9);
+			if (Double.isNaN(beforeValues.get(i))) {
+				stale++;
+			}
+		}
+		assertEquals(time.size() - 1, stale);
+	}
+
+}
@@ -0,0 +1,55 @@
+package net.sf.openrocket.simulation.customexpression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.sf.openrocket.simulation.FlightDataBranch;
+import net.sf.openrocket.simulation.FlightDataType;
+import net.sf.openrocket.util.LinearInterpolator;
+
+import org.junit.Test;
+
+public class IndexExpressionTest {
+
+	@Test
+	public void testMatchesLinearInterpolator() {
+		Random rnd = new Random(1234);
+		FlightDataBranch branch = new FlightDataBranch("test", FlightDataType.TYPE_TIME, FlightDataType.TYPE_ALTITUDE);
+		IndexExpression.ColumnInterpolator interpolator = new IndexExpression.ColumnInterpolator();
+
+		// Evaluate while the data grows, as during a simulation
+		double time = 0;
+		for (int i = 0; i < 200; i++) {
+			branch.addPoint();
+			branch.setValue(FlightDataType.TYPE_TIME, time);
+			branch.setValue(FlightDataType.TYPE_ALTITUDE, rnd.nextDouble());
+			time += rnd.nextDouble() * 0.1 + 0.001;
+
+			assertInterpolation(branch, interpolator, Double.NaN);
+			assertInterpolation(branch, interpolator, -1);
+			assertInterpolation(branch, interpolator, time);
+			assertInterpolation(branch, interpolator, branch.getLast(FlightDataType.TYPE_TIME));
+			for (int j = 0; j < 5; j++) {
+				assertInterpolation(branch, interpolator, rnd.nextDouble() * time);
+			}
+		}
+
+		// Times that are not increasing fall back to sorting
+		branch.addPoint();
+		branch.setValue(FlightDataType.TYPE_TIME, time / 2);
+		branch.setValue(FlightDataType.TYPE_ALTITUDE, 5);
+		assertInterpolation(branch, interpolator, time / 2);
+		assertInterpolation(branch, interpolator, time / 3);
+	}
+
+
+	private static void assertInterpolation(FlightDataBranch branch, IndexExpression.ColumnInterpolator interpolator, double t) {
+		LinearInterpolator expected = new LinearInterpolator(branch.get(FlightDataType.TYPE_TIME),
+				branch.get(FlightDataType.TYPE_ALTITUDE));
+		double actual = interpolator.getValue(branch.getColumn(FlightDataType.TYPE_TIME),
+				branch.getColumn(FlightDataType.TYPE_ALTITUDE), t);
+		assertEquals("t=" + t, expected.getValue(t), actual, 1e-12);
+	}
+
+}
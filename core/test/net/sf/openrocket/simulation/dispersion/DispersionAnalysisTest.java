@@ -0,0 +1,154 @@
+package net.sf.openrocket.simulation.dispersion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.models.wind.WindModel;
+import net.sf.openrocket.simulation.RK4SimulationStepper;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.simulation.batch.BatchSimulationRunner;
+import net.sf.openrocket.simulation.listeners.SimulationListener;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.Coordinate;
+import net.sf.openrocket.util.Instantiable;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.Test;
+
+public class DispersionAnalysisTest extends BaseTestCase {
+	
+	@Test
+	public void testCreateConditionsIsReproducible() throws Exception {
+		SimulationConditions base = createConditions();
+		int listenerCount = base.getSimulationListenerList().size();
+		DispersionAnalysis analysis = new DispersionAnalysis(base, createOptions(10));
+		
+		SimulationConditions c1 = analysis.createConditions(3);
+		SimulationConditions c2 = analysis.createConditions(3);
+		SimulationConditions c3 = analysis.createConditions(4);
+		
+		assertEquals(c1.getRandomSeed(), c2.getRandomSeed());
+		assertEquals(c1.getLaunchRodAngle(), c2.getLaunchRodAngle(), 0);
+		assertTrue(c1.getRandomSeed() != c3.getRandomSeed());
+		assertTrue(c1.getLaunchRodAngle() >= 0);
+		assertTrue(c1.getWindModel() != base.getWindModel());
+		assertTrue(c1.isSinglePrecisionData());
+		
+		List<SimulationListener> listeners = c1.getSimulationListenerList();
+		assertEquals(listenerCount + 1, listeners.size());
+		assertTrue(listeners.get(listenerCount) instanceof DispersionSimulationListener);
+		assertEquals(listenerCount, base.getSimulationListenerList().size());
+	}
+	
+	@Test
+	public void testRun() throws Exception {
+		DispersionAnalysis analysis = new DispersionAnalysis(createConditions(), createOptions(12));
+		
+		BatchSimulationRunner runner = new BatchSimulationRunner(3);
+		DispersionResult result = analysis.run(runner, null);
+		runner.shutdown();
+		
+		assertEquals(12, result.getSuccessCount());
+		assertEquals(0, result.getFailureCount());
+		assertEquals(12, result.getApogee().getCount());
+		assertTrue(result.getApogee().getMean() > 0);
+		assertTrue(result.getApogee().getStandardDeviation() > 0);
+		
+		double median = result.getApogeeQuantile(0.5);
+		assertTrue(median >= result.getApogee().getMinimum());
+		assertTrue(median <= result.getApogee().getMaximum());
+		
+		LandingEllipse ellipse = result.getLandingEllipse(0.95);
+		assertNotNull(ellipse);
+		assertEquals(result.getLandingX().getMean(), ellipse.getCenterX(), 0);
+		assertTrue(ellipse.getSemiMajorAxis() >= ellipse.getSemiMinorAxis());
+	}
+	
+	@Test
+	public void testUnperturbedWindModelIsNotShared() throws Exception {
+		SimulationConditions base = createConditions();
+		ConstantWindModel wind = new ConstantWindModel();
+		base.setWindModel(wind);
+		DispersionAnalysis analysis = new DispersionAnalysis(base, createOptions(10));
+		
+		BatchSimulationRunner runner = new BatchSimulationRunner(3);
+		DispersionResult result = analysis.run(runner, null);
+		runner.shutdown();
+		
+		assertEquals(10, result.getSuccessCount());
+		assertFalse(wind.used.contains(wind));
+		assertEquals(10, wind.used.size());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownQuantile() throws Exception {
+		new DispersionResult(new double[] { 0.5 }).getApogeeQuantile(0.9);
+	}
+	
+	
+	private static DispersionOptions createOptions(int runCount) {
+		DispersionOptions options = new DispersionOptions();
+		options.setRunCount(runCount);
+		options.setRandomSeed(17);
+		options.setWindSpeedDeviation(1);
+		options.setWindDirectionDeviation(0.2);
+		options.setLaunchRodAngleDeviation(0.05);
+		options.setImpulseDeviation(0.05);
+		options.setDragDeviation(0.1);
+		return options;
+	}
+	
+	/**
+	 * Create conditions with sensible options; the test preferences return zero for all values.
+	 */
+	private static SimulationConditions createConditions() throws Exception {
+		Simulation simulation = new Simulation(TestRockets.makeSmallFlyable());
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		options.setWindSpeedAverage(3);
+		return simulation.toSimulationConditions();
+	}
+	
+	
+	private static class ConstantWindModel implements WindModel, Instantiable<WindModel> {
+		// The instances whose velocity was queried, shared by all copies
+		private final Set<WindModel> used;
+		
+		public ConstantWindModel() {
+			this(Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<WindModel, Boolean>())));
+		}
+		
+		private ConstantWindModel(Set<WindModel> used) {
+			this.used = used;
+		}
+		
+		@Override
+		public Coordinate getWindVelocity(double time, double altitude) {
+			used.add(this);
+			return new Coordinate(2, 0, 0);
+		}
+		
+		@Override
+		public WindModel newInstance() {
+			return new ConstantWindModel(used);
+		}
+		
+		@Override
+		public int getModID() {
+			return 0;
+		}
+	}
+	
+}
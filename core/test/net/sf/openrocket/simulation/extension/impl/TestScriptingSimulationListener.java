@@ -0,0 +1,163 @@
+package net.sf.openrocket.simulation.extension.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngineFactory;
+import javax.script.SimpleBindings;
+
+import net.sf.openrocket.simulation.exception.SimulationException;
+
+import org.junit.Test;
+
+public class TestScriptingSimulationListener {
+
+	/*
+	 * Note:  A mock engine is used, since the JRE is not required to support any
+	 * scripting language.  Its functions are the non-null entries of the bindings.
+	 */
+
+	@Test
+	public void testUndefinedCallbacksAreSkipped() throws SimulationException {
+		MockEngine engine = new MockEngine();
+		Bindings bindings = engine.createBindings();
+		bindings.put("preStep", Boolean.FALSE);
+		bindings.put("postStep", "");
+
+		ScriptingSimulationListener listener = new ScriptingSimulationListener(engine, bindings);
+		assertTrue(listener.isImplemented("preStep"));
+		assertTrue(listener.isImplemented("postStep"));
+		assertFalse(listener.isImplemented("startSimulation"));
+
+		listener.startSimulation(null);
+		assertFalse(listener.preStep(null));
+		listener.postStep(null);
+		listener.postStep(null);
+		assertEquals(3, engine.invoked.size());
+		assertEquals("preStep", engine.invoked.get(0));
+		assertEquals("postStep", engine.invoked.get(1));
+
+		assertEquals(0, listener.getInvocationCount("startSimulation"));
+		assertEquals(1, listener.getInvocationCount("preStep"));
+		assertEquals(2, listener.getInvocationCount("postStep"));
+		assertTrue(listener.getInvocationTime("postStep") >= 0);
+	}
+
+	@Test
+	public void testCallbacksNotVisibleInBindings() throws SimulationException {
+		MockEngine engine = new MockEngine();
+		Bindings bindings = engine.createBindings();
+		bindings.put("foo", Boolean.FALSE);
+
+		// No callbacks are visible, so they are detected when invoked
+		ScriptingSimulationListener listener = new ScriptingSimulationListener(engine, bindings);
+		assertTrue(listener.isImplemented("preStep"));
+
+		engine.functions.put("preStep", Boolean.FALSE);
+		assertFalse(listener.preStep(null));
+		assertFalse(listener.preStep(null));
+		listener.postStep(null);
+		assertFalse(listener.isImplemented("postStep"));
+		assertEquals(2, listener.getInvocationCount("preStep"));
+		assertEquals(0, listener.getInvocationCount("postStep"));
+
+		listener.postStep(null);
+		assertEquals(3, engine.invoked.size());
+	}
+
+	@Test
+	public void testBindingsAreRestored() throws SimulationException {
+		MockEngine engine = new MockEngine();
+		Bindings first = engine.createBindings();
+		first.put("preStep", Boolean.FALSE);
+		Bindings second = engine.createBindings();
+		second.put("preStep", Boolean.TRUE);
+
+		ScriptingSimulationListener listener1 = new ScriptingSimulationListener(engine, first);
+		ScriptingSimulationListener listener2 = new ScriptingSimulationListener(engine, second);
+		assertTrue(listener2.preStep(null));
+		assertSame(second, engine.getBindings(ScriptContext.ENGINE_SCOPE));
+		assertFalse(listener1.preStep(null));
+		assertSame(first, engine.getBindings(ScriptContext.ENGINE_SCOPE));
+	}
+
+	@Test
+	public void testCloneResetsCounters() throws SimulationException {
+		MockEngine engine = new MockEngine();
+		Bindings bindings = engine.createBindings();
+		bindings.put("preStep", Boolean.TRUE);
+
+		ScriptingSimulationListener listener = new ScriptingSimulationListener(engine, bindings);
+		listener.preStep(null);
+		ScriptingSimulationListener clone = (ScriptingSimulationListener) listener.clone();
+		assertEquals(0, clone.getInvocationCount("preStep"));
+		assertFalse(clone.isImplemented("postStep"));
+		clone.preStep(null);
+		assertEquals(1, clone.getInvocationCount("preStep"));
+		assertEquals(1, listener.getInvocationCount("preStep"));
+	}
+
+
+	private static class MockEngine extends AbstractScriptEngine implements Invocable {
+		private final Bindings functions = new SimpleBindings();
+		private final List<String> invoked = new ArrayList<String>();
+
+		@Override
+		public Object invokeFunction(String name, Object... args) throws NoSuchMethodException {
+			invoked.add(name);
+			Object value = getBindings(ScriptContext.ENGINE_SCOPE).get(name);
+			if (value == null) {
+				value = functions.get(name);
+			}
+			if (value == null) {
+				throw new NoSuchMethodException(name);
+			}
+			return (value instanceof String) ? null : value;
+		}
+
+		@Override
+		public Object invokeMethod(Object thiz, String name, Object... args) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public <T> T getInterface(Class<T> clasz) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public <T> T getInterface(Object thiz, Class<T> clasz) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Object eval(String script, ScriptContext context) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Object eval(Reader reader, ScriptContext context) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Bindings createBindings() {
+			return new SimpleBindings();
+		}
+
+		@Override
+		public ScriptEngineFactory getFactory() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
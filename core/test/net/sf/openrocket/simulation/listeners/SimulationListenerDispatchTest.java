@@ -0,0 +1,161 @@
+package net.sf.openrocket.simulation.listeners;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import net.sf.openrocket.simulation.MassData;
+import net.sf.openrocket.simulation.SimulationConditions;
+import net.sf.openrocket.simulation.SimulationStatus;
+import net.sf.openrocket.simulation.exception.SimulationException;
+import net.sf.openrocket.simulation.listeners.SimulationListenerDispatch.Callback;
+
+import org.junit.Test;
+
+public class SimulationListenerDispatchTest {
+
+	@Test
+	public void testImplementedCallbacks() {
+		assertEquals(EnumSet.noneOf(Callback.class),
+				SimulationListenerDispatch.getImplementedCallbacks(AbstractSimulationListener.class));
+		assertEquals(EnumSet.of(Callback.PRE_STEP, Callback.POST_MASS_CALCULATION),
+				SimulationListenerDispatch.getImplementedCallbacks(StepListener.class));
+		// Inherited overrides are implemented
+		assertEquals(EnumSet.of(Callback.PRE_STEP, Callback.POST_MASS_CALCULATION, Callback.END_SIMULATION),
+				SimulationListenerDispatch.getImplementedCallbacks(StepSubclassListener.class));
+
+		// Listeners implementing the interfaces directly implement all of their callbacks
+		Set<Callback> callbacks = SimulationListenerDispatch.getImplementedCallbacks(PlainListener.class);
+		assertEquals(4, callbacks.size());
+		assertTrue(callbacks.contains(Callback.START_SIMULATION));
+		assertTrue(callbacks.contains(Callback.POST_STEP));
+	}
+
+	@Test
+	public void testDispatch() {
+		SimulationListener step = new StepListener();
+		SimulationListener sub = new StepSubclassListener();
+		SimulationListener plain = new PlainListener();
+		SimulationListener none = new AbstractSimulationListener();
+
+		SimulationListenerDispatch dispatch = new SimulationListenerDispatch(Arrays.asList(step, none, plain, sub));
+		assertArrayEquals(new SimulationListener[] { step, plain, sub }, dispatch.getListeners(Callback.PRE_STEP));
+		assertArrayEquals(new SimulationListener[] { plain, sub }, dispatch.getListeners(Callback.END_SIMULATION));
+		assertArrayEquals(new SimulationListener[] { step, sub }, dispatch.getListeners(Callback.POST_MASS_CALCULATION));
+		assertEquals(0, dispatch.getListeners(Callback.PRE_WIND_MODEL).length);
+		assertEquals(0, dispatch.getListeners(Callback.HANDLE_FLIGHT_EVENT).length);
+	}
+
+	@Test
+	public void testSeparateStatusRequired() {
+		SimulationListener none = new AbstractSimulationListener();
+		SimulationListener plain = new PlainListener();
+		SimulationListener system = new SystemComputationListener();
+		SimulationListener step = new StepListener();
+
+		assertFalse(new SimulationListenerDispatch(Collections.<SimulationListener> emptyList()).isSeparateStatusRequired());
+		// Step and event listeners are never passed an intermediate state
+		assertFalse(new SimulationListenerDispatch(Arrays.asList(none, plain)).isSeparateStatusRequired());
+		assertFalse(new SimulationListenerDispatch(Arrays.asList(plain, system)).isSeparateStatusRequired());
+		assertTrue(new SimulationListenerDispatch(Arrays.asList(system, step)).isSeparateStatusRequired());
+	}
+
+	@Test
+	public void testConditionsDispatchFollowsListenerList() {
+		SimulationConditions conditions = new SimulationConditions();
+		SimulationListenerDispatch dispatch = conditions.getSimulationListenerDispatch();
+		assertEquals(0, dispatch.getListeners(Callback.PRE_STEP).length);
+		assertSame(dispatch, conditions.getSimulationListenerDispatch());
+
+		SimulationListener step = new StepListener();
+		conditions.getSimulationListenerList().add(step);
+		dispatch = conditions.getSimulationListenerDispatch();
+		assertArrayEquals(new SimulationListener[] { step }, dispatch.getListeners(Callback.PRE_STEP));
+
+		SimulationListener plain = new PlainListener();
+		conditions.getSimulationListenerList().set(0, plain);
+		assertNotSame(dispatch, conditions.getSimulationListenerDispatch());
+		assertArrayEquals(new SimulationListener[] { plain },
+				conditions.getSimulationListenerDispatch().getListeners(Callback.PRE_STEP));
+
+		// Modifications through iterators and collection utilities are noticed as well
+		conditions.getSimulationListenerList().add(step);
+		Collections.reverse(conditions.getSimulationListenerList());
+		assertArrayEquals(new SimulationListener[] { step, plain },
+				conditions.getSimulationListenerDispatch().getListeners(Callback.PRE_STEP));
+		Iterator<SimulationListener> iterator = conditions.getSimulationListenerList().iterator();
+		iterator.next();
+		iterator.remove();
+		assertArrayEquals(new SimulationListener[] { plain },
+				conditions.getSimulationListenerDispatch().getListeners(Callback.PRE_STEP));
+	}
+
+
+	private static class StepListener extends AbstractSimulationListener {
+		@Override
+		public boolean preStep(SimulationStatus status) {
+			return true;
+		}
+
+		@Override
+		public MassData postMassCalculation(SimulationStatus status, MassData massData) {
+			return null;
+		}
+	}
+
+	private static class StepSubclassListener extends StepListener {
+		@Override
+		public void endSimulation(SimulationStatus status, SimulationException exception) {
+		}
+	}
+
+	private static class SystemComputationListener extends AbstractSimulationListener {
+		@Override
+		public double postSimpleThrustCalculation(SimulationStatus status, double thrust) {
+			return Double.NaN;
+		}
+
+		@Override
+		public boolean isSystemListener() {
+			return true;
+		}
+	}
+
+	private static class PlainListener implements SimulationListener {
+		@Override
+		public void startSimulation(SimulationStatus status) {
+		}
+
+		@Override
+		public void endSimulation(SimulationStatus status, SimulationException exception) {
+		}
+
+		@Override
+		public boolean preStep(SimulationStatus status) {
+			return true;
+		}
+
+		@Override
+		public void postStep(SimulationStatus status) {
+		}
+
+		@Override
+		public boolean isSystemListener() {
+			return false;
+		}
+
+		@Override
+		public SimulationListener clone() {
+			return this;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package net.sf.openrocket.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.openrocket.document.OpenRocketDocument;
+import net.sf.openrocket.document.OpenRocketDocumentFactory;
+import net.sf.openrocket.document.Simulation;
+import net.sf.openrocket.file.BinaryFlightDataExport;
+import net.sf.openrocket.rocketcomponent.Rocket;
+import net.sf.openrocket.simulation.RK4SimulationStepper;
+import net.sf.openrocket.simulation.SimulationOptions;
+import net.sf.openrocket.util.BaseTestCase.BaseTestCase;
+import net.sf.openrocket.util.TestRockets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HeadlessStartupTest extends BaseTestCase {
+
+	private File outputDir;
+	private OpenRocketDocument document;
+
+	@Before
+	public void setup() throws Exception {
+		outputDir = File.createTempFile("openrocket", "");
+		outputDir.delete();
+
+		Rocket rocket = TestRockets.makeSmallFlyable();
+		document = OpenRocketDocumentFactory.createDocumentFromRocket(rocket);
+		document.addSimulation(createSimulation(rocket, "First"));
+		document.addSimulation(createSimulation(rocket, "Second"));
+	}
+
+	@After
+	public void cleanup() {
+		File[] files = outputDir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		outputDir.delete();
+	}
+
+
+	@Test
+	public void testInvalidArguments() {
+		String[][] invalid = {
+				{},
+				{ "-t", "0", "a.ork" },
+				{ "-f", "xml", "a.ork" },
+				{ "--unknown", "a.ork" },
+				{ "a.ork", "-s" },
+		};
+		for (String[] args : invalid) {
+			try {
+				new HeadlessStartup().parseArguments(args);
+				fail("Arguments accepted: " + Arrays.toString(args));
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testSelectSimulations() {
+		HeadlessStartup startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "a.ork" });
+		assertEquals(document.getSimulations(), startup.selectSimulations(document));
+
+		startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "-s", "Second", "--simulation", "1", "a.ork" });
+		List<Simulation> selected = startup.selectSimulations(document);
+		assertEquals(2, selected.size());
+		assertTrue(selected.get(0) == document.getSimulation(1));
+		assertTrue(selected.get(1) == document.getSimulation(0));
+
+		startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "-s", "3", "a.ork" });
+		try {
+			startup.selectSimulations(document);
+			fail("Nonexistent simulation selected");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testSelectConfigurations() {
+		Rocket rocket = document.getRocket();
+		rocket.newFlightConfigurationID();
+		String[] ids = rocket.getFlightConfigurationIDs();
+		assertTrue(ids.length >= 2);
+
+		HeadlessStartup startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "-s", "First", "-c", HeadlessStartup.ALL_CONFIGURATIONS, "a.ork" });
+		List<Simulation> selected = startup.selectSimulations(document);
+		assertEquals(ids.length - 1, selected.size());
+		for (int i = 0; i < selected.size(); i++) {
+			assertEquals(ids[i + 1], selected.get(i).getOptions().getMotorConfigurationID());
+			assertTrue(selected.get(i) != document.getSimulation(0));
+		}
+
+		startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "-c", "nonexistent", "a.ork" });
+		try {
+			startup.selectSimulations(document);
+			fail("Nonexistent configuration selected");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testOutputNames() {
+		HeadlessStartup startup = new HeadlessStartup();
+		Simulation simulation = document.getSimulation(0);
+		simulation.setName("A b/c");
+		assertEquals("rocket-A_b_c", startup.getOutputName("rocket", simulation));
+		assertEquals("rocket-A_b_c-2", startup.getOutputName("rocket", simulation));
+	}
+
+	@Test
+	public void testSimulateCSV() throws Exception {
+		HeadlessStartup startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "-t", "2", "-o", outputDir.getPath(), "a.ork" });
+		List<Simulation> simulations = startup.selectSimulations(document);
+		assertEquals(0, startup.simulate(simulations, outputNames(startup, simulations)));
+
+		for (Simulation simulation : simulations) {
+			assertEquals(Simulation.Status.UPTODATE, simulation.getStatus());
+			File file = new File(outputDir, "rocket-" + simulation.getName() + ".csv");
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			int dataLines = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.startsWith("#")) {
+					dataLines++;
+				}
+			}
+			reader.close();
+			assertEquals(simulation.getSimulatedData().getBranch(0).getLength(), dataLines);
+		}
+	}
+
+	@Test
+	public void testSimulateBinary() throws Exception {
+		HeadlessStartup startup = new HeadlessStartup();
+		startup.parseArguments(new String[] { "-f", "binary", "-o", outputDir.getPath(), "-s", "First", "a.ork" });
+		List<Simulation> simulations = startup.selectSimulations(document);
+		assertEquals(0, startup.simulate(simulations, outputNames(startup, simulations)));
+
+		DataInputStream in = new DataInputStream(new FileInputStream(new File(outputDir, "rocket-First.bin")));
+		try {
+			assertEquals(BinaryFlightDataExport.MAGIC, in.readInt());
+			assertEquals(BinaryFlightDataExport.VERSION, in.readInt());
+			byte[] name = new byte[in.readInt()];
+			in.readFully(name);
+			assertEquals("First", new String(name, "UTF-8"));
+			assertEquals(simulations.get(0).getSimulatedData().getBranchCount(), in.readInt());
+		} finally {
+			in.close();
+		}
+	}
+
+
+	private static List<String> outputNames(HeadlessStartup startup, List<Simulation> simulations) {
+		List<String> names = new ArrayList<String>();
+		for (Simulation simulation : simulations) {
+			names.add(startup.getOutputName("rocket", simulation));
+		}
+		return names;
+	}
+
+	/**
+	 * Create a simulation with sensible options; the test preferences return zero for all values.
+	 */
+	private static Simulation createSimulation(Rocket rocket, String name) {
+		Simulation simulation = new Simulation(rocket);
+		simulation.setName(name);
+		SimulationOptions options = simulation.getOptions();
+		options.setISAAtmosphere(true);
+		options.setLaunchRodLength(1);
+		options.setTimeStep(RK4SimulationStepper.RECOMMENDED_TIME_STEP);
+		options.setMaximumStepAngle(RK4SimulationStepper.RECOMMENDED_ANGLE_STEP);
+		return simulation;
+	}
+
+}
@@ -0,0 +1,208 @@
+package net.sf.openrocket.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DoubleFormatterTest {
+
+	private final DoubleFormatter formatter = new DoubleFormatter();
+
+	@Test
+	public void testSpecialValues() {
+		double[] values = {
+				0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				MathUtil.EPSILON / 3, -MathUtil.EPSILON / 3, MathUtil.EPSILON, Double.MIN_VALUE,
+				Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_NORMAL,
+				0.001, 0.00099999999, 100000000, 99999999.99, 10000, 9999.99995, 9999.9999,
+				1, 10, 100, 1000, 0.1, 0.01, 9.99995, 9.99994, 99.9995, 0.999995,
+				1e-5, 1.00005e-5, 123456.5, 2147483647.0, 1e300, 1e-300, Math.PI, Math.E
+		};
+		for (double d : values) {
+			assertFormat(d);
+			assertFormat(-d);
+		}
+	}
+
+	@Test
+	public void testRandomValues() {
+		Random rnd = new Random(1234);
+		for (int i = 0; i < 200000; i++) {
+			double d = rnd.nextDouble() * Math.pow(10, rnd.nextInt(24) - 12);
+			assertFormat(d);
+			assertFormat(-d);
+		}
+	}
+
+	@Test
+	public void testRoundedValues() {
+		// Values at and near the rounding boundaries of five significant digits
+		Random rnd = new Random(5678);
+		for (int i = 0; i < 100000; i++) {
+			double d = (rnd.nextInt(1000000) + 0.5) * Math.pow(10, rnd.nextInt(16) - 10);
+			assertFormat(d);
+			assertFormat(Math.nextUp(d));
+			assertFormat(Math.nextAfter(d, 0));
+		}
+	}
+
+	@Test
+	public void testRandomBits() {
+		Random rnd = new Random(9012);
+		for (int i = 0; i < 100000; i++) {
+			assertFormat(Double.longBitsToDouble(rnd.nextLong()));
+		}
+	}
+
+	@Test
+	public void testAppendAndWrite() throws Exception {
+		StringBuilder sb = new StringBuilder("x");
+		StringWriter writer = new StringWriter();
+		writer.write("x");
+		String expected = "x";
+		for (double d : new double[] { 1.5, -0.000123456, 1e20, 12345678 }) {
+			formatter.append(sb, d);
+			formatter.write(writer, d);
+			expected += referenceToString(d);
+		}
+		assertEquals(expected, sb.toString());
+		assertEquals(expected, writer.toString());
+	}
+
+
+	private void assertFormat(double d) {
+		String expected = referenceToString(d);
+		assertEquals("Formatting " + d, expected, formatter.toString(d));
+		assertEquals("Formatting " + d, expected, TextUtil.doubleToString(d));
+	}
+
+
+	/*
+	 * The original string-based implementation of TextUtil.doubleToString, which
+	 * defines the storage format of the values.
+	 */
+	private static String referenceToString(double d) {
+
+		// Check for special cases
+		if (MathUtil.equals(d, 0))
+			return "0";
+
+		if (Double.isNaN(d))
+			return "NaN";
+
+		if (Double.isInfinite(d)) {
+			if (d < 0)
+				return "-Inf";
+			else
+				return "Inf";
+		}
+
+
+		final String sign = (d < 0) ? "-" : "";
+		double abs = Math.abs(d);
+
+		// Small and large values always in exponential notation
+		if (abs < 0.001 || abs >= 100000000) {
+			return sign + exponentialFormat(abs);
+		}
+
+		// Check whether decimal or exponential notation is shorter
+
+		String exp = exponentialFormat(abs);
+		String dec = decimalFormat(abs);
+
+		if (dec.length() <= exp.length())
+			return sign + dec;
+		else
+			return sign + exp;
+	}
+
+
+	/*
+	 * value must be positive and not zero!
+	 */
+	private static String exponentialFormat(double value) {
+		int exp;
+
+		exp = 0;
+		while (value < 1.0) {
+			value *= 10;
+			exp--;
+		}
+		while (value >= 10.0) {
+			value /= 10;
+			exp++;
+		}
+
+		return shortDecimal(value, 4) + "e" + exp;
+	}
+
+
+	/*
+	 * value must be positive and not zero!
+	 */
+	private static String decimalFormat(double value) {
+		if (value >= 10000)
+			return "" + (int) (value + 0.5);
+
+		int decimals = 1;
+		double v = value;
+		while (v < 1000) {
+			v *= 10;
+			decimals++;
+		}
+
+		return shortDecimal(value, decimals);
+	}
+
+
+	/*
+	 * value must be positive!
+	 */
+	private static String shortDecimal(double value, int decimals) {
+
+		// Calculate rounding and limit values (rounding slightly smaller)
+		int rounding = 1;
+		double limit = 0.5;
+		for (int i = 0; i < decimals; i++) {
+			rounding *= 10;
+			limit /= 10;
+		}
+
+		// Round value
+		value = (Math.rint(value * rounding) + 0.1) / rounding;
+
+
+		int whole = (int) value;
+		value -= whole;
+
+
+		if (value < limit)
+			return "" + whole;
+		limit *= 10;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("" + whole);
+		sb.append('.');
+
+
+		for (int i = 0; i < decimals; i++) {
+
+			value *= 10;
+			whole = (int) value;
+			value -= whole;
+			sb.append((char) ('0' + whole));
+
+			if (value < limit)
+				return sb.toString();
+			limit *= 10;
+
+		}
+
+		return sb.toString();
+	}
+
+}
@@ -1,6 +1,9 @@
 package net.sf.openrocket.util;
 
 import static org.junit.Assert.*;
+
+import java.util.Random;
+
 import org.junit.Test;
 
 public class LinearInterpolatorTest {
@@ -29,4 +32,76 @@ public class LinearInterpolatorTest {
 		}
 
 	}
+
+	@Test
+	public void testBuilderSortsAndReplacesPoints() {
+		LinearInterpolator interpolator = new LinearInterpolator.Builder()
+				.addPoint(4, 2)
+				.addPoint(1, 0)
+				.addPoint(2, 5)
+				.addPoints(new double[] { 1.5, 2 }, new double[] { 1, 0 })
+				.addPoint(5, 2)
+				.build();
+		
+		assertEquals(5, interpolator.getPointCount());
+		assertArrayEquals(new double[] { 1, 1.5, 2, 4, 5 }, interpolator.getXPoints(), 0);
+		assertArrayEquals(new double[] { 0, 1, 0, 2, 2 }, interpolator.getYPoints(), 0);
+		assertEquals(0.5, interpolator.getValue(1.25), 1e-12);
+	}
+	
+	@Test
+	public void testUnsortedArrays() {
+		LinearInterpolator sorted = new LinearInterpolator(
+				new double[] { 1, 1.5, 2, 4, 5 },
+				new double[] { 0, 1, 0, 2, 2 });
+		LinearInterpolator unsorted = new LinearInterpolator(
+				new double[] { 4, 2, 5, 1, 1.5, 2 },
+				new double[] { 2, 7, 2, 0, 1, 0 });
+		
+		assertArrayEquals(sorted.getXPoints(), unsorted.getXPoints(), 0);
+		assertArrayEquals(sorted.getYPoints(), unsorted.getYPoints(), 0);
+	}
+	
+	@Test
+	public void testLookupOrderDoesNotMatter() {
+		double[] x = new double[50];
+		double[] y = new double[50];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i * 0.1 + 0.01 * i * i;
+			y[i] = Math.sin(i);
+		}
+		LinearInterpolator interpolator = new LinearInterpolator(x, y);
+		LinearInterpolator reference = new LinearInterpolator(x, y);
+		
+		// Compare ascending, descending and random lookups against fresh interpolators
+		Random rnd = new Random(3);
+		for (int i = 0; i < 2000; i++) {
+			double value;
+			if (i < 500) {
+				value = -1 + i * 0.05;
+			} else if (i < 1000) {
+				value = 40 - (i - 500) * 0.05;
+			} else {
+				value = rnd.nextDouble() * 40 - 1;
+			}
+			double expected = new LinearInterpolator(x, y).getValue(value);
+			assertEquals(expected, interpolator.getValue(value), 0);
+			assertEquals(expected, reference.getValue(value), 0);
+			reference.getValue(rnd.nextDouble() * 40);
+		}
+		
+		for (int i = 0; i < x.length; i++) {
+			assertEquals(y[i], interpolator.getValue(x[i]), 0);
+		}
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testEmpty() {
+		new LinearInterpolator.Builder().build().getValue(1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMismatchedLengths() {
+		new LinearInterpolator(new double[] { 1, 2 }, new double[] { 1 });
+	}
 }
@@ -0,0 +1,63 @@
+package net.sf.openrocket.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuantileEstimatorTest {
+	
+	@Test
+	public void testFewValuesAreExact() {
+		QuantileEstimator median = new QuantileEstimator(0.5);
+		assertTrue(Double.isNaN(median.getValue()));
+		median.add(3);
+		median.add(1);
+		median.add(2);
+		assertEquals(3, median.getCount());
+		assertEquals(2, median.getValue(), 0);
+	}
+	
+	@Test
+	public void testUniformDistribution() {
+		Random rnd = new Random(42);
+		double[] ps = { 0.05, 0.25, 0.5, 0.75, 0.95 };
+		QuantileEstimator[] estimators = new QuantileEstimator[ps.length];
+		for (int i = 0; i < ps.length; i++) {
+			estimators[i] = new QuantileEstimator(ps[i]);
+		}
+		
+		double[] values = new double[20000];
+		for (int n = 0; n < values.length; n++) {
+			values[n] = rnd.nextDouble() * 100;
+			for (QuantileEstimator q : estimators) {
+				q.add(values[n]);
+			}
+		}
+		Arrays.sort(values);
+		
+		for (int i = 0; i < ps.length; i++) {
+			double exact = values[(int) (ps[i] * (values.length - 1))];
+			assertEquals(exact, estimators[i].getValue(), 1.0);
+		}
+	}
+	
+	@Test
+	public void testNormalDistribution() {
+		Random rnd = new Random(7);
+		QuantileEstimator q95 = new QuantileEstimator(0.95);
+		for (int n = 0; n < 20000; n++) {
+			q95.add(rnd.nextGaussian());
+		}
+		assertEquals(1.645, q95.getValue(), 0.05);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQuantile() {
+		new QuantileEstimator(1.5);
+	}
+	
+}
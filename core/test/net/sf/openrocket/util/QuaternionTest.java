@@ -45,5 +45,34 @@ public class QuaternionTest {
 		
 	}
 	
+	@Test
+	public void testMultiplyLeftRotation() {
+		Quaternion q = new Quaternion(0.237188, 0.570190, -0.514542, 0.594872);
+		Coordinate[] rotations = {
+				new Coordinate(0.1, -0.2, 0.3),
+				new Coordinate(1e-8, 0, 0),
+				Coordinate.NUL
+		};
+		for (Coordinate r : rotations) {
+			Quaternion expected = q.multiplyLeft(Quaternion.rotation(r));
+			Quaternion actual = q.multiplyLeftRotation(r.x, r.y, r.z);
+			assertEquals(expected.getW(), actual.getW(), 0);
+			assertEquals(expected.getX(), actual.getX(), 0);
+			assertEquals(expected.getY(), actual.getY(), 0);
+			assertEquals(expected.getZ(), actual.getZ(), 0);
+		}
+	}
+	
+	@Test
+	public void testRotateIntoArray() {
+		Quaternion q = Quaternion.rotation(new Coordinate(0.1, -0.2, 0.3));
+		Coordinate c = new Coordinate(148578428.914, 8126778.954, -607.741);
+		Coordinate expected = q.rotate(c);
+		double[] actual = new double[3];
+		q.rotate(c.x, c.y, c.z, actual);
+		assertEquals(expected.x, actual[0], 0);
+		assertEquals(expected.y, actual[1], 0);
+		assertEquals(expected.z, actual[2], 0);
+	}
 	
 }
@@ -0,0 +1,51 @@
+package net.sf.openrocket.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RunningStatisticsTest {
+	
+	@Test
+	public void testEmpty() {
+		RunningStatistics stats = new RunningStatistics();
+		assertEquals(0, stats.getCount());
+		assertTrue(Double.isNaN(stats.getMean()));
+		assertTrue(Double.isNaN(stats.getVariance()));
+		assertTrue(Double.isNaN(stats.getMinimum()));
+	}
+	
+	@Test
+	public void testMatchesArrayUtils() {
+		Random rnd = new Random(123);
+		double[] values = new double[10000];
+		RunningStatistics stats = new RunningStatistics();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 1e6 + rnd.nextGaussian() * 3;
+			stats.add(values[i]);
+		}
+		
+		assertEquals(values.length, stats.getCount());
+		assertEquals(ArrayUtils.mean(values), stats.getMean(), 1e-6);
+		assertEquals(ArrayUtils.variance(values), stats.getVariance(), 1e-6);
+		assertEquals(ArrayUtils.stdev(values), stats.getStandardDeviation(), 1e-6);
+		assertEquals(ArrayUtils.min(values), stats.getMinimum(), 0);
+		assertEquals(ArrayUtils.max(values), stats.getMaximum(), 0);
+		assertEquals(stats.getVariance() * values.length / (values.length - 1), stats.getSampleVariance(), 1e-9);
+	}
+	
+	@Test
+	public void testNaNIgnored() {
+		RunningStatistics stats = new RunningStatistics();
+		stats.add(1);
+		stats.add(Double.NaN);
+		stats.add(3);
+		assertEquals(2, stats.getCount());
+		assertEquals(2, stats.getMean(), 0);
+		assertEquals(1, stats.getVariance(), 0);
+	}
+	
+}
@@ -2,7 +2,6 @@ package net.sf.openrocket.database;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -10,6 +9,7 @@ import net.sf.openrocket.file.iterator.DirectoryIterator;
 import net.sf.openrocket.file.iterator.FileIterator;
 import net.sf.openrocket.gui.util.SimpleFileFilter;
 import net.sf.openrocket.gui.util.SwingPreferences;
+import net.sf.openrocket.preset.BinaryPresetLoader;
 import net.sf.openrocket.preset.ComponentPreset;
 import net.sf.openrocket.preset.xml.OpenRocketComponentLoader;
 import net.sf.openrocket.startup.Application;
@@ -50,14 +50,13 @@ public class ComponentPresetDatabaseLoader extends AsynchronousDatabaseLoader {
 		
 		log.info("Loading component presets from " + SYSTEM_PRESET_DIR);
 		
-		FileIterator iterator = DirectoryIterator.findDirectory(SYSTEM_PRESET_DIR, new SimpleFileFilter("", false, "ser"));
+		FileIterator iterator = DirectoryIterator.findDirectory(SYSTEM_PRESET_DIR, new SimpleFileFilter("", false, BinaryPresetLoader.EXTENSION));
 		
 		if (iterator != null) {
 			while (iterator.hasNext()) {
 				Pair<String, InputStream> f = iterator.next();
 				try {
-					ObjectInputStream ois = new ObjectInputStream(f.getV());
-					List<ComponentPreset> list = (List<ComponentPreset>) ois.readObject();
+					List<ComponentPreset> list = new BinaryPresetLoader().load(f.getV());
 					componentPresetDao.addAll(list);
 					fileCount++;
 					presetCount += list.size();
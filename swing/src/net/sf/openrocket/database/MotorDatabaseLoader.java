@@ -1,17 +1,19 @@
 package net.sf.openrocket.database;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
+import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.openrocket.arch.SystemInfo;
 import net.sf.openrocket.database.motor.ThrustCurveMotorSetDatabase;
 import net.sf.openrocket.file.iterator.DirectoryIterator;
 import net.sf.openrocket.file.iterator.FileIterator;
+import net.sf.openrocket.file.motor.BinaryMotorLoader;
 import net.sf.openrocket.file.motor.GeneralMotorLoader;
+import net.sf.openrocket.file.motor.MotorFileCache;
+import net.sf.openrocket.file.motor.ParallelMotorLoader;
 import net.sf.openrocket.gui.util.SimpleFileFilter;
 import net.sf.openrocket.gui.util.SwingPreferences;
 import net.sf.openrocket.motor.Motor;
@@ -37,6 +39,9 @@ public class MotorDatabaseLoader extends AsynchronousDatabaseLoader {
 	private static final String THRUSTCURVE_DIRECTORY = "datafiles/thrustcurves/";
 	private static final long STARTUP_DELAY = 0;
 	
+	/** Cache of the motors parsed from user-defined motor files, in the user application directory */
+	private static final String CACHE_FILE = "ThrustCurveCache.bin";
+	
 	private final ThrustCurveMotorSetDatabase database = new ThrustCurveMotorSetDatabase();
 	private int motorCount = 0;
 	
@@ -53,7 +58,8 @@ public class MotorDatabaseLoader extends AsynchronousDatabaseLoader {
 		SimpleFileFilter fileFilter = new SimpleFileFilter("", loader.getSupportedExtensions());
 		
 		log.info("Starting reading serialized motor database");
-		FileIterator iterator = DirectoryIterator.findDirectory(THRUSTCURVE_DIRECTORY, new SimpleFileFilter("", false, "ser"));
+		FileIterator iterator = DirectoryIterator.findDirectory(THRUSTCURVE_DIRECTORY,
+				new SimpleFileFilter("", false, BinaryMotorLoader.EXTENSION));
 		while (iterator.hasNext()) {
 			Pair<String, InputStream> f = iterator.next();
 			loadSerialized(f);
@@ -62,74 +68,47 @@ public class MotorDatabaseLoader extends AsynchronousDatabaseLoader {
 		
 		
 		log.info("Starting reading user-defined motors");
+		List<File> files = new ArrayList<File>();
 		for (File file : ((SwingPreferences) Application.getPreferences()).getUserThrustCurveFiles()) {
 			if (file.isFile()) {
-				loadFile(loader, file);
+				files.add(file);
 			} else if (file.isDirectory()) {
-				loadDirectory(loader, fileFilter, file);
+				try {
+					files.addAll(ParallelMotorLoader.listFiles(file, fileFilter));
+				} catch (IOException e) {
+					log.warn("Unable to read directory " + file + ": " + e, e);
+				}
 			} else {
 				log.warn("User-defined motor file " + file + " is neither file nor directory");
 			}
 		}
+		
+		MotorFileCache cache = new MotorFileCache(new File(SystemInfo.getUserApplicationDirectory(), CACHE_FILE));
+		cache.load();
+		addMotors(new ParallelMotorLoader(cache).load(files));
+		try {
+			cache.save();
+		} catch (IOException e) {
+			log.warn("Unable to save motor cache: " + e, e);
+		}
 		log.info("Ending reading user-defined motors, motorCount=" + motorCount);
 		
 	}
 	
 	
 	
-	@SuppressWarnings("unchecked")
 	private void loadSerialized(Pair<String, InputStream> f) {
 		try {
 			log.debug("Reading motors from file " + f.getU());
-			ObjectInputStream ois = new ObjectInputStream(f.getV());
-			List<Motor> motors = (List<Motor>) ois.readObject();
+			List<Motor> motors = new BinaryMotorLoader().load(f.getV(), f.getU());
 			addMotors(motors);
 		} catch (Exception ex) {
 			throw new BugException(ex);
-		}
-	}
-	
-	
-	private void loadFile(GeneralMotorLoader loader, File file) {
-		BufferedInputStream bis = null;
-		try {
-			log.debug("Loading motors from file " + file);
-			bis = new BufferedInputStream(new FileInputStream(file));
-			List<Motor> motors = loader.load(bis, file.getName());
-			addMotors(motors);
-			bis.close();
-		} catch (IOException e) {
-			log.warn("IOException while reading " + file + ": " + e, e);
-			if (bis != null) {
-				try {
-					bis.close();
-				} catch (IOException e1) {
-					
-				}
-			}
-		}
-	}
-	
-	private void loadDirectory(GeneralMotorLoader loader, SimpleFileFilter fileFilter, File file) {
-		FileIterator iterator;
-		try {
-			iterator = new DirectoryIterator(file, fileFilter, true);
-		} catch (IOException e) {
-			log.warn("Unable to read directory " + file + ": " + e, e);
-			return;
-		}
-		while (iterator.hasNext()) {
-			Pair<String, InputStream> f = iterator.next();
+		} finally {
 			try {
-				List<Motor> motors = loader.load(f.getV(), f.getU());
-				addMotors(motors);
 				f.getV().close();
 			} catch (IOException e) {
-				log.warn("IOException while loading file " + f.getU() + ": " + e, e);
-				try {
-					f.getV().close();
-				} catch (IOException e1) {
-				}
+				log.warn("Unable to close motor file " + f.getU() + ": " + e, e);
 			}
 		}
 	}
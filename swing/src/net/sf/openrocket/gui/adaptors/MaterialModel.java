@@ -2,6 +2,7 @@ package net.sf.openrocket.gui.adaptors;
 
 
 import java.awt.Component;
+import java.util.List;
 
 import javax.swing.AbstractListModel;
 import javax.swing.ComboBoxModel;
@@ -160,6 +161,11 @@ public class MaterialModel extends AbstractListModel implements
 		this.fireContentsChanged(this, 0, database.size());
 	}
 
+	@Override
+	public void elementsAdded(List<Material> elements, Database<Material> source) {
+		this.fireContentsChanged(this, 0, database.size());
+	}
+
 	@Override
 	public void elementRemoved(Material element, Database<Material> source) {
 		this.fireContentsChanged(this, 0, database.size());
@@ -114,6 +114,12 @@ public class PresetModel extends AbstractListModel implements ComboBoxModel, Com
 		this.fireContentsChanged(this, 0, getSize());
 	}
 	
+	@Override
+	public void elementsAdded(List<ComponentPreset> elements, Database<ComponentPreset> source) {
+		presets = Application.getComponentPresetDao().listForType(component.getPresetType(), true);
+		this.fireContentsChanged(this, 0, getSize());
+	}
+	
 	@Override
 	public void elementRemoved(ComponentPreset element, Database<ComponentPreset> source) {
 		presets = Application.getComponentPresetDao().listForType(component.getPresetType(), true);
@@ -99,6 +99,7 @@ public class CustomExpressionPanel extends JPanel {
 					
 					// Load expressions from selected document
 					GeneralRocketLoader loader = new GeneralRocketLoader(importFile);
+					loader.setLazySimulationData(true);
 					try {
 						OpenRocketDocument importedDocument = loader.load();
 						for (CustomExpression exp : importedDocument.getCustomExpressions()) {
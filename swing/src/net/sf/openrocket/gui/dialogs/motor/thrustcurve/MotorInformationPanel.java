@@ -248,7 +248,7 @@ class MotorInformationPanel extends JPanel {
 				selectedMotor.getLaunchCG().weight));
 		emptyMassLabel.setText(UnitGroup.UNITS_MASS.getDefaultUnit().toStringUnit(
 				selectedMotor.getEmptyCG().weight));
-		dataPointsLabel.setText("" + (selectedMotor.getTimePoints().length - 1));
+		dataPointsLabel.setText("" + (selectedMotor.getDataPointCount() - 1));
 		if (digestLabel != null) {
 			digestLabel.setText(selectedMotor.getDigest());
 		}
@@ -23,7 +23,7 @@ public class ThrustCurveMotorComparator implements Comparator<ThrustCurveMotor>
 		 * 10 chars of comments correspond to one thrust point, max ten points.
 		 */
 		int commentLength = Math.min(motor.getDescription().length(), 100);
-		return motor.getTimePoints().length * 10 + commentLength;
+		return motor.getDataPointCount() * 10 + commentLength;
 	}
 	
 
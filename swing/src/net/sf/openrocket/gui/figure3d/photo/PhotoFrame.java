@@ -130,6 +130,7 @@ public class PhotoFrame extends JFrame {
 						((SwingPreferences) Application.getPreferences()).setDefaultDirectory(chooser
 								.getCurrentDirectory());
 						GeneralRocketLoader grl = new GeneralRocketLoader(file);
+						grl.setLazySimulationData(true);
 						try {
 							OpenRocketDocument doc = grl.load();
 							photoPanel.setDoc(doc);
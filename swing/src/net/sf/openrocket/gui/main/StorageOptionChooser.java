@@ -39,6 +39,8 @@ public class StorageOptionChooser extends JPanel {
 	
 	private JSpinner timeSpinner;
 	
+	private JCheckBox binaryCheckBox;
+	
 	private JLabel estimateLabel;
 	
 	
@@ -118,7 +120,16 @@ public class StorageOptionChooser extends JPanel {
 				trans.get("StorageOptChooser.lbl.longC2"));
 		buttonGroup.add(noneButton);
 		noneButton.addActionListener(actionUpdater);
-		this.add(noneButton, "spanx, wrap 20lp");
+		this.add(noneButton, "spanx, wrap para");
+		
+		//// Store simulated data in binary format
+		binaryCheckBox = new JCheckBox(trans.get("StorageOptChooser.checkbox.Binarydata"));
+		//// <html>Store the simulated data exactly in a compact binary format.<br>
+		//// Such files cannot be opened with older versions of OpenRocket.
+		binaryCheckBox.setToolTipText(trans.get("StorageOptChooser.checkbox.longE1") +
+				trans.get("StorageOptChooser.checkbox.longE2"));
+		binaryCheckBox.addActionListener(actionUpdater);
+		this.add(binaryCheckBox, "spanx, wrap 20lp");
 		
 		// Estimate is updated in loadOptions(opts)
 		estimateLabel = new JLabel("");
@@ -152,6 +163,8 @@ public class StorageOptionChooser extends JPanel {
 			someButton.setSelected(true);
 		}
 		
+		binaryCheckBox.setSelected(opts.isBinarySimulationData());
+		
 		// Time skip spinner
 		artificialEvent = true;
 		timeSpinner.setValue(t);
@@ -173,6 +186,7 @@ public class StorageOptionChooser extends JPanel {
 		}
 		
 		opts.setSimulationTimeSkip(t);
+		opts.setBinarySimulationData(binaryCheckBox.isSelected());
 		
 		opts.setExplicitlySet(true);
 	}
@@ -11,6 +11,7 @@ import net.sf.openrocket.startup.Application;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.SwingUtilities;
 import java.awt.Component;
+import java.util.List;
 
 /**
  * A material model specifically for presets.
@@ -122,6 +123,11 @@ public class MaterialModel extends DefaultComboBoxModel implements DatabaseListe
         this.fireContentsChanged(this, 0, database.size());
     }
 
+    @Override
+    public void elementsAdded(List<Material> elements, Database<Material> source) {
+        this.fireContentsChanged(this, 0, database.size());
+    }
+
     @Override
     public void elementRemoved(Material element, Database<Material> source) {
         this.fireContentsChanged(this, 0, database.size());